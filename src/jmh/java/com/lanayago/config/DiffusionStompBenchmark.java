@@ -0,0 +1,96 @@
+package com.lanayago.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit de diffusion du broker STOMP en mémoire (mode « simple ») : chaque session est abonnée à sa propre
+ * destination, comme /topic/chauffeur/{id}, et chaque publication vise une destination au hasard.
+ * Une opération est un message remis à un abonné. Le cache de destinations du registre d'abonnements
+ * (websocket.broker.cache-destinations) est comparé à sa valeur par défaut.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class DiffusionStompBenchmark {
+
+	@Param({"10000", "100000"})
+	private int destinations;
+
+	@Param({"1024", "131072"})
+	private int cacheDestinations;
+
+	private SimpleBrokerMessageHandler broker;
+	private Message<byte[]>[] publications;
+	private long remis;
+	private int suivante;
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("unchecked")
+	public void preparer() {
+		SubscribableChannel entrant = new ExecutorSubscribableChannel();
+		MessageChannel sortant = (message, timeout) -> {
+			remis++;
+			return true;
+		};
+		broker = new SimpleBrokerMessageHandler(entrant, sortant, new ExecutorSubscribableChannel(), List.of("/topic"));
+		broker.setCacheLimit(cacheDestinations);
+		broker.start();
+
+		for (int i = 0; i < destinations; i++) {
+			SimpMessageHeaderAccessor abonnement = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+			abonnement.setSessionId("session-" + i);
+			abonnement.setSubscriptionId("abonnement-" + i);
+			abonnement.setDestination("/topic/chauffeur/" + i);
+			broker.handleMessage(MessageBuilder.createMessage(new byte[0], abonnement.getMessageHeaders()));
+		}
+
+		// Publications préparées à l'avance : seule la diffusion est mesurée
+		SplittableRandom aleatoire = new SplittableRandom(42);
+		byte[] contenu = "{\"type\":\"POSITION\",\"latitude\":4.0511,\"longitude\":9.7679}".getBytes(StandardCharsets.UTF_8);
+		publications = new Message[65_536];
+		for (int k = 0; k < publications.length; k++) {
+			SimpMessageHeaderAccessor publication = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+			publication.setDestination("/topic/chauffeur/" + aleatoire.nextInt(destinations));
+			publications[k] = MessageBuilder.createMessage(contenu, publication.getMessageHeaders());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void arreter() {
+		broker.stop();
+	}
+
+	@Benchmark
+	public long diffuser() {
+		broker.handleMessage(publications[suivante++ & (publications.length - 1)]);
+		return remis;
+	}
+}
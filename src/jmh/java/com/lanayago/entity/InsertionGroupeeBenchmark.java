@@ -0,0 +1,127 @@
+package com.lanayago.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit d'insertion d'une ligne au format d'une recherche de transport, avant (IDENTITY) et après
+ * (identifiants groupés) : une opération = une transaction de {@code lot} lignes.
+ * H2 en mémoire par défaut ; pour mesurer l'effet des allers-retours réseau, viser MySQL :
+ * ./gradlew jmh -PjmhArgs="InsertionGroupee -p url=jdbc:mysql://localhost:3306/bench?rewriteBatchedStatements=true -p utilisateur=root -p motDePasse=..."
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InsertionGroupeeBenchmark {
+
+	@Param("jdbc:h2:mem:insertion;DB_CLOSE_DELAY=-1")
+	private String url;
+
+	@Param("sa")
+	private String utilisateur;
+
+	@Param("")
+	private String motDePasse;
+
+	@Param({"1", "100"})
+	private int lot;
+
+	private SessionFactory sessionFactory;
+
+	@Entity
+	@Table(name = "bench_lignes_identite")
+	public static class LigneIdentite extends Ligne {
+		@Id
+		@GeneratedValue(strategy = GenerationType.IDENTITY)
+		private Long id;
+	}
+
+	@Entity
+	@Table(name = "bench_lignes_groupees")
+	public static class LigneGroupee extends Ligne {
+		@Id
+		@IdentifiantGroupe("bench_lignes_groupees")
+		private Long id;
+	}
+
+	@jakarta.persistence.MappedSuperclass
+	public abstract static class Ligne {
+		private Double latitudeDepart = 4.0511;
+		private Double longitudeDepart = 9.7679;
+		private String adresseDepart = "Akwa, Douala";
+		private Double latitudeArrivee = 3.848;
+		private Double longitudeArrivee = 11.5021;
+		private String adresseArrivee = "Bastos, Yaoundé";
+		private BigDecimal poidsMarchandise = BigDecimal.valueOf(1200);
+		private Boolean active = true;
+		private LocalDateTime dateCreation = LocalDateTime.now();
+	}
+
+	@Setup(Level.Trial)
+	public void demarrer() {
+		sessionFactory = new Configuration()
+				.addAnnotatedClass(LigneIdentite.class)
+				.addAnnotatedClass(LigneGroupee.class)
+				.setProperty(AvailableSettings.JAKARTA_JDBC_URL, url)
+				.setProperty(AvailableSettings.JAKARTA_JDBC_USER, utilisateur)
+				.setProperty(AvailableSettings.JAKARTA_JDBC_PASSWORD, motDePasse)
+				.setProperty(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+				// Mêmes réglages que application.yml
+				.setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50")
+				.setProperty(AvailableSettings.ORDER_INSERTS, "true")
+				.setProperty("lanayago.identifiants.allocation.defaut", "100")
+				.buildSessionFactory();
+	}
+
+	@TearDown(Level.Trial)
+	public void arreter() {
+		sessionFactory.close();
+	}
+
+	@Benchmark
+	public void insertionIdentity() {
+		inserer(LigneIdentite::new);
+	}
+
+	@Benchmark
+	public void insertionGroupee() {
+		inserer(LigneGroupee::new);
+	}
+
+	private void inserer(java.util.function.Supplier<? extends Ligne> fabrique) {
+		try (Session session = sessionFactory.openSession()) {
+			session.beginTransaction();
+			for (int i = 0; i < lot; i++) {
+				session.persist(fabrique.get());
+			}
+			session.getTransaction().commit();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package com.lanayago.service.envoi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lanayago.dto.NotificationDTO;
+import com.lanayago.entity.Commande;
+import com.lanayago.enums.StatutCommande;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de sérialisation d'un événement de commande notifié à plusieurs destinataires : classe anonyme
+ * lisant l'entité, sérialisée pour chaque destination (ancien NotificationService), contre un record
+ * construit et sérialisé une seule fois. Une opération est un événement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerialisationNotificationsBenchmark {
+
+	@Param({"1", "20"})
+	private int destinataires;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private Commande commande;
+
+	@Setup
+	public void preparer() {
+		commande = new Commande();
+		commande.setId(1_234_567L);
+		commande.setNumeroCommande("CMD-20261017-000042");
+		commande.setStatut(StatutCommande.EN_ATTENTE);
+	}
+
+	@Benchmark
+	public void classeAnonymeParDestinataire(Blackhole trou) throws Exception {
+		for (int i = 0; i < destinataires; i++) {
+			trou.consume(objectMapper.writeValueAsBytes(notificationAnonyme(commande, "NOUVELLE_COMMANDE")));
+		}
+	}
+
+	@Benchmark
+	public void recordSerialiseUneFois(Blackhole trou) throws Exception {
+		NotificationDTO.Commande notification = new NotificationDTO.Commande("NOUVELLE_COMMANDE", commande.getId(),
+				commande.getNumeroCommande(), commande.getStatut().name(), "Nouvelle commande disponible");
+		byte[] charge = objectMapper.writeValueAsBytes(notification);
+		for (int i = 0; i < destinataires; i++) {
+			trou.consume(charge);
+		}
+	}
+
+	// Forme d'origine, conservée pour la comparaison
+	private static Object notificationAnonyme(Commande commande, String type) {
+		return new Object() {
+			public String getType() { return type; }
+			public Long getCommandeId() { return commande.getId(); }
+			public String getNumeroCommande() { return commande.getNumeroCommande(); }
+			public String getStatut() { return commande.getStatut().name(); }
+			public String getMessage() {
+				return switch (type) {
+					case "NOUVELLE_COMMANDE" -> "Nouvelle commande disponible";
+					case "CHANGEMENT_STATUT" -> "Statut de votre commande mis à jour : " + commande.getStatut().getLibelle();
+					default -> "Notification";
+				};
+			}
+		};
+	}
+}
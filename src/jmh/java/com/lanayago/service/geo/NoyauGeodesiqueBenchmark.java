@@ -0,0 +1,103 @@
+package com.lanayago.service.geo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare l'ancien calcul de Haversine (objets Double, trigonométrie complète par paire)
+ * au noyau primitif et à son chemin rapide équirectangulaire, d'une origine vers N points.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NoyauGeodesiqueBenchmark {
+
+	// Autour de Douala, rayon d'une trentaine de kilomètres
+	private static final double LATITUDE_CENTRE = 4.0511;
+	private static final double LONGITUDE_CENTRE = 9.7679;
+	private static final double ETENDUE_DEGRES = 0.3;
+
+	@Param({"1000", "100000", "1000000"})
+	private int taille;
+
+	private double[] latitudes;
+	private double[] longitudes;
+	private Double[] latitudesObjets;
+	private Double[] longitudesObjets;
+	private double[] sortie;
+
+	@Setup(Level.Trial)
+	public void preparer() {
+		SplittableRandom aleatoire = new SplittableRandom(42);
+		latitudes = new double[taille];
+		longitudes = new double[taille];
+		latitudesObjets = new Double[taille];
+		longitudesObjets = new Double[taille];
+		sortie = new double[taille];
+
+		for (int i = 0; i < taille; i++) {
+			latitudes[i] = LATITUDE_CENTRE + (aleatoire.nextDouble() - 0.5) * ETENDUE_DEGRES;
+			longitudes[i] = LONGITUDE_CENTRE + (aleatoire.nextDouble() - 0.5) * ETENDUE_DEGRES;
+			latitudesObjets[i] = latitudes[i];
+			longitudesObjets[i] = longitudes[i];
+		}
+	}
+
+	@Benchmark
+	public double[] ancienHaversine() {
+		Double latitude = LATITUDE_CENTRE;
+		Double longitude = LONGITUDE_CENTRE;
+		for (int i = 0; i < taille; i++) {
+			sortie[i] = haversineHistorique(latitude, longitude, latitudesObjets[i], longitudesObjets[i]);
+		}
+		return sortie;
+	}
+
+	@Benchmark
+	public double[] noyauHaversine() {
+		new NoyauGeodesique.Origine(LATITUDE_CENTRE, LONGITUDE_CENTRE).haversineKm(latitudes, longitudes, sortie);
+		return sortie;
+	}
+
+	@Benchmark
+	public double[] noyauAvecCheminRapide() {
+		NoyauGeodesique.Origine origine = new NoyauGeodesique.Origine(LATITUDE_CENTRE, LONGITUDE_CENTRE);
+		for (int i = 0; i < taille; i++) {
+			sortie[i] = origine.distanceKm(latitudes[i], longitudes[i]);
+		}
+		return sortie;
+	}
+
+	/**
+	 * Implémentation d'origine de GeolocationService.calculerDistance, conservée comme référence
+	 */
+	private static Double haversineHistorique(Double lat1, Double lon1, Double lat2, Double lon2) {
+		final int R = 6371;
+
+		double latDistance = Math.toRadians(lat2 - lat1);
+		double lonDistance = Math.toRadians(lon2 - lon1);
+		double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+				+ Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+				* Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+		double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+		double distance = R * c;
+
+		return Math.round(distance * 100.0) / 100.0;
+	}
+}
@@ -0,0 +1,65 @@
+package com.lanayago.service.numerotation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Débit du générateur de numéros de commande : une instance partagée par 4 threads (contention
+ * sur le compareAndSet), et une instance par thread simulant autant de nœuds distincts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class GenerateurNumeroSnowflakeBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class NoeudPartage {
+		final GenerateurNumeroSnowflake generateur = new GenerateurNumeroSnowflake(1, System::currentTimeMillis);
+	}
+
+	@State(Scope.Thread)
+	public static class NoeudParThread {
+		private static final AtomicInteger NOEUDS = new AtomicInteger();
+		GenerateurNumeroSnowflake generateur;
+
+		@Setup
+		public void preparer() {
+			generateur = new GenerateurNumeroSnowflake(NOEUDS.getAndIncrement(), System::currentTimeMillis);
+		}
+	}
+
+	@Benchmark
+	public String numeroNoeudPartage(NoeudPartage etat) {
+		return etat.generateur.prochainNumero();
+	}
+
+	@Benchmark
+	public long identifiantNoeudPartage(NoeudPartage etat) {
+		return etat.generateur.prochainIdentifiant();
+	}
+
+	@Benchmark
+	public String numeroNoeudsSimules(NoeudParThread etat) {
+		return etat.generateur.prochainNumero();
+	}
+
+	@Benchmark
+	public String ancienNumero() {
+		return "CMD" + System.currentTimeMillis();
+	}
+}
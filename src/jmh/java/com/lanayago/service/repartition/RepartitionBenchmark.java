@@ -0,0 +1,106 @@
+package com.lanayago.service.repartition;
+
+import com.lanayago.service.geo.IndexSpatialChauffeurs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durée d'un lot de répartition (matrice de coûts puis enchères) pour N commandes et N chauffeurs
+ * répartis sur Douala, à comparer à l'intervalle entre deux lots (commande.repartition.intervalle-ms).
+ * L'affectation gloutonne, chaque commande prenant à son tour le chauffeur libre le moins coûteux, sert de référence.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class RepartitionBenchmark {
+
+	private static final double LATITUDE_CENTRE = 4.0511;
+	private static final double LONGITUDE_CENTRE = 9.7679;
+	private static final double ETENDUE_DEGRES = 0.3;
+
+	private static final CoutsRepartition COUTS = new CoutsRepartition(30, 40, 1.0, 0.5, 2.0, 5.0, 5.0);
+
+	@Param({"500", "1000", "2000", "5000"})
+	private int taille;
+
+	private List<CoutsRepartition.Demande> demandes;
+	private List<IndexSpatialChauffeurs.ChauffeurIndexe> chauffeurs;
+	private int[] matrice;
+
+	@Setup(Level.Trial)
+	public void preparer() {
+		SplittableRandom aleatoire = new SplittableRandom(42);
+		demandes = new ArrayList<>(taille);
+		chauffeurs = new ArrayList<>(taille);
+		for (int i = 0; i < taille; i++) {
+			demandes.add(new CoutsRepartition.Demande(
+					LATITUDE_CENTRE + (aleatoire.nextDouble() - 0.5) * ETENDUE_DEGRES,
+					LONGITUDE_CENTRE + (aleatoire.nextDouble() - 0.5) * ETENDUE_DEGRES,
+					0.2 + aleatoire.nextDouble() * 8,
+					Double.NaN,
+					aleatoire.nextInt(10) < 3));
+			chauffeurs.add(new IndexSpatialChauffeurs.ChauffeurIndexe((long) i,
+					LATITUDE_CENTRE + (aleatoire.nextDouble() - 0.5) * ETENDUE_DEGRES,
+					LONGITUDE_CENTRE + (aleatoire.nextDouble() - 0.5) * ETENDUE_DEGRES,
+					new IndexSpatialChauffeurs.Profil(1.5 + aleatoire.nextDouble() * 18, Double.NaN,
+							3 + aleatoire.nextDouble() * 2, aleatoire.nextInt(200))));
+		}
+		matrice = COUTS.matrice(demandes, chauffeurs);
+	}
+
+	@Benchmark
+	public int[] matriceCouts() {
+		return COUTS.matrice(demandes, chauffeurs);
+	}
+
+	@Benchmark
+	public int[] encheres() {
+		return SolveurEncheres.resoudre(matrice, taille, taille, COUTS.coutNonAffectation());
+	}
+
+	@Benchmark
+	public int[] lotComplet() {
+		return SolveurEncheres.resoudre(COUTS.matrice(demandes, chauffeurs), taille, taille, COUTS.coutNonAffectation());
+	}
+
+	@Benchmark
+	public int[] glouton() {
+		int interdit = COUTS.coutNonAffectation();
+		boolean[] pris = new boolean[taille];
+		int[] affectations = new int[taille];
+		Arrays.fill(affectations, SolveurEncheres.NON_AFFECTE);
+		for (int i = 0; i < taille; i++) {
+			int meilleur = SolveurEncheres.NON_AFFECTE;
+			for (int j = 0; j < taille; j++) {
+				int cout = matrice[i * taille + j];
+				if (!pris[j] && cout < interdit && (meilleur < 0 || cout < matrice[i * taille + meilleur])) {
+					meilleur = j;
+				}
+			}
+			if (meilleur >= 0) {
+				pris[meilleur] = true;
+				affectations[i] = meilleur;
+			}
+		}
+		return affectations;
+	}
+}
@@ -0,0 +1,43 @@
+package com.lanayago.config;
+
+import com.lanayago.service.geo.distance.CacheDistanceProvider;
+import com.lanayago.service.geo.distance.DisjoncteurDistanceProvider;
+import com.lanayago.service.geo.distance.GoogleMapsDistanceProvider;
+import com.lanayago.service.geo.distance.HaversineDistanceProvider;
+import com.lanayago.service.geo.distance.IDistanceProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Chaîne des fournisseurs de distance : cache → disjoncteur → Google Maps, avec repli Haversine.
+ * Les distances du repli ne sont pas mises en cache sous la clé des distances routières.
+ */
+@Configuration
+public class DistanceConfig {
+
+	@Bean
+	@Primary
+	public IDistanceProvider distanceProvider(GoogleMapsDistanceProvider googleMapsDistanceProvider,
+	                                          HaversineDistanceProvider haversineDistanceProvider,
+	                                          MeterRegistry meterRegistry,
+	                                          @Value("${google.maps.api-key:}") String apiKey,
+	                                          @Value("${geolocalisation.distance.fournisseur:google}") String fournisseur,
+	                                          @Value("${geolocalisation.distance.disjoncteur.seuil-echecs:3}") int seuilEchecs,
+	                                          @Value("${geolocalisation.distance.disjoncteur.seuil-lenteur-ms:1000}") long seuilLenteurMs,
+	                                          @Value("${geolocalisation.distance.disjoncteur.duree-ouverture-ms:30000}") long dureeOuvertureMs,
+	                                          @Value("${geolocalisation.distance.cache.capacite:10000}") int capacite,
+	                                          @Value("${geolocalisation.distance.cache.ttl-ms:3600000}") long ttlMs,
+	                                          @Value("${geolocalisation.distance.cache.decimales-cle:3}") int decimalesCle) {
+
+		IDistanceProvider source = haversineDistanceProvider;
+		if ("google".equals(fournisseur) && apiKey != null && !apiKey.isBlank()) {
+			source = new DisjoncteurDistanceProvider(googleMapsDistanceProvider, haversineDistanceProvider,
+					seuilEchecs, seuilLenteurMs, dureeOuvertureMs, meterRegistry);
+		}
+
+		return new CacheDistanceProvider(source, capacite, ttlMs, decimalesCle, meterRegistry);
+	}
+}
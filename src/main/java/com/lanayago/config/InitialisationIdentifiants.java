@@ -0,0 +1,67 @@
+package com.lanayago.config;
+
+import com.lanayago.entity.GenerateurIdentifiantsGroupes;
+import com.lanayago.entity.IdentifiantGroupe;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Table;
+import jakarta.persistence.metamodel.EntityType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+
+/**
+ * Aligne chaque segment de sequences_identifiants sur MAX(id) + 1 de sa table au démarrage,
+ * une fois le schéma mis à jour et avant toute insertion : les lignes créées du temps
+ * de l'AUTO_INCREMENT ne peuvent pas entrer en collision avec les blocs alloués ensuite.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InitialisationIdentifiants {
+
+	private static final String SQL_AVANCER =
+			"UPDATE " + GenerateurIdentifiantsGroupes.TABLE +
+					" SET " + GenerateurIdentifiantsGroupes.COLONNE_VALEUR + " = GREATEST(" + GenerateurIdentifiantsGroupes.COLONNE_VALEUR +
+					", (SELECT COALESCE(MAX(id), 0) + 1 FROM %s)) WHERE " + GenerateurIdentifiantsGroupes.COLONNE_SEGMENT + " = ?";
+
+	private static final String SQL_CREER =
+			"INSERT INTO " + GenerateurIdentifiantsGroupes.TABLE +
+					" (" + GenerateurIdentifiantsGroupes.COLONNE_SEGMENT + ", " + GenerateurIdentifiantsGroupes.COLONNE_VALEUR + ")" +
+					" SELECT ?, COALESCE(MAX(id), 0) + 1 FROM %s";
+
+	// Dépendance volontaire : la fabrique JPA a créé sequences_identifiants avant cette initialisation
+	private final EntityManagerFactory entityManagerFactory;
+	private final JdbcTemplate jdbcTemplate;
+
+	@PostConstruct
+	void initialiser() {
+		for (EntityType<?> entite : entityManagerFactory.getMetamodel().getEntities()) {
+			Class<?> classe = entite.getJavaType();
+			Table table = classe.getAnnotation(Table.class);
+			for (Field champ : classe.getDeclaredFields()) {
+				IdentifiantGroupe identifiant = champ.getAnnotation(IdentifiantGroupe.class);
+				if (identifiant != null && table != null) {
+					aligner(identifiant.value(), table.name());
+				}
+			}
+		}
+	}
+
+	private void aligner(String segment, String table) {
+		if (jdbcTemplate.update(SQL_AVANCER.formatted(table), segment) == 1) {
+			return;
+		}
+		try {
+			jdbcTemplate.update(SQL_CREER.formatted(table), segment);
+			log.info("Segment d'identifiants {} initialisé depuis la table {}", segment, table);
+		} catch (DuplicateKeyException e) {
+			// Créé entre-temps par une autre instance
+			jdbcTemplate.update(SQL_AVANCER.formatted(table), segment);
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.lanayago.config;
+
+import com.lanayago.service.tache.RoueTemporelle;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+	/**
+	 * Exécute les échéances des commandes (délais d'offre et d'acceptation), qui écrivent en base
+	 */
+	@Bean(destroyMethod = "shutdownNow")
+	public ExecutorService executeurEcheances(@Value("${commande.echeances.threads:2}") int threads) {
+		return Executors.newFixedThreadPool(threads, tache -> {
+			Thread thread = new Thread(tache, "echeances-commandes");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Roue partagée par toutes les échéances des commandes
+	 */
+	@Bean(destroyMethod = "close")
+	public RoueTemporelle roueEcheances(@Value("${commande.echeances.duree-tick-ms:10}") long dureeTickMs,
+	                                    @Value("${commande.echeances.nombre-cases:256}") int nombreCases,
+	                                    ExecutorService executeurEcheances) {
+		return new RoueTemporelle("roue-echeances", Duration.ofMillis(dureeTickMs), nombreCases, executeurEcheances);
+	}
+}
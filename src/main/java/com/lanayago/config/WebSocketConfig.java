@@ -1,25 +1,148 @@
 package com.lanayago.config;
 
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.messaging.simp.stomp.StompReactorNettyCodec;
+import org.springframework.messaging.tcp.reactor.ReactorNettyTcpClient;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.tcp.TcpClient;
 
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Messagerie STOMP. Mode « simple » : broker en mémoire, limité à une instance (développement, tests).
+ * Mode « relais » : les abonnements et publications sont relayés à un broker STOMP externe (ActiveMQ Artemis,
+ * RabbitMQ...), si bien qu'un message publié sur un nœud atteint les clients connectés à tous les autres.
+ */
 @Configuration
 @EnableWebSocketMessageBroker
+@Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+	private static final String MODE_RELAIS = "relais";
+
+	@Value("${websocket.broker.mode:simple}")
+	private String mode;
+
+	@Value("${websocket.broker.heartbeat.envoi-ms:10000}")
+	private long heartbeatEnvoiMs;
+
+	@Value("${websocket.broker.heartbeat.reception-ms:10000}")
+	private long heartbeatReceptionMs;
+
+	@Value("${websocket.broker.cache-destinations:1024}")
+	private int cacheDestinations;
+
+	@Value("${websocket.broker.relais.hotes:localhost:61613}")
+	private List<String> hotesRelais;
+
+	@Value("${websocket.broker.relais.virtual-host:}")
+	private String virtualHost;
+
+	@Value("${websocket.broker.relais.login:guest}")
+	private String login;
+
+	@Value("${websocket.broker.relais.passcode:guest}")
+	private String passcode;
+
+	@Value("${websocket.broker.relais.connexions-maximum:2000}")
+	private int connexionsMaximum;
+
+	@Value("${websocket.broker.relais.attente-connexion-ms:5000}")
+	private long attenteConnexionMs;
+
+	@Value("${websocket.sockjs.heartbeat-ms:25000}")
+	private long heartbeatSockJsMs;
+
+	private TaskScheduler ordonnanceurBroker;
+	private ConnectionProvider poolRelais;
+
+	@Autowired
+	public void setOrdonnanceurBroker(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler ordonnanceurBroker) {
+		this.ordonnanceurBroker = ordonnanceurBroker;
+	}
+
 	@Override
 	public void configureMessageBroker(MessageBrokerRegistry config) {
-		config.enableSimpleBroker("/topic");
 		config.setApplicationDestinationPrefixes("/app");
+		config.setCacheLimit(cacheDestinations);
+
+		if (!MODE_RELAIS.equals(mode)) {
+			config.enableSimpleBroker("/topic")
+					.setHeartbeatValue(new long[]{heartbeatEnvoiMs, heartbeatReceptionMs})
+					.setTaskScheduler(ordonnanceurBroker);
+			return;
+		}
+
+		StompBrokerRelayRegistration relais = config.enableStompBrokerRelay("/topic")
+				.setClientLogin(login)
+				.setClientPasscode(passcode)
+				.setSystemLogin(login)
+				.setSystemPasscode(passcode)
+				.setSystemHeartbeatSendInterval(heartbeatEnvoiMs)
+				.setSystemHeartbeatReceiveInterval(heartbeatReceptionMs)
+				.setTcpClient(clientRelais(hotesRelais, poolRelais()));
+		if (!virtualHost.isBlank()) {
+			relais.setVirtualHost(virtualHost);
+		}
+		log.info("Messagerie STOMP relayée vers {}", hotesRelais);
 	}
 
 	@Override
 	public void registerStompEndpoints(StompEndpointRegistry registry) {
 		registry.addEndpoint("/ws")
 				.setAllowedOriginPatterns("*")
-				.withSockJS();
+				.withSockJS()
+				.setHeartbeatTime(heartbeatSockJsMs);
+	}
+
+	@PreDestroy
+	void fermer() {
+		if (poolRelais != null) {
+			poolRelais.dispose();
+		}
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	/**
+	 * Connexions TCP du nœud vers le relais : une par session cliente plus la session système, dans un pool
+	 * borné, réparties à tour de rôle entre les hôtes du broker (« hote:port »)
+	 */
+	static ReactorNettyTcpClient<byte[]> clientRelais(List<String> hotes, ConnectionProvider pool) {
+		List<InetSocketAddress> adresses = hotes.stream()
+				.map(String::trim)
+				.map(hote -> {
+					int separateur = hote.lastIndexOf(':');
+					return InetSocketAddress.createUnresolved(hote.substring(0, separateur),
+							Integer.parseInt(hote.substring(separateur + 1)));
+				})
+				.toList();
+		AtomicInteger suivante = new AtomicInteger();
+		TcpClient client = TcpClient.create(pool)
+				.remoteAddress(() -> adresses.get(Math.floorMod(suivante.getAndIncrement(), adresses.size())));
+		return new ReactorNettyTcpClient<>(client, new StompReactorNettyCodec());
+	}
+
+	private ConnectionProvider poolRelais() {
+		poolRelais = ConnectionProvider.builder("relais-stomp")
+				.maxConnections(connexionsMaximum)
+				.pendingAcquireTimeout(Duration.ofMillis(attenteConnexionMs))
+				.build();
+		return poolRelais;
 	}
-}
\ No newline at end of file
+}
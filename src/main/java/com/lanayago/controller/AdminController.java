@@ -3,6 +3,8 @@ package com.lanayago.controller;
 import com.lanayago.dto.DocumentDTO;
 import com.lanayago.enums.StatutDocument;
 import com.lanayago.service.AdminService;
+import com.lanayago.service.envoi.PublicateurEvenements;
+import com.lanayago.service.notation.AgregatsNotesService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -12,6 +14,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -24,6 +27,8 @@ import java.util.Map;
 public class AdminController {
 
 	private final AdminService adminService;
+	private final AgregatsNotesService agregatsNotesService;
+	private final PublicateurEvenements publicateurEvenements;
 
 	@GetMapping("/statistiques")
 	@Operation(summary = "Récupérer les statistiques globales")
@@ -73,4 +78,37 @@ public class AdminController {
 			@RequestParam(required = false) String periode) {
 		return ResponseEntity.ok(adminService.getStatistiquesRevenus(periode));
 	}
-}
\ No newline at end of file
+
+	@PostMapping("/notes/reconstruction")
+	@Operation(
+			summary = "Reconstruire les notes moyennes",
+			description = "Recalcule en parallèle les cumuls de notes des chauffeurs et des clients depuis l'historique des commandes"
+	)
+	public ResponseEntity<AgregatsNotesService.RapportReconstruction> reconstruireNotes() {
+		return ResponseEntity.ok(agregatsNotesService.reconstruire());
+	}
+
+	@GetMapping("/notes/coherence")
+	@Operation(
+			summary = "Vérifier la cohérence des notes moyennes",
+			description = "Compare les cumuls stockés à l'historique des commandes, en lecture seule"
+	)
+	public ResponseEntity<AgregatsNotesService.RapportCoherence> verifierCoherenceNotes() {
+		return ResponseEntity.ok(agregatsNotesService.verifierCoherence());
+	}
+
+	@PostMapping("/evenements/abandonnes/relance")
+	@Operation(
+			summary = "Relancer les notifications abandonnées",
+			description = "Remet en file les messages de la boîte d'envoi abandonnés après le nombre maximum de tentatives"
+	)
+	public ResponseEntity<Map<String, Integer>> relancerEvenementsAbandonnes() {
+		return ResponseEntity.ok(Map.of("evenements", publicateurEvenements.relancerAbandonnes()));
+	}
+
+	@DeleteMapping("/evenements/abandonnes")
+	@Operation(summary = "Purger les notifications abandonnées")
+	public ResponseEntity<Map<String, Integer>> purgerEvenementsAbandonnes() {
+		return ResponseEntity.ok(Map.of("evenements", publicateurEvenements.purgerAbandonnes(LocalDateTime.now())));
+	}
+}
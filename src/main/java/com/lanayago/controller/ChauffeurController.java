@@ -1,7 +1,9 @@
 package com.lanayago.controller;
 
+import com.lanayago.dto.TourneeDTO;
 import com.lanayago.dto.UserDTO;
 import com.lanayago.service.ChauffeurService;
+import com.lanayago.service.groupage.GroupageCommandes;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -21,6 +23,7 @@ import java.util.List;
 public class ChauffeurController {
 
 	private final ChauffeurService chauffeurService;
+	private final GroupageCommandes groupageCommandes;
 
 	@PostMapping("/proprietaire/{proprietaireId}")
 	@Operation(
@@ -121,4 +124,14 @@ public class ChauffeurController {
 	public ResponseEntity<List<UserDTO>> getChauffeursDisponibles() {
 		return ResponseEntity.ok(chauffeurService.getChauffeursDisponibles());
 	}
-}
\ No newline at end of file
+
+	@GetMapping("/{chauffeurId}/tournees")
+	@Operation(
+			summary = "Récupérer les tournées d'un chauffeur",
+			description = "Tournées proposées ou en cours du chauffeur, avec la séquence des arrêts de ramassage et de livraison"
+	)
+	@PreAuthorize("hasRole('CHAUFFEUR') and #chauffeurId == authentication.principal.id")
+	public ResponseEntity<List<TourneeDTO.Response>> getTournees(@PathVariable Long chauffeurId) {
+		return ResponseEntity.ok(groupageCommandes.tourneesDuChauffeur(chauffeurId));
+	}
+}
@@ -41,13 +41,17 @@ public class ClientController {
 	}
 
 	@GetMapping("/{clientId}/historique")
-	@Operation(summary = "Récupérer l'historique des commandes")
+	@Operation(
+			summary = "Récupérer l'historique des commandes",
+			description = "Pagination par curseur (en-tête X-Next-Cursor) ; page reste accepté sans curseur pour les anciens clients"
+	)
 	@PreAuthorize("hasRole('CLIENT') and #clientId == authentication.principal.id")
 	public ResponseEntity<List<CommandeDTO.Response>> getHistoriqueCommandes(
 			@PathVariable Long clientId,
 			@RequestParam(defaultValue = "0") int page,
-			@RequestParam(defaultValue = "10") int size) {
-		return ResponseEntity.ok(clientService.getHistoriqueCommandes(clientId, page, size));
+			@RequestParam(defaultValue = "10") int size,
+			@RequestParam(required = false) String cursor) {
+		return CommandeController.reponsePaginee(clientService.getHistoriqueCommandes(clientId, cursor, page, size));
 	}
 
 	@GetMapping("/{clientId}/statistiques")
@@ -93,17 +93,29 @@ public class CommandeController {
 	// === ENDPOINTS DE CONSULTATION ===
 
 	@GetMapping("/client/{clientId}")
-	@Operation(summary = "Récupérer les commandes d'un client")
+	@Operation(
+			summary = "Récupérer les commandes d'un client",
+			description = "Du plus récent au plus ancien, par pages de limit commandes ; le curseur suivant est fourni dans l'en-tête X-Next-Cursor"
+	)
 	@PreAuthorize("hasRole('CLIENT') and #clientId == authentication.principal.id")
-	public ResponseEntity<List<CommandeDTO.Response>> getCommandesClient(@PathVariable Long clientId) {
-		return ResponseEntity.ok(commandeService.getCommandesClient(clientId));
+	public ResponseEntity<List<CommandeDTO.Response>> getCommandesClient(
+			@PathVariable Long clientId,
+			@RequestParam(defaultValue = "20") int limit,
+			@RequestParam(required = false) String cursor) {
+		return reponsePaginee(commandeService.getCommandesClient(clientId, cursor, limit));
 	}
 
 	@GetMapping("/chauffeur/{chauffeurId}")
-	@Operation(summary = "Récupérer les commandes d'un chauffeur")
+	@Operation(
+			summary = "Récupérer les commandes d'un chauffeur",
+			description = "Du plus récent au plus ancien, par pages de limit commandes ; le curseur suivant est fourni dans l'en-tête X-Next-Cursor"
+	)
 	@PreAuthorize("hasRole('CHAUFFEUR') and #chauffeurId == authentication.principal.id")
-	public ResponseEntity<List<CommandeDTO.Response>> getCommandesChauffeur(@PathVariable Long chauffeurId) {
-		return ResponseEntity.ok(commandeService.getCommandesChauffeur(chauffeurId));
+	public ResponseEntity<List<CommandeDTO.Response>> getCommandesChauffeur(
+			@PathVariable Long chauffeurId,
+			@RequestParam(defaultValue = "20") int limit,
+			@RequestParam(required = false) String cursor) {
+		return reponsePaginee(commandeService.getCommandesChauffeur(chauffeurId, cursor, limit));
 	}
 
 	@GetMapping("/{commandeId}")
@@ -114,10 +126,16 @@ public class CommandeController {
 	}
 
 	@GetMapping("/statut/{statut}")
-	@Operation(summary = "Récupérer les commandes par statut")
+	@Operation(
+			summary = "Récupérer les commandes par statut",
+			description = "De la plus ancienne à la plus récente, par pages de limit commandes ; le curseur suivant est fourni dans l'en-tête X-Next-Cursor"
+	)
 	@PreAuthorize("hasRole('CHAUFFEUR') or hasRole('PROPRIETAIRE_VEHICULE')")
-	public ResponseEntity<List<CommandeDTO.Response>> getCommandesParStatut(@PathVariable StatutCommande statut) {
-		return ResponseEntity.ok(commandeService.getCommandesParStatut(statut));
+	public ResponseEntity<List<CommandeDTO.Response>> getCommandesParStatut(
+			@PathVariable StatutCommande statut,
+			@RequestParam(defaultValue = "20") int limit,
+			@RequestParam(required = false) String cursor) {
+		return reponsePaginee(commandeService.getCommandesParStatut(statut, cursor, limit));
 	}
 
 	// === ENDPOINTS POUR LES PROPRIÉTAIRES ===
@@ -125,10 +143,24 @@ public class CommandeController {
 	@GetMapping("/proprietaire/{proprietaireId}")
 	@Operation(
 			summary = "Récupérer les commandes des véhicules d'un propriétaire",
-			description = "Toutes les commandes effectuées par les véhicules du propriétaire"
+			description = "Commandes effectuées par les véhicules du propriétaire, par pages ; le curseur suivant est fourni dans l'en-tête X-Next-Cursor"
 	)
 	@PreAuthorize("hasRole('PROPRIETAIRE_VEHICULE') and #proprietaireId == authentication.principal.id")
-	public ResponseEntity<List<CommandeDTO.Response>> getCommandesProprietaire(@PathVariable Long proprietaireId) {
-		return ResponseEntity.ok(commandeService.getCommandesProprietaire(proprietaireId));
+	public ResponseEntity<List<CommandeDTO.Response>> getCommandesProprietaire(
+			@PathVariable Long proprietaireId,
+			@RequestParam(defaultValue = "20") int limit,
+			@RequestParam(required = false) String cursor) {
+		return reponsePaginee(commandeService.getCommandesProprietaire(proprietaireId, cursor, limit));
+	}
+
+	/**
+	 * Curseur de la page suivante en en-tête pour conserver le format de réponse (liste)
+	 */
+	static ResponseEntity<List<CommandeDTO.Response>> reponsePaginee(CommandeDTO.PageCommandes page) {
+		ResponseEntity.BodyBuilder reponse = ResponseEntity.ok();
+		if (page.getNextCursor() != null) {
+			reponse.header("X-Next-Cursor", page.getNextCursor());
+		}
+		return reponse.body(page.getCommandes());
 	}
 }
\ No newline at end of file
@@ -37,7 +37,8 @@ public class RechercheTransportController {
 	@GetMapping("/vehicules-disponibles")
 	@Operation(
 			summary = "Obtenir la liste des véhicules disponibles",
-			description = "Retourne la liste mise à jour des véhicules disponibles pour une recherche"
+			description = "Retourne la liste mise à jour des véhicules disponibles pour une recherche. " +
+					"Avec limit, seuls les meilleurs véhicules sont retournés et le curseur suivant est fourni dans l'en-tête X-Next-Cursor"
 	)
 	@PreAuthorize("hasRole('CLIENT')")
 	public ResponseEntity<List<RechercheTransportDTO.VehiculeDisponible>> getVehiculesDisponibles(
@@ -47,7 +48,9 @@ public class RechercheTransportController {
 			@RequestParam Double longitudeArrivee,
 			@RequestParam Double poidsMarchandise,
 			@RequestParam(required = false) Double volumeMarchandise,
-			@RequestParam(defaultValue = "50.0") Double rayonRecherche) {
+			@RequestParam(defaultValue = "50.0") Double rayonRecherche,
+			@RequestParam(required = false) Integer limit,
+			@RequestParam(required = false) String cursor) {
 
 		RechercheTransportDTO.RechercheRequest request = new RechercheTransportDTO.RechercheRequest();
 		request.setLatitudeDepart(latitudeDepart);
@@ -59,17 +62,26 @@ public class RechercheTransportController {
 			request.setVolumeMarchandise(java.math.BigDecimal.valueOf(volumeMarchandise));
 		}
 		request.setRayonRecherche(rayonRecherche);
+		request.setLimit(limit);
+		request.setCursor(cursor);
 
-		return ResponseEntity.ok(rechercheTransportService.rechercherVehiculesDisponibles(
+		RechercheTransportDTO.PageVehiculesDisponibles page = rechercheTransportService.rechercherPageVehiculesDisponibles(
 				request,
 				null // Le service déterminera automatiquement le type
-		));
+		);
+
+		// Curseur de la page suivante en en-tête pour conserver le format de réponse (liste)
+		ResponseEntity.BodyBuilder reponse = ResponseEntity.ok();
+		if (page.getNextCursor() != null) {
+			reponse.header("X-Next-Cursor", page.getNextCursor());
+		}
+		return reponse.body(page.getVehiculesDisponibles());
 	}
 
 	@PutMapping("/session/{sessionId}/update")
 	@Operation(
 			summary = "Mettre à jour une recherche en temps réel",
-			description = "Met à jour la liste des véhicules disponibles pour une session de recherche active"
+			description = "Repousse l'état complet d'une session de recherche active ; les changements suivants sont diffusés en différences"
 	)
 	@PreAuthorize("hasRole('CLIENT')")
 	public ResponseEntity<Void> mettreAJourRecherche(@PathVariable String sessionId) {
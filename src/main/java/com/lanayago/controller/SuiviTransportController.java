@@ -6,10 +6,13 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+
 @RestController
 @RequestMapping("/api/suivi-transport")
 @RequiredArgsConstructor
@@ -71,6 +74,19 @@ public class SuiviTransportController {
 		return ResponseEntity.ok().build();
 	}
 
+	@GetMapping("/commande/{commandeId}/trajectoire")
+	@Operation(
+			summary = "Obtenir la trajectoire d'une commande",
+			description = "Retourne les positions GPS enregistrées pour la commande, éventuellement bornées dans le temps"
+	)
+	@PreAuthorize("hasRole('CLIENT') or hasRole('CHAUFFEUR')")
+	public ResponseEntity<RechercheTransportDTO.TrajectoireResponse> getTrajectoire(
+			@PathVariable Long commandeId,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime debut,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fin) {
+		return ResponseEntity.ok(suiviTransportService.getTrajectoire(commandeId, debut, fin));
+	}
+
 	@GetMapping("/chauffeur/{chauffeurId}/commande-active")
 	@Operation(
 			summary = "Obtenir la commande active d'un chauffeur",
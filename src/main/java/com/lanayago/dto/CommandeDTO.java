@@ -6,6 +6,8 @@ import lombok.Data;
 import jakarta.validation.constraints.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 public class CommandeDTO {
 
@@ -93,4 +95,10 @@ public class CommandeDTO {
 		@Pattern(regexp = "CLIENT|CHAUFFEUR", message = "Type d'évaluateur invalide")
 		private String typeEvaluateur;
 	}
-}
\ No newline at end of file
+
+	@Data
+	public static class PageCommandes {
+		private List<Response> commandes = new ArrayList<>();
+		private String nextCursor;
+	}
+}
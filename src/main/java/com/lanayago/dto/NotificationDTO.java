@@ -0,0 +1,71 @@
+package com.lanayago.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Messages poussés sur les topics WebSocket. Les valeurs sont copiées à la construction, dans la transaction
+ * qui les produit : la sérialisation ne touche plus aux entités ni à leurs associations paresseuses.
+ */
+@JsonPropertyOrder({"type"})
+public sealed interface NotificationDTO {
+
+	@JsonProperty("type")
+	String type();
+
+	/**
+	 * Événement d'une commande : NOUVELLE_COMMANDE, CHANGEMENT_STATUT, COMMANDE_ATTRIBUEE, OFFRE_RETIREE, CHAUFFEUR_REAFFECTE
+	 */
+	record Commande(String type, Long commandeId, String numeroCommande, String statut, String message)
+			implements NotificationDTO {
+	}
+
+	record Position(Long commandeId, Double latitude, Double longitude, LocalDateTime timestamp)
+			implements NotificationDTO {
+		@Override
+		public String type() { return "POSITION_UPDATE"; }
+	}
+
+	record Connexion(Long commandeId, Boolean enLigne, LocalDateTime timestamp) implements NotificationDTO {
+		@Override
+		public String type() { return "CONNEXION_UPDATE"; }
+	}
+
+	record Etape(Long commandeId, String description, Double latitude, Double longitude, LocalDateTime timestamp)
+			implements NotificationDTO {
+		@Override
+		public String type() { return "ETAPE_UPDATE"; }
+	}
+
+	record MiseAJourRecherche(Long rechercheId, Long sequence, List<RechercheTransportDTO.VehiculeDisponible> vehiculesDisponibles)
+			implements NotificationDTO {
+		@Override
+		public String type() { return "RECHERCHE_UPDATE"; }
+
+		@JsonProperty("message")
+		public String message() { return "Mise à jour des véhicules disponibles"; }
+	}
+
+	/**
+	 * Différences d'une session de recherche ; un trou dans la séquence impose une resynchronisation
+	 */
+	record DiffRecherche(Long rechercheId, Long sequence, List<RechercheTransportDTO.VehiculeDisponible> entres,
+	                     List<RechercheTransportDTO.PositionVehicule> deplaces, List<Long> sortis)
+			implements NotificationDTO {
+		@Override
+		public String type() { return "RECHERCHE_DIFF"; }
+	}
+
+	record NouvelleRecherche(Long rechercheId, String adresseDepart, String adresseArrivee, BigDecimal tarifEstime)
+			implements NotificationDTO {
+		@Override
+		public String type() { return "NOUVELLE_RECHERCHE"; }
+
+		@JsonProperty("message")
+		public String message() { return "Nouvelle demande de transport disponible"; }
+	}
+}
@@ -1,11 +1,13 @@
 package com.lanayago.dto;
 
 import com.lanayago.enums.TypeVehicule;
+import com.lanayago.service.trajectoire.PointTrajectoire;
 import lombok.Data;
 
 import jakarta.validation.constraints.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 public class RechercheTransportDTO {
@@ -48,6 +50,14 @@ public class RechercheTransportDTO {
 		@DecimalMin(value = "1.0", message = "Le rayon minimum est de 1 km")
 		@DecimalMax(value = "100.0", message = "Le rayon maximum est de 100 km")
 		private Double rayonRecherche = 50.0;
+
+		// Mode top-K : nombre maximal de véhicules, classés par distance, note et expérience
+		@Min(value = 1, message = "La limite minimale est de 1")
+		@Max(value = 100, message = "La limite maximale est de 100")
+		private Integer limit;
+
+		// Curseur de pagination retourné par la page précédente (nextCursor)
+		private String cursor;
 	}
 
 	@Data
@@ -58,6 +68,13 @@ public class RechercheTransportDTO {
 		private BigDecimal tarifEstime;
 		private List<VehiculeDisponible> vehiculesDisponibles;
 		private String sessionId; // Pour le suivi temps réel
+		private String nextCursor; // Null s'il n'y a pas de page suivante
+	}
+
+	@Data
+	public static class PageVehiculesDisponibles {
+		private List<VehiculeDisponible> vehiculesDisponibles = new ArrayList<>();
+		private String nextCursor;
 	}
 
 	@Data
@@ -85,17 +102,30 @@ public class RechercheTransportDTO {
 		private Boolean disponibleImmediatement;
 	}
 
+	@Data
+	public static class PositionVehicule {
+		private Long chauffeurId;
+		private Double latitudeActuelle;
+		private Double longitudeActuelle;
+		private Double distanceDepuisDepart;
+		private Integer tempsEstimeArrivee;
+	}
+
 	@Data
 	public static class DemandeTransportRequest {
 		@NotNull(message = "L'ID de recherche est obligatoire")
 		private Long rechercheId;
 
-		@NotNull(message = "L'ID du véhicule choisi est obligatoire")
+		// Obligatoires hors diffusion
 		private Long vehiculeId;
-
-		@NotNull(message = "L'ID du chauffeur choisi est obligatoire")
 		private Long chauffeurId;
 
+		// Diffusion : la commande est proposée aux meilleurs chauffeurs compatibles, le premier qui accepte l'emporte
+		private Boolean diffusion = false;
+
+		// Répartition groupée : la commande attend le prochain lot, où un chauffeur lui est attribué globalement
+		private Boolean repartition = false;
+
 		// Instructions spéciales
 		private String instructionsSpeciales;
 	}
@@ -135,4 +165,11 @@ public class RechercheTransportDTO {
 		private Double longitude;
 		private Boolean completed;
 	}
-}
\ No newline at end of file
+
+	@Data
+	public static class TrajectoireResponse {
+		private Long commandeId;
+		private List<PointTrajectoire> points;
+		private Double distanceParcourue; // en km, d'après les positions enregistrées
+	}
+}
@@ -0,0 +1,36 @@
+package com.lanayago.dto;
+
+import com.lanayago.enums.StatutCommande;
+import com.lanayago.enums.TypeArret;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TourneeDTO {
+
+	@Data
+	public static class Response {
+		private Long id;
+		private Double distanceKm;
+		private Double chargeMaximalePoids;
+		private LocalDateTime dateCreation;
+
+		// Arrêts dans l'ordre de passage
+		private List<Arret> arrets = new ArrayList<>();
+	}
+
+	@Data
+	public static class Arret {
+		private Integer ordre;
+		private TypeArret type;
+		private Long commandeId;
+		private String numeroCommande;
+		private StatutCommande statutCommande;
+		private Double latitude;
+		private Double longitude;
+		private String adresse;
+		private LocalDateTime heureEstimee;
+	}
+}
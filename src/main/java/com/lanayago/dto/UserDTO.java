@@ -23,6 +23,7 @@ public class UserDTO {
 	private String ville;
 	private String codePostal;
 	private BigDecimal noteMoyenne;
+	private BigDecimal noteRecente; // Moyenne pondérée en faveur des notes récentes
 	private Integer nombreCommandes;
 	private String numeroPermis;
 	private Boolean disponible;
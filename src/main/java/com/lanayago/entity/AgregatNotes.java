@@ -0,0 +1,32 @@
+package com.lanayago.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Cumuls des notes reçues, tenus à jour à chaque évaluation sans relire l'historique.
+ * La note récente pondère chaque note par 2^(âge / demi-vie) (décroissance « vers l'avant »),
+ * ce qui permet de l'incrémenter sans recalculer les poids des notes précédentes.
+ */
+@Embeddable
+@Data
+public class AgregatNotes {
+
+	@Column(columnDefinition = "DECIMAL(12,1) DEFAULT 0")
+	private BigDecimal sommeNotes = BigDecimal.ZERO;
+
+	@Column(columnDefinition = "INT DEFAULT 0")
+	private Integer nombreNotes = 0;
+
+	@Column(columnDefinition = "DOUBLE DEFAULT 0")
+	private Double sommeNotesPonderees = 0.0;
+
+	@Column(columnDefinition = "DOUBLE DEFAULT 0")
+	private Double poidsNotes = 0.0;
+
+	@Column(columnDefinition = "DECIMAL(3,2)")
+	private BigDecimal noteRecente;
+}
@@ -0,0 +1,46 @@
+package com.lanayago.entity;
+
+import com.lanayago.enums.TypeArret;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "arrets_tournees", indexes = @Index(name = "idx_arret_commande", columnList = "commande_id"))
+@Data
+@EqualsAndHashCode(of = "id")
+public class ArretTournee {
+
+	@Id
+	@IdentifiantGroupe("arrets_tournees")
+	private Long id;
+
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "tournee_id", nullable = false)
+	@ToString.Exclude
+	private Tournee tournee;
+
+	@Column(nullable = false)
+	private Integer ordre;
+
+	@Column(name = "commande_id", nullable = false)
+	private Long commandeId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 20)
+	private TypeArret type;
+
+	@Column(nullable = false, columnDefinition = "DECIMAL(10,8)")
+	private Double latitude;
+
+	@Column(nullable = false, columnDefinition = "DECIMAL(11,8)")
+	private Double longitude;
+
+	@Column(nullable = false, length = 255)
+	private String adresse;
+
+	private LocalDateTime heureEstimee;
+}
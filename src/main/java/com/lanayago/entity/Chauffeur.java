@@ -3,12 +3,14 @@ package com.lanayago.entity;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
 @Entity
+@DynamicUpdate
 @Table(name = "chauffeurs")
 @Data
 @EqualsAndHashCode(callSuper = true)
@@ -23,6 +25,9 @@ public class Chauffeur extends User {
 	@Column(columnDefinition = "DECIMAL(3,2) DEFAULT 0.0")
 	private BigDecimal noteMoyenne = BigDecimal.ZERO;
 
+	@Embedded
+	private AgregatNotes notes = new AgregatNotes();
+
 	@Column(nullable = false)
 	private Boolean disponible = true;
 
@@ -3,11 +3,13 @@ package com.lanayago.entity;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.util.List;
 
 @Entity
+@DynamicUpdate
 @Table(name = "clients")
 @Data
 @EqualsAndHashCode(callSuper = true)
@@ -19,6 +21,9 @@ public class Client extends User {
 	@Column(columnDefinition = "DECIMAL(3,2) DEFAULT 0.0")
 	private BigDecimal noteMoyenne = BigDecimal.ZERO;
 
+	@Embedded
+	private AgregatNotes notes = new AgregatNotes();
+
 	@Column(nullable = false)
 	private Integer nombreCommandes = 0;
 
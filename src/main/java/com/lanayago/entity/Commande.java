@@ -1,9 +1,11 @@
 package com.lanayago.entity;
 
+import com.lanayago.enums.ModeAffectation;
 import com.lanayago.enums.StatutCommande;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -12,14 +14,23 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "commandes")
+@DynamicUpdate // Les écritures ne touchent que les colonnes modifiées, sans écraser les mises à jour conditionnelles
+@Table(name = "commandes", indexes = {
+		// Pagination par clé (date_creation, id) des listes de commandes
+		@Index(name = "idx_commande_client_date", columnList = "client_id, date_creation, id"),
+		@Index(name = "idx_commande_chauffeur_date", columnList = "chauffeur_id, date_creation, id"),
+		@Index(name = "idx_commande_vehicule_date", columnList = "vehicule_id, date_creation, id"),
+		@Index(name = "idx_commande_statut_date", columnList = "statut, date_creation, id"),
+		// Commandes actives d'un chauffeur (suivi en direct)
+		@Index(name = "idx_commande_chauffeur_statut", columnList = "chauffeur_id, statut")
+})
 @EntityListeners(AuditingEntityListener.class)
 @Data
 @EqualsAndHashCode(of = "id")
 public class Commande {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@IdentifiantGroupe("commandes")
 	private Long id;
 
 	@Column(nullable = false, unique = true, length = 20)
@@ -37,6 +48,28 @@ public class Commande {
 	@JoinColumn(name = "vehicule_id")
 	private Vehicule vehicule;
 
+	// Recherche d'origine, dont les critères servent à réaffecter la commande ; simple identifiant,
+	// sans clé étrangère, pour que l'archivage des recherches ne dépende pas des commandes
+	@Column(name = "recherche_id")
+	private Long rechercheId;
+
+	// Nul pour les commandes antérieures : affectation directe
+	@Enumerated(EnumType.STRING)
+	@Column(length = 20)
+	private ModeAffectation modeAffectation;
+
+	// Tournée à plusieurs arrêts dont la commande fait partie, le cas échéant
+	@Column(name = "tournee_id")
+	private Long tourneeId;
+
+	// Début du délai d'acceptation du chauffeur actuellement sollicité
+	private LocalDateTime dateAffectation;
+
+	// Créneau réservé à l'acceptation ; une commande programmée ne prend le chauffeur et le véhicule qu'au démarrage
+	private Boolean programmee;
+	private LocalDateTime debutReservation;
+	private LocalDateTime finReservation;
+
 	// Localisation départ
 	@Column(nullable = false, columnDefinition = "DECIMAL(10,8)")
 	private Double latitudeDepart;
@@ -101,9 +134,13 @@ public class Commande {
 	@Column(columnDefinition = "DECIMAL(2,1)")
 	private BigDecimal noteClient; // Note donnée par le client
 
+	private LocalDateTime dateNoteClient; // Date de l'évaluation, base du poids de la note récente
+
 	@Column(columnDefinition = "DECIMAL(2,1)")
 	private BigDecimal noteChauffeur; // Note donnée par le chauffeur
 
+	private LocalDateTime dateNoteChauffeur;
+
 	@Column(length = 500)
 	private String commentaireClient;
 
@@ -112,9 +149,14 @@ public class Commande {
 
 	@PrePersist
 	protected void onCreate() {
+		// Filet de sécurité : les numéros sont normalement attribués par IGenerateurNumeroCommande
 		if (numeroCommande == null) {
 			numeroCommande = generateNumeroCommande();
 		}
+		// Clé de tri des listes paginées : jamais nulle
+		if (dateCreation == null) {
+			dateCreation = LocalDateTime.now();
+		}
 	}
 
 	private String generateNumeroCommande() {
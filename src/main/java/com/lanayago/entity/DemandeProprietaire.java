@@ -18,7 +18,7 @@ import java.time.LocalDateTime;
 public class DemandeProprietaire {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@IdentifiantGroupe("demandes_proprietaires")
 	private Long id;
 
 	@ManyToOne(fetch = FetchType.LAZY)
@@ -18,7 +18,7 @@ import java.time.LocalDateTime;
 public class Document {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@IdentifiantGroupe("documents")
 	private Long id;
 
 	@Column(nullable = false)
@@ -0,0 +1,59 @@
+package com.lanayago.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * Message WebSocket écrit dans la transaction métier qui le produit, puis publié
+ * après validation par PublicateurEvenements (boîte d'envoi transactionnelle).
+ * La ligne est supprimée une fois le message remis au broker.
+ */
+@Entity
+@Table(name = "evenements_sortants", indexes = {
+		@Index(name = "idx_evenement_destination", columnList = "destination, id"),
+		@Index(name = "idx_evenement_prioritaire", columnList = "prioritaire, id")
+})
+@Data
+@EqualsAndHashCode(of = "id")
+public class EvenementSortant {
+
+	@Id
+	@IdentifiantGroupe("evenements_sortants")
+	private Long id;
+
+	// Destination STOMP, qui sert aussi de clé d'ordre : les messages d'une destination sont publiés dans l'ordre des id,
+	// tirés à l'écriture et non à la validation ; seule la séquence suit l'ordre des validations
+	@Column(nullable = false, length = 200)
+	private String destination;
+
+	// Numéro du message dans sa destination, attribué juste avant la validation et ajouté à la charge publiée
+	private Long sequence;
+
+	// Message déjà sérialisé en JSON
+	@Column(nullable = false, columnDefinition = "TEXT")
+	private String charge;
+
+	// Publié avant les autres messages, sans doubler un message antérieur de sa destination (commande urgente)
+	@Column(nullable = false)
+	private Boolean prioritaire = false;
+
+	@Column(nullable = false)
+	private Integer tentatives = 0;
+
+	// Pas de nouvel essai avant cet instant (epoch en millisecondes)
+	@Column(nullable = false)
+	private Long prochaineTentative = 0L;
+
+	@Column(nullable = false)
+	private LocalDateTime dateCreation;
+
+	@PrePersist
+	protected void onCreate() {
+		if (dateCreation == null) {
+			dateCreation = LocalDateTime.now();
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.lanayago.entity;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Générateur de table Hibernate en mode pooled-lo : chaque lecture de sequences_identifiants réserve
+ * un bloc d'identifiants [valeur, valeur + taille[, ce qui laisse Hibernate regrouper les INSERT.
+ * La taille des blocs se règle par segment dans spring.jpa.properties.lanayago.identifiants.allocation.*
+ */
+public class GenerateurIdentifiantsGroupes extends TableGenerator {
+
+	public static final String TABLE = "sequences_identifiants";
+	public static final String COLONNE_SEGMENT = "nom";
+	public static final String COLONNE_VALEUR = "valeur_suivante";
+
+	private static final String PREFIXE_ALLOCATION = "lanayago.identifiants.allocation.";
+	private static final int ALLOCATION_PAR_DEFAUT = 50;
+
+	private final String segment;
+
+	public GenerateurIdentifiantsGroupes(IdentifiantGroupe configuration) {
+		this.segment = configuration.value();
+	}
+
+	@Override
+	public void configure(Type type, Properties parametres, ServiceRegistry registre) throws MappingException {
+		ConfigurationService configuration = registre.requireService(ConfigurationService.class);
+		int allocationParDefaut = configuration.getSetting(
+				PREFIXE_ALLOCATION + "defaut", StandardConverters.INTEGER, ALLOCATION_PAR_DEFAUT);
+		int allocation = configuration.getSetting(
+				PREFIXE_ALLOCATION + segment, StandardConverters.INTEGER, allocationParDefaut);
+
+		parametres.setProperty(TABLE_PARAM, TABLE);
+		parametres.setProperty(SEGMENT_COLUMN_PARAM, COLONNE_SEGMENT);
+		parametres.setProperty(VALUE_COLUMN_PARAM, COLONNE_VALEUR);
+		parametres.setProperty(SEGMENT_VALUE_PARAM, segment);
+		parametres.setProperty(INITIAL_PARAM, "1");
+		parametres.setProperty(INCREMENT_PARAM, String.valueOf(allocation));
+		parametres.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+		super.configure(type, parametres, registre);
+	}
+}
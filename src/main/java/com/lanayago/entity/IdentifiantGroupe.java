@@ -0,0 +1,21 @@
+package com.lanayago.entity;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Identifiant alloué par blocs depuis la table sequences_identifiants, au lieu d'une colonne
+ * AUTO_INCREMENT qui oblige Hibernate à exécuter chaque INSERT seul pour connaître la clé.
+ * La valeur est le nom du segment, par convention celui de la table de l'entité.
+ */
+@IdGeneratorType(GenerateurIdentifiantsGroupes.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface IdentifiantGroupe {
+
+	String value();
+}
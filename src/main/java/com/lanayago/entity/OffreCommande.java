@@ -0,0 +1,33 @@
+package com.lanayago.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * Offre d'une commande diffusée à un chauffeur ; les offres d'une commande sont supprimées
+ * dès qu'un chauffeur l'emporte ou que le délai d'acceptation expire
+ */
+@Entity
+@Table(name = "offres_commandes",
+		uniqueConstraints = @UniqueConstraint(name = "uk_offre_commande_chauffeur", columnNames = {"commande_id", "chauffeur_id"}),
+		indexes = @Index(name = "idx_offre_chauffeur", columnList = "chauffeur_id"))
+@Data
+@EqualsAndHashCode(of = "id")
+public class OffreCommande {
+
+	@Id
+	@IdentifiantGroupe("offres_commandes")
+	private Long id;
+
+	@Column(name = "commande_id", nullable = false)
+	private Long commandeId;
+
+	@Column(name = "chauffeur_id", nullable = false)
+	private Long chauffeurId;
+
+	@Column(nullable = false)
+	private LocalDateTime dateExpiration;
+}
@@ -11,14 +11,16 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "recherches_transport")
+@Table(name = "recherches_transport", indexes = {
+		@Index(name = "idx_recherche_active_date", columnList = "active, date_creation")
+})
 @EntityListeners(AuditingEntityListener.class)
 @Data
 @EqualsAndHashCode(of = "id")
 public class RechercheTransport {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@IdentifiantGroupe("recherches_transport")
 	private Long id;
 
 	@ManyToOne(fetch = FetchType.LAZY)
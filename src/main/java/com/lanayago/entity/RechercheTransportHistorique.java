@@ -0,0 +1,78 @@
+package com.lanayago.entity;
+
+import com.lanayago.enums.TypeVehicule;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Recherche expirée déplacée hors de la table des recherches (mêmes colonnes, même identifiant)
+ */
+@Entity
+@Table(name = "recherches_transport_historique", indexes = {
+		@Index(name = "idx_recherche_historique_client", columnList = "client_id, date_creation")
+})
+@Data
+@EqualsAndHashCode(of = "id")
+public class RechercheTransportHistorique {
+
+	@Id
+	private Long id;
+
+	@Column(name = "client_id", nullable = false)
+	private Long clientId;
+
+	@Column(nullable = false, columnDefinition = "DECIMAL(10,8)")
+	private Double latitudeDepart;
+
+	@Column(nullable = false, columnDefinition = "DECIMAL(11,8)")
+	private Double longitudeDepart;
+
+	@Column(nullable = false, length = 255)
+	private String adresseDepart;
+
+	@Column(nullable = false, columnDefinition = "DECIMAL(10,8)")
+	private Double latitudeArrivee;
+
+	@Column(nullable = false, columnDefinition = "DECIMAL(11,8)")
+	private Double longitudeArrivee;
+
+	@Column(nullable = false, length = 255)
+	private String adresseArrivee;
+
+	@Column(nullable = false, columnDefinition = "DECIMAL(8,2)")
+	private BigDecimal poidsMarchandise; // en kg
+
+	@Column(columnDefinition = "DECIMAL(8,2)")
+	private BigDecimal volumeMarchandise; // en m³
+
+	@Column(length = 500)
+	private String descriptionMarchandise;
+
+	@Enumerated(EnumType.STRING)
+	private TypeVehicule typeVehiculeRecommande;
+
+	@Column(nullable = false)
+	private Double distance; // en km
+
+	@Column(nullable = false, columnDefinition = "DECIMAL(10,2)")
+	private BigDecimal tarifEstime;
+
+	@Column(nullable = false)
+	private Boolean urgent = false;
+
+	private LocalDateTime dateRamassageSouhaitee;
+	private LocalDateTime dateLivraisonSouhaitee;
+
+	@Column(nullable = false)
+	private LocalDateTime dateCreation;
+
+	@Column(length = 100)
+	private String sessionId;
+
+	@Column(nullable = false)
+	private LocalDateTime dateArchivage;
+}
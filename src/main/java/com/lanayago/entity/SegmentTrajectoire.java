@@ -0,0 +1,44 @@
+package com.lanayago.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Bloc binaire de points GPS encodés en delta/varint pour une commande.
+ * Un segment regroupe plusieurs centaines de points dans une seule ligne.
+ */
+@Entity
+@Table(name = "segments_trajectoire", indexes = {
+		@Index(name = "idx_segment_commande", columnList = "commande_id, numero_segment")
+})
+@Data
+@EqualsAndHashCode(of = "id")
+public class SegmentTrajectoire {
+
+	@Id
+	@IdentifiantGroupe("segments_trajectoire")
+	private Long id;
+
+	@Column(name = "commande_id", nullable = false)
+	private Long commandeId;
+
+	@Column(name = "numero_segment", nullable = false)
+	private Integer numeroSegment;
+
+	// Bornes temporelles du segment (epoch en millisecondes)
+	@Column(nullable = false)
+	private Long horodatageDebut;
+
+	@Column(nullable = false)
+	private Long horodatageFin;
+
+	@Column(nullable = false)
+	private Integer nombrePoints;
+
+	@Column(nullable = false, columnDefinition = "VARBINARY(4096)")
+	private byte[] donnees;
+
+	@Column(nullable = false)
+	private Boolean complet = false;
+}
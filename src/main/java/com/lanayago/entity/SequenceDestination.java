@@ -0,0 +1,20 @@
+package com.lanayago.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Dernier numéro attribué aux messages d'une destination de la boîte d'envoi
+ */
+@Entity
+@Table(name = "sequences_destinations")
+@Data
+public class SequenceDestination {
+
+	@Id
+	@Column(length = 200)
+	private String destination;
+
+	@Column(nullable = false)
+	private Long valeur;
+}
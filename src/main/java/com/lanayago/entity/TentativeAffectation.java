@@ -0,0 +1,42 @@
+package com.lanayago.entity;
+
+import com.lanayago.enums.MotifReaffectation;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * Chauffeur sollicité pour une commande qui ne l'a pas acceptée : exclu des réaffectations suivantes
+ */
+@Entity
+@Table(name = "tentatives_affectation", indexes = @Index(name = "idx_tentative_commande", columnList = "commande_id"))
+@Data
+@EqualsAndHashCode(of = "id")
+public class TentativeAffectation {
+
+	@Id
+	@IdentifiantGroupe("tentatives_affectation")
+	private Long id;
+
+	@Column(name = "commande_id", nullable = false)
+	private Long commandeId;
+
+	@Column(name = "chauffeur_id", nullable = false)
+	private Long chauffeurId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 20)
+	private MotifReaffectation motif;
+
+	@Column(nullable = false)
+	private LocalDateTime date;
+
+	@PrePersist
+	protected void onCreate() {
+		if (date == null) {
+			date = LocalDateTime.now();
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package com.lanayago.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Commandes regroupées dans un même trajet à plusieurs arrêts, proposées ensemble à un chauffeur
+ */
+@Entity
+@Table(name = "tournees", indexes = @Index(name = "idx_tournee_chauffeur", columnList = "chauffeur_id"))
+@Data
+@EqualsAndHashCode(of = "id")
+public class Tournee {
+
+	@Id
+	@IdentifiantGroupe("tournees")
+	private Long id;
+
+	@Column(name = "chauffeur_id", nullable = false)
+	private Long chauffeurId;
+
+	@Column(name = "vehicule_id", nullable = false)
+	private Long vehiculeId;
+
+	@Column(nullable = false)
+	private Double distanceKm;
+
+	@Column(nullable = false)
+	private Double chargeMaximalePoids; // en tonnes
+
+	@Column(nullable = false)
+	private LocalDateTime dateCreation;
+
+	@OneToMany(mappedBy = "tournee", cascade = CascadeType.ALL, orphanRemoval = true)
+	@OrderBy("ordre")
+	@ToString.Exclude
+	private List<ArretTournee> arrets = new ArrayList<>();
+
+	@PrePersist
+	protected void onCreate() {
+		if (dateCreation == null) {
+			dateCreation = LocalDateTime.now();
+		}
+	}
+}
@@ -18,7 +18,7 @@ import java.time.LocalDateTime;
 public abstract class User {  // ✅ IMPORTANT: Garder abstract
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@IdentifiantGroupe("users")
 	private Long id;
 
 	@Column(nullable = false, length = 100)
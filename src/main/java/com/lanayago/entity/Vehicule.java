@@ -4,6 +4,7 @@ import com.lanayago.enums.TypeVehicule;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
@@ -12,6 +13,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
+@DynamicUpdate
 @Table(name = "vehicules")
 @EntityListeners(AuditingEntityListener.class)
 @Data
@@ -19,7 +21,7 @@ import java.util.List;
 public class Vehicule {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@IdentifiantGroupe("vehicules")
 	private Long id;
 
 	@Column(nullable = false, unique = true, length = 15)
@@ -0,0 +1,24 @@
+package com.lanayago.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Bail d'exécution d'une tâche planifiée partagé entre les instances de l'application
+ */
+@Entity
+@Table(name = "verrous_taches")
+@Data
+public class VerrouTache {
+
+	@Id
+	@Column(length = 100)
+	private String nom;
+
+	@Column(nullable = false, length = 100)
+	private String proprietaire;
+
+	// Fin du bail (epoch en millisecondes)
+	@Column(nullable = false)
+	private Long expiration;
+}
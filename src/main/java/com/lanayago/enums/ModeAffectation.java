@@ -0,0 +1,18 @@
+package com.lanayago.enums;
+
+public enum ModeAffectation {
+	DIRECTE("Directe", "Chauffeur choisi par le client"),
+	DIFFUSION("Diffusion", "Proposée à plusieurs chauffeurs, le premier qui accepte l'emporte"),
+	REPARTITION("Répartition", "Chauffeur attribué lors de la répartition groupée des commandes en attente");
+
+	private final String libelle;
+	private final String description;
+
+	ModeAffectation(String libelle, String description) {
+		this.libelle = libelle;
+		this.description = description;
+	}
+
+	public String getLibelle() { return libelle; }
+	public String getDescription() { return description; }
+}
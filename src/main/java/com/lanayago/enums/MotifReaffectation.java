@@ -0,0 +1,14 @@
+package com.lanayago.enums;
+
+public enum MotifReaffectation {
+	REFUSEE("Refusée par le chauffeur"),
+	EXPIREE("Délai d'acceptation dépassé");
+
+	private final String libelle;
+
+	MotifReaffectation(String libelle) {
+		this.libelle = libelle;
+	}
+
+	public String getLibelle() { return libelle; }
+}
@@ -1,5 +1,7 @@
 package com.lanayago.enums;
 
+import java.util.List;
+
 public enum StatutCommande {
 	EN_ATTENTE("En attente", "Commande créée, en attente d'acceptation"),
 	ACCEPTEE("Acceptée", "Acceptée par un chauffeur"),
@@ -10,6 +12,9 @@ public enum StatutCommande {
 	ANNULEE("Annulée", "Commande annulée"),
 	REFUSEE("Refusée", "Refusée par le chauffeur");
 
+	// Statuts pendant lesquels un chauffeur est engagé sur la commande
+	public static final List<StatutCommande> STATUTS_ACTIFS = List.of(ACCEPTEE, EN_COURS, RAMASSAGE, EN_LIVRAISON);
+
 	private final String libelle;
 	private final String description;
 
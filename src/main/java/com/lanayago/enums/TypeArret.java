@@ -0,0 +1,14 @@
+package com.lanayago.enums;
+
+public enum TypeArret {
+	RAMASSAGE("Ramassage"),
+	LIVRAISON("Livraison");
+
+	private final String libelle;
+
+	TypeArret(String libelle) {
+		this.libelle = libelle;
+	}
+
+	public String getLibelle() { return libelle; }
+}
@@ -2,9 +2,12 @@ package com.lanayago.repository;
 
 import com.lanayago.entity.Chauffeur;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 public interface ChauffeurRepository extends JpaRepository<Chauffeur, Long> {
@@ -16,18 +19,59 @@ public interface ChauffeurRepository extends JpaRepository<Chauffeur, Long> {
 	List<Chauffeur> findByProprietaireId(@Param("proprietaireId") Long proprietaireId);
 
 	@Query("""
-        SELECT c FROM Chauffeur c 
-        WHERE c.disponible = true 
-        AND c.actif = true 
-        AND c.latitudeActuelle IS NOT NULL 
-        AND c.longitudeActuelle IS NOT NULL
-        AND (6371 * acos(cos(radians(:latitude)) * cos(radians(c.latitudeActuelle)) 
-        * cos(radians(c.longitudeActuelle) - radians(:longitude)) 
-        + sin(radians(:latitude)) * sin(radians(c.latitudeActuelle)))) <= :rayon
+        SELECT c FROM Chauffeur c
+        LEFT JOIN FETCH c.vehiculeActuel
+        WHERE c.disponible = true
+        AND c.actif = true
         """)
-	List<Chauffeur> findChauffeursProches(@Param("latitude") Double latitude,
-	                                      @Param("longitude") Double longitude,
-	                                      @Param("rayon") Double rayon);
+	List<Chauffeur> findDisponiblesAvecVehicule();
+
+	@Query("""
+        SELECT c FROM Chauffeur c
+        LEFT JOIN FETCH c.vehiculeActuel
+        WHERE c.id IN :ids
+        AND c.disponible = true
+        AND c.actif = true
+        """)
+	List<Chauffeur> findDisponiblesAvecVehiculeByIdIn(@Param("ids") Collection<Long> ids);
+
+	List<Chauffeur> findByVehiculeActuelId(Long vehiculeId);
 
 	boolean existsByNumeroPermis(String numeroPermis);
-}
\ No newline at end of file
+
+	boolean existsByIdAndActifTrue(Long id);
+
+	/**
+	 * Ajoute une note en une seule instruction, sans relire l'historique. Les moyennes sont affectées en premier
+	 * pour lire les cumuls d'avant la mise à jour (MySQL applique les affectations de gauche à droite).
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query(value = """
+        UPDATE chauffeurs SET
+            note_moyenne = (:sommeAPriori + COALESCE(somme_notes, 0) + :note) / (:poidsAPriori + COALESCE(nombre_notes, 0) + 1),
+            note_recente = (COALESCE(somme_notes_ponderees, 0) + :note * :poids) / (COALESCE(poids_notes, 0) + :poids),
+            somme_notes = COALESCE(somme_notes, 0) + :note,
+            nombre_notes = COALESCE(nombre_notes, 0) + 1,
+            somme_notes_ponderees = COALESCE(somme_notes_ponderees, 0) + :note * :poids,
+            poids_notes = COALESCE(poids_notes, 0) + :poids
+        WHERE id = :chauffeurId
+        """, nativeQuery = true)
+	int ajouterNote(@Param("chauffeurId") Long chauffeurId,
+	                @Param("note") BigDecimal note,
+	                @Param("poids") double poids,
+	                @Param("sommeAPriori") BigDecimal sommeAPriori,
+	                @Param("poidsAPriori") BigDecimal poidsAPriori);
+
+	/**
+	 * Réserve le chauffeur s'il est encore disponible ; 0 si un autre appelant l'a pris entre-temps
+	 */
+	@Modifying
+	@Query(value = "UPDATE chauffeurs SET disponible = false WHERE id = :chauffeurId AND disponible = true", nativeQuery = true)
+	int reserver(@Param("chauffeurId") Long chauffeurId);
+
+	/**
+	 * Verrouille la ligne du chauffeur jusqu'à la fin de la transaction : sérialise ses réservations entre instances
+	 */
+	@Query(value = "SELECT id FROM chauffeurs WHERE id = :chauffeurId FOR UPDATE", nativeQuery = true)
+	Long verrouiller(@Param("chauffeurId") Long chauffeurId);
+}
@@ -2,9 +2,11 @@ package com.lanayago.repository;
 
 import com.lanayago.entity.Client;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 public interface ClientRepository extends JpaRepository<Client, Long> {
@@ -17,4 +19,25 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
 
 	@Query("SELECT AVG(c.noteMoyenne) FROM Client c WHERE c.actif = true")
 	Double getNoteMoyenneGlobale();
-}
\ No newline at end of file
+
+	/**
+	 * Ajoute une note en une seule instruction, sans relire l'historique. Les moyennes sont affectées en premier
+	 * pour lire les cumuls d'avant la mise à jour (MySQL applique les affectations de gauche à droite).
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query(value = """
+        UPDATE clients SET
+            note_moyenne = (:sommeAPriori + COALESCE(somme_notes, 0) + :note) / (:poidsAPriori + COALESCE(nombre_notes, 0) + 1),
+            note_recente = (COALESCE(somme_notes_ponderees, 0) + :note * :poids) / (COALESCE(poids_notes, 0) + :poids),
+            somme_notes = COALESCE(somme_notes, 0) + :note,
+            nombre_notes = COALESCE(nombre_notes, 0) + 1,
+            somme_notes_ponderees = COALESCE(somme_notes_ponderees, 0) + :note * :poids,
+            poids_notes = COALESCE(poids_notes, 0) + :poids
+        WHERE id = :clientId
+        """, nativeQuery = true)
+	int ajouterNote(@Param("clientId") Long clientId,
+	                @Param("note") BigDecimal note,
+	                @Param("poids") double poids,
+	                @Param("sommeAPriori") BigDecimal sommeAPriori,
+	                @Param("poidsAPriori") BigDecimal poidsAPriori);
+}
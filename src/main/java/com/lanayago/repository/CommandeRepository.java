@@ -2,22 +2,109 @@ package com.lanayago.repository;
 
 import com.lanayago.entity.Commande;
 import com.lanayago.enums.StatutCommande;
+import com.lanayago.service.suivi.CommandeActive;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface CommandeRepository extends JpaRepository<Commande, Long> {
 
 	List<Commande> findByClientIdOrderByDateCreationDesc(Long clientId);
+	List<Commande> findByClientId(Long clientId, Pageable pageable);
 	List<Commande> findByChauffeurIdOrderByDateCreationDesc(Long chauffeurId);
 	List<Commande> findByStatut(StatutCommande statut);
 
+	// Commandes en cours des chauffeurs, projetées sans charger les entités (index chauffeur_id, statut)
+	@Query("""
+        SELECT new com.lanayago.service.suivi.CommandeActive(c.id, c.chauffeur.id, c.client.id, c.statut, c.dateCreation)
+        FROM Commande c
+        WHERE c.chauffeur.id IN :chauffeurIds AND c.statut IN :statuts
+        """)
+	List<CommandeActive> findActivesByChauffeurIdIn(@Param("chauffeurIds") Collection<Long> chauffeurIds,
+	                                                @Param("statuts") Collection<StatutCommande> statuts);
+
 	@Query("SELECT c FROM Commande c WHERE c.statut = :statut ORDER BY c.dateCreation ASC")
 	List<Commande> findByStatutOrderByDateCreationAsc(@Param("statut") StatutCommande statut);
 
+	// Lectures détaillées : client, chauffeur, véhicule et propriétaire chargés avec les commandes en une requête
+
+	@EntityGraph(attributePaths = {"client", "chauffeur", "vehicule", "vehicule.proprietaire"})
+	@Query("SELECT c FROM Commande c WHERE c.id = :id")
+	Optional<Commande> findDetailleeById(@Param("id") Long id);
+
+	// Pagination par clé sur (dateCreation, id) : la page suivante démarre strictement après le curseur,
+	// le LIMIT est appliqué par la base et les index composites évitent tout parcours de l'historique
+
+	@EntityGraph(attributePaths = {"client", "chauffeur", "vehicule", "vehicule.proprietaire"})
+	@Query("""
+        SELECT c FROM Commande c
+        WHERE c.client.id = :clientId
+        AND (c.dateCreation < :date OR (c.dateCreation = :date AND c.id < :id))
+        ORDER BY c.dateCreation DESC, c.id DESC
+        """)
+	List<Commande> findPageDetailleeByClientId(@Param("clientId") Long clientId,
+	                                           @Param("date") LocalDateTime date,
+	                                           @Param("id") Long id,
+	                                           Limit limit);
+
+	@Query("""
+        SELECT c FROM Commande c
+        WHERE c.client.id = :clientId
+        AND (c.dateCreation < :date OR (c.dateCreation = :date AND c.id < :id))
+        ORDER BY c.dateCreation DESC, c.id DESC
+        """)
+	List<Commande> findPageByClientId(@Param("clientId") Long clientId,
+	                                  @Param("date") LocalDateTime date,
+	                                  @Param("id") Long id,
+	                                  Limit limit);
+
+	@EntityGraph(attributePaths = {"client", "chauffeur", "vehicule", "vehicule.proprietaire"})
+	@Query("""
+        SELECT c FROM Commande c
+        WHERE c.chauffeur.id = :chauffeurId
+        AND (c.dateCreation < :date OR (c.dateCreation = :date AND c.id < :id))
+        ORDER BY c.dateCreation DESC, c.id DESC
+        """)
+	List<Commande> findPageDetailleeByChauffeurId(@Param("chauffeurId") Long chauffeurId,
+	                                              @Param("date") LocalDateTime date,
+	                                              @Param("id") Long id,
+	                                              Limit limit);
+
+	@EntityGraph(attributePaths = {"client", "chauffeur", "vehicule", "vehicule.proprietaire"})
+	@Query("""
+        SELECT c FROM Commande c
+        WHERE c.vehicule.proprietaire.id = :proprietaireId
+        AND (c.dateCreation < :date OR (c.dateCreation = :date AND c.id < :id))
+        ORDER BY c.dateCreation DESC, c.id DESC
+        """)
+	List<Commande> findPageDetailleeByProprietaireId(@Param("proprietaireId") Long proprietaireId,
+	                                                 @Param("date") LocalDateTime date,
+	                                                 @Param("id") Long id,
+	                                                 Limit limit);
+
+	@EntityGraph(attributePaths = {"client", "chauffeur", "vehicule", "vehicule.proprietaire"})
+	@Query("""
+        SELECT c FROM Commande c
+        WHERE c.statut = :statut
+        AND (c.dateCreation > :date OR (c.dateCreation = :date AND c.id > :id))
+        ORDER BY c.dateCreation ASC, c.id ASC
+        """)
+	List<Commande> findPageDetailleeByStatut(@Param("statut") StatutCommande statut,
+	                                         @Param("date") LocalDateTime date,
+	                                         @Param("id") Long id,
+	                                         Limit limit);
+
 	@Query("""
         SELECT c FROM Commande c 
         WHERE c.vehicule.proprietaire.id = :proprietaireId 
@@ -38,4 +125,109 @@ public interface CommandeRepository extends JpaRepository<Commande, Long> {
 
 	@Query("SELECT COUNT(c) FROM Commande c WHERE c.statut = :statut")
 	long countByStatut(@Param("statut") StatutCommande statut);
-}
\ No newline at end of file
+
+	// Transitions conditionnelles : une seule transaction concurrente peut quitter un statut donné
+
+	@Modifying
+	@Query("UPDATE Commande c SET c.statut = :nouveau WHERE c.id = :id AND c.statut = :attendu")
+	int changerStatutSi(@Param("id") Long id,
+	                    @Param("attendu") StatutCommande attendu,
+	                    @Param("nouveau") StatutCommande nouveau);
+
+	@Modifying
+	@Query("""
+        UPDATE Commande c SET c.statut = :nouveau
+        WHERE c.id = :id AND c.chauffeur.id = :chauffeurId AND c.statut = :attendu
+        """)
+	int changerStatutSiChauffeur(@Param("id") Long id,
+	                             @Param("chauffeurId") Long chauffeurId,
+	                             @Param("attendu") StatutCommande attendu,
+	                             @Param("nouveau") StatutCommande nouveau);
+
+	// Commande diffusée : le premier chauffeur à la revendiquer se l'attribue avec son véhicule
+	@Modifying
+	@Query(value = """
+        UPDATE commandes SET statut = 'ACCEPTEE', chauffeur_id = :chauffeurId, vehicule_id = :vehiculeId
+        WHERE id = :id AND statut = 'EN_ATTENTE' AND chauffeur_id IS NULL
+        """, nativeQuery = true)
+	int attribuerSi(@Param("id") Long id,
+	                @Param("chauffeurId") Long chauffeurId,
+	                @Param("vehiculeId") Long vehiculeId);
+
+	// Réaffectation : ne réussit que si la commande attend toujours l'acceptation de l'ancien chauffeur
+	@Modifying
+	@Query(value = """
+        UPDATE commandes SET chauffeur_id = :nouveauChauffeurId, vehicule_id = :vehiculeId, date_affectation = :dateAffectation
+        WHERE id = :id AND statut = 'EN_ATTENTE' AND chauffeur_id = :ancienChauffeurId
+        """, nativeQuery = true)
+	int reaffecterSi(@Param("id") Long id,
+	                 @Param("ancienChauffeurId") Long ancienChauffeurId,
+	                 @Param("nouveauChauffeurId") Long nouveauChauffeurId,
+	                 @Param("vehiculeId") Long vehiculeId,
+	                 @Param("dateAffectation") LocalDateTime dateAffectation);
+
+	// Commandes en attente d'un chauffeur désigné, pour replanifier leurs délais d'acceptation au démarrage
+	@Query("""
+        SELECT c.id, c.chauffeur.id, COALESCE(c.dateAffectation, c.dateCreation) FROM Commande c
+        WHERE c.statut = 'EN_ATTENTE' AND c.chauffeur IS NOT NULL
+        """)
+	List<Object[]> findAffectationsEnAttente();
+
+	// Commandes confiées à la répartition groupée et encore sans chauffeur, les plus anciennes d'abord
+	@Query("""
+        SELECT c FROM Commande c
+        WHERE c.statut = 'EN_ATTENTE' AND c.modeAffectation = 'REPARTITION' AND c.chauffeur IS NULL
+        ORDER BY c.dateCreation, c.id
+        """)
+	List<Commande> findEnAttenteDeRepartition(Limit limit);
+
+	// Chauffeurs sollicités pour une commande qu'ils n'ont pas encore acceptée ni refusée
+	@Query("SELECT DISTINCT c.chauffeur.id FROM Commande c WHERE c.statut = 'EN_ATTENTE' AND c.chauffeur IS NOT NULL")
+	List<Long> findChauffeurIdsSollicites();
+
+	// Créneaux réservés non terminés, pour reconstruire le calendrier des réservations au démarrage
+	@Query("""
+        SELECT c.id, c.chauffeur.id, c.vehicule.id, c.debutReservation, c.finReservation FROM Commande c
+        WHERE c.finReservation > :maintenant AND c.statut IN :statuts
+        """)
+	List<Object[]> findReservationsAVenir(@Param("maintenant") LocalDateTime maintenant,
+	                                      @Param("statuts") Collection<StatutCommande> statuts);
+
+	// Créneaux qui chevauchent [debut, fin[ : lecture verrouillante, qui voit les réservations validées
+	// par les autres instances même après la première lecture de la transaction
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("""
+        SELECT c FROM Commande c
+        WHERE c.chauffeur.id = :chauffeurId AND c.id <> :id AND c.statut IN :statuts
+        AND c.debutReservation < :fin AND c.finReservation > :debut
+        """)
+	List<Commande> findChevauchementsChauffeur(@Param("chauffeurId") Long chauffeurId,
+	                                           @Param("id") Long id,
+	                                           @Param("debut") LocalDateTime debut,
+	                                           @Param("fin") LocalDateTime fin,
+	                                           @Param("statuts") Collection<StatutCommande> statuts);
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("""
+        SELECT c FROM Commande c
+        WHERE c.vehicule.id = :vehiculeId AND c.id <> :id AND c.statut IN :statuts
+        AND c.debutReservation < :fin AND c.finReservation > :debut
+        """)
+	List<Commande> findChevauchementsVehicule(@Param("vehiculeId") Long vehiculeId,
+	                                          @Param("id") Long id,
+	                                          @Param("debut") LocalDateTime debut,
+	                                          @Param("fin") LocalDateTime fin,
+	                                          @Param("statuts") Collection<StatutCommande> statuts);
+
+	// Tournées à plusieurs arrêts
+	List<Commande> findByTourneeId(Long tourneeId);
+
+	boolean existsByTourneeIdAndIdNotAndStatutIn(Long tourneeId, Long id, Collection<StatutCommande> statuts);
+
+	boolean existsByTourneeIdAndIdNotAndStatutInAndDateRamassageEffectiveIsNotNull(Long tourneeId, Long id,
+	                                                                               Collection<StatutCommande> statuts);
+
+	@Modifying
+	@Query("UPDATE Commande c SET c.tourneeId = NULL WHERE c.tourneeId = :tourneeId")
+	int detacherTournee(@Param("tourneeId") Long tourneeId);
+}
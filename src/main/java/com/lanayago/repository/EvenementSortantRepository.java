@@ -0,0 +1,7 @@
+package com.lanayago.repository;
+
+import com.lanayago.entity.EvenementSortant;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface EvenementSortantRepository extends JpaRepository<EvenementSortant, Long> {
+}
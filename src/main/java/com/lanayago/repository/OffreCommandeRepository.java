@@ -0,0 +1,30 @@
+package com.lanayago.repository;
+
+import com.lanayago.entity.OffreCommande;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OffreCommandeRepository extends JpaRepository<OffreCommande, Long> {
+
+	@Query("SELECT o.chauffeurId FROM OffreCommande o WHERE o.commandeId = :commandeId")
+	List<Long> findChauffeurIdsByCommandeId(@Param("commandeId") Long commandeId);
+
+	boolean existsByCommandeIdAndChauffeurIdAndDateExpirationAfter(Long commandeId, Long chauffeurId, LocalDateTime date);
+
+	@Modifying
+	@Query("DELETE FROM OffreCommande o WHERE o.commandeId = :commandeId")
+	int supprimerParCommande(@Param("commandeId") Long commandeId);
+
+	@Modifying
+	@Query("DELETE FROM OffreCommande o WHERE o.commandeId = :commandeId AND o.chauffeurId = :chauffeurId")
+	int supprimer(@Param("commandeId") Long commandeId, @Param("chauffeurId") Long chauffeurId);
+
+	// Échéance de chaque commande encore en diffusion, pour replanifier les délais au démarrage
+	@Query("SELECT o.commandeId, MIN(o.dateExpiration) FROM OffreCommande o GROUP BY o.commandeId")
+	List<Object[]> findEcheancesParCommande();
+}
@@ -2,11 +2,14 @@
 package com.lanayago.repository;
 
 import com.lanayago.entity.RechercheTransport;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +23,18 @@ public interface RechercheTransportRepository extends JpaRepository<RechercheTra
 	@Query("SELECT r FROM RechercheTransport r WHERE r.active = true AND r.dateCreation >= :since")
 	List<RechercheTransport> findActiveRecherches(@Param("since") LocalDateTime since);
 
-	@Query("UPDATE RechercheTransport r SET r.active = false WHERE r.dateCreation < :expiredDate")
-	void desactiverRecherchesPerirees(@Param("expiredDate") LocalDateTime expiredDate);
+	@Modifying
+	@Query("UPDATE RechercheTransport r SET r.active = false WHERE r.active = true AND r.dateCreation < :expiredDate")
+	int desactiverRecherchesPerirees(@Param("expiredDate") LocalDateTime expiredDate);
+
+	@Query("SELECT r.id FROM RechercheTransport r WHERE r.active = :active AND r.dateCreation < :limite ORDER BY r.id")
+	List<Long> findIdsCreeesAvant(@Param("active") Boolean active, @Param("limite") LocalDateTime limite, Pageable pageable);
+
+	@Modifying
+	@Query("UPDATE RechercheTransport r SET r.active = false WHERE r.id IN :ids AND r.active = true")
+	int desactiverParIds(@Param("ids") Collection<Long> ids);
+
+	@Modifying
+	@Query("DELETE FROM RechercheTransport r WHERE r.id IN :ids AND r.active = false")
+	int supprimerInactivesParIds(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.lanayago.repository;
+
+import com.lanayago.entity.SegmentTrajectoire;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface SegmentTrajectoireRepository extends JpaRepository<SegmentTrajectoire, Long> {
+
+	@Query("""
+        SELECT s FROM SegmentTrajectoire s
+        WHERE s.commandeId = :commandeId
+        AND s.horodatageFin >= :debut
+        AND s.horodatageDebut <= :fin
+        ORDER BY s.numeroSegment ASC
+        """)
+	List<SegmentTrajectoire> findByCommandeIdEntre(@Param("commandeId") Long commandeId,
+	                                               @Param("debut") Long debut,
+	                                               @Param("fin") Long fin);
+
+	@Query("SELECT MAX(s.numeroSegment) FROM SegmentTrajectoire s WHERE s.commandeId = :commandeId")
+	Integer findDernierNumeroSegment(@Param("commandeId") Long commandeId);
+}
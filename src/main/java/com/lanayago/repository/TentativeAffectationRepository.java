@@ -0,0 +1,14 @@
+package com.lanayago.repository;
+
+import com.lanayago.entity.TentativeAffectation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface TentativeAffectationRepository extends JpaRepository<TentativeAffectation, Long> {
+
+	@Query("SELECT t.chauffeurId FROM TentativeAffectation t WHERE t.commandeId = :commandeId")
+	List<Long> findChauffeurIdsByCommandeId(@Param("commandeId") Long commandeId);
+}
@@ -0,0 +1,23 @@
+package com.lanayago.repository;
+
+import com.lanayago.entity.Tournee;
+import com.lanayago.enums.StatutCommande;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface TourneeRepository extends JpaRepository<Tournee, Long> {
+
+	// Tournées d'un chauffeur dont au moins une commande n'est pas terminée, arrêts chargés dans l'ordre
+	@Query("""
+        SELECT DISTINCT t FROM Tournee t LEFT JOIN FETCH t.arrets
+        WHERE t.chauffeurId = :chauffeurId
+        AND EXISTS (SELECT 1 FROM Commande c WHERE c.tourneeId = t.id AND c.statut IN :statuts)
+        ORDER BY t.dateCreation
+        """)
+	List<Tournee> findEnCoursByChauffeurId(@Param("chauffeurId") Long chauffeurId,
+	                                       @Param("statuts") Collection<StatutCommande> statuts);
+}
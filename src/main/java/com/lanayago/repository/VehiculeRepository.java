@@ -3,6 +3,7 @@ package com.lanayago.repository;
 import com.lanayago.entity.Vehicule;
 import com.lanayago.enums.TypeVehicule;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -29,4 +30,17 @@ public interface VehiculeRepository extends JpaRepository<Vehicule, Long> {
 
 	@Query("SELECT COUNT(v) FROM Vehicule v WHERE v.proprietaire.id = :proprietaireId")
 	long countByProprietaireId(@Param("proprietaireId") Long proprietaireId);
-}
\ No newline at end of file
+
+	/**
+	 * Réserve le véhicule s'il est encore disponible ; 0 si un autre appelant l'a pris entre-temps
+	 */
+	@Modifying
+	@Query("UPDATE Vehicule v SET v.disponible = false WHERE v.id = :vehiculeId AND v.disponible = true")
+	int reserver(@Param("vehiculeId") Long vehiculeId);
+
+	/**
+	 * Verrouille la ligne du véhicule jusqu'à la fin de la transaction : sérialise ses réservations entre instances
+	 */
+	@Query(value = "SELECT id FROM vehicules WHERE id = :vehiculeId FOR UPDATE", nativeQuery = true)
+	Long verrouiller(@Param("vehiculeId") Long vehiculeId);
+}
@@ -122,6 +122,8 @@ public class SecurityConfig {
 		configuration.setAllowedOriginPatterns(Arrays.asList("*"));
 		configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
 		configuration.setAllowedHeaders(Arrays.asList("*"));
+		// Sans exposition, les navigateurs masquent le curseur de pagination aux scripts
+		configuration.setExposedHeaders(Arrays.asList("X-Next-Cursor"));
 		configuration.setAllowCredentials(true);
 
 		UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -1,12 +1,14 @@
 package com.lanayago.service;
 
 import com.lanayago.dto.DocumentDTO;
+import com.lanayago.entity.Chauffeur;
 import com.lanayago.entity.Document;
 import com.lanayago.entity.User;
 import com.lanayago.enums.StatutDocument;
 import com.lanayago.enums.TypeUtilisateur;
 import com.lanayago.exception.BusinessException;
 import com.lanayago.repository.*;
+import com.lanayago.service.geo.IndexSpatialChauffeurs;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
@@ -30,6 +32,7 @@ public class AdminService {
 	private final VehiculeRepository vehiculeRepository;
 	private final DocumentRepository documentRepository;
 	private final UserMapperService userMapperService;
+	private final IndexSpatialChauffeurs indexSpatialChauffeurs;
 
 	@Transactional(readOnly = true)
 	public Map<String, Object> getStatistiquesGlobales() {
@@ -79,6 +82,10 @@ public class AdminService {
 		user.setActif(actif);
 		userRepository.save(user);
 
+		if (user instanceof Chauffeur chauffeur) {
+			indexSpatialChauffeurs.synchroniser(chauffeur);
+		}
+
 		log.info("Statut de l'utilisateur {} changé vers : {}", userId, actif);
 	}
 
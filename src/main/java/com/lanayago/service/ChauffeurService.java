@@ -10,6 +10,7 @@ import com.lanayago.exception.BusinessException;
 import com.lanayago.repository.ChauffeurRepository;
 import com.lanayago.repository.UserRepository;
 import com.lanayago.repository.VehiculeRepository;
+import com.lanayago.service.geo.IndexSpatialChauffeurs;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -29,6 +30,7 @@ public class ChauffeurService {
 	private final VehiculeRepository vehiculeRepository;
 	private final PasswordEncoder passwordEncoder;
 	private final UserMapperService userMapperService;
+	private final IndexSpatialChauffeurs indexSpatialChauffeurs;
 
 	public static class ChauffeurDTO {
 		public static class CreateRequest {
@@ -133,6 +135,7 @@ public class ChauffeurService {
 		// Affecter le nouveau véhicule
 		chauffeur.setVehiculeActuel(vehicule);
 		chauffeurRepository.save(chauffeur);
+		indexSpatialChauffeurs.synchroniser(chauffeur);
 
 		log.info("Véhicule {} affecté au chauffeur {} avec succès", vehiculeId, chauffeurId);
 	}
@@ -164,6 +167,7 @@ public class ChauffeurService {
 
 		chauffeur.setVehiculeActuel(null);
 		chauffeurRepository.save(chauffeur);
+		indexSpatialChauffeurs.synchroniser(chauffeur);
 
 		log.info("Véhicule libéré du chauffeur {} avec succès", chauffeurId);
 	}
@@ -191,6 +195,7 @@ public class ChauffeurService {
 
 		chauffeur.setDisponible(disponible);
 		chauffeurRepository.save(chauffeur);
+		indexSpatialChauffeurs.synchroniser(chauffeur);
 
 		log.info("Disponibilité du chauffeur {} changée vers: {}", chauffeurId, disponible);
 	}
@@ -269,6 +274,7 @@ public class ChauffeurService {
 		// Désactiver plutôt que supprimer (pour conserver l'historique)
 		chauffeur.setActif(false);
 		chauffeurRepository.save(chauffeur);
+		indexSpatialChauffeurs.retirer(chauffeurId);
 
 		log.info("Chauffeur {} désactivé avec succès", chauffeurId);
 	}
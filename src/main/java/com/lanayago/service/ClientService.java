@@ -3,12 +3,16 @@ package com.lanayago.service;
 import com.lanayago.dto.CommandeDTO;
 import com.lanayago.dto.UserDTO;
 import com.lanayago.entity.Client;
+import com.lanayago.entity.Commande;
 import com.lanayago.exception.BusinessException;
 import com.lanayago.repository.ClientRepository;
 import com.lanayago.repository.CommandeRepository;
+import com.lanayago.service.pagination.CurseurChronologique;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,6 +26,8 @@ import java.util.Map;
 @Slf4j
 public class ClientService {
 
+	private static final int TAILLE_PAGE_MAXIMALE = 100;
+
 	private final ClientRepository clientRepository;
 	private final CommandeRepository commandeRepository;
 	private final UserMapperService userMapperService;
@@ -51,12 +57,38 @@ public class ClientService {
 		return userMapperService.toDTO(client);
 	}
 
+	/**
+	 * Historique paginé par curseur (dateCreation, id) ; le numéro de page n'est plus utilisé
+	 * qu'en l'absence de curseur, avec un OFFSET appliqué par la base
+	 */
 	@Transactional(readOnly = true)
-	public List<CommandeDTO.Response> getHistoriqueCommandes(Long clientId, int page, int size) {
-		return commandeRepository.findByClientIdOrderByDateCreationDesc(clientId)
-				.stream()
-				.skip((long) page * size)
-				.limit(size)
+	public CommandeDTO.PageCommandes getHistoriqueCommandes(Long clientId, String cursor, int page, int size) {
+		if (size < 1 || size > TAILLE_PAGE_MAXIMALE) {
+			throw new BusinessException("La taille de page doit être comprise entre 1 et " + TAILLE_PAGE_MAXIMALE);
+		}
+
+		List<Commande> commandes;
+		boolean pageSuivante;
+		if (cursor == null && page > 0) {
+			// Ancien mode par numéro de page : une page pleine laisse supposer une suite
+			commandes = commandeRepository.findByClientId(clientId,
+					PageRequest.of(page, size, Sort.by(Sort.Order.desc("dateCreation"), Sort.Order.desc("id"))));
+			pageSuivante = commandes.size() == size;
+		} else {
+			CurseurChronologique curseur = CurseurChronologique.decoder(cursor, false);
+			commandes = commandeRepository.findPageByClientId(clientId, curseur.dateCreation(), curseur.id(), Limit.of(size + 1));
+			pageSuivante = commandes.size() > size;
+			if (pageSuivante) {
+				commandes = commandes.subList(0, size);
+			}
+		}
+
+		CommandeDTO.PageCommandes resultat = new CommandeDTO.PageCommandes();
+		if (pageSuivante) {
+			Commande derniere = commandes.get(commandes.size() - 1);
+			resultat.setNextCursor(new CurseurChronologique(derniere.getDateCreation(), derniere.getId()).encoder());
+		}
+		resultat.setCommandes(commandes.stream()
 				.map(commande -> {
 					// Utilisation simplifiée du mapping
 					CommandeDTO.Response response = new CommandeDTO.Response();
@@ -67,7 +99,8 @@ public class ClientService {
 					response.setTarifFinal(commande.getTarifFinal());
 					return response;
 				})
-				.toList();
+				.toList());
+		return resultat;
 	}
 
 	@Transactional(readOnly = true)
@@ -4,30 +4,64 @@ import com.lanayago.dto.CommandeDTO;
 import com.lanayago.dto.RechercheTransportDTO;
 import com.lanayago.dto.VehiculeDTO;
 import com.lanayago.entity.*;
+import com.lanayago.enums.ModeAffectation;
+import com.lanayago.enums.MotifReaffectation;
 import com.lanayago.enums.StatutCommande;
 import com.lanayago.exception.BusinessException;
 import com.lanayago.repository.*;
+import com.lanayago.service.diffusion.DiffusionCommandes;
+import com.lanayago.service.diffusion.ReaffectationCommandes;
+import com.lanayago.service.repartition.RepartitionCommandes;
+import com.lanayago.service.geo.IndexSpatialChauffeurs;
+import com.lanayago.service.groupage.GroupageCommandes;
+import com.lanayago.service.notation.AgregatsNotesService;
+import com.lanayago.service.numerotation.IGenerateurNumeroCommande;
+import com.lanayago.service.pagination.CurseurChronologique;
+import com.lanayago.service.recherche.SessionsRechercheEnDirect;
+import com.lanayago.service.reservation.CalendrierReservations;
+import com.lanayago.service.suivi.CommandesActivesChauffeurs;
+import com.lanayago.service.trajectoire.TrajectoireService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.BiFunction;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CommandeService {
 
+	private static final int LIMITE_PAGE_MAXIMALE = 100;
+
 	private final CommandeRepository commandeRepository;
 	private final ClientRepository clientRepository;
 	private final ChauffeurRepository chauffeurRepository;
 	private final VehiculeRepository vehiculeRepository;
 	private final RechercheTransportRepository rechercheTransportRepository;
+	private final SessionsRechercheEnDirect sessionsRecherche;
 	private final NotificationService notificationService;
 	private final UserMapperService userMapperService;
+	private final IndexSpatialChauffeurs indexSpatialChauffeurs;
+	private final TrajectoireService trajectoireService;
+	private final AgregatsNotesService agregatsNotesService;
+	private final IGenerateurNumeroCommande generateurNumeroCommande;
+	private final CommandesActivesChauffeurs commandesActives;
+	private final RechercheTransportService rechercheTransportService;
+	private final DiffusionCommandes diffusionCommandes;
+	private final ReaffectationCommandes reaffectationCommandes;
+	private final RepartitionCommandes repartitionCommandes;
+	private final GroupageCommandes groupageCommandes;
+	private final CalendrierReservations calendrierReservations;
+
+	@Value("${commande.diffusion.nombre-chauffeurs:5}")
+	private int nombreChauffeursDiffusion;
 
 	/**
 	 * Nouvelle méthode pour créer une commande à partir d'une recherche de transport
@@ -46,32 +80,69 @@ public class CommandeService {
 			throw new BusinessException("Cette recherche n'est plus active");
 		}
 
-		// Récupérer le chauffeur et vérifier sa disponibilité
-		Chauffeur chauffeur = chauffeurRepository.findById(request.getChauffeurId())
-				.orElseThrow(() -> new BusinessException("Chauffeur non trouvé"));
+		ModeAffectation mode = Boolean.TRUE.equals(request.getDiffusion()) ? ModeAffectation.DIFFUSION
+				: Boolean.TRUE.equals(request.getRepartition()) ? ModeAffectation.REPARTITION
+				: ModeAffectation.DIRECTE;
+		Chauffeur chauffeur = null;
+		Vehicule vehicule = null;
+		List<Chauffeur> destinataires = List.of();
+		if (mode == ModeAffectation.REPARTITION) {
+			// Le chauffeur sera attribué lors du prochain lot de répartition
+			if (!repartitionCommandes.estActive()) {
+				throw new BusinessException("La répartition groupée des commandes n'est pas activée");
+			}
+		} else if (mode == ModeAffectation.DIFFUSION) {
+			// Les meilleurs chauffeurs compatibles selon les paramètres de la recherche
+			destinataires = chauffeurRepository.findAllById(
+					rechercheTransportService.meilleursChauffeursPourRecherche(recherche, nombreChauffeursDiffusion));
+			if (destinataires.isEmpty()) {
+				throw new BusinessException("Aucun chauffeur disponible pour cette recherche");
+			}
+		} else {
+			if (request.getChauffeurId() == null || request.getVehiculeId() == null) {
+				throw new BusinessException("Le chauffeur et le véhicule sont obligatoires hors diffusion et répartition");
+			}
 
-		if (!chauffeur.getDisponible()) {
-			throw new BusinessException("Le chauffeur n'est plus disponible");
-		}
+			// Récupérer le chauffeur et vérifier sa disponibilité (plus tard, sur le créneau, si la course est programmée)
+			boolean programmee = calendrierReservations.estProgramme(recherche.getDateRamassageSouhaitee());
+			chauffeur = chauffeurRepository.findById(request.getChauffeurId())
+					.orElseThrow(() -> new BusinessException("Chauffeur non trouvé"));
 
-		// Récupérer le véhicule et vérifier sa disponibilité
-		Vehicule vehicule = vehiculeRepository.findById(request.getVehiculeId())
-				.orElseThrow(() -> new BusinessException("Véhicule non trouvé"));
+			if (!programmee && !chauffeur.getDisponible()) {
+				throw new BusinessException("Le chauffeur n'est plus disponible");
+			}
 
-		if (!vehicule.getDisponible()) {
-			throw new BusinessException("Le véhicule n'est plus disponible");
-		}
+			// Récupérer le véhicule et vérifier sa disponibilité
+			vehicule = vehiculeRepository.findById(request.getVehiculeId())
+					.orElseThrow(() -> new BusinessException("Véhicule non trouvé"));
+
+			if (!programmee && !vehicule.getDisponible()) {
+				throw new BusinessException("Le véhicule n'est plus disponible");
+			}
 
-		// Vérifier que le chauffeur correspond au véhicule
-		if (!chauffeur.getVehiculeActuel().getId().equals(vehicule.getId())) {
-			throw new BusinessException("Le chauffeur n'est pas assigné à ce véhicule");
+			if (!calendrierReservations.estLibre(chauffeur.getId(), vehicule.getId(), calendrierReservations.creneau(
+					recherche.getDateRamassageSouhaitee(), recherche.getDateLivraisonSouhaitee(), recherche.getDistance()))) {
+				throw new BusinessException("Le chauffeur n'est pas libre sur ce créneau");
+			}
+
+			// Vérifier que le chauffeur correspond au véhicule
+			if (!chauffeur.getVehiculeActuel().getId().equals(vehicule.getId())) {
+				throw new BusinessException("Le chauffeur n'est pas assigné à ce véhicule");
+			}
+			destinataires = List.of(chauffeur);
 		}
 
 		// Créer la commande
 		Commande commande = new Commande();
+		commande.setNumeroCommande(generateurNumeroCommande.prochainNumero());
 		commande.setClient(recherche.getClient());
 		commande.setChauffeur(chauffeur);
 		commande.setVehicule(vehicule);
+		commande.setRechercheId(recherche.getId());
+		commande.setModeAffectation(mode);
+		if (chauffeur != null) {
+			commande.setDateAffectation(LocalDateTime.now());
+		}
 
 		// Copier les données de la recherche
 		commande.setLatitudeDepart(recherche.getLatitudeDepart());
@@ -96,14 +167,22 @@ public class CommandeService {
 			commande.setCommentaireClient(request.getInstructionsSpeciales());
 		}
 
-		commande = commandeRepository.save(commande);
-
-		// Désactiver la recherche
+		// Désactiver la recherche : une seule commande peut en être issue
+		if (rechercheTransportRepository.desactiverParIds(List.of(recherche.getId())) == 0) {
+			throw new BusinessException("Cette recherche n'est plus active");
+		}
 		recherche.setActive(false);
-		rechercheTransportRepository.save(recherche);
+		sessionsRecherche.retirer(recherche.getId());
+
+		commande = commandeRepository.save(commande);
 
-		// Notifier le chauffeur de la nouvelle commande
-		notificationService.notifierNouvelleCommande(List.of(chauffeur), commande);
+		// Notifier le ou les chauffeurs de la nouvelle commande
+		if (mode == ModeAffectation.DIFFUSION) {
+			diffusionCommandes.ouvrir(commande, destinataires);
+		} else if (mode == ModeAffectation.DIRECTE) {
+			notificationService.notifierNouvelleCommande(destinataires, commande);
+			reaffectationCommandes.suivre(commande);
+		}
 
 		log.info("Commande créée avec succès depuis la recherche: {} - Commande ID: {}",
 				request.getRechercheId(), commande.getId());
@@ -128,29 +207,69 @@ public class CommandeService {
 		Chauffeur chauffeur = chauffeurRepository.findById(chauffeurId)
 				.orElseThrow(() -> new BusinessException("Chauffeur non trouvé"));
 
-		// Vérifier que c'est bien le chauffeur assigné à cette commande
-		if (!commande.getChauffeur().getId().equals(chauffeurId)) {
+		// Commande diffusée : pas encore de chauffeur, il faut avoir reçu l'offre
+		boolean diffusee = commande.getChauffeur() == null;
+		if (diffusee) {
+			diffusionCommandes.verifierOffre(commandeId, chauffeurId);
+		} else if (!commande.getChauffeur().getId().equals(chauffeurId)) {
+			// Vérifier que c'est bien le chauffeur assigné à cette commande
 			throw new BusinessException("Vous n'êtes pas le chauffeur assigné à cette commande");
 		}
 
-		if (!chauffeur.getDisponible()) {
+		// Commande programmée : seul le créneau est réservé, le chauffeur reste disponible d'ici là
+		boolean programmee = calendrierReservations.estProgramme(commande.getDateRamassageSouhaitee());
+		if (!programmee && !chauffeur.getDisponible()) {
 			throw new BusinessException("Vous n'êtes plus disponible");
 		}
 
-		// Accepter la commande
-		commande.setStatut(StatutCommande.ACCEPTEE);
-
-		// Réserver les ressources
-		chauffeur.setDisponible(false);
-		chauffeurRepository.save(chauffeur);
+		Vehicule vehicule = diffusee ? chauffeur.getVehiculeActuel() : commande.getVehicule();
+		if (diffusee && vehicule == null) {
+			throw new BusinessException("Aucun véhicule associé à votre compte");
+		}
 
-		commande.getVehicule().setDisponible(false);
-		vehiculeRepository.save(commande.getVehicule());
+		// Transition et réservation des ressources en une seule revendication : chaque UPDATE conditionnel
+		// ne réussit que pour un appelant (le premier des chauffeurs sollicités pour une commande diffusée),
+		// et tout échec annule la transaction entière
+		int revendiquee = diffusee
+				? commandeRepository.attribuerSi(commandeId, chauffeurId, vehicule.getId())
+				: commandeRepository.changerStatutSiChauffeur(commandeId, chauffeurId, StatutCommande.EN_ATTENTE, StatutCommande.ACCEPTEE);
+		if (revendiquee == 0) {
+			throw new BusinessException("Cette commande n'est plus disponible");
+		}
+		if (!programmee) {
+			reserverRessources(chauffeurId, vehicule);
+		}
+		Long vehiculeId = vehicule != null ? vehicule.getId() : null;
+		calendrierReservations.reserver(commande, chauffeurId, vehiculeId, programmee);
+		// Commande d'une tournée : le chauffeur s'engage sur toutes celles qui lui sont proposées
+		List<Commande> regroupees = diffusee ? List.of() : groupageCommandes.accepterTournee(commande, chauffeurId);
+		regroupees.forEach(autre -> calendrierReservations.inscrire(autre, chauffeurId, vehiculeId, programmee));
 
-		commande = commandeRepository.save(commande);
+		// Aligner les entités chargées sur l'état écrit en base
+		commande.setStatut(StatutCommande.ACCEPTEE);
+		if (!programmee) {
+			chauffeur.setDisponible(false);
+			if (vehicule != null) {
+				vehicule.setDisponible(false);
+			}
+			indexSpatialChauffeurs.retirer(chauffeurId);
+		}
+		if (diffusee) {
+			commande.setChauffeur(chauffeur);
+			commande.setVehicule(vehicule);
+			diffusionCommandes.attribuer(commande, chauffeurId);
+		} else {
+			reaffectationCommandes.arreter(commandeId);
+		}
+		commandesActives.appliquer(commande);
 
 		// Notification au client
 		notificationService.notifierChangementStatut(commande);
+		for (Commande autre : regroupees) {
+			reaffectationCommandes.arreter(autre.getId());
+			commandesActives.appliquer(autre);
+			notificationService.notifierChangementStatut(autre);
+		}
 
 		log.info("Commande acceptée avec succès par le chauffeur {} {}",
 				chauffeur.getNom(), chauffeur.getPrenom());
@@ -172,14 +291,33 @@ public class CommandeService {
 			throw new BusinessException("Cette commande ne peut plus être refusée");
 		}
 
+		// Commande diffusée : le refus retire seulement l'offre faite à ce chauffeur
+		if (commande.getChauffeur() == null) {
+			diffusionCommandes.refuser(commandeId, chauffeurId);
+			log.info("Offre de la commande {} déclinée par le chauffeur {} - Motif: {}", commandeId, chauffeurId, motifRefus);
+			return;
+		}
+
 		// Vérifier que c'est bien le chauffeur assigné
 		if (!commande.getChauffeur().getId().equals(chauffeurId)) {
 			throw new BusinessException("Vous n'êtes pas le chauffeur assigné à cette commande");
 		}
 
-		// Marquer la commande comme refusée
+		// Proposer d'abord la commande au meilleur chauffeur compatible suivant
+		if (reaffectationCommandes.reaffecter(commande, chauffeurId, MotifReaffectation.REFUSEE)) {
+			log.info("Commande {} refusée par chauffeur {} puis réaffectée - Motif: {}", commandeId, chauffeurId, motifRefus);
+			return;
+		}
+
+		// Marquer la commande comme refusée, sauf si une autre transition l'a devancé
+		if (commandeRepository.changerStatutSiChauffeur(
+				commandeId, chauffeurId, StatutCommande.EN_ATTENTE, StatutCommande.REFUSEE) == 0) {
+			throw new BusinessException("Cette commande ne peut plus être refusée");
+		}
 		commande.setStatut(StatutCommande.REFUSEE);
 		commande.setCommentaireChauffeur("Refusée: " + motifRefus);
+		reaffectationCommandes.arreter(commandeId);
+		groupageCommandes.retirer(commande);
 
 		// Libérer les ressources
 		libererRessources(commande);
@@ -208,11 +346,28 @@ public class CommandeService {
 			));
 		}
 
+		// La transition n'est appliquée que si le statut lu est toujours celui en base
+		if (commandeRepository.changerStatutSi(commandeId, ancienStatut, nouveauStatut) == 0) {
+			throw new BusinessException("La commande a été modifiée entre-temps, veuillez réessayer");
+		}
 		commande.setStatut(nouveauStatut);
+		if (ancienStatut == StatutCommande.EN_ATTENTE) {
+			reaffectationCommandes.arreter(commandeId);
+		}
 
 		// Actions spécifiques selon le statut
 		switch (nouveauStatut) {
 			case EN_COURS:
+				// Commande programmée : le chauffeur et le véhicule sont pris au démarrage de la course
+				// (une seule fois pour une tournée)
+				if (Boolean.TRUE.equals(commande.getProgrammee()) && !groupageCommandes.tourneeDemarree(commande)) {
+					reserverRessources(commande.getChauffeur().getId(), commande.getVehicule());
+					commande.getChauffeur().setDisponible(false);
+					if (commande.getVehicule() != null) {
+						commande.getVehicule().setDisponible(false);
+					}
+					indexSpatialChauffeurs.retirer(commande.getChauffeur().getId());
+				}
 				commande.setDateRamassageEffective(LocalDateTime.now());
 				break;
 			case RAMASSAGE:
@@ -225,6 +380,9 @@ public class CommandeService {
 				gererLivraisonTerminee(commande);
 				break;
 			case ANNULEE:
+				if (ancienStatut == StatutCommande.EN_ATTENTE && commande.getChauffeur() == null) {
+					diffusionCommandes.fermer(commande);
+				}
 				gererAnnulationCommande(commande);
 				break;
 			default:
@@ -232,6 +390,7 @@ public class CommandeService {
 		}
 
 		commande = commandeRepository.save(commande);
+		commandesActives.appliquer(commande);
 		notificationService.notifierChangementStatut(commande);
 
 		log.info("Statut de la commande {} changé de {} vers {}",
@@ -254,67 +413,72 @@ public class CommandeService {
 			throw new BusinessException("La note doit être comprise entre 1 et 5");
 		}
 
+		LocalDateTime dateEvaluation = LocalDateTime.now();
 		if ("CLIENT".equals(typeEvaluateur)) {
 			if (commande.getNoteClient() != null) {
 				throw new BusinessException("Cette commande a déjà été évaluée par le client");
 			}
 			commande.setNoteClient(note);
+			commande.setDateNoteClient(dateEvaluation);
 			commande.setCommentaireClient(commentaire);
-
-			// Mettre à jour la note moyenne du chauffeur
-			if (commande.getChauffeur() != null) {
-				mettreAJourNoteMoyenneChauffeur(commande.getChauffeur().getId());
-			}
 		} else if ("CHAUFFEUR".equals(typeEvaluateur)) {
 			if (commande.getNoteChauffeur() != null) {
 				throw new BusinessException("Cette commande a déjà été évaluée par le chauffeur");
 			}
 			commande.setNoteChauffeur(note);
+			commande.setDateNoteChauffeur(dateEvaluation);
 			commande.setCommentaireChauffeur(commentaire);
-
-			// Mettre à jour la note moyenne du client
-			mettreAJourNoteMoyenneClient(commande.getClient().getId());
 		} else {
 			throw new BusinessException("Type d'évaluateur invalide");
 		}
 
 		commande = commandeRepository.save(commande);
+
+		// Mise à jour incrémentale de la note moyenne de la personne évaluée
+		if ("CLIENT".equals(typeEvaluateur)) {
+			if (commande.getChauffeur() != null) {
+				agregatsNotesService.noterChauffeur(commande.getChauffeur().getId(), note, dateEvaluation);
+			}
+		} else {
+			agregatsNotesService.noterClient(commande.getClient().getId(), note, dateEvaluation);
+		}
 		log.info("Évaluation ajoutée pour la commande {} par {}: {} étoiles",
 				commandeId, typeEvaluateur, note);
 
-		return mapToResponse(commande);
+		// Le contexte de persistance a été vidé par la mise à jour des cumuls
+		return getCommandeById(commandeId);
 	}
 
-	// Méthodes de lecture existantes
+	// Méthodes de lecture : pages bornées, du plus récent au plus ancien (par ancienneté pour le statut)
 	@Transactional(readOnly = true)
-	public List<CommandeDTO.Response> getCommandesClient(Long clientId) {
-		return commandeRepository.findByClientIdOrderByDateCreationDesc(clientId)
-				.stream()
-				.map(this::mapToResponse)
-				.toList();
+	public CommandeDTO.PageCommandes getCommandesClient(Long clientId, String cursor, int limit) {
+		return paginer(cursor, limit, false, (curseur, limite) ->
+				commandeRepository.findPageDetailleeByClientId(clientId, curseur.dateCreation(), curseur.id(), limite));
 	}
 
 	@Transactional(readOnly = true)
-	public List<CommandeDTO.Response> getCommandesChauffeur(Long chauffeurId) {
-		return commandeRepository.findByChauffeurIdOrderByDateCreationDesc(chauffeurId)
-				.stream()
-				.map(this::mapToResponse)
-				.toList();
+	public CommandeDTO.PageCommandes getCommandesChauffeur(Long chauffeurId, String cursor, int limit) {
+		return paginer(cursor, limit, false, (curseur, limite) ->
+				commandeRepository.findPageDetailleeByChauffeurId(chauffeurId, curseur.dateCreation(), curseur.id(), limite));
 	}
 
 	@Transactional(readOnly = true)
 	public CommandeDTO.Response getCommandeById(Long commandeId) {
-		Commande commande = commandeRepository.findById(commandeId)
+		Commande commande = commandeRepository.findDetailleeById(commandeId)
 				.orElseThrow(() -> new BusinessException("Commande non trouvée"));
 		return mapToResponse(commande);
 	}
 
 	@Transactional(readOnly = true)
-	public List<CommandeDTO.Response> getCommandesParStatut(StatutCommande statut) {
-		return commandeRepository.findByStatutOrderByDateCreationAsc(statut)
-				.stream()
-				.map(this::mapToResponse)
-				.toList();
+	public CommandeDTO.PageCommandes getCommandesParStatut(StatutCommande statut, String cursor, int limit) {
+		return paginer(cursor, limit, true, (curseur, limite) ->
+				commandeRepository.findPageDetailleeByStatut(statut, curseur.dateCreation(), curseur.id(), limite));
+	}
+
+	@Transactional(readOnly = true)
+	public CommandeDTO.PageCommandes getCommandesProprietaire(Long proprietaireId, String cursor, int limit) {
+		return paginer(cursor, limit, false, (curseur, limite) ->
+				commandeRepository.findPageDetailleeByProprietaireId(proprietaireId, curseur.dateCreation(), curseur.id(), limite));
 	}
 
 	// =================== MÉTHODES PRIVÉES ===================
@@ -332,11 +496,9 @@ public class CommandeService {
 
 	private void gererLivraisonTerminee(Commande commande) {
 		commande.setDateLivraisonEffective(LocalDateTime.now());
+		trajectoireService.cloturer(commande.getId());
 
-		// Libérer les ressources
-		libererRessources(commande);
-
-		// Mettre à jour les statistiques
+		// Mettre à jour les statistiques (avant la libération, qui resynchronise l'index spatial)
 		if (commande.getChauffeur() != null) {
 			commande.getChauffeur().setNombreCourses(
 					commande.getChauffeur().getNombreCourses() + 1
@@ -344,6 +506,9 @@ public class CommandeService {
 			chauffeurRepository.save(commande.getChauffeur());
 		}
 
+		// Libérer les ressources
+		libererRessources(commande);
+
 		commande.getClient().setNombreCommandes(
 				commande.getClient().getNombreCommandes() + 1
 		);
@@ -352,59 +517,40 @@ public class CommandeService {
 
 	private void gererAnnulationCommande(Commande commande) {
 		libererRessources(commande);
+		groupageCommandes.retirer(commande);
+		trajectoireService.cloturer(commande.getId());
 	}
 
-	private void libererRessources(Commande commande) {
-		if (commande.getChauffeur() != null) {
-			commande.getChauffeur().setDisponible(true);
-			chauffeurRepository.save(commande.getChauffeur());
+	private void reserverRessources(Long chauffeurId, Vehicule vehicule) {
+		if (chauffeurRepository.reserver(chauffeurId) == 0) {
+			throw new BusinessException("Vous n'êtes plus disponible");
 		}
-
-		if (commande.getVehicule() != null) {
-			commande.getVehicule().setDisponible(true);
-			vehiculeRepository.save(commande.getVehicule());
+		if (vehicule != null && vehiculeRepository.reserver(vehicule.getId()) == 0) {
+			throw new BusinessException("Le véhicule n'est plus disponible");
 		}
 	}
 
-	private void mettreAJourNoteMoyenneChauffeur(Long chauffeurId) {
-		List<Commande> commandes = commandeRepository.findByChauffeurIdOrderByDateCreationDesc(chauffeurId);
-		BigDecimal sommeTotale = BigDecimal.ZERO;
-		int nombreNotes = 0;
-
-		for (Commande cmd : commandes) {
-			if (cmd.getNoteClient() != null) {
-				sommeTotale = sommeTotale.add(cmd.getNoteClient());
-				nombreNotes++;
-			}
+	private void libererRessources(Commande commande) {
+		calendrierReservations.liberer(commande);
+		// Commande programmée pas encore démarrée : le chauffeur et le véhicule n'ont pas été pris
+		if (Boolean.TRUE.equals(commande.getProgrammee()) && commande.getDateRamassageEffective() == null) {
+			return;
 		}
-
-		if (nombreNotes > 0) {
-			BigDecimal noteMoyenne = sommeTotale.divide(BigDecimal.valueOf(nombreNotes), 2, java.math.RoundingMode.HALF_UP);
-			chauffeurRepository.findById(chauffeurId).ifPresent(chauffeur -> {
-				chauffeur.setNoteMoyenne(noteMoyenne);
-				chauffeurRepository.save(chauffeur);
-			});
+		// Tournée : le chauffeur et son véhicule restent pris par les autres commandes en cours
+		if (groupageCommandes.autreCommandeActive(commande)) {
+			return;
 		}
-	}
-
-	private void mettreAJourNoteMoyenneClient(Long clientId) {
-		List<Commande> commandes = commandeRepository.findByClientIdOrderByDateCreationDesc(clientId);
-		BigDecimal sommeTotale = BigDecimal.ZERO;
-		int nombreNotes = 0;
 
-		for (Commande cmd : commandes) {
-			if (cmd.getNoteChauffeur() != null) {
-				sommeTotale = sommeTotale.add(cmd.getNoteChauffeur());
-				nombreNotes++;
-			}
+		// Le véhicule d'abord : son état fait partie du profil indexé du chauffeur
+		if (commande.getVehicule() != null) {
+			commande.getVehicule().setDisponible(true);
+			vehiculeRepository.save(commande.getVehicule());
 		}
 
-		if (nombreNotes > 0) {
-			BigDecimal noteMoyenne = sommeTotale.divide(BigDecimal.valueOf(nombreNotes), 2, java.math.RoundingMode.HALF_UP);
-			clientRepository.findById(clientId).ifPresent(client -> {
-				client.setNoteMoyenne(noteMoyenne);
-				clientRepository.save(client);
-			});
+		if (commande.getChauffeur() != null) {
+			commande.getChauffeur().setDisponible(true);
+			chauffeurRepository.save(commande.getChauffeur());
+			indexSpatialChauffeurs.synchroniser(commande.getChauffeur());
 		}
 	}
 
@@ -476,7 +622,27 @@ public class CommandeService {
 		return dto;
 	}
 
-	public List<CommandeDTO.Response> getCommandesProprietaire(Long proprietaireId) {
-		return List.of();
+	/**
+	 * Lit limit + 1 lignes après le curseur : la ligne en trop indique qu'une page suivante existe
+	 */
+	private CommandeDTO.PageCommandes paginer(String cursor, int limit, boolean croissant,
+	                                          BiFunction<CurseurChronologique, Limit, List<Commande>> lecture) {
+		if (limit < 1 || limit > LIMITE_PAGE_MAXIMALE) {
+			throw new BusinessException("La limite doit être comprise entre 1 et " + LIMITE_PAGE_MAXIMALE);
+		}
+
+		List<Commande> commandes = lecture.apply(CurseurChronologique.decoder(cursor, croissant), Limit.of(limit + 1));
+		boolean pageSuivante = commandes.size() > limit;
+		if (pageSuivante) {
+			commandes = commandes.subList(0, limit);
+		}
+
+		CommandeDTO.PageCommandes page = new CommandeDTO.PageCommandes();
+		page.setCommandes(commandes.stream().map(this::mapToResponse).toList());
+		if (pageSuivante) {
+			Commande derniere = commandes.get(commandes.size() - 1);
+			page.setNextCursor(new CurseurChronologique(derniere.getDateCreation(), derniere.getId()).encoder());
+		}
+		return page;
 	}
 }
\ No newline at end of file
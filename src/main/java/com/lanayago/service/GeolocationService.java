@@ -1,84 +1,88 @@
 package com.lanayago.service;
 
-import com.lanayago.entity.Chauffeur;
-import com.lanayago.repository.ChauffeurRepository;
+import com.lanayago.service.geo.IndexSpatialChauffeurs;
+import com.lanayago.service.geo.IngestionPositionsService;
+import com.lanayago.service.geo.NoyauGeodesique;
+import com.lanayago.service.geo.distance.HaversineDistanceProvider;
+import com.lanayago.service.geo.distance.IDistanceProvider;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.List;
-import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class GeolocationService {
 
-	private final ChauffeurRepository chauffeurRepository;
-	private final RestTemplate restTemplate = new RestTemplate();
+	private final IndexSpatialChauffeurs indexSpatialChauffeurs;
+	private final IngestionPositionsService ingestionPositionsService;
+	private final IDistanceProvider distanceProvider;
+	private final HaversineDistanceProvider haversineDistanceProvider;
 
-	@Value("${google.maps.api-key}")
-	private String googleMapsApiKey;
+	/**
+	 * Distance à vol d'oiseau en kilomètres, non arrondie : l'arrondi est laissé à l'affichage
+	 */
+	public double calculerDistance(double lat1, double lon1, double lat2, double lon2) {
+		return NoyauGeodesique.haversineKm(lat1, lon1, lat2, lon2);
+	}
 
-	public Double calculerDistance(Double lat1, Double lon1, Double lat2, Double lon2) {
-		// Formule de Haversine pour calculer la distance entre deux points
-		final int R = 6371; // Rayon de la Terre en kilomètres
+	/**
+	 * Distances à vol d'oiseau d'une origine vers N destinations, en une seule passe sur des tableaux primitifs
+	 */
+	public double[] calculerDistances(double latOrigine, double lonOrigine, double[] latitudes, double[] longitudes) {
+		return haversineDistanceProvider.calculerDistances(latOrigine, lonOrigine, latitudes, longitudes);
+	}
 
-		double latDistance = Math.toRadians(lat2 - lat1);
-		double lonDistance = Math.toRadians(lon2 - lon1);
-		double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-				+ Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-				* Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-		double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-		double distance = R * c;
+	/**
+	 * Matrice N×M des distances à vol d'oiseau (ex. demandes × chauffeurs pour le dispatch)
+	 */
+	public double[][] calculerMatriceDistances(double[] latOrigines, double[] lonOrigines,
+	                                           double[] latDestinations, double[] lonDestinations) {
+		double[][] matrice = new double[latOrigines.length][];
+		for (int i = 0; i < latOrigines.length; i++) {
+			matrice[i] = calculerDistances(latOrigines[i], lonOrigines[i], latDestinations, lonDestinations);
+		}
+		return matrice;
+	}
 
-		return Math.round(distance * 100.0) / 100.0;
+	/**
+	 * Distances routières d'une origine vers N destinations : un seul appel matriciel au fournisseur distant,
+	 * avec repli Haversine pour les destinations non résolues
+	 */
+	public double[] calculerDistancesRoutieres(double latOrigine, double lonOrigine, double[] latitudes, double[] longitudes) {
+		if (latitudes.length == 0) {
+			return new double[0];
+		}
+		return distanceProvider.calculerDistances(latOrigine, lonOrigine, latitudes, longitudes);
 	}
 
+	/**
+	 * Distance routière via la chaîne de fournisseurs (cache, disjoncteur, Google Maps, repli Haversine)
+	 */
 	public Double calculerDistanceGoogleMaps(Double lat1, Double lon1, Double lat2, Double lon2) {
-		try {
-			String url = String.format(
-					"https://maps.googleapis.com/maps/api/distancematrix/json?" +
-							"origins=%f,%f&destinations=%f,%f&key=%s&units=metric",
-					lat1, lon1, lat2, lon2, googleMapsApiKey
-			);
-
-			Map response = restTemplate.getForObject(url, Map.class);
-			if (response != null && "OK".equals(response.get("status"))) {
-				List rows = (List) response.get("rows");
-				if (!rows.isEmpty()) {
-					Map row = (Map) rows.get(0);
-					List elements = (List) row.get("elements");
-					if (!elements.isEmpty()) {
-						Map element = (Map) elements.get(0);
-						if ("OK".equals(element.get("status"))) {
-							Map distance = (Map) element.get("distance");
-							return ((Number) distance.get("value")).doubleValue() / 1000.0; // Convertir en km
-						}
-					}
-				}
-			}
-		} catch (Exception e) {
-			log.error("Erreur lors du calcul de distance avec Google Maps", e);
-		}
+		return distanceProvider.calculerDistance(lat1, lon1, lat2, lon2);
+	}
 
-		// Fallback sur le calcul Haversine
-		return calculerDistance(lat1, lon1, lat2, lon2);
+	/**
+	 * Chauffeurs disponibles dans le rayon, triés par distance, servis par l'index spatial en mémoire
+	 */
+	public List<IndexSpatialChauffeurs.ChauffeurProche> trouverChauffeursProches(Double latitude, Double longitude, Double rayon) {
+		return indexSpatialChauffeurs.rechercherDansRayon(latitude, longitude, rayon);
 	}
 
-	public List<Chauffeur> trouverChauffeursProches(Double latitude, Double longitude, Double rayon) {
-		return chauffeurRepository.findChauffeursProches(latitude, longitude, rayon);
+	/**
+	 * Les k meilleurs chauffeurs selon le critère, sans parcourir au-delà du nécessaire
+	 */
+	public List<IndexSpatialChauffeurs.ChauffeurClasse> rechercherMeilleursChauffeurs(
+			double latitude, double longitude, int k, double rayon,
+			IndexSpatialChauffeurs.CritereClassement critere,
+			IndexSpatialChauffeurs.ChauffeurClasse apres) {
+		return indexSpatialChauffeurs.rechercherMeilleurs(latitude, longitude, k, rayon, critere, apres);
 	}
 
 	public void mettreAJourPositionChauffeur(Long chauffeurId, Double latitude, Double longitude) {
-		chauffeurRepository.findById(chauffeurId).ifPresent(chauffeur -> {
-			chauffeur.setLatitudeActuelle(latitude);
-			chauffeur.setLongitudeActuelle(longitude);
-			chauffeurRepository.save(chauffeur);
-			log.info("Position mise à jour pour le chauffeur {} : {}, {}",
-					chauffeurId, latitude, longitude);
-		});
+		ingestionPositionsService.soumettre(chauffeurId, latitude, longitude);
 	}
 }
\ No newline at end of file
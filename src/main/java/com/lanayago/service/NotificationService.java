@@ -1,70 +1,87 @@
 package com.lanayago.service;
 
+import com.lanayago.dto.NotificationDTO;
 import com.lanayago.entity.Chauffeur;
 import com.lanayago.entity.Commande;
+import com.lanayago.service.envoi.BoiteEnvoi;
+import com.lanayago.service.envoi.DiffuseurNotifications;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Notifications des commandes, enregistrées dans la boîte d'envoi de la transaction appelante :
+ * publiées après validation, jamais pour un état annulé ensuite. Celles d'une commande urgente passent devant.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationService {
 
-	private final SimpMessagingTemplate messagingTemplate;
+	private final BoiteEnvoi boiteEnvoi;
 
 	public void notifierNouvelleCommande(List<Chauffeur> chauffeurs, Commande commande) {
-		chauffeurs.forEach(chauffeur -> {
-			try {
-				messagingTemplate.convertAndSend(
-						"/topic/chauffeur/" + chauffeur.getId() + "/commandes",
-						createCommandeNotification(commande, "NOUVELLE_COMMANDE")
-				);
-				log.info("Notification envoyée au chauffeur {}", chauffeur.getId());
-			} catch (Exception e) {
-				log.error("Erreur lors de l'envoi de notification au chauffeur {}", chauffeur.getId(), e);
-			}
-		});
+		boiteEnvoi.enregistrer(
+				chauffeurs.stream().map(chauffeur -> "/topic/chauffeur/" + chauffeur.getId() + "/commandes").toList(),
+				createCommandeNotification(commande, "NOUVELLE_COMMANDE"),
+				voie(commande)
+		);
+		log.info("Notification enregistrée pour {} chauffeurs", chauffeurs.size());
 	}
 
 	public void notifierChangementStatut(Commande commande) {
-		try {
-			// Notification au client
-			messagingTemplate.convertAndSend(
-					"/topic/client/" + commande.getClient().getId() + "/commandes",
-					createCommandeNotification(commande, "CHANGEMENT_STATUT")
-			);
+		// Notification au client, et au chauffeur si assigné
+		List<String> destinations = new ArrayList<>();
+		destinations.add("/topic/client/" + commande.getClient().getId() + "/commandes");
+		if (commande.getChauffeur() != null) {
+			destinations.add("/topic/chauffeur/" + commande.getChauffeur().getId() + "/commandes");
+		}
+		boiteEnvoi.enregistrer(destinations, createCommandeNotification(commande, "CHANGEMENT_STATUT"), voie(commande));
 
-			// Notification au chauffeur si assigné
-			if (commande.getChauffeur() != null) {
-				messagingTemplate.convertAndSend(
-						"/topic/chauffeur/" + commande.getChauffeur().getId() + "/commandes",
-						createCommandeNotification(commande, "CHANGEMENT_STATUT")
-				);
-			}
+		log.info("Notifications de changement de statut enregistrées pour la commande {}", commande.getId());
+	}
 
-			log.info("Notifications de changement de statut envoyées pour la commande {}", commande.getId());
-		} catch (Exception e) {
-			log.error("Erreur lors de l'envoi des notifications de changement de statut", e);
-		}
+	/**
+	 * Fin d'une diffusion pour les chauffeurs qui avaient reçu l'offre : commande prise par un autre, ou retirée
+	 */
+	public void notifierFinOffre(List<Long> chauffeurIds, Commande commande, String type) {
+		boiteEnvoi.enregistrer(
+				chauffeurIds.stream().map(chauffeurId -> "/topic/chauffeur/" + chauffeurId + "/commandes").toList(),
+				createCommandeNotification(commande, type),
+				voie(commande)
+		);
+	}
+
+	/**
+	 * Commande confiée à un autre chauffeur après un refus ou un délai d'acceptation dépassé
+	 */
+	public void notifierReaffectation(Commande commande) {
+		boiteEnvoi.enregistrer(
+				List.of("/topic/client/" + commande.getClient().getId() + "/commandes"),
+				createCommandeNotification(commande, "CHAUFFEUR_REAFFECTE"),
+				voie(commande)
+		);
+	}
+
+	private static DiffuseurNotifications.Voie voie(Commande commande) {
+		return Boolean.TRUE.equals(commande.getUrgent())
+				? DiffuseurNotifications.Voie.PRIORITAIRE
+				: DiffuseurNotifications.Voie.NORMALE;
 	}
 
-	private Object createCommandeNotification(Commande commande, String type) {
-		return new Object() {
-			public String getType() { return type; }
-			public Long getCommandeId() { return commande.getId(); }
-			public String getNumeroCommande() { return commande.getNumeroCommande(); }
-			public String getStatut() { return commande.getStatut().name(); }
-			public String getMessage() {
-				return switch(type) {
-					case "NOUVELLE_COMMANDE" -> "Nouvelle commande disponible";
-					case "CHANGEMENT_STATUT" -> "Statut de votre commande mis à jour : " + commande.getStatut().getLibelle();
-					default -> "Notification";
-				};
-			}
+	private NotificationDTO.Commande createCommandeNotification(Commande commande, String type) {
+		String message = switch (type) {
+			case "NOUVELLE_COMMANDE" -> "Nouvelle commande disponible";
+			case "CHANGEMENT_STATUT" -> "Statut de votre commande mis à jour : " + commande.getStatut().getLibelle();
+			case "COMMANDE_ATTRIBUEE" -> "Commande acceptée par un autre chauffeur";
+			case "OFFRE_RETIREE" -> "Cette commande n'est plus proposée";
+			case "CHAUFFEUR_REAFFECTE" -> "Votre commande a été proposée à un autre chauffeur";
+			default -> "Notification";
 		};
+		return new NotificationDTO.Commande(type, commande.getId(), commande.getNumeroCommande(),
+				commande.getStatut().name(), message);
 	}
-}
\ No newline at end of file
+}
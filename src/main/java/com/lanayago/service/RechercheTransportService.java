@@ -1,5 +1,6 @@
 package com.lanayago.service;
 
+import com.lanayago.dto.NotificationDTO;
 import com.lanayago.dto.RechercheTransportDTO;
 import com.lanayago.dto.UserDTO;
 import com.lanayago.dto.VehiculeDTO;
@@ -7,19 +8,35 @@ import com.lanayago.entity.*;
 import com.lanayago.enums.TypeVehicule;
 import com.lanayago.exception.BusinessException;
 import com.lanayago.repository.*;
+import com.lanayago.service.envoi.DiffuseurNotifications;
+import com.lanayago.service.geo.IndexSpatialChauffeurs;
+import com.lanayago.service.geo.NoyauGeodesique;
+import com.lanayago.service.recherche.SessionsRechercheEnDirect;
+import com.lanayago.service.reservation.CalendrierReservations;
+import com.lanayago.service.tache.ApresTransaction;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -33,7 +50,36 @@ public class RechercheTransportService {
 	private final GeolocationService geolocationService;
 	private final TarificationService tarificationService;
 	private final UserMapperService userMapperService;
-	private final SimpMessagingTemplate messagingTemplate;
+	private final DiffuseurNotifications diffuseurNotifications;
+	private final SessionsRechercheEnDirect sessionsRecherche;
+	private final CalendrierReservations calendrierReservations;
+
+	@Value("${geolocalisation.vitesse-moyenne-kmh:40}")
+	private double vitesseMoyenneKmh;
+
+	@Value("${recherche-transport.duree-validite-minutes:30}")
+	private long dureeValiditeMinutes;
+
+	@Value("${recherche-transport.rayon-recherche-defaut-km:50}")
+	private double rayonRechercheDefaut;
+
+	@Value("${recherche-transport.distances-routieres:false}")
+	private boolean distancesRoutieres;
+
+	@Value("${recherche-transport.score.poids-distance:0.6}")
+	private double poidsDistance;
+
+	@Value("${recherche-transport.score.poids-note:0.3}")
+	private double poidsNote;
+
+	@Value("${recherche-transport.score.poids-experience:0.1}")
+	private double poidsExperience;
+
+	@Value("${recherche-transport.score.plafond-courses:100}")
+	private int plafondCourses;
+
+	private static final double NOTE_MAXIMALE = 5.0;
+	private static final int LIMITE_MAXIMALE = 100;
 
 	@Transactional
 	public RechercheTransportDTO.RechercheResponse rechercherTransport(
@@ -89,12 +135,14 @@ public class RechercheTransportService {
 		recherche = rechercheTransportRepository.save(recherche);
 
 		// Recherche des véhicules disponibles en temps réel
-		List<RechercheTransportDTO.VehiculeDisponible> vehiculesDisponibles =
-				rechercherVehiculesDisponibles(request, typeRecommande);
+		RechercheTransportDTO.PageVehiculesDisponibles page = rechercherPageVehiculesDisponibles(request, typeRecommande);
+		List<RechercheTransportDTO.VehiculeDisponible> vehiculesDisponibles = page.getVehiculesDisponibles();
+
+		// Requête permanente : les changements de chauffeurs seront poussés en différences
+		enregistrerSession(recherche, request.getRayonRecherche());
 
-		// Notification aux chauffeurs compatibles
-		RechercheTransport finalRecherche = recherche;
-		CompletableFuture.runAsync(() -> notifierChauffeursCompatibles(finalRecherche, vehiculesDisponibles));
+		// Notification aux chauffeurs compatibles : déposée dans les files du diffuseur après validation de la recherche
+		notifierChauffeursCompatibles(recherche, vehiculesDisponibles);
 
 		RechercheTransportDTO.RechercheResponse response = new RechercheTransportDTO.RechercheResponse();
 		response.setRechercheId(recherche.getId());
@@ -103,6 +151,7 @@ public class RechercheTransportService {
 		response.setTarifEstime(tarifEstime);
 		response.setVehiculesDisponibles(vehiculesDisponibles);
 		response.setSessionId(sessionId);
+		response.setNextCursor(page.getNextCursor());
 
 		log.info("Recherche de transport terminée: {} véhicules trouvés", vehiculesDisponibles.size());
 		return response;
@@ -112,103 +161,357 @@ public class RechercheTransportService {
 	public List<RechercheTransportDTO.VehiculeDisponible> rechercherVehiculesDisponibles(
 			RechercheTransportDTO.RechercheRequest request,
 			TypeVehicule typeRecommande) {
+		return rechercherPageVehiculesDisponibles(request, typeRecommande).getVehiculesDisponibles();
+	}
 
-		List<RechercheTransportDTO.VehiculeDisponible> vehiculesDisponibles = new ArrayList<>();
+	/**
+	 * Sans limite : tous les véhicules compatibles du rayon, par distance croissante.
+	 * Avec limite : les K meilleurs selon le score composite, et un curseur vers la page suivante.
+	 * Seuls les chauffeurs retenus sont chargés et convertis en DTO.
+	 */
+	@Transactional(readOnly = true)
+	public RechercheTransportDTO.PageVehiculesDisponibles rechercherPageVehiculesDisponibles(
+			RechercheTransportDTO.RechercheRequest request,
+			TypeVehicule typeRecommande) {
 
-		// Recherche des chauffeurs proches avec véhicules compatibles
-		List<Chauffeur> chauffeursProches = geolocationService.trouverChauffeursProches(
+		RechercheTransportDTO.PageVehiculesDisponibles page = new RechercheTransportDTO.PageVehiculesDisponibles();
+		boolean topK = request.getLimit() != null;
+		if (topK && (request.getLimit() < 1 || request.getLimit() > LIMITE_MAXIMALE)) {
+			throw new BusinessException("La limite doit être comprise entre 1 et " + LIMITE_MAXIMALE);
+		}
+
+		// Classement dans l'index spatial : filtre de capacité et score appliqués pendant le parcours
+		List<IndexSpatialChauffeurs.ChauffeurClasse> classes = geolocationService.rechercherMeilleursChauffeurs(
 				request.getLatitudeDepart(),
 				request.getLongitudeDepart(),
-				request.getRayonRecherche()
+				topK ? request.getLimit() + 1 : Integer.MAX_VALUE, // un de plus pour détecter une page suivante
+				request.getRayonRecherche(),
+				new CritereRecherche(request, topK),
+				decoderCurseur(request.getCursor())
 		);
 
-		for (Chauffeur chauffeur : chauffeursProches) {
-			if (chauffeur.getVehiculeActuel() != null &&
+		if (topK && classes.size() > request.getLimit()) {
+			classes = classes.subList(0, request.getLimit());
+			page.setNextCursor(encoderCurseur(classes.get(classes.size() - 1)));
+		}
+
+		if (classes.isEmpty()) {
+			return page;
+		}
+
+		Map<Long, Chauffeur> chauffeurs = chargerChauffeursDisponibles(
+				classes.stream().map(IndexSpatialChauffeurs.ChauffeurClasse::chauffeurId).toList());
+
+		// Créneau de la course : un chauffeur qui a déjà une réservation qui le chevauche est écarté
+		CalendrierReservations.Creneau creneau = calendrierReservations.creneau(
+				request.getDateRamassageSouhaitee(),
+				request.getDateLivraisonSouhaitee(),
+				NoyauGeodesique.haversineKm(request.getLatitudeDepart(), request.getLongitudeDepart(),
+						request.getLatitudeArrivee(), request.getLongitudeArrivee()));
+
+		// Le profil indexé peut être en retard sur la base : les gagnants sont revérifiés
+		List<IndexSpatialChauffeurs.ChauffeurClasse> candidats = new ArrayList<>();
+		for (IndexSpatialChauffeurs.ChauffeurClasse classe : classes) {
+			Chauffeur chauffeur = chauffeurs.get(classe.chauffeurId());
+			if (chauffeur != null &&
+					chauffeur.getVehiculeActuel() != null &&
 					chauffeur.getVehiculeActuel().getDisponible() &&
-					isVehiculeCompatible(chauffeur.getVehiculeActuel(), request.getPoidsMarchandise(), request.getVolumeMarchandise())) {
+					isVehiculeCompatible(chauffeur.getVehiculeActuel(), request.getPoidsMarchandise(), request.getVolumeMarchandise()) &&
+					calendrierReservations.estLibre(chauffeur.getId(), chauffeur.getVehiculeActuel().getId(), creneau)) {
+				candidats.add(classe);
+			}
+		}
 
-				Vehicule vehicule = chauffeur.getVehiculeActuel();
+		// Distances de tous les candidats en un seul appel
+		double[] distances = calculerDistancesCandidats(request, candidats);
 
-				// Calcul de la distance depuis le point de départ
-				Double distanceDepuisDepart = geolocationService.calculerDistance(
-						request.getLatitudeDepart(), request.getLongitudeDepart(),
-						chauffeur.getLatitudeActuelle(), chauffeur.getLongitudeActuelle()
-				);
+		List<RechercheTransportDTO.VehiculeDisponible> vehiculesDisponibles = page.getVehiculesDisponibles();
+		for (int i = 0; i < candidats.size(); i++) {
+			vehiculesDisponibles.add(toVehiculeDisponible(chauffeurs.get(candidats.get(i).chauffeurId()), distances[i]));
+		}
 
-				// Estimation du temps d'arrivée (vitesse moyenne 50 km/h en ville)
-				Integer tempsEstimeArrivee = (int) Math.ceil(distanceDepuisDepart / 50.0 * 60);
-
-				RechercheTransportDTO.VehiculeDisponible vehiculeDisponible = new RechercheTransportDTO.VehiculeDisponible();
-				vehiculeDisponible.setVehiculeId(vehicule.getId());
-				vehiculeDisponible.setChauffeurId(chauffeur.getId());
-				vehiculeDisponible.setVehicule(mapVehiculeToDTO(vehicule));
-				vehiculeDisponible.setChauffeur(userMapperService.toDTO(chauffeur));
-				vehiculeDisponible.setLatitudeActuelle(chauffeur.getLatitudeActuelle());
-				vehiculeDisponible.setLongitudeActuelle(chauffeur.getLongitudeActuelle());
-				vehiculeDisponible.setDistanceDepuisDepart(distanceDepuisDepart);
-				vehiculeDisponible.setTempsEstimeArrivee(tempsEstimeArrivee);
-				vehiculeDisponible.setNoteChauffeur(chauffeur.getNoteMoyenne());
-				vehiculeDisponible.setNombreCourses(chauffeur.getNombreCourses());
-				vehiculeDisponible.setDisponibleImmediatement(tempsEstimeArrivee <= 30); // Disponible si < 30 min
-
-				vehiculesDisponibles.add(vehiculeDisponible);
-			}
+		// Sans limite, tri par distance croissante (éventuellement routière)
+		if (!topK) {
+			vehiculesDisponibles.sort((v1, v2) ->
+					Double.compare(v1.getDistanceDepuisDepart(), v2.getDistanceDepuisDepart()));
 		}
 
-		// Tri par distance croissante
-		vehiculesDisponibles.sort((v1, v2) ->
-				Double.compare(v1.getDistanceDepuisDepart(), v2.getDistanceDepuisDepart()));
+		return page;
+	}
 
-		return vehiculesDisponibles;
+	/**
+	 * Meilleurs chauffeurs compatibles pour les paramètres d'une recherche enregistrée, selon le score composite
+	 */
+	@Transactional(readOnly = true)
+	public List<Long> meilleursChauffeursPourRecherche(RechercheTransport recherche, int nombre) {
+		RechercheTransportDTO.RechercheRequest request = new RechercheTransportDTO.RechercheRequest();
+		request.setLatitudeDepart(recherche.getLatitudeDepart());
+		request.setLongitudeDepart(recherche.getLongitudeDepart());
+		request.setLatitudeArrivee(recherche.getLatitudeArrivee());
+		request.setLongitudeArrivee(recherche.getLongitudeArrivee());
+		request.setPoidsMarchandise(recherche.getPoidsMarchandise());
+		request.setVolumeMarchandise(recherche.getVolumeMarchandise());
+		request.setDateRamassageSouhaitee(recherche.getDateRamassageSouhaitee());
+		request.setDateLivraisonSouhaitee(recherche.getDateLivraisonSouhaitee());
+		request.setRayonRecherche(rayonRechercheDefaut);
+		request.setLimit(Math.min(nombre, LIMITE_MAXIMALE));
+
+		return rechercherPageVehiculesDisponibles(request, recherche.getTypeVehiculeRecommande())
+				.getVehiculesDisponibles().stream()
+				.map(RechercheTransportDTO.VehiculeDisponible::getChauffeurId)
+				.toList();
 	}
 
-	@Transactional
+	/**
+	 * Resynchronisation explicite d'un client : l'état courant de la session (recréée si besoin,
+	 * par exemple après un redémarrage) est poussé en entier. Les mises à jour suivantes sont des différences.
+	 */
+	@Transactional(readOnly = true)
 	public void mettreAJourRechercheTempReel(String sessionId) {
 		rechercheTransportRepository.findBySessionId(sessionId).ifPresent(recherche -> {
 			if (recherche.getActive()) {
-				// Recherche mise à jour des véhicules disponibles
-				RechercheTransportDTO.RechercheRequest request = new RechercheTransportDTO.RechercheRequest();
-				request.setLatitudeDepart(recherche.getLatitudeDepart());
-				request.setLongitudeDepart(recherche.getLongitudeDepart());
-				request.setLatitudeArrivee(recherche.getLatitudeArrivee());
-				request.setLongitudeArrivee(recherche.getLongitudeArrivee());
-				request.setPoidsMarchandise(recherche.getPoidsMarchandise());
-				request.setVolumeMarchandise(recherche.getVolumeMarchandise());
-				request.setRayonRecherche(50.0);
-
-				List<RechercheTransportDTO.VehiculeDisponible> vehiculesDisponibles =
-						rechercherVehiculesDisponibles(request, recherche.getTypeVehiculeRecommande());
+				enregistrerSession(recherche, rayonRechercheDefaut);
+
+				SessionsRechercheEnDirect.InstantaneSession instantane = sessionsRecherche.instantane(recherche.getId());
+				if (instantane == null) {
+					return;
+				}
+				Map<Long, Chauffeur> chauffeurs = chargerChauffeursDisponibles(
+						instantane.visibles().stream().map(IndexSpatialChauffeurs.ChauffeurProche::chauffeurId).toList());
+
+				List<RechercheTransportDTO.VehiculeDisponible> vehiculesDisponibles = new ArrayList<>();
+				instantane.visibles().stream()
+						.sorted(Comparator.comparingDouble(IndexSpatialChauffeurs.ChauffeurProche::distanceKm))
+						.filter(visible -> estUtilisable(chauffeurs.get(visible.chauffeurId())))
+						.forEach(visible -> vehiculesDisponibles.add(
+								toVehiculeDisponible(chauffeurs.get(visible.chauffeurId()), visible.distanceKm())));
 
 				// Notification au client avec la mise à jour
-				messagingTemplate.convertAndSend(
-						"/topic/client/" + recherche.getClient().getId() + "/recherche",
-						createRechercheUpdateNotification(recherche.getId(), vehiculesDisponibles)
+				// État complet : remplace celui qui n'aurait pas encore été remis
+				diffuseurNotifications.remplacer(
+						"/topic/client/" + instantane.clientId() + "/recherche",
+						"recherche-" + recherche.getId(),
+						createRechercheUpdateNotification(recherche.getId(), instantane.sequence(), vehiculesDisponibles)
 				);
 			}
 		});
 	}
 
+	/**
+	 * Diffuse aux clients les différences accumulées par leurs sessions de recherche.
+	 * Seuls les chauffeurs entrants sont chargés et convertis en DTO ; les déplacements ne portent que la position.
+	 */
+	@Scheduled(fixedDelayString = "${recherche-transport.sessions.intervalle-diffusion-ms:1000}")
+	@Transactional(readOnly = true)
+	public void diffuserMisesAJourSessions() {
+		List<SessionsRechercheEnDirect.DiffSession> diffs = sessionsRecherche.drainer();
+		if (diffs.isEmpty()) {
+			return;
+		}
+
+		Map<Long, Chauffeur> entrants = chargerChauffeursDisponibles(diffs.stream()
+				.flatMap(diff -> diff.entres().stream())
+				.map(IndexSpatialChauffeurs.ChauffeurProche::chauffeurId)
+				.collect(Collectors.toSet()));
+
+		for (SessionsRechercheEnDirect.DiffSession diff : diffs) {
+			List<RechercheTransportDTO.VehiculeDisponible> entres = new ArrayList<>();
+			for (IndexSpatialChauffeurs.ChauffeurProche entre : diff.entres()) {
+				Chauffeur chauffeur = entrants.get(entre.chauffeurId());
+				if (estUtilisable(chauffeur)) {
+					entres.add(toVehiculeDisponible(chauffeur, entre.distanceKm()));
+				}
+			}
+			List<RechercheTransportDTO.PositionVehicule> deplaces = new ArrayList<>();
+			for (IndexSpatialChauffeurs.ChauffeurProche deplace : diff.deplaces()) {
+				RechercheTransportDTO.PositionVehicule position = new RechercheTransportDTO.PositionVehicule();
+				position.setChauffeurId(deplace.chauffeurId());
+				position.setLatitudeActuelle(deplace.latitude());
+				position.setLongitudeActuelle(deplace.longitude());
+				position.setDistanceDepuisDepart(Math.round(deplace.distanceKm() * 100.0) / 100.0);
+				position.setTempsEstimeArrivee(tempsEstimeArrivee(position.getDistanceDepuisDepart()));
+				deplaces.add(position);
+			}
+
+			// Voie normale : les différences d'une session restent dans l'ordre de leur séquence
+			diffuseurNotifications.diffuser(
+					"/topic/client/" + diff.clientId() + "/recherche",
+					new NotificationDTO.DiffRecherche(diff.rechercheId(), diff.sequence(), entres, deplaces, List.copyOf(diff.sortis())),
+					DiffuseurNotifications.Voie.NORMALE
+			);
+		}
+	}
+
+	/**
+	 * Réinscrit les recherches encore valides au démarrage, une fois l'index spatial chargé
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	@Transactional(readOnly = true)
+	public void chargerSessionsActives() {
+		List<RechercheTransport> actives = rechercheTransportRepository.findActiveRecherches(
+				LocalDateTime.now().minusMinutes(dureeValiditeMinutes));
+		actives.forEach(recherche -> enregistrerSession(recherche, rayonRechercheDefaut));
+		log.info("{} sessions de recherche en direct réinscrites", actives.size());
+	}
+
 	@Transactional
 	public void desactiverRecherche(Long rechercheId) {
 		rechercheTransportRepository.findById(rechercheId).ifPresent(recherche -> {
 			recherche.setActive(false);
 			rechercheTransportRepository.save(recherche);
 		});
+		sessionsRecherche.retirer(rechercheId);
 	}
 
 	private void notifierChauffeursCompatibles(
 			RechercheTransport recherche,
 			List<RechercheTransportDTO.VehiculeDisponible> vehiculesDisponibles) {
 
-		for (RechercheTransportDTO.VehiculeDisponible vehicule : vehiculesDisponibles) {
-			try {
-				messagingTemplate.convertAndSend(
-						"/topic/chauffeur/" + vehicule.getChauffeurId() + "/nouvelles-recherches",
-						createNouvelleRechercheNotification(recherche)
-				);
-			} catch (Exception e) {
-				log.error("Erreur lors de la notification du chauffeur {}", vehicule.getChauffeurId(), e);
+		// Même message pour tous les chauffeurs : sérialisé une fois ; une demande urgente passe devant.
+		// Construit maintenant, déposé seulement si la recherche est validée
+		List<String> destinations = vehiculesDisponibles.stream()
+				.map(vehicule -> "/topic/chauffeur/" + vehicule.getChauffeurId() + "/nouvelles-recherches")
+				.toList();
+		NotificationDTO notification = createNouvelleRechercheNotification(recherche);
+		DiffuseurNotifications.Voie voie = Boolean.TRUE.equals(recherche.getUrgent())
+				? DiffuseurNotifications.Voie.PRIORITAIRE
+				: DiffuseurNotifications.Voie.NORMALE;
+		ApresTransaction.apresValidation(() -> diffuseurNotifications.diffuser(destinations, notification, voie));
+	}
+
+	private void enregistrerSession(RechercheTransport recherche, double rayonKm) {
+		LocalDateTime creation = recherche.getDateCreation() != null ? recherche.getDateCreation() : LocalDateTime.now();
+		LocalDateTime expiration = creation.plusMinutes(dureeValiditeMinutes);
+		sessionsRecherche.enregistrer(
+				recherche.getId(),
+				recherche.getClient().getId(),
+				recherche.getLatitudeDepart(),
+				recherche.getLongitudeDepart(),
+				rayonKm,
+				recherche.getPoidsMarchandise(),
+				recherche.getVolumeMarchandise(),
+				expiration.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+	}
+
+	private Map<Long, Chauffeur> chargerChauffeursDisponibles(Collection<Long> ids) {
+		if (ids.isEmpty()) {
+			return Map.of();
+		}
+		return chauffeurRepository.findDisponiblesAvecVehiculeByIdIn(ids)
+				.stream()
+				.collect(Collectors.toMap(Chauffeur::getId, Function.identity()));
+	}
+
+	private boolean estUtilisable(Chauffeur chauffeur) {
+		return chauffeur != null && chauffeur.getVehiculeActuel() != null;
+	}
+
+	private RechercheTransportDTO.VehiculeDisponible toVehiculeDisponible(Chauffeur chauffeur, double distanceKm) {
+		Vehicule vehicule = chauffeur.getVehiculeActuel();
+		Double distanceDepuisDepart = Math.round(distanceKm * 100.0) / 100.0;
+		Integer tempsEstimeArrivee = tempsEstimeArrivee(distanceDepuisDepart);
+
+		RechercheTransportDTO.VehiculeDisponible vehiculeDisponible = new RechercheTransportDTO.VehiculeDisponible();
+		vehiculeDisponible.setVehiculeId(vehicule.getId());
+		vehiculeDisponible.setChauffeurId(chauffeur.getId());
+		vehiculeDisponible.setVehicule(mapVehiculeToDTO(vehicule));
+		vehiculeDisponible.setChauffeur(userMapperService.toDTO(chauffeur));
+		vehiculeDisponible.setLatitudeActuelle(chauffeur.getLatitudeActuelle());
+		vehiculeDisponible.setLongitudeActuelle(chauffeur.getLongitudeActuelle());
+		vehiculeDisponible.setDistanceDepuisDepart(distanceDepuisDepart);
+		vehiculeDisponible.setTempsEstimeArrivee(tempsEstimeArrivee);
+		vehiculeDisponible.setNoteChauffeur(chauffeur.getNoteMoyenne());
+		vehiculeDisponible.setNombreCourses(chauffeur.getNombreCourses());
+		vehiculeDisponible.setDisponibleImmediatement(tempsEstimeArrivee <= 30); // Disponible si < 30 min
+		return vehiculeDisponible;
+	}
+
+	/**
+	 * Estimation du temps d'arrivée (minutes) à la vitesse moyenne configurée
+	 */
+	private Integer tempsEstimeArrivee(double distanceKm) {
+		return (int) Math.ceil(distanceKm / vitesseMoyenneKmh * 60);
+	}
+
+	private double[] calculerDistancesCandidats(RechercheTransportDTO.RechercheRequest request,
+	                                            List<IndexSpatialChauffeurs.ChauffeurClasse> candidats) {
+		double[] distances = new double[candidats.size()];
+		if (!distancesRoutieres) {
+			// Distances à vol d'oiseau déjà calculées par l'index spatial
+			for (int i = 0; i < distances.length; i++) {
+				distances[i] = candidats.get(i).distanceKm();
 			}
+			return distances;
+		}
+
+		double[] latitudes = new double[candidats.size()];
+		double[] longitudes = new double[candidats.size()];
+		for (int i = 0; i < latitudes.length; i++) {
+			latitudes[i] = candidats.get(i).latitude();
+			longitudes[i] = candidats.get(i).longitude();
+		}
+		return geolocationService.calculerDistancesRoutieres(
+				request.getLatitudeDepart(), request.getLongitudeDepart(), latitudes, longitudes);
+	}
+
+	/**
+	 * Curseur opaque : score exact et identifiant du dernier chauffeur de la page
+	 */
+	private static String encoderCurseur(IndexSpatialChauffeurs.ChauffeurClasse dernier) {
+		String valeur = Long.toHexString(Double.doubleToLongBits(dernier.score())) + ":" + dernier.chauffeurId();
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(valeur.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static IndexSpatialChauffeurs.ChauffeurClasse decoderCurseur(String curseur) {
+		if (curseur == null || curseur.isBlank()) {
+			return null;
+		}
+		try {
+			String[] parties = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.US_ASCII).split(":");
+			double score = Double.longBitsToDouble(Long.parseUnsignedLong(parties[0], 16));
+			return new IndexSpatialChauffeurs.ChauffeurClasse(Long.parseLong(parties[1]), 0.0, 0.0, 0.0, score);
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			throw new BusinessException("Curseur de pagination invalide");
+		}
+	}
+
+	/**
+	 * Filtre de capacité sur le profil indexé, et score : distance seule, ou combinaison
+	 * distance / note / nombre de courses normalisés
+	 */
+	private final class CritereRecherche implements IndexSpatialChauffeurs.CritereClassement {
+
+		private final double poidsTonnes;
+		private final double volume;
+		private final double rayon;
+		private final boolean composite;
+
+		private CritereRecherche(RechercheTransportDTO.RechercheRequest request, boolean composite) {
+			this.poidsTonnes = request.getPoidsMarchandise().doubleValue() / 1000.0;
+			this.volume = request.getVolumeMarchandise() != null ? request.getVolumeMarchandise().doubleValue() : Double.NaN;
+			this.rayon = request.getRayonRecherche();
+			this.composite = composite;
+		}
+
+		@Override
+		public boolean accepte(IndexSpatialChauffeurs.Profil profil) {
+			return profil.peutTransporter(poidsTonnes, volume);
+		}
+
+		@Override
+		public double score(IndexSpatialChauffeurs.Profil profil, double distanceKm) {
+			if (!composite) {
+				return distanceKm;
+			}
+			double experience = Math.min(profil.nombreCourses(), plafondCourses) / (double) plafondCourses;
+			return poidsDistance * distanceKm / rayon
+					- poidsNote * profil.noteMoyenne() / NOTE_MAXIMALE
+					- poidsExperience * experience;
+		}
+
+		@Override
+		public double scoreMinimal(double distanceKm) {
+			return composite ? poidsDistance * distanceKm / rayon - poidsNote - poidsExperience : distanceKm;
 		}
 	}
 
@@ -281,23 +584,12 @@ public class RechercheTransportService {
 		return dto;
 	}
 
-	private Object createRechercheUpdateNotification(Long rechercheId, List<RechercheTransportDTO.VehiculeDisponible> vehicules) {
-		return new Object() {
-			public String getType() { return "RECHERCHE_UPDATE"; }
-			public Long getRechercheId() { return rechercheId; }
-			public List<RechercheTransportDTO.VehiculeDisponible> getVehiculesDisponibles() { return vehicules; }
-			public String getMessage() { return "Mise à jour des véhicules disponibles"; }
-		};
+	private NotificationDTO.MiseAJourRecherche createRechercheUpdateNotification(Long rechercheId, long sequence, List<RechercheTransportDTO.VehiculeDisponible> vehicules) {
+		return new NotificationDTO.MiseAJourRecherche(rechercheId, sequence, vehicules);
 	}
 
-	private Object createNouvelleRechercheNotification(RechercheTransport recherche) {
-		return new Object() {
-			public String getType() { return "NOUVELLE_RECHERCHE"; }
-			public Long getRechercheId() { return recherche.getId(); }
-			public String getAdresseDepart() { return recherche.getAdresseDepart(); }
-			public String getAdresseArrivee() { return recherche.getAdresseArrivee(); }
-			public BigDecimal getTarifEstime() { return recherche.getTarifEstime(); }
-			public String getMessage() { return "Nouvelle demande de transport disponible"; }
-		};
+	private NotificationDTO.NouvelleRecherche createNouvelleRechercheNotification(RechercheTransport recherche) {
+		return new NotificationDTO.NouvelleRecherche(recherche.getId(), recherche.getAdresseDepart(),
+				recherche.getAdresseArrivee(), recherche.getTarifEstime());
 	}
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package com.lanayago.service;
 
+import com.lanayago.dto.NotificationDTO;
 import com.lanayago.dto.RechercheTransportDTO;
 import com.lanayago.dto.VehiculeDTO;
 import com.lanayago.entity.Chauffeur;
@@ -8,16 +9,30 @@ import com.lanayago.enums.StatutCommande;
 import com.lanayago.exception.BusinessException;
 import com.lanayago.repository.ChauffeurRepository;
 import com.lanayago.repository.CommandeRepository;
+import com.lanayago.service.geo.IndexSpatialChauffeurs;
+import com.lanayago.service.geo.IngestionPositionsService;
+import com.lanayago.service.geo.PositionChauffeur;
+import com.lanayago.service.geo.PositionsChauffeursEnregistreesEvent;
+import com.lanayago.service.envoi.BoiteEnvoi;
+import com.lanayago.service.envoi.DiffuseurNotifications;
+import com.lanayago.service.suivi.CommandeActive;
+import com.lanayago.service.suivi.CommandesActivesChauffeurs;
+import com.lanayago.service.trajectoire.PointTrajectoire;
+import com.lanayago.service.trajectoire.TrajectoireService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -27,8 +42,15 @@ public class SuiviTransportService {
 	private final CommandeRepository commandeRepository;
 	private final ChauffeurRepository chauffeurRepository;
 	private final UserMapperService userMapperService;
-	private final SimpMessagingTemplate messagingTemplate;
+	private final DiffuseurNotifications diffuseurNotifications;
 	private final GeolocationService geolocationService;
+	private final IndexSpatialChauffeurs indexSpatialChauffeurs;
+	private final IngestionPositionsService ingestionPositionsService;
+	private final TrajectoireService trajectoireService;
+	private final CommandesActivesChauffeurs commandesActivesChauffeurs;
+	private final BoiteEnvoi boiteEnvoi;
+
+	private static final int TAILLE_MAX_COMMENTAIRE = 500;
 
 	@Transactional(readOnly = true)
 	public RechercheTransportDTO.SuiviTransportResponse getSuiviCommande(Long commandeId) {
@@ -42,39 +64,30 @@ public class SuiviTransportService {
 		return mapToSuiviResponse(commande);
 	}
 
-	@Transactional
+	/**
+	 * Le ping est mis en file ; l'écriture en base et la notification des clients sont faites par lot
+	 */
 	public void mettreAJourPositionChauffeur(Long chauffeurId, Double latitude, Double longitude) {
-		Chauffeur chauffeur = chauffeurRepository.findById(chauffeurId)
-				.orElseThrow(() -> new BusinessException("Chauffeur non trouvé"));
-
-		// Mettre à jour la position du chauffeur
-		chauffeur.setLatitudeActuelle(latitude);
-		chauffeur.setLongitudeActuelle(longitude);
-		chauffeurRepository.save(chauffeur);
-
-		// Mettre à jour la position du véhicule si assigné
-		if (chauffeur.getVehiculeActuel() != null) {
-			chauffeur.getVehiculeActuel().setLatitudeActuelle(latitude);
-			chauffeur.getVehiculeActuel().setLongitudeActuelle(longitude);
-		}
-
-		// Trouver les commandes actives du chauffeur
-		List<Commande> commandesActives = commandeRepository.findByChauffeurIdOrderByDateCreationDesc(chauffeurId)
-				.stream()
-				.filter(c -> Arrays.asList(
-						StatutCommande.ACCEPTEE,
-						StatutCommande.EN_COURS,
-						StatutCommande.RAMASSAGE,
-						StatutCommande.EN_LIVRAISON
-				).contains(c.getStatut()))
-				.toList();
-
-		// Notifier les clients des commandes actives
-		for (Commande commande : commandesActives) {
-			notifierMiseAJourPosition(commande, latitude, longitude);
-		}
+		ingestionPositionsService.soumettre(chauffeurId, latitude, longitude);
+	}
 
-		log.info("Position mise à jour pour le chauffeur {} : {}, {}", chauffeurId, latitude, longitude);
+	@TransactionalEventListener
+	@Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+	public void notifierPositionsEnregistrees(PositionsChauffeursEnregistreesEvent event) {
+		Map<Long, PositionChauffeur> positions = event.positions().stream()
+				.collect(Collectors.toMap(PositionChauffeur::chauffeurId, Function.identity()));
+
+		// Commandes actives tenues en mémoire ; seuls les chauffeurs absents sont relus, en une requête
+		Map<Long, List<CommandeActive>> commandesActives = commandesActivesChauffeurs.deChauffeurs(positions.keySet());
+
+		commandesActives.forEach((chauffeurId, commandes) -> {
+			PositionChauffeur position = positions.get(chauffeurId);
+			for (CommandeActive commande : commandes) {
+				trajectoireService.ajouterPoint(commande.id(),
+						new PointTrajectoire(position.horodatage(), position.latitude(), position.longitude()));
+				notifierMiseAJourPosition(commande, position.latitude(), position.longitude());
+			}
+		});
 	}
 
 	@Transactional
@@ -85,19 +98,10 @@ public class SuiviTransportService {
 		// Le statut de connexion peut être géré via un champ séparé ou via disponible
 		chauffeur.setDisponible(enLigne && chauffeur.getDisponible());
 		chauffeurRepository.save(chauffeur);
+		indexSpatialChauffeurs.synchroniser(chauffeur);
 
 		// Notifier les clients des commandes actives
-		List<Commande> commandesActives = commandeRepository.findByChauffeurIdOrderByDateCreationDesc(chauffeurId)
-				.stream()
-				.filter(c -> Arrays.asList(
-						StatutCommande.ACCEPTEE,
-						StatutCommande.EN_COURS,
-						StatutCommande.RAMASSAGE,
-						StatutCommande.EN_LIVRAISON
-				).contains(c.getStatut()))
-				.toList();
-
-		for (Commande commande : commandesActives) {
+		for (CommandeActive commande : commandesActivesChauffeurs.deChauffeur(chauffeurId)) {
 			notifierChangementConnexion(commande, enLigne);
 		}
 
@@ -120,10 +124,21 @@ public class SuiviTransportService {
 		if (commentaireActuel == null) {
 			commentaireActuel = "";
 		}
-		commande.setCommentaireChauffeur(commentaireActuel + "\n" + etapeInfo);
+		// Seules les étapes les plus récentes sont conservées dans la colonne (500 caractères)
+		String commentaire = commentaireActuel + "\n" + etapeInfo;
+		if (commentaire.length() > TAILLE_MAX_COMMENTAIRE) {
+			commentaire = commentaire.substring(commentaire.length() - TAILLE_MAX_COMMENTAIRE);
+		}
+		commande.setCommentaireChauffeur(commentaire);
 
 		commandeRepository.save(commande);
 
+		// La position de l'étape rejoint la trajectoire de la commande
+		if (latitude != null && longitude != null) {
+			trajectoireService.ajouterPoint(commandeId,
+					new PointTrajectoire(System.currentTimeMillis(), latitude, longitude));
+		}
+
 		// Notifier le client
 		notifierNouvelleEtape(commande, description, latitude, longitude);
 
@@ -131,22 +146,31 @@ public class SuiviTransportService {
 	}
 
 	@Transactional(readOnly = true)
-	public RechercheTransportDTO.SuiviTransportResponse getCommandeActiveChauffeur(Long chauffeurId) {
-		List<Commande> commandesActives = commandeRepository.findByChauffeurIdOrderByDateCreationDesc(chauffeurId)
-				.stream()
-				.filter(c -> Arrays.asList(
-						StatutCommande.ACCEPTEE,
-						StatutCommande.EN_COURS,
-						StatutCommande.RAMASSAGE,
-						StatutCommande.EN_LIVRAISON
-				).contains(c.getStatut()))
-				.toList();
+	public RechercheTransportDTO.TrajectoireResponse getTrajectoire(Long commandeId, LocalDateTime debut, LocalDateTime fin) {
+		if (!commandeRepository.existsById(commandeId)) {
+			throw new BusinessException("Commande non trouvée");
+		}
+
+		long debutMs = debut != null ? debut.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : Long.MIN_VALUE;
+		long finMs = fin != null ? fin.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : Long.MAX_VALUE;
+
+		RechercheTransportDTO.TrajectoireResponse response = new RechercheTransportDTO.TrajectoireResponse();
+		response.setCommandeId(commandeId);
+		response.setPoints(trajectoireService.lirePoints(commandeId, debutMs, finMs).toList());
+		response.setDistanceParcourue(Math.round(trajectoireService.calculerDistanceParcourue(commandeId) * 100.0) / 100.0);
+		return response;
+	}
 
+	@Transactional(readOnly = true)
+	public RechercheTransportDTO.SuiviTransportResponse getCommandeActiveChauffeur(Long chauffeurId) {
+		List<CommandeActive> commandesActives = commandesActivesChauffeurs.deChauffeur(chauffeurId);
 		if (commandesActives.isEmpty()) {
 			throw new BusinessException("Aucune commande active pour ce chauffeur");
 		}
 
-		return mapToSuiviResponse(commandesActives.get(0));
+		Commande commande = commandeRepository.findById(commandesActives.get(0).id())
+				.orElseThrow(() -> new BusinessException("Commande non trouvée"));
+		return mapToSuiviResponse(commande);
 	}
 
 	private RechercheTransportDTO.SuiviTransportResponse mapToSuiviResponse(Commande commande) {
@@ -227,7 +251,7 @@ public class SuiviTransportService {
 		Double longitude = commande.getStatut() == StatutCommande.ACCEPTEE || commande.getStatut() == StatutCommande.EN_COURS ?
 				commande.getLongitudeDepart() : commande.getLongitudeArrivee();
 
-		Double distance = geolocationService.calculerDistance(
+		double distance = geolocationService.calculerDistance(
 				commande.getChauffeur().getLatitudeActuelle(),
 				commande.getChauffeur().getLongitudeActuelle(),
 				latitude,
@@ -276,66 +300,40 @@ public class SuiviTransportService {
 		etapes.add(etape);
 	}
 
-	private void notifierMiseAJourPosition(Commande commande, Double latitude, Double longitude) {
-		try {
-			messagingTemplate.convertAndSend(
-					"/topic/client/" + commande.getClient().getId() + "/suivi",
-					createPositionUpdateNotification(commande.getId(), latitude, longitude)
-			);
-		} catch (Exception e) {
-			log.error("Erreur lors de la notification de mise à jour de position", e);
-		}
+	private void notifierMiseAJourPosition(CommandeActive commande, Double latitude, Double longitude) {
+		// Seule la dernière position d'une commande encore en attente est remise
+		diffuseurNotifications.remplacer(
+				"/topic/client/" + commande.clientId() + "/suivi",
+				"position-" + commande.id(),
+				createPositionUpdateNotification(commande.id(), latitude, longitude)
+		);
 	}
 
-	private void notifierChangementConnexion(Commande commande, Boolean enLigne) {
-		try {
-			messagingTemplate.convertAndSend(
-					"/topic/client/" + commande.getClient().getId() + "/suivi",
-					createConnexionUpdateNotification(commande.getId(), enLigne)
-			);
-		} catch (Exception e) {
-			log.error("Erreur lors de la notification de changement de connexion", e);
-		}
+	// Connexion et étapes passent par la boîte d'envoi de la transaction ; les positions, éphémères
+	// et remplacées au ping suivant, sont diffusées directement après l'écriture du lot
+	private void notifierChangementConnexion(CommandeActive commande, Boolean enLigne) {
+		boiteEnvoi.enregistrer(
+				"/topic/client/" + commande.clientId() + "/suivi",
+				createConnexionUpdateNotification(commande.id(), enLigne)
+		);
 	}
 
 	private void notifierNouvelleEtape(Commande commande, String description, Double latitude, Double longitude) {
-		try {
-			messagingTemplate.convertAndSend(
-					"/topic/client/" + commande.getClient().getId() + "/suivi",
-					createEtapeUpdateNotification(commande.getId(), description, latitude, longitude)
-			);
-		} catch (Exception e) {
-			log.error("Erreur lors de la notification de nouvelle étape", e);
-		}
+		boiteEnvoi.enregistrer(
+				"/topic/client/" + commande.getClient().getId() + "/suivi",
+				createEtapeUpdateNotification(commande.getId(), description, latitude, longitude)
+		);
 	}
 
-	private Object createPositionUpdateNotification(Long commandeId, Double latitude, Double longitude) {
-		return new Object() {
-			public String getType() { return "POSITION_UPDATE"; }
-			public Long getCommandeId() { return commandeId; }
-			public Double getLatitude() { return latitude; }
-			public Double getLongitude() { return longitude; }
-			public LocalDateTime getTimestamp() { return LocalDateTime.now(); }
-		};
+	private NotificationDTO.Position createPositionUpdateNotification(Long commandeId, Double latitude, Double longitude) {
+		return new NotificationDTO.Position(commandeId, latitude, longitude, LocalDateTime.now());
 	}
 
-	private Object createConnexionUpdateNotification(Long commandeId, Boolean enLigne) {
-		return new Object() {
-			public String getType() { return "CONNEXION_UPDATE"; }
-			public Long getCommandeId() { return commandeId; }
-			public Boolean getEnLigne() { return enLigne; }
-			public LocalDateTime getTimestamp() { return LocalDateTime.now(); }
-		};
+	private NotificationDTO.Connexion createConnexionUpdateNotification(Long commandeId, Boolean enLigne) {
+		return new NotificationDTO.Connexion(commandeId, enLigne, LocalDateTime.now());
 	}
 
-	private Object createEtapeUpdateNotification(Long commandeId, String description, Double latitude, Double longitude) {
-		return new Object() {
-			public String getType() { return "ETAPE_UPDATE"; }
-			public Long getCommandeId() { return commandeId; }
-			public String getDescription() { return description; }
-			public Double getLatitude() { return latitude; }
-			public Double getLongitude() { return longitude; }
-			public LocalDateTime getTimestamp() { return LocalDateTime.now(); }
-		};
+	private NotificationDTO.Etape createEtapeUpdateNotification(Long commandeId, String description, Double latitude, Double longitude) {
+		return new NotificationDTO.Etape(commandeId, description, latitude, longitude, LocalDateTime.now());
 	}
-}
\ No newline at end of file
+}
@@ -32,10 +32,12 @@ public class UserMapperService {
 			dto.setVille(client.getVille());
 			dto.setCodePostal(client.getCodePostal());
 			dto.setNoteMoyenne(client.getNoteMoyenne());
+			dto.setNoteRecente(client.getNotes().getNoteRecente());
 			dto.setNombreCommandes(client.getNombreCommandes());
 		} else if (user instanceof Chauffeur chauffeur) {
 			dto.setNumeroPermis(chauffeur.getNumeroPermis());
 			dto.setNoteMoyenne(chauffeur.getNoteMoyenne());
+			dto.setNoteRecente(chauffeur.getNotes().getNoteRecente());
 			dto.setDisponible(chauffeur.getDisponible());
 		} else if (user instanceof ProprietaireVehicule proprietaire) {
 			dto.setNomEntreprise(proprietaire.getNomEntreprise());
@@ -4,8 +4,10 @@ import com.lanayago.dto.VehiculeDTO;
 import com.lanayago.entity.ProprietaireVehicule;
 import com.lanayago.entity.Vehicule;
 import com.lanayago.exception.BusinessException;
+import com.lanayago.repository.ChauffeurRepository;
 import com.lanayago.repository.UserRepository;
 import com.lanayago.repository.VehiculeRepository;
+import com.lanayago.service.geo.IndexSpatialChauffeurs;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -21,6 +23,8 @@ public class VehiculeService {
 	private final VehiculeRepository vehiculeRepository;
 	private final UserRepository userRepository;
 	private final UserMapperService userMapperService; // ✅ INJECTION AJOUTÉE
+	private final ChauffeurRepository chauffeurRepository;
+	private final IndexSpatialChauffeurs indexSpatialChauffeurs;
 
 	@Transactional
 	public VehiculeDTO.Response ajouterVehicule(Long proprietaireId, VehiculeDTO.CreateRequest request) {
@@ -75,6 +79,9 @@ public class VehiculeService {
 		vehicule.setDisponible(disponible);
 		vehiculeRepository.save(vehicule);
 
+		// Le profil indexé du chauffeur porte la disponibilité de son véhicule
+		chauffeurRepository.findByVehiculeActuelId(vehiculeId).forEach(indexSpatialChauffeurs::synchroniser);
+
 		log.info("Disponibilité du véhicule {} changée vers: {}", vehiculeId, disponible);
 	}
 
@@ -0,0 +1,180 @@
+package com.lanayago.service.diffusion;
+
+import com.lanayago.entity.Chauffeur;
+import com.lanayago.entity.Commande;
+import com.lanayago.entity.OffreCommande;
+import com.lanayago.enums.StatutCommande;
+import com.lanayago.exception.BusinessException;
+import com.lanayago.repository.CommandeRepository;
+import com.lanayago.repository.OffreCommandeRepository;
+import com.lanayago.service.NotificationService;
+import com.lanayago.service.tache.ApresTransaction;
+import com.lanayago.service.tache.RoueTemporelle;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Diffusion d'une commande aux meilleurs chauffeurs compatibles : le premier qui l'accepte l'emporte
+ * (transition conditionnelle dans CommandeService), les autres sont prévenus aussitôt.
+ * Le délai d'acceptation de chaque commande est une échéance en mémoire sur une roue temporelle,
+ * sans interrogation périodique de la base.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DiffusionCommandes {
+
+	private final OffreCommandeRepository offreCommandeRepository;
+	private final CommandeRepository commandeRepository;
+	private final NotificationService notificationService;
+	private final TransactionTemplate transactionTemplate;
+	private final MeterRegistry meterRegistry;
+	private final RoueTemporelle roueEcheances;
+
+	@Value("${commande.diffusion.duree-offre-secondes:60}")
+	private long dureeOffreSecondes;
+
+	private final Map<Long, RoueTemporelle.Echeance> echeances = new ConcurrentHashMap<>();
+
+	private Counter attribuees;
+	private Counter expirees;
+
+	@PostConstruct
+	void initialiserMetriques() {
+		attribuees = meterRegistry.counter("lanayago.offres.attribuees");
+		expirees = meterRegistry.counter("lanayago.offres.expirees");
+		meterRegistry.gauge("lanayago.echeances.en-attente", roueEcheances, RoueTemporelle::getNombreEnAttente);
+	}
+
+	/**
+	 * Replanifie les délais des diffusions en cours après un redémarrage ; si plusieurs instances
+	 * les replanifient, la transition conditionnelle n'en laisse aboutir qu'une
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void replanifier() {
+		List<Object[]> enCours = offreCommandeRepository.findEcheancesParCommande();
+		LocalDateTime maintenant = LocalDateTime.now();
+		for (Object[] ligne : enCours) {
+			planifier((Long) ligne[0], Duration.between(maintenant, (LocalDateTime) ligne[1]));
+		}
+		if (!enCours.isEmpty()) {
+			log.info("{} diffusions de commandes replanifiées", enCours.size());
+		}
+	}
+
+	/**
+	 * Propose la commande aux chauffeurs donnés ; le délai court à partir de la validation
+	 */
+	public void ouvrir(Commande commande, List<Chauffeur> chauffeurs) {
+		LocalDateTime expiration = LocalDateTime.now().plusSeconds(dureeOffreSecondes);
+		offreCommandeRepository.saveAll(chauffeurs.stream().map(chauffeur -> {
+			OffreCommande offre = new OffreCommande();
+			offre.setCommandeId(commande.getId());
+			offre.setChauffeurId(chauffeur.getId());
+			offre.setDateExpiration(expiration);
+			return offre;
+		}).toList());
+
+		notificationService.notifierNouvelleCommande(chauffeurs, commande);
+		ApresTransaction.apresValidation(() -> planifier(commande.getId(), Duration.ofSeconds(dureeOffreSecondes)));
+
+		log.info("Commande {} diffusée à {} chauffeurs", commande.getId(), chauffeurs.size());
+	}
+
+	public void verifierOffre(Long commandeId, Long chauffeurId) {
+		if (!offreCommandeRepository.existsByCommandeIdAndChauffeurIdAndDateExpirationAfter(
+				commandeId, chauffeurId, LocalDateTime.now())) {
+			throw new BusinessException("Cette commande ne vous est pas ou plus proposée");
+		}
+	}
+
+	/**
+	 * Appelé par le gagnant, dans la transaction qui lui attribue la commande
+	 */
+	public void attribuer(Commande commande, Long chauffeurId) {
+		List<Long> autres = offreCommandeRepository.findChauffeurIdsByCommandeId(commande.getId()).stream()
+				.filter(id -> !id.equals(chauffeurId))
+				.toList();
+		offreCommandeRepository.supprimerParCommande(commande.getId());
+		notificationService.notifierFinOffre(autres, commande, "COMMANDE_ATTRIBUEE");
+		ApresTransaction.apresValidation(() -> {
+			annulerEcheance(commande.getId());
+			attribuees.increment();
+		});
+	}
+
+	/**
+	 * Refus d'un chauffeur : seule son offre est retirée. Sans offre restante, la diffusion expire aussitôt.
+	 */
+	public void refuser(Long commandeId, Long chauffeurId) {
+		if (offreCommandeRepository.supprimer(commandeId, chauffeurId) == 0) {
+			throw new BusinessException("Cette commande ne vous est pas ou plus proposée");
+		}
+		if (offreCommandeRepository.findChauffeurIdsByCommandeId(commandeId).isEmpty()) {
+			ApresTransaction.apresValidation(() -> planifier(commandeId, Duration.ZERO));
+		}
+	}
+
+	/**
+	 * Commande annulée pendant sa diffusion : les offres sont retirées
+	 */
+	public void fermer(Commande commande) {
+		List<Long> chauffeurs = offreCommandeRepository.findChauffeurIdsByCommandeId(commande.getId());
+		offreCommandeRepository.supprimerParCommande(commande.getId());
+		notificationService.notifierFinOffre(chauffeurs, commande, "OFFRE_RETIREE");
+		ApresTransaction.apresValidation(() -> annulerEcheance(commande.getId()));
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	private void planifier(Long commandeId, Duration delai) {
+		RoueTemporelle.Echeance precedente = echeances.put(commandeId, roueEcheances.planifier(delai, () -> expirer(commandeId)));
+		if (precedente != null) {
+			precedente.annuler();
+		}
+	}
+
+	private void annulerEcheance(Long commandeId) {
+		RoueTemporelle.Echeance echeance = echeances.remove(commandeId);
+		if (echeance != null) {
+			echeance.annuler();
+		}
+	}
+
+	/**
+	 * Aucun chauffeur n'a accepté à temps : la commande est annulée, sauf si une acceptation l'a devancée
+	 */
+	private void expirer(Long commandeId) {
+		echeances.remove(commandeId);
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				List<Long> chauffeurs = offreCommandeRepository.findChauffeurIdsByCommandeId(commandeId);
+				offreCommandeRepository.supprimerParCommande(commandeId);
+				if (commandeRepository.changerStatutSi(commandeId, StatutCommande.EN_ATTENTE, StatutCommande.ANNULEE) == 0) {
+					return;
+				}
+				Commande commande = commandeRepository.findById(commandeId).orElseThrow();
+				notificationService.notifierChangementStatut(commande);
+				notificationService.notifierFinOffre(chauffeurs, commande, "OFFRE_RETIREE");
+				expirees.increment();
+				log.info("Diffusion de la commande {} expirée sans acceptation", commandeId);
+			});
+		} catch (Exception e) {
+			log.error("Erreur lors de l'expiration de la diffusion de la commande {}", commandeId, e);
+		}
+	}
+}
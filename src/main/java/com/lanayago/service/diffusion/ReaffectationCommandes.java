@@ -0,0 +1,237 @@
+package com.lanayago.service.diffusion;
+
+import com.lanayago.entity.Chauffeur;
+import com.lanayago.entity.Commande;
+import com.lanayago.entity.RechercheTransport;
+import com.lanayago.entity.TentativeAffectation;
+import com.lanayago.enums.MotifReaffectation;
+import com.lanayago.enums.StatutCommande;
+import com.lanayago.exception.BusinessException;
+import com.lanayago.repository.ChauffeurRepository;
+import com.lanayago.repository.CommandeRepository;
+import com.lanayago.repository.RechercheTransportRepository;
+import com.lanayago.repository.TentativeAffectationRepository;
+import com.lanayago.service.NotificationService;
+import com.lanayago.service.RechercheTransportService;
+import com.lanayago.service.groupage.GroupageCommandes;
+import com.lanayago.service.reservation.CalendrierReservations;
+import com.lanayago.service.tache.ApresTransaction;
+import com.lanayago.service.tache.RoueTemporelle;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Réaffectation automatique d'une commande adressée à un chauffeur qui la refuse ou ne l'accepte pas à temps :
+ * elle est proposée au meilleur chauffeur compatible suivant, selon les critères de la recherche d'origine.
+ * Le délai d'acceptation est une échéance en mémoire sur la roue temporelle partagée.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReaffectationCommandes {
+
+	private final CommandeRepository commandeRepository;
+	private final ChauffeurRepository chauffeurRepository;
+	private final RechercheTransportRepository rechercheTransportRepository;
+	private final TentativeAffectationRepository tentativeAffectationRepository;
+	private final RechercheTransportService rechercheTransportService;
+	private final NotificationService notificationService;
+	private final GroupageCommandes groupageCommandes;
+	private final CalendrierReservations calendrierReservations;
+	private final TransactionTemplate transactionTemplate;
+	private final MeterRegistry meterRegistry;
+	private final RoueTemporelle roueEcheances;
+
+	@Value("${commande.reaffectation.delai-acceptation-secondes:120}")
+	private long delaiAcceptationSecondes;
+
+	@Value("${commande.reaffectation.tentatives-maximum:3}")
+	private int tentativesMaximum;
+
+	@Value("${commande.reaffectation.candidats:10}")
+	private int candidats;
+
+	private final Map<Long, RoueTemporelle.Echeance> echeances = new ConcurrentHashMap<>();
+
+	private Counter reaffectees;
+	private Counter expirees;
+
+	@PostConstruct
+	void initialiserMetriques() {
+		reaffectees = meterRegistry.counter("lanayago.commandes.reaffectees");
+		expirees = meterRegistry.counter("lanayago.commandes.expirees");
+	}
+
+	/**
+	 * Replanifie les délais d'acceptation en cours après un redémarrage ; une échéance ne s'applique
+	 * qu'au chauffeur pour lequel elle a été posée
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void replanifier() {
+		List<Object[]> enAttente = commandeRepository.findAffectationsEnAttente();
+		LocalDateTime maintenant = LocalDateTime.now();
+		for (Object[] ligne : enAttente) {
+			LocalDateTime echeance = ((LocalDateTime) ligne[2]).plusSeconds(delaiAcceptationSecondes);
+			planifier((Long) ligne[0], (Long) ligne[1], Duration.between(maintenant, echeance));
+		}
+		if (!enAttente.isEmpty()) {
+			log.info("{} délais d'acceptation de commandes replanifiés", enAttente.size());
+		}
+	}
+
+	/**
+	 * Démarre le délai d'acceptation du chauffeur désigné, à partir de la validation
+	 */
+	public void suivre(Commande commande) {
+		Long chauffeurId = commande.getChauffeur().getId();
+		ApresTransaction.apresValidation(() -> planifier(commande.getId(), chauffeurId, Duration.ofSeconds(delaiAcceptationSecondes)));
+	}
+
+	/**
+	 * La commande a quitté EN_ATTENTE : son délai d'acceptation n'a plus lieu d'être
+	 */
+	public void arreter(Long commandeId) {
+		ApresTransaction.apresValidation(() -> annulerEcheance(commandeId));
+	}
+
+	/**
+	 * Propose la commande au meilleur chauffeur compatible qui ne l'a pas encore déclinée, dans la transaction
+	 * appelante. Renvoie false si la commande n'a pas de recherche d'origine, si le nombre de tentatives est
+	 * atteint ou si aucun chauffeur n'est disponible : l'appelant la clôt alors.
+	 */
+	public boolean reaffecter(Commande commande, Long ancienChauffeurId, MotifReaffectation motif) {
+		TentativeAffectation tentative = new TentativeAffectation();
+		tentative.setCommandeId(commande.getId());
+		tentative.setChauffeurId(ancienChauffeurId);
+		tentative.setMotif(motif);
+		tentativeAffectationRepository.save(tentative);
+
+		Set<Long> exclus = new HashSet<>(tentativeAffectationRepository.findChauffeurIdsByCommandeId(commande.getId()));
+		if (commande.getRechercheId() == null || exclus.size() >= tentativesMaximum) {
+			return false;
+		}
+		Chauffeur chauffeur = rechercheTransportRepository.findById(commande.getRechercheId())
+				.map(recherche -> prochainChauffeur(recherche, commande, exclus))
+				.orElse(null);
+		if (chauffeur == null) {
+			return false;
+		}
+
+		LocalDateTime maintenant = LocalDateTime.now();
+		if (commandeRepository.reaffecterSi(commande.getId(), ancienChauffeurId, chauffeur.getId(),
+				chauffeur.getVehiculeActuel().getId(), maintenant) == 0) {
+			throw new BusinessException("La commande a été modifiée entre-temps, veuillez réessayer");
+		}
+		commande.setChauffeur(chauffeur);
+		commande.setVehicule(chauffeur.getVehiculeActuel());
+		commande.setDateAffectation(maintenant);
+		// Proposée seule au nouveau chauffeur
+		groupageCommandes.retirer(commande);
+
+		notificationService.notifierNouvelleCommande(List.of(chauffeur), commande);
+		notificationService.notifierReaffectation(commande);
+		suivre(commande);
+		reaffectees.increment();
+
+		log.info("Commande {} réaffectée du chauffeur {} au chauffeur {} - Motif: {}",
+				commande.getId(), ancienChauffeurId, chauffeur.getId(), motif);
+		return true;
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	/**
+	 * Comme à l'acceptation : un chauffeur occupé ne reçoit qu'une commande programmée, et jamais sur un créneau
+	 * qui chevauche une de ses réservations ou de celles de son véhicule
+	 */
+	private Chauffeur prochainChauffeur(RechercheTransport recherche, Commande commande, Set<Long> exclus) {
+		List<Long> ids = rechercheTransportService.meilleursChauffeursPourRecherche(recherche, exclus.size() + candidats)
+				.stream()
+				.filter(id -> !exclus.contains(id))
+				.toList();
+		Map<Long, Chauffeur> chauffeurs = new HashMap<>();
+		chauffeurRepository.findAllById(ids).forEach(chauffeur -> chauffeurs.put(chauffeur.getId(), chauffeur));
+
+		boolean programmee = calendrierReservations.estProgramme(commande.getDateRamassageSouhaitee());
+		CalendrierReservations.Creneau creneau = calendrierReservations.creneau(
+				commande.getDateRamassageSouhaitee(), commande.getDateLivraisonSouhaitee(), commande.getDistance());
+
+		// Dans l'ordre du classement de la recherche
+		return ids.stream()
+				.map(chauffeurs::get)
+				.filter(chauffeur -> chauffeur != null && (programmee || Boolean.TRUE.equals(chauffeur.getDisponible()))
+						&& chauffeur.getVehiculeActuel() != null
+						&& calendrierReservations.estLibre(chauffeur.getId(), chauffeur.getVehiculeActuel().getId(), creneau))
+				.findFirst()
+				.orElse(null);
+	}
+
+	private void planifier(Long commandeId, Long chauffeurId, Duration delai) {
+		RoueTemporelle.Echeance precedente = echeances.put(commandeId,
+				roueEcheances.planifier(delai, () -> expirer(commandeId, chauffeurId)));
+		if (precedente != null) {
+			precedente.annuler();
+		}
+	}
+
+	private void annulerEcheance(Long commandeId) {
+		RoueTemporelle.Echeance echeance = echeances.remove(commandeId);
+		if (echeance != null) {
+			echeance.annuler();
+		}
+	}
+
+	/**
+	 * Le chauffeur n'a pas répondu à temps : la commande passe au suivant, ou est annulée faute de candidat.
+	 * Sans effet si elle a été acceptée, refusée ou réaffectée entre-temps.
+	 */
+	private void expirer(Long commandeId, Long chauffeurId) {
+		echeances.remove(commandeId);
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				Commande commande = commandeRepository.findById(commandeId).orElse(null);
+				if (commande == null || commande.getStatut() != StatutCommande.EN_ATTENTE
+						|| commande.getChauffeur() == null || !commande.getChauffeur().getId().equals(chauffeurId)) {
+					return;
+				}
+				notificationService.notifierFinOffre(List.of(chauffeurId), commande, "OFFRE_RETIREE");
+				if (reaffecter(commande, chauffeurId, MotifReaffectation.EXPIREE)) {
+					expirees.increment();
+					return;
+				}
+
+				if (commandeRepository.changerStatutSiChauffeur(
+						commandeId, chauffeurId, StatutCommande.EN_ATTENTE, StatutCommande.ANNULEE) == 0) {
+					status.setRollbackOnly();
+					return;
+				}
+				commande.setStatut(StatutCommande.ANNULEE);
+				groupageCommandes.retirer(commande);
+				notificationService.notifierChangementStatut(commande);
+				expirees.increment();
+				log.info("Commande {} annulée : aucun chauffeur ne l'a acceptée à temps", commandeId);
+			});
+		} catch (BusinessException e) {
+			log.debug("Expiration de la commande {} devancée: {}", commandeId, e.getMessage());
+		} catch (Exception e) {
+			log.error("Erreur lors de l'expiration du délai d'acceptation de la commande {}", commandeId, e);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package com.lanayago.service.envoi;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lanayago.entity.EvenementSortant;
+import com.lanayago.repository.EvenementSortantRepository;
+import com.lanayago.service.tache.ApresTransaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Point d'entrée des notifications issues d'une transaction : le message est enregistré avec
+ * les données qu'il décrit et n'est publié qu'après validation. Une annulation l'efface avec elles.
+ * Juste avant la validation, chaque message reçoit le numéro suivant de sa destination : les numéros
+ * suivent l'ordre des validations, et un client écarte un message plus ancien que le dernier reçu.
+ */
+@Component
+@RequiredArgsConstructor
+public class BoiteEnvoi {
+
+	private final EvenementSortantRepository evenementSortantRepository;
+	private final PublicateurEvenements publicateurEvenements;
+	private final SequencesDestinations sequencesDestinations;
+	private final ObjectMapper objectMapper;
+
+	public void enregistrer(String destination, Object message) {
+		enregistrer(List.of(destination), message);
+	}
+
+	public void enregistrer(Collection<String> destinations, Object message) {
+		enregistrer(destinations, message, DiffuseurNotifications.Voie.NORMALE);
+	}
+
+	/**
+	 * Sérialise le message une seule fois, maintenant, puis écrit la même charge pour chaque destination ;
+	 * la voie prioritaire est publiée avant les autres messages en attente
+	 */
+	public void enregistrer(Collection<String> destinations, Object message, DiffuseurNotifications.Voie voie) {
+		if (destinations.isEmpty()) {
+			return;
+		}
+		String charge;
+		try {
+			charge = objectMapper.writeValueAsString(message);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Message non sérialisable pour " + destinations, e);
+		}
+		List<EvenementSortant> evenements = destinations.stream().map(destination -> {
+			EvenementSortant evenement = new EvenementSortant();
+			evenement.setDestination(destination);
+			evenement.setCharge(charge);
+			evenement.setPrioritaire(voie == DiffuseurNotifications.Voie.PRIORITAIRE);
+			return evenement;
+		}).toList();
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			aNumeroter().addAll(evenements);
+		} else {
+			numeroter(evenements);
+		}
+		evenementSortantRepository.saveAll(evenements);
+
+		ApresTransaction.apresValidation(publicateurEvenements::signaler);
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	/**
+	 * Messages de la transaction en cours, numérotés en une fois juste avant sa validation :
+	 * les compteurs ne restent verrouillés que le temps de valider
+	 */
+	@SuppressWarnings("unchecked")
+	private List<EvenementSortant> aNumeroter() {
+		List<EvenementSortant> evenements = (List<EvenementSortant>) TransactionSynchronizationManager.getResource(this);
+		if (evenements != null) {
+			return evenements;
+		}
+		List<EvenementSortant> nouveaux = new ArrayList<>();
+		TransactionSynchronizationManager.bindResource(this, nouveaux);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void beforeCommit(boolean readOnly) {
+				numeroter(nouveaux);
+			}
+
+			@Override
+			public void afterCompletion(int status) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(BoiteEnvoi.this);
+			}
+		});
+		return nouveaux;
+	}
+
+	/**
+	 * Destinations triées : les compteurs sont toujours verrouillés dans le même ordre, sans interblocage.
+	 * Dans une transaction, les messages d'une destination gardent leur ordre d'enregistrement.
+	 */
+	private void numeroter(List<EvenementSortant> evenements) {
+		Map<String, List<EvenementSortant>> parDestination = new TreeMap<>();
+		for (EvenementSortant evenement : evenements) {
+			parDestination.computeIfAbsent(evenement.getDestination(), destination -> new ArrayList<>()).add(evenement);
+		}
+		parDestination.forEach((destination, messages) -> {
+			long sequence = sequencesDestinations.reserver(destination, messages.size()) - messages.size();
+			for (EvenementSortant evenement : messages) {
+				evenement.setSequence(++sequence);
+			}
+		});
+	}
+}
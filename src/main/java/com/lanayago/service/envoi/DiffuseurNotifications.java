@@ -0,0 +1,390 @@
+package com.lanayago.service.envoi;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lanayago.dto.NotificationDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Envoi direct, hors boîte d'envoi, des notifications éphémères (positions, recherches) : le message est
+ * sérialisé une fois, déposé dans la file de chaque destination, puis remis par un pool de fils borné.
+ * Une destination n'est traitée que par un fil à la fois : l'ordre est conservé dans chaque voie.
+ * Dans une file, la voie prioritaire passe avant la voie normale, elle-même avant les messages fusionnables
+ * (seul le dernier message d'une même clé est gardé). Les files sont bornées : un débordement abandonne
+ * d'abord les messages les moins prioritaires. Au-delà de capacite-totale, seule la voie prioritaire est
+ * encore acceptée, jusqu'à capacite-totale-prioritaire.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DiffuseurNotifications {
+
+	public enum Voie {
+		PRIORITAIRE, NORMALE
+	}
+
+	private final SimpMessagingTemplate messagingTemplate;
+	private final ObjectMapper objectMapper;
+	private final MeterRegistry meterRegistry;
+
+	@Value("${notifications.diffusion.fils:4}")
+	private int fils;
+
+	@Value("${notifications.diffusion.capacite-par-destination:64}")
+	private int capaciteParDestination;
+
+	@Value("${notifications.diffusion.capacite-totale:50000}")
+	private int capaciteTotale;
+
+	@Value("${notifications.diffusion.capacite-totale-prioritaire:60000}")
+	private int capaciteTotalePrioritaire;
+
+	@Value("${notifications.diffusion.taille-lot:32}")
+	private int tailleLot;
+
+	private record Envoi(Message<byte[]> message, String type, long soumisA) {
+	}
+
+	// Destination à traiter ; celles qui ont un message prioritaire sont servies d'abord, puis par ordre d'arrivée.
+	// Seule la dernière planification d'une destination est valide : les précédentes sont ignorées à la sortie de la file.
+	private record Planification(String destination, boolean prioritaire, long rang) implements Comparable<Planification> {
+		@Override
+		public int compareTo(Planification autre) {
+			if (prioritaire != autre.prioritaire) {
+				return prioritaire ? -1 : 1;
+			}
+			return Long.compare(rang, autre.rang);
+		}
+	}
+
+	/**
+	 * File d'une destination, modifiée uniquement dans files.compute : l'entrée disparaît quand elle est vide.
+	 * Planifiée dès son premier message, tant qu'elle attend dans pretes ou qu'un fil la traite (enCours).
+	 */
+	private static final class FileDestination {
+		private final ArrayDeque<Envoi> prioritaires = new ArrayDeque<>();
+		private final ArrayDeque<Envoi> normaux = new ArrayDeque<>();
+		private final LinkedHashMap<String, Envoi> fusionnables = new LinkedHashMap<>();
+		private boolean enCours;
+		private Planification planification;
+
+		int taille() {
+			return prioritaires.size() + normaux.size() + fusionnables.size();
+		}
+
+		Envoi prendre() {
+			if (!prioritaires.isEmpty()) {
+				return prioritaires.poll();
+			}
+			if (!normaux.isEmpty()) {
+				return normaux.poll();
+			}
+			Iterator<Envoi> premier = fusionnables.values().iterator();
+			if (!premier.hasNext()) {
+				return null;
+			}
+			Envoi envoi = premier.next();
+			premier.remove();
+			return envoi;
+		}
+
+		boolean retirerFusionnable() {
+			Iterator<Envoi> premier = fusionnables.values().iterator();
+			if (!premier.hasNext()) {
+				return false;
+			}
+			premier.next();
+			premier.remove();
+			return true;
+		}
+	}
+
+	private final Map<String, FileDestination> files = new ConcurrentHashMap<>();
+	private final PriorityBlockingQueue<Planification> pretes = new PriorityBlockingQueue<>();
+	private final AtomicInteger enAttente = new AtomicInteger();
+	private final AtomicLong rang = new AtomicLong();
+	private ExecutorService executeur;
+
+	private Counter envoyees;
+	private Counter echecs;
+	private Counter fusionnees;
+	private Counter abandonneesPrioritaires;
+	private Counter abandonneesNormales;
+	private Counter abandonneesFusionnables;
+	private Timer attente;
+
+	@PostConstruct
+	void demarrer() {
+		envoyees = meterRegistry.counter("lanayago.notifications.envoyees");
+		echecs = meterRegistry.counter("lanayago.notifications.echecs");
+		fusionnees = meterRegistry.counter("lanayago.notifications.fusionnees");
+		abandonneesPrioritaires = meterRegistry.counter("lanayago.notifications.abandonnees", "voie", "prioritaire");
+		abandonneesNormales = meterRegistry.counter("lanayago.notifications.abandonnees", "voie", "normale");
+		abandonneesFusionnables = meterRegistry.counter("lanayago.notifications.abandonnees", "voie", "fusionnable");
+		// Délai entre la soumission et la remise au broker
+		attente = meterRegistry.timer("lanayago.notifications.attente");
+		Gauge.builder("lanayago.notifications.en-attente", enAttente, AtomicInteger::get)
+				.register(meterRegistry);
+
+		AtomicInteger numero = new AtomicInteger();
+		executeur = Executors.newFixedThreadPool(fils, tache -> {
+			Thread thread = new Thread(tache, "diffusion-notifications-" + numero.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (int i = 0; i < fils; i++) {
+			executeur.execute(this::traiterFiles);
+		}
+	}
+
+	@PreDestroy
+	void arreter() {
+		executeur.shutdownNow();
+	}
+
+	public void diffuser(String destination, NotificationDTO notification, Voie voie) {
+		diffuser(List.of(destination), notification, voie);
+	}
+
+	/**
+	 * Même message pour toutes les destinations : sérialisé une fois, le tampon est partagé par les files
+	 */
+	public void diffuser(Collection<String> destinations, NotificationDTO notification, Voie voie) {
+		if (destinations.isEmpty()) {
+			return;
+		}
+		Envoi envoi = new Envoi(construireMessage(notification), notification.type(), System.nanoTime());
+		for (String destination : destinations) {
+			deposer(destination, voie == Voie.PRIORITAIRE, (file, total) -> voie == Voie.PRIORITAIRE
+					? ajouterPrioritaire(file, envoi, total)
+					: ajouterNormal(file, envoi, total));
+		}
+	}
+
+	/**
+	 * Message qui annule le précédent de même clé encore en attente (position, état complet d'une recherche)
+	 */
+	public void remplacer(String destination, String cle, NotificationDTO notification) {
+		Envoi envoi = new Envoi(construireMessage(notification), notification.type(), System.nanoTime());
+		deposer(destination, false, (file, total) -> ajouterFusionnable(file, cle, envoi, total));
+	}
+
+	public int getNombreEnAttente() {
+		return enAttente.get();
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	@FunctionalInterface
+	private interface Ajout {
+		// Variation du nombre de messages en attente de la file
+		int appliquer(FileDestination file, int total);
+	}
+
+	private void deposer(String destination, boolean prioritaire, Ajout ajout) {
+		Planification[] planification = new Planification[1];
+		files.compute(destination, (cle, file) -> {
+			FileDestination courante = file != null ? file : new FileDestination();
+			enAttente.addAndGet(ajout.appliquer(courante, enAttente.get()));
+			if (courante.taille() == 0) {
+				return file;
+			}
+			if (courante.planification == null) {
+				planification[0] = planifier(destination, courante, prioritaire);
+			} else if (prioritaire && !courante.enCours && !courante.planification.prioritaire()) {
+				// Destination déjà en attente dans la voie normale : replanifiée en tête, l'ancienne planification est ignorée
+				planification[0] = planifier(destination, courante, true);
+			}
+			return courante;
+		});
+		if (planification[0] != null) {
+			pretes.offer(planification[0]);
+		}
+	}
+
+	private Planification planifier(String destination, FileDestination file, boolean prioritaire) {
+		file.planification = new Planification(destination, prioritaire, rang.incrementAndGet());
+		return file.planification;
+	}
+
+	// Au-delà de la capacité totale, un message prioritaire n'entre qu'en évinçant un message moins prioritaire de sa file
+	private int ajouterPrioritaire(FileDestination file, Envoi envoi, int total) {
+		int variation = 1;
+		if (file.taille() >= capaciteParDestination || total >= capaciteTotalePrioritaire) {
+			variation--;
+			if (file.normaux.poll() != null) {
+				abandonneesNormales.increment();
+			} else if (file.retirerFusionnable()) {
+				abandonneesFusionnables.increment();
+			} else if (file.taille() >= capaciteParDestination) {
+				file.prioritaires.poll();
+				abandonneesPrioritaires.increment();
+			} else {
+				abandonneesPrioritaires.increment();
+				return 0;
+			}
+		}
+		file.prioritaires.add(envoi);
+		return variation;
+	}
+
+	private int ajouterNormal(FileDestination file, Envoi envoi, int total) {
+		if (total >= capaciteTotale) {
+			abandonneesNormales.increment();
+			return 0;
+		}
+		int variation = 1;
+		if (file.taille() >= capaciteParDestination) {
+			if (file.retirerFusionnable()) {
+				abandonneesFusionnables.increment();
+			} else if (file.normaux.poll() == null) {
+				// Uniquement des messages prioritaires : le nouveau message est refusé
+				abandonneesNormales.increment();
+				return 0;
+			} else {
+				abandonneesNormales.increment();
+			}
+			variation--;
+		}
+		file.normaux.add(envoi);
+		return variation;
+	}
+
+	private int ajouterFusionnable(FileDestination file, String cle, Envoi envoi, int total) {
+		if (file.fusionnables.containsKey(cle)) {
+			// Remplace le message en attente, à sa place dans la file
+			file.fusionnables.put(cle, envoi);
+			fusionnees.increment();
+			return 0;
+		}
+		if (total >= capaciteTotale) {
+			abandonneesFusionnables.increment();
+			return 0;
+		}
+		if (file.taille() >= capaciteParDestination) {
+			// File pleine : le plus ancien message fusionnable cède sa place, sinon le nouveau est refusé
+			abandonneesFusionnables.increment();
+			if (!file.retirerFusionnable()) {
+				return 0;
+			}
+			file.fusionnables.put(cle, envoi);
+			return 0;
+		}
+		file.fusionnables.put(cle, envoi);
+		return 1;
+	}
+
+	private void traiterFiles() {
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				Planification planification = pretes.take();
+				if (prendreEnCharge(planification)) {
+					traiter(planification.destination());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (Exception e) {
+				log.error("Erreur lors de la diffusion des notifications", e);
+			}
+		}
+	}
+
+	/**
+	 * Faux pour une planification remplacée depuis (destination replanifiée en priorité, ou vidée puis recréée)
+	 */
+	private boolean prendreEnCharge(Planification planification) {
+		boolean[] valide = new boolean[1];
+		files.computeIfPresent(planification.destination(), (cle, file) -> {
+			valide[0] = file.planification == planification && !file.enCours;
+			file.enCours |= valide[0];
+			return file;
+		});
+		return valide[0];
+	}
+
+	/**
+	 * Remet au plus un lot de messages de la destination, puis la replace en fin de file si elle n'est pas vide
+	 */
+	private void traiter(String destination) {
+		for (int i = 0; i < tailleLot; i++) {
+			Envoi envoi = prendre(destination);
+			if (envoi == null) {
+				return;
+			}
+			envoyer(destination, envoi);
+		}
+		Planification[] planification = new Planification[1];
+		files.computeIfPresent(destination, (cle, file) -> {
+			file.enCours = false;
+			planification[0] = planifier(destination, file, !file.prioritaires.isEmpty());
+			return file;
+		});
+		if (planification[0] != null) {
+			pretes.offer(planification[0]);
+		}
+	}
+
+	private Envoi prendre(String destination) {
+		Envoi[] pris = new Envoi[1];
+		files.computeIfPresent(destination, (cle, file) -> {
+			pris[0] = file.prendre();
+			// File vide : l'entrée est retirée, un prochain dépôt en crée une nouvelle et la planifie
+			return pris[0] == null ? null : file;
+		});
+		if (pris[0] != null) {
+			enAttente.decrementAndGet();
+		}
+		return pris[0];
+	}
+
+	private void envoyer(String destination, Envoi envoi) {
+		try {
+			messagingTemplate.send(destination, envoi.message());
+			envoyees.increment();
+		} catch (Exception e) {
+			echecs.increment();
+			log.error("Erreur lors de l'envoi de la notification {} vers {}", envoi.type(), destination, e);
+		} finally {
+			attente.record(System.nanoTime() - envoi.soumisA(), TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private Message<byte[]> construireMessage(NotificationDTO notification) {
+		try {
+			return MessageBuilder
+					.withPayload(objectMapper.writeValueAsBytes(notification))
+					.setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+					.build();
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Notification non sérialisable : " + notification.type(), e);
+		}
+	}
+}
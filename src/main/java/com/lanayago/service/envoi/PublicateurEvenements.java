@@ -0,0 +1,293 @@
+package com.lanayago.service.envoi;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lanayago.service.tache.BailTaches;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Publie les messages de la boîte d'envoi par lots, hors de toute transaction : les lignes sont lues
+ * puis la connexion est rendue avant le premier envoi. Livraison au moins une fois, dans l'ordre des id
+ * pour une même destination : après un échec, les messages suivants de cette destination attendent
+ * le nouvel essai (délai exponentiel). Un bail en base réserve la publication à une seule instance.
+ * Chaque passe publie d'abord les messages prioritaires dont aucun message antérieur de la destination n'attend.
+ * <p>
+ * L'ordre des id n'est pas celui des validations, même sur une seule instance : les id sont tirés par blocs
+ * à l'écriture, et deux transactions concurrentes peuvent valider dans l'ordre inverse de leurs id.
+ * Chaque message publié porte donc sa séquence, attribuée dans l'ordre des validations de sa destination :
+ * le client écarte un message dont la séquence est inférieure à la dernière reçue.
+ * <p>
+ * Les messages abandonnés après tentatives-maximum restent en base pour analyse, puis sont purgés
+ * après retention-abandonnes-jours ; un administrateur peut aussi les relancer ou les purger aussitôt.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PublicateurEvenements {
+
+	private static final String TACHE = "publication-evenements";
+
+	// Pagination sur l'id ; une destination dont un message antérieur attend son nouvel essai est écartée en base,
+	// pour que ses messages retenus n'occupent pas les lots au détriment des autres destinations
+	private static final String SQL_A_PUBLIER =
+			"SELECT e.id, e.destination, e.charge, e.sequence, e.tentatives, e.date_creation FROM evenements_sortants e " +
+					"WHERE e.id > ? AND e.tentatives < ? AND e.prochaine_tentative <= ? AND NOT EXISTS (" +
+					"SELECT 1 FROM evenements_sortants b WHERE b.destination = e.destination AND b.id < e.id " +
+					"AND b.tentatives < ? AND b.prochaine_tentative > ?) ORDER BY e.id LIMIT ?";
+
+	// Messages prioritaires seuls en tête de leur destination : les publier d'abord ne change pas l'ordre de celle-ci
+	private static final String SQL_PRIORITAIRES_A_PUBLIER =
+			"SELECT e.id, e.destination, e.charge, e.sequence, e.tentatives, e.date_creation FROM evenements_sortants e " +
+					"WHERE e.prioritaire = TRUE AND e.id > ? AND e.tentatives < ? AND e.prochaine_tentative <= ? " +
+					"AND NOT EXISTS (SELECT 1 FROM evenements_sortants b WHERE b.destination = e.destination " +
+					"AND b.id < e.id AND b.tentatives < ?) ORDER BY e.id LIMIT ?";
+
+	private static final String SQL_SUPPRIMER = "DELETE FROM evenements_sortants WHERE id IN (:ids)";
+
+	private static final String SQL_REPORTER =
+			"UPDATE evenements_sortants SET tentatives = ?, prochaine_tentative = ? WHERE id = ?";
+
+	private static final String SQL_RELANCER_ABANDONNES =
+			"UPDATE evenements_sortants SET tentatives = 0, prochaine_tentative = 0 WHERE tentatives >= ?";
+
+	private static final String SQL_PURGER_ABANDONNES =
+			"DELETE FROM evenements_sortants WHERE tentatives >= ? AND date_creation < ?";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final ObjectMapper objectMapper;
+	private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+	private final SimpMessagingTemplate messagingTemplate;
+	private final BailTaches bailTaches;
+	private final MeterRegistry meterRegistry;
+
+	@Value("${evenements.publication.taille-lot:200}")
+	private int tailleLot;
+
+	@Value("${evenements.publication.tentatives-maximum:10}")
+	private int tentativesMaximum;
+
+	@Value("${evenements.publication.delai-initial-ms:1000}")
+	private long delaiInitialMs;
+
+	@Value("${evenements.publication.delai-maximum-ms:300000}")
+	private long delaiMaximumMs;
+
+	@Value("${evenements.publication.duree-bail-secondes:30}")
+	private long dureeBailSecondes;
+
+	@Value("${evenements.publication.retention-abandonnes-jours:7}")
+	private long retentionAbandonnesJours;
+
+	private record Evenement(Long id, String destination, String charge, Long sequence, int tentatives,
+	                         LocalDateTime dateCreation) {
+	}
+
+	private final ReentrantLock verrou = new ReentrantLock();
+	private final AtomicBoolean signale = new AtomicBoolean();
+	private final ExecutorService executeur = Executors.newSingleThreadExecutor(tache -> {
+		Thread thread = new Thread(tache, "publication-evenements");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private Counter publies;
+	private Counter echecs;
+	private Counter abandonnes;
+	private Timer latence;
+
+	@PostConstruct
+	void initialiserMetriques() {
+		publies = meterRegistry.counter("lanayago.evenements.publies");
+		echecs = meterRegistry.counter("lanayago.evenements.echecs");
+		abandonnes = meterRegistry.counter("lanayago.evenements.abandonnes");
+		// Délai entre l'écriture du message et sa remise au broker
+		latence = meterRegistry.timer("lanayago.evenements.latence");
+	}
+
+	@PreDestroy
+	void arreter() {
+		executeur.shutdownNow();
+		bailTaches.liberer(TACHE);
+	}
+
+	/**
+	 * Demande une publication sans attendre la prochaine passe planifiée ; les signaux rapprochés sont fusionnés
+	 */
+	public void signaler() {
+		if (signale.compareAndSet(false, true)) {
+			executeur.execute(() -> {
+				signale.set(false);
+				publier();
+			});
+		}
+	}
+
+	/**
+	 * Passe de rattrapage : messages d'une autre instance, nouveaux essais, signaux perdus au redémarrage
+	 */
+	@Scheduled(fixedDelayString = "${evenements.publication.intervalle-ms:1000}")
+	public void publier() {
+		// Une passe à la fois dans l'instance ; un appel concurrent attend puis reprend depuis la base
+		verrou.lock();
+		try {
+			// Destinations en échec dans la passe : leurs messages suivants attendent, même dans les lots d'après
+			Set<String> bloquees = new HashSet<>();
+			for (boolean prioritaires : new boolean[]{true, false}) {
+				long dernierId = 0;
+				do {
+					if (!bailTaches.acquerir(TACHE, Duration.ofSeconds(dureeBailSecondes))) {
+						return;
+					}
+					dernierId = publierLot(prioritaires, dernierId, bloquees);
+				} while (dernierId > 0);
+			}
+		} catch (Exception e) {
+			log.error("Erreur lors de la publication des événements", e);
+		} finally {
+			verrou.unlock();
+		}
+	}
+
+	/**
+	 * Remet en file les messages abandonnés, pour un nouveau cycle de tentatives. Ils sont publiés
+	 * après ceux de leur destination déjà remis entre-temps.
+	 */
+	public int relancerAbandonnes() {
+		int relances = jdbcTemplate.update(SQL_RELANCER_ABANDONNES, tentativesMaximum);
+		log.info("{} événements abandonnés remis en file", relances);
+		signaler();
+		return relances;
+	}
+
+	/**
+	 * Supprime les messages abandonnés écrits avant la date donnée
+	 */
+	public int purgerAbandonnes(LocalDateTime avant) {
+		int purges = jdbcTemplate.update(SQL_PURGER_ABANDONNES, tentativesMaximum, avant);
+		if (purges > 0) {
+			log.info("{} événements abandonnés purgés", purges);
+		}
+		return purges;
+	}
+
+	@Scheduled(fixedDelayString = "${evenements.publication.intervalle-purge-ms:3600000}")
+	public void purgerAbandonnesExpires() {
+		try {
+			purgerAbandonnes(LocalDateTime.now().minusDays(retentionAbandonnesJours));
+		} catch (Exception e) {
+			log.error("Erreur lors de la purge des événements abandonnés", e);
+		}
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	/**
+	 * Publie le lot suivant l'id donné ; renvoie le dernier id lu si le lot était plein, 0 sinon
+	 */
+	private long publierLot(boolean prioritaires, long apresId, Set<String> bloquees) {
+		long maintenant = System.currentTimeMillis();
+		RowMapper<Evenement> lecture = (ligne, rang) -> new Evenement(
+				ligne.getLong("id"),
+				ligne.getString("destination"),
+				ligne.getString("charge"),
+				ligne.getObject("sequence", Long.class),
+				ligne.getInt("tentatives"),
+				ligne.getTimestamp("date_creation").toLocalDateTime()
+		);
+		List<Evenement> lot = prioritaires
+				? jdbcTemplate.query(SQL_PRIORITAIRES_A_PUBLIER, lecture, apresId, tentativesMaximum, maintenant, tentativesMaximum, tailleLot)
+				: jdbcTemplate.query(SQL_A_PUBLIER, lecture, apresId, tentativesMaximum, maintenant, tentativesMaximum, maintenant, tailleLot);
+
+		List<Long> envoyes = new ArrayList<>();
+		List<Object[]> reportes = new ArrayList<>();
+		for (Evenement evenement : lot) {
+			if (bloquees.contains(evenement.destination())) {
+				// Un message antérieur vient d'échouer : rien ne le double
+				continue;
+			}
+			try {
+				envoyer(evenement);
+				envoyes.add(evenement.id());
+				latence.record(Duration.between(evenement.dateCreation(), LocalDateTime.now()));
+			} catch (Exception e) {
+				bloquees.add(evenement.destination());
+				reportes.add(reporter(evenement, maintenant, e));
+			}
+		}
+
+		if (!envoyes.isEmpty()) {
+			namedParameterJdbcTemplate.update(SQL_SUPPRIMER, new MapSqlParameterSource("ids", envoyes));
+			publies.increment(envoyes.size());
+		}
+		if (!reportes.isEmpty()) {
+			jdbcTemplate.batchUpdate(SQL_REPORTER, reportes);
+		}
+		return lot.size() == tailleLot ? lot.get(lot.size() - 1).id() : 0;
+	}
+
+	private void envoyer(Evenement evenement) throws JsonProcessingException {
+		messagingTemplate.send(evenement.destination(), MessageBuilder
+				.withPayload(charge(evenement))
+				.setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+				.build());
+	}
+
+	/**
+	 * Charge enregistrée, complétée de la séquence du message quand elle est connue (objet JSON)
+	 */
+	private byte[] charge(Evenement evenement) throws JsonProcessingException {
+		if (evenement.sequence() != null) {
+			JsonNode charge = objectMapper.readTree(evenement.charge());
+			if (charge instanceof ObjectNode objet) {
+				return objectMapper.writeValueAsBytes(objet.put("sequence", evenement.sequence()));
+			}
+		}
+		return evenement.charge().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private Object[] reporter(Evenement evenement, long maintenant, Exception e) {
+		int tentatives = evenement.tentatives() + 1;
+		if (tentatives >= tentativesMaximum) {
+			// La ligne reste en base pour analyse, mais ne bloque plus la destination
+			abandonnes.increment();
+			log.error("Événement {} abandonné après {} tentatives vers {}", evenement.id(), tentatives, evenement.destination(), e);
+		} else {
+			echecs.increment();
+			log.warn("Échec de publication de l'événement {} vers {} (tentative {})", evenement.id(), evenement.destination(), tentatives, e);
+		}
+		long delai = Math.min(delaiMaximumMs, delaiInitialMs << Math.min(tentatives - 1, 20));
+		return new Object[]{tentatives, maintenant + delai, evenement.id()};
+	}
+}
@@ -0,0 +1,43 @@
+package com.lanayago.service.envoi;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compteurs par destination (table sequences_destinations). L'incrément verrouille la ligne jusqu'à la fin
+ * de la transaction appelante : deux transactions qui numérotent la même destination valident dans l'ordre
+ * de leurs numéros.
+ */
+@Component
+@RequiredArgsConstructor
+public class SequencesDestinations {
+
+	private static final String SQL_INCREMENTER =
+			"UPDATE sequences_destinations SET valeur = valeur + ? WHERE destination = ?";
+
+	private static final String SQL_CREER =
+			"INSERT INTO sequences_destinations (destination, valeur) VALUES (?, ?)";
+
+	private static final String SQL_LIRE =
+			"SELECT valeur FROM sequences_destinations WHERE destination = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Réserve les nombre numéros suivants de la destination et renvoie le dernier
+	 */
+	public long reserver(String destination, int nombre) {
+		if (jdbcTemplate.update(SQL_INCREMENTER, nombre, destination) == 0) {
+			try {
+				jdbcTemplate.update(SQL_CREER, destination, nombre);
+				return nombre;
+			} catch (DuplicateKeyException e) {
+				// Créée entre-temps par une autre transaction
+				jdbcTemplate.update(SQL_INCREMENTER, nombre, destination);
+			}
+		}
+		return jdbcTemplate.queryForObject(SQL_LIRE, Long.class, destination);
+	}
+}
@@ -0,0 +1,382 @@
+package com.lanayago.service.geo;
+
+import com.lanayago.entity.Chauffeur;
+import com.lanayago.entity.Vehicule;
+import com.lanayago.repository.ChauffeurRepository;
+import com.lanayago.service.tache.ApresTransaction;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Index spatial en mémoire des chauffeurs disponibles (grille de cellules lat/lon).
+ * Remplace le parcours complet de la table chauffeurs par une recherche limitée
+ * aux cellules couvrant la zone demandée. Les changements de présence demandés dans une transaction
+ * ne sont appliqués qu'après sa validation : l'index ne montre jamais un état que la base n'a pas retenu.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IndexSpatialChauffeurs {
+
+	private static final double KM_PAR_DEGRE = 111.32;
+
+	private final ChauffeurRepository chauffeurRepository;
+
+	@Value("${geolocalisation.index.taille-cellule-degres:0.05}")
+	private double tailleCellule;
+
+	private final Map<Long, Entree> positions = new ConcurrentHashMap<>();
+	private final Map<Long, Set<Long>> cellules = new ConcurrentHashMap<>();
+
+	/**
+	 * Ordre de classement : score croissant, puis identifiant pour départager les ex aequo
+	 */
+	public static final Comparator<ChauffeurClasse> ORDRE_CLASSEMENT =
+			Comparator.comparingDouble(ChauffeurClasse::score).thenComparing(ChauffeurClasse::chauffeurId);
+
+	public record ChauffeurProche(Long chauffeurId, double latitude, double longitude, double distanceKm) {
+	}
+
+	public record ChauffeurClasse(Long chauffeurId, double latitude, double longitude, double distanceKm, double score) {
+	}
+
+	public record ChauffeurIndexe(Long chauffeurId, double latitude, double longitude, Profil profil) {
+	}
+
+	/**
+	 * Caractéristiques du chauffeur et de son véhicule copiées lors de la synchronisation,
+	 * pour filtrer et classer sans charger les entités (capacité négative : pas de véhicule disponible)
+	 */
+	public record Profil(double capacitePoidsTonnes, double capaciteVolume, double noteMoyenne, int nombreCourses) {
+		public static final Profil INCONNU = new Profil(-1.0, Double.NaN, 0.0, 0);
+
+		/**
+		 * Capacité suffisante pour un chargement (poids en tonnes, volume en m³ ou NaN si non précisé)
+		 */
+		public boolean peutTransporter(double poidsTonnes, double volume) {
+			return capacitePoidsTonnes >= poidsTonnes
+					&& (Double.isNaN(volume) || Double.isNaN(capaciteVolume) || capaciteVolume >= volume);
+		}
+	}
+
+	/**
+	 * Filtre et score (plus petit = meilleur) appliqués pendant le parcours de la grille
+	 */
+	public interface CritereClassement {
+
+		CritereClassement DISTANCE = new CritereClassement() {
+			@Override
+			public boolean accepte(Profil profil) {
+				return true;
+			}
+
+			@Override
+			public double score(Profil profil, double distanceKm) {
+				return distanceKm;
+			}
+
+			@Override
+			public double scoreMinimal(double distanceKm) {
+				return distanceKm;
+			}
+		};
+
+		boolean accepte(Profil profil);
+
+		double score(Profil profil, double distanceKm);
+
+		/**
+		 * Borne inférieure du score de tout chauffeur situé à au moins cette distance
+		 */
+		double scoreMinimal(double distanceKm);
+	}
+
+	/**
+	 * Notifié après chaque changement de position ou de présence d'un chauffeur dans l'index
+	 */
+	public interface ObservateurIndex {
+
+		void chauffeurPositionne(Long chauffeurId, double latitude, double longitude, Profil profil);
+
+		void chauffeurRetire(Long chauffeurId);
+	}
+
+	private record Entree(double latitude, double longitude, long cellule, Profil profil) {
+	}
+
+	private final List<ObservateurIndex> observateurs = new CopyOnWriteArrayList<>();
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Order(Ordered.HIGHEST_PRECEDENCE)
+	@Transactional(readOnly = true)
+	public void charger() {
+		chauffeurRepository.findDisponiblesAvecVehicule().forEach(this::synchroniser);
+		log.info("Index spatial initialisé avec {} chauffeurs disponibles", positions.size());
+	}
+
+	/**
+	 * Aligne l'index sur l'état du chauffeur : présent s'il est actif, disponible et localisé.
+	 * L'état est lu tout de suite, dans la transaction appelante, et appliqué après sa validation.
+	 */
+	public void synchroniser(Chauffeur chauffeur) {
+		Long chauffeurId = chauffeur.getId();
+		if (Boolean.TRUE.equals(chauffeur.getActif())
+				&& Boolean.TRUE.equals(chauffeur.getDisponible())
+				&& chauffeur.getLatitudeActuelle() != null
+				&& chauffeur.getLongitudeActuelle() != null) {
+			double latitude = chauffeur.getLatitudeActuelle();
+			double longitude = chauffeur.getLongitudeActuelle();
+			Profil profil = profil(chauffeur);
+			ApresTransaction.apresValidation(() -> mettreAJour(chauffeurId, latitude, longitude, profil));
+		} else {
+			retirer(chauffeurId);
+		}
+	}
+
+	/**
+	 * Déplace le chauffeur en conservant son profil connu, s'il est présent : vérification et déplacement
+	 * sont atomiques, un ping concurrent d'un retrait ne réinsère pas un chauffeur devenu occupé
+	 */
+	public boolean mettreAJourSiPresent(Long chauffeurId, double latitude, double longitude) {
+		long nouvelleCellule = cle(indexLatitude(latitude), indexLongitude(longitude));
+		Entree entree = positions.computeIfPresent(chauffeurId, (id, ancienne) -> deplacer(id, ancienne, latitude, longitude,
+				nouvelleCellule, ancienne.profil()));
+		if (entree == null) {
+			return false;
+		}
+		notifierPositionne(chauffeurId, entree);
+		return true;
+	}
+
+	private void mettreAJour(Long chauffeurId, double latitude, double longitude, Profil profil) {
+		long nouvelleCellule = cle(indexLatitude(latitude), indexLongitude(longitude));
+		Entree entree = positions.compute(chauffeurId, (id, ancienne) -> deplacer(id, ancienne, latitude, longitude,
+				nouvelleCellule, profil));
+		notifierPositionne(chauffeurId, entree);
+	}
+
+	/**
+	 * Retire le chauffeur après validation de la transaction appelante
+	 */
+	public void retirer(Long chauffeurId) {
+		ApresTransaction.apresValidation(() -> retirerMaintenant(chauffeurId));
+	}
+
+	private void retirerMaintenant(Long chauffeurId) {
+		positions.computeIfPresent(chauffeurId, (id, ancienne) -> {
+			retirerDeCellule(ancienne.cellule(), id);
+			return null;
+		});
+
+		for (ObservateurIndex observateur : observateurs) {
+			observateur.chauffeurRetire(chauffeurId);
+		}
+	}
+
+	public void ajouterObservateur(ObservateurIndex observateur) {
+		observateurs.add(observateur);
+	}
+
+	public int taille() {
+		return positions.size();
+	}
+
+	/**
+	 * Copie de tous les chauffeurs indexés, pour les traitements qui les considèrent tous à la fois
+	 */
+	public List<ChauffeurIndexe> instantane() {
+		List<ChauffeurIndexe> chauffeurs = new ArrayList<>(positions.size());
+		positions.forEach((id, entree) ->
+				chauffeurs.add(new ChauffeurIndexe(id, entree.latitude(), entree.longitude(), entree.profil())));
+		return chauffeurs;
+	}
+
+	/**
+	 * Chauffeurs situés dans le rayon donné, triés par distance croissante
+	 */
+	public List<ChauffeurProche> rechercherDansRayon(double latitude, double longitude, double rayonKm) {
+		double deltaLat = rayonKm / KM_PAR_DEGRE;
+		double deltaLon = rayonKm / (KM_PAR_DEGRE * Math.max(Math.cos(Math.toRadians(latitude)), 0.01));
+
+		int latMin = indexLatitude(latitude - deltaLat);
+		int latMax = indexLatitude(latitude + deltaLat);
+		int lonMin = indexLongitude(longitude - deltaLon);
+		int lonMax = indexLongitude(longitude + deltaLon);
+
+		NoyauGeodesique.Origine origine = new NoyauGeodesique.Origine(latitude, longitude);
+		List<ChauffeurProche> resultats = new ArrayList<>();
+		for (int i = latMin; i <= latMax; i++) {
+			for (int j = lonMin; j <= lonMax; j++) {
+				Set<Long> ids = cellules.get(cle(i, j));
+				if (ids == null) {
+					continue;
+				}
+				for (Long id : ids) {
+					Entree entree = positions.get(id);
+					if (entree == null) {
+						continue;
+					}
+					double distance = origine.distanceKm(entree.latitude(), entree.longitude());
+					if (distance <= rayonKm) {
+						resultats.add(new ChauffeurProche(id, entree.latitude(), entree.longitude(), distance));
+					}
+				}
+			}
+		}
+
+		resultats.sort(Comparator.comparingDouble(ChauffeurProche::distanceKm));
+		return resultats;
+	}
+
+	/**
+	 * Les k chauffeurs les plus proches dans la limite du rayon, en parcourant la grille anneau par anneau
+	 */
+	public List<ChauffeurProche> rechercherPlusProches(double latitude, double longitude, int k, double rayonMaxKm) {
+		return rechercherMeilleurs(latitude, longitude, k, rayonMaxKm, CritereClassement.DISTANCE, null)
+				.stream()
+				.map(c -> new ChauffeurProche(c.chauffeurId(), c.latitude(), c.longitude(), c.distanceKm()))
+				.toList();
+	}
+
+	/**
+	 * Les k chauffeurs acceptés par le critère ayant le meilleur score, classés après {@code apres} s'il est fourni.
+	 * Le parcours anneau par anneau s'arrête dès qu'aucun anneau restant ne peut améliorer le k-ième score.
+	 */
+	public List<ChauffeurClasse> rechercherMeilleurs(double latitude, double longitude, int k, double rayonMaxKm,
+	                                                 CritereClassement critere, ChauffeurClasse apres) {
+		if (k <= 0) {
+			return List.of();
+		}
+
+		PriorityQueue<ChauffeurClasse> meilleurs = new PriorityQueue<>(ORDRE_CLASSEMENT.reversed());
+
+		NoyauGeodesique.Origine origine = new NoyauGeodesique.Origine(latitude, longitude);
+		int centreLat = indexLatitude(latitude);
+		int centreLon = indexLongitude(longitude);
+		int anneauMax = anneauMaximal(latitude, rayonMaxKm);
+
+		for (int anneau = 0; anneau <= anneauMax; anneau++) {
+			// Aucun point de cet anneau ne peut battre le k-ième actuel
+			if (meilleurs.size() == k
+					&& critere.scoreMinimal(distanceMinimaleAnneau(latitude, anneau)) > meilleurs.peek().score()) {
+				break;
+			}
+
+			for (int i = centreLat - anneau; i <= centreLat + anneau; i++) {
+				boolean bordLatitude = i == centreLat - anneau || i == centreLat + anneau;
+				int pas = bordLatitude ? 1 : 2 * anneau;
+				for (int j = centreLon - anneau; j <= centreLon + anneau; j += Math.max(pas, 1)) {
+					Set<Long> ids = cellules.get(cle(i, j));
+					if (ids == null) {
+						continue;
+					}
+					for (Long id : ids) {
+						Entree entree = positions.get(id);
+						if (entree == null || !critere.accepte(entree.profil())) {
+							continue;
+						}
+						double distance = origine.distanceKm(entree.latitude(), entree.longitude());
+						if (distance > rayonMaxKm) {
+							continue;
+						}
+						ChauffeurClasse candidat = new ChauffeurClasse(id, entree.latitude(), entree.longitude(),
+								distance, critere.score(entree.profil(), distance));
+						if (apres != null && ORDRE_CLASSEMENT.compare(candidat, apres) <= 0) {
+							continue;
+						}
+						if (meilleurs.size() < k) {
+							meilleurs.add(candidat);
+						} else if (ORDRE_CLASSEMENT.compare(candidat, meilleurs.peek()) < 0) {
+							meilleurs.poll();
+							meilleurs.add(candidat);
+						}
+					}
+				}
+			}
+		}
+
+		List<ChauffeurClasse> resultats = new ArrayList<>(meilleurs);
+		resultats.sort(ORDRE_CLASSEMENT);
+		return resultats;
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	/**
+	 * Nouvelle entrée du chauffeur ; appelée dans positions.compute, qui sérialise les changements d'un même chauffeur
+	 */
+	private Entree deplacer(Long chauffeurId, Entree ancienne, double latitude, double longitude, long nouvelleCellule, Profil profil) {
+		if (ancienne != null && ancienne.cellule() != nouvelleCellule) {
+			retirerDeCellule(ancienne.cellule(), chauffeurId);
+		}
+		if (ancienne == null || ancienne.cellule() != nouvelleCellule) {
+			cellules.computeIfAbsent(nouvelleCellule, c -> ConcurrentHashMap.newKeySet()).add(chauffeurId);
+		}
+		return new Entree(latitude, longitude, nouvelleCellule, profil);
+	}
+
+	private void notifierPositionne(Long chauffeurId, Entree entree) {
+		for (ObservateurIndex observateur : observateurs) {
+			observateur.chauffeurPositionne(chauffeurId, entree.latitude(), entree.longitude(), entree.profil());
+		}
+	}
+
+	private static Profil profil(Chauffeur chauffeur) {
+		Vehicule vehicule = chauffeur.getVehiculeActuel();
+		boolean vehiculeDisponible = vehicule != null && Boolean.TRUE.equals(vehicule.getDisponible());
+		return new Profil(
+				vehiculeDisponible && vehicule.getCapacitePoids() != null ? vehicule.getCapacitePoids().doubleValue() : -1.0,
+				vehiculeDisponible && vehicule.getCapaciteVolume() != null ? vehicule.getCapaciteVolume().doubleValue() : Double.NaN,
+				chauffeur.getNoteMoyenne() != null ? chauffeur.getNoteMoyenne().doubleValue() : 0.0,
+				chauffeur.getNombreCourses() != null ? chauffeur.getNombreCourses() : 0);
+	}
+
+	private void retirerDeCellule(long cellule, Long chauffeurId) {
+		cellules.computeIfPresent(cellule, (c, ids) -> {
+			ids.remove(chauffeurId);
+			return ids.isEmpty() ? null : ids;
+		});
+	}
+
+	private int anneauMaximal(double latitude, double rayonKm) {
+		double largeurKm = tailleCellule * KM_PAR_DEGRE * Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+		return (int) Math.ceil(rayonKm / Math.min(largeurKm, tailleCellule * KM_PAR_DEGRE)) + 1;
+	}
+
+	private double distanceMinimaleAnneau(double latitude, int anneau) {
+		if (anneau <= 1) {
+			return 0.0;
+		}
+		double latitudeBord = Math.min(Math.abs(latitude) + anneau * tailleCellule, 89.0);
+		double largeurKm = tailleCellule * KM_PAR_DEGRE * Math.cos(Math.toRadians(latitudeBord));
+		return (anneau - 1) * Math.min(largeurKm, tailleCellule * KM_PAR_DEGRE);
+	}
+
+	private int indexLatitude(double latitude) {
+		return (int) Math.floor(latitude / tailleCellule);
+	}
+
+	private int indexLongitude(double longitude) {
+		return (int) Math.floor(longitude / tailleCellule);
+	}
+
+	private static long cle(int indexLatitude, int indexLongitude) {
+		return ((long) indexLatitude << 32) | (indexLongitude & 0xffffffffL);
+	}
+}
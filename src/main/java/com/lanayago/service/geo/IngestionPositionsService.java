@@ -0,0 +1,220 @@
+package com.lanayago.service.geo;
+
+import com.lanayago.exception.BusinessException;
+import com.lanayago.repository.ChauffeurRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pipeline d'ingestion des positions GPS : les pings sont fusionnés par chauffeur
+ * (la dernière position gagne) puis écrits en base par lots JDBC à intervalle régulier, un lot par transaction.
+ * Un lot en échec est remis en file, sauf pour les chauffeurs dont une position plus récente est arrivée.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IngestionPositionsService {
+
+	private static final String SQL_CHAUFFEURS =
+			"UPDATE chauffeurs SET latitude_actuelle = ?, longitude_actuelle = ? WHERE id = ?";
+
+	private static final String SQL_VEHICULES =
+			"UPDATE vehicules SET latitude_actuelle = ?, longitude_actuelle = ? " +
+					"WHERE id = (SELECT c.vehicule_actuel_id FROM chauffeurs c WHERE c.id = ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final IndexSpatialChauffeurs indexSpatialChauffeurs;
+	private final ApplicationEventPublisher eventPublisher;
+	private final MeterRegistry meterRegistry;
+	private final ChauffeurRepository chauffeurRepository;
+	private final TransactionTemplate transactionTemplate;
+
+	@Value("${geolocalisation.ingestion.capacite-file:50000}")
+	private int capaciteFile;
+
+	@Value("${geolocalisation.ingestion.taille-lot:500}")
+	private int tailleLot;
+
+	@Value("${geolocalisation.ingestion.validite-verification-ms:300000}")
+	private long validiteVerificationMs;
+
+	// Dernière position en attente par chauffeur, et ordre d'arrivée des chauffeurs à écrire
+	private final Map<Long, PositionChauffeur> positionsEnAttente = new ConcurrentHashMap<>();
+	private final Queue<Long> file = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger profondeurFile = new AtomicInteger();
+
+	// Chauffeurs actifs déjà vérifiés en base, avec l'échéance de la vérification
+	private final Map<Long, Long> chauffeursVerifies = new ConcurrentHashMap<>();
+
+	private Counter pingsRecus;
+	private Counter pingsFusionnes;
+	private Counter pingsRejetes;
+	private Counter pingsInconnus;
+	private Counter positionsEcrites;
+	private Counter lotsEnEchec;
+	private Timer dureeFlush;
+
+	@PostConstruct
+	void initialiserMetriques() {
+		pingsRecus = meterRegistry.counter("lanayago.positions.pings.recus");
+		pingsFusionnes = meterRegistry.counter("lanayago.positions.pings.fusionnes");
+		pingsRejetes = meterRegistry.counter("lanayago.positions.pings.rejetes");
+		pingsInconnus = meterRegistry.counter("lanayago.positions.pings.inconnus");
+		positionsEcrites = meterRegistry.counter("lanayago.positions.ecrites");
+		lotsEnEchec = meterRegistry.counter("lanayago.positions.lots.echecs");
+		dureeFlush = meterRegistry.timer("lanayago.positions.flush.duree");
+		Gauge.builder("lanayago.positions.file.profondeur", profondeurFile, AtomicInteger::get)
+				.register(meterRegistry);
+		Gauge.builder("lanayago.positions.ratio.fusion", this, IngestionPositionsService::ratioFusion)
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Positions encore en file à l'arrêt de l'application
+	 */
+	@PreDestroy
+	void arreter() {
+		flush();
+	}
+
+	/**
+	 * Enregistre un ping GPS ; l'écriture est différée au prochain flush. Un chauffeur inconnu ou inactif est refusé,
+	 * la vérification en base n'étant refaite qu'après validite-verification-ms.
+	 */
+	public void soumettre(Long chauffeurId, Double latitude, Double longitude) {
+		pingsRecus.increment();
+		verifierChauffeur(chauffeurId);
+
+		PositionChauffeur position = new PositionChauffeur(chauffeurId, latitude, longitude, System.currentTimeMillis());
+		if (!positionsEnAttente.containsKey(chauffeurId) && profondeurFile.get() >= capaciteFile) {
+			pingsRejetes.increment();
+			throw new BusinessException("Trop de positions en attente, veuillez réessayer");
+		}
+
+		if (positionsEnAttente.put(chauffeurId, position) == null) {
+			file.offer(chauffeurId);
+			profondeurFile.incrementAndGet();
+		} else {
+			pingsFusionnes.increment();
+		}
+
+		// L'index spatial reflète la position immédiatement, sans attendre la base ; un chauffeur absent (occupé) le reste
+		indexSpatialChauffeurs.mettreAJourSiPresent(chauffeurId, latitude, longitude);
+	}
+
+	@Scheduled(fixedDelayString = "${geolocalisation.ingestion.intervalle-flush-ms:2000}")
+	public void flush() {
+		long maintenant = System.currentTimeMillis();
+		chauffeursVerifies.values().removeIf(echeance -> echeance < maintenant);
+		if (profondeurFile.get() == 0) {
+			return;
+		}
+
+		dureeFlush.record(() -> {
+			// Les lots remis en file ne sont repris qu'au flush suivant
+			int aTraiter = profondeurFile.get();
+			List<PositionChauffeur> lot = new ArrayList<>(Math.min(aTraiter, tailleLot));
+			Long chauffeurId;
+			while (aTraiter-- > 0 && (chauffeurId = file.poll()) != null) {
+				profondeurFile.decrementAndGet();
+				PositionChauffeur position = positionsEnAttente.remove(chauffeurId);
+				if (position != null) {
+					lot.add(position);
+				}
+				if (lot.size() >= tailleLot) {
+					ecrireLot(lot);
+					lot = new ArrayList<>(tailleLot);
+				}
+			}
+			ecrireLot(lot);
+		});
+	}
+
+	public int getProfondeurFile() {
+		return profondeurFile.get();
+	}
+
+	public double ratioFusion() {
+		double recus = pingsRecus.count();
+		return recus == 0 ? 0.0 : pingsFusionnes.count() / recus;
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	private void verifierChauffeur(Long chauffeurId) {
+		Long echeance = chauffeursVerifies.get(chauffeurId);
+		if (echeance != null && echeance >= System.currentTimeMillis()) {
+			return;
+		}
+		if (!chauffeurRepository.existsByIdAndActifTrue(chauffeurId)) {
+			pingsInconnus.increment();
+			throw new BusinessException("Chauffeur non trouvé ou inactif");
+		}
+		chauffeursVerifies.put(chauffeurId, System.currentTimeMillis() + validiteVerificationMs);
+	}
+
+	private void ecrireLot(List<PositionChauffeur> lot) {
+		if (lot.isEmpty()) {
+			return;
+		}
+		try {
+			transactionTemplate.executeWithoutResult(statut -> ecrireEtPublier(lot));
+		} catch (Exception e) {
+			lotsEnEchec.increment();
+			int remises = remettreEnFile(lot);
+			log.error("Échec d'écriture de {} positions, {} remises en file", lot.size(), remises, e);
+		}
+	}
+
+	/**
+	 * Une position plus récente arrivée entre-temps pour le même chauffeur l'emporte sur celle du lot
+	 */
+	private int remettreEnFile(List<PositionChauffeur> lot) {
+		int remises = 0;
+		for (PositionChauffeur position : lot) {
+			if (positionsEnAttente.putIfAbsent(position.chauffeurId(), position) == null) {
+				file.offer(position.chauffeurId());
+				profondeurFile.incrementAndGet();
+				remises++;
+			}
+		}
+		return remises;
+	}
+
+	private void ecrireEtPublier(List<PositionChauffeur> lot) {
+		jdbcTemplate.batchUpdate(SQL_CHAUFFEURS, lot, lot.size(), (ps, position) -> {
+			ps.setDouble(1, position.latitude());
+			ps.setDouble(2, position.longitude());
+			ps.setLong(3, position.chauffeurId());
+		});
+		jdbcTemplate.batchUpdate(SQL_VEHICULES, lot, lot.size(), (ps, position) -> {
+			ps.setDouble(1, position.latitude());
+			ps.setDouble(2, position.longitude());
+			ps.setLong(3, position.chauffeurId());
+		});
+
+		positionsEcrites.increment(lot.size());
+		eventPublisher.publishEvent(new PositionsChauffeursEnregistreesEvent(List.copyOf(lot)));
+		log.debug("{} positions chauffeurs écrites en base", lot.size());
+	}
+}
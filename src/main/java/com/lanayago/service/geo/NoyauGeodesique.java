@@ -0,0 +1,99 @@
+package com.lanayago.service.geo;
+
+/**
+ * Calculs de distance sur types primitifs, sans allocation.
+ * Les termes trigonométriques d'une origine sont précalculés une fois pour toutes les destinations.
+ */
+public final class NoyauGeodesique {
+
+	public static final double RAYON_TERRE_KM = 6371.0;
+
+	/**
+	 * En deçà de cette distance, l'approximation équirectangulaire reste sous 0,1 % d'erreur
+	 * (hors latitudes supérieures à 70°)
+	 */
+	public static final double SEUIL_EQUIRECTANGULAIRE_KM = 50.0;
+
+	private static final double DEG_VERS_RAD = Math.PI / 180.0;
+	private static final double LATITUDE_MAX_EQUIRECTANGULAIRE = 70.0;
+
+	private NoyauGeodesique() {
+	}
+
+	/**
+	 * Distance de Haversine en kilomètres, non arrondie
+	 */
+	public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+		double lat1Rad = lat1 * DEG_VERS_RAD;
+		return haversineKm(lat1Rad, Math.cos(lat1Rad), lon1, lat2, lon2);
+	}
+
+	private static double haversineKm(double latitudeRad, double cosLatitude, double longitude, double lat, double lon) {
+		double latRad = lat * DEG_VERS_RAD;
+		double sinDLat = Math.sin((latRad - latitudeRad) * 0.5);
+		double sinDLon = Math.sin((lon - longitude) * DEG_VERS_RAD * 0.5);
+		double a = sinDLat * sinDLat + cosLatitude * Math.cos(latRad) * sinDLon * sinDLon;
+		return 2 * RAYON_TERRE_KM * Math.asin(Math.sqrt(Math.min(a, 1.0)));
+	}
+
+	/**
+	 * Point d'origine dont les termes trigonométriques sont précalculés
+	 */
+	public static final class Origine {
+
+		private final double latitude;
+		private final double longitude;
+		private final double latitudeRad;
+		private final double cosLatitude;
+
+		public Origine(double latitude, double longitude) {
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.latitudeRad = latitude * DEG_VERS_RAD;
+			this.cosLatitude = Math.cos(latitudeRad);
+		}
+
+		public double haversineKm(double lat, double lon) {
+			return NoyauGeodesique.haversineKm(latitudeRad, cosLatitude, longitude, lat, lon);
+		}
+
+		/**
+		 * Approximation équirectangulaire (une racine, un cosinus) ; précise uniquement sur de courtes distances
+		 */
+		public double equirectangulaireKm(double lat, double lon) {
+			double x = (lon - longitude) * DEG_VERS_RAD * Math.cos((lat + latitude) * 0.5 * DEG_VERS_RAD);
+			double y = (lat - latitude) * DEG_VERS_RAD;
+			return RAYON_TERRE_KM * Math.sqrt(x * x + y * y);
+		}
+
+		/**
+		 * Distance avec chemin rapide : équirectangulaire sous le seuil, Haversine au-delà
+		 */
+		public double distanceKm(double lat, double lon) {
+			if (Math.abs(latitude) < LATITUDE_MAX_EQUIRECTANGULAIRE) {
+				double approximation = equirectangulaireKm(lat, lon);
+				if (approximation < SEUIL_EQUIRECTANGULAIRE_KM) {
+					return approximation;
+				}
+			}
+			return haversineKm(lat, lon);
+		}
+
+		/**
+		 * Distances Haversine vers N destinations, écrites dans le tableau fourni
+		 */
+		public void haversineKm(double[] latitudes, double[] longitudes, double[] sortie) {
+			for (int i = 0; i < latitudes.length; i++) {
+				sortie[i] = haversineKm(latitudes[i], longitudes[i]);
+			}
+		}
+
+		public double getLatitude() {
+			return latitude;
+		}
+
+		public double getLongitude() {
+			return longitude;
+		}
+	}
+}
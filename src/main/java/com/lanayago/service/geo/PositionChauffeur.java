@@ -0,0 +1,7 @@
+package com.lanayago.service.geo;
+
+/**
+ * Dernière position GPS connue d'un chauffeur, telle que reçue par l'API
+ */
+public record PositionChauffeur(Long chauffeurId, double latitude, double longitude, long horodatage) {
+}
@@ -0,0 +1,9 @@
+package com.lanayago.service.geo;
+
+import java.util.List;
+
+/**
+ * Publié après l'écriture en base d'un lot de positions chauffeurs
+ */
+public record PositionsChauffeursEnregistreesEvent(List<PositionChauffeur> positions) {
+}
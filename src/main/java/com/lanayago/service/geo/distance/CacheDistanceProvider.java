@@ -0,0 +1,130 @@
+package com.lanayago.service.geo.distance;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache borné (LRU + TTL) devant un fournisseur de distance. Les coordonnées sont arrondies
+ * en cellules pour la clé, et les requêtes identiques concurrentes ne déclenchent qu'un seul appel.
+ * Une distance approximative (repli du disjoncteur) est rendue sans être mise en cache.
+ */
+public class CacheDistanceProvider implements IDistanceProvider {
+
+	private final IDistanceProvider delegue;
+	private final double facteurArrondi;
+	private final long ttlMs;
+	private final Map<Cle, Entree> cache;
+	private final Map<Cle, CompletableFuture<Double>> enVol = new ConcurrentHashMap<>();
+
+	private final Counter succes;
+	private final Counter echecs;
+
+	private record Cle(long lat1, long lon1, long lat2, long lon2) {
+	}
+
+	private record Entree(Double distance, long expiration) {
+	}
+
+	public CacheDistanceProvider(IDistanceProvider delegue,
+	                             int capacite,
+	                             long ttlMs,
+	                             int decimalesCle,
+	                             MeterRegistry meterRegistry) {
+		this.delegue = delegue;
+		this.ttlMs = ttlMs;
+		this.facteurArrondi = Math.pow(10, decimalesCle);
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Cle, Entree> eldest) {
+				return size() > capacite;
+			}
+		};
+		this.succes = meterRegistry.counter("lanayago.distance.cache", "resultat", "hit");
+		this.echecs = meterRegistry.counter("lanayago.distance.cache", "resultat", "miss");
+	}
+
+	@Override
+	public Double calculerDistance(double lat1, double lon1, double lat2, double lon2) {
+		Cle cle = new Cle(arrondir(lat1), arrondir(lon1), arrondir(lat2), arrondir(lon2));
+
+		Double enCache = lire(cle);
+		if (enCache != null) {
+			succes.increment();
+			return enCache;
+		}
+		echecs.increment();
+
+		CompletableFuture<Double> appel = new CompletableFuture<>();
+		CompletableFuture<Double> existant = enVol.putIfAbsent(cle, appel);
+		if (existant != null) {
+			// Une requête identique est déjà en cours : on attend son résultat
+			try {
+				return existant.join();
+			} catch (CompletionException e) {
+				throw e.getCause() instanceof RuntimeException re ? re : e;
+			}
+		}
+
+		try {
+			Mesure mesure = delegue.mesurer(lat1, lon1, lat2, lon2);
+			Double distance = mesure.distance();
+			if (distance != null && !mesure.approximative()) {
+				ecrire(cle, distance);
+			}
+			appel.complete(distance);
+			return distance;
+		} catch (RuntimeException e) {
+			appel.completeExceptionally(e);
+			throw e;
+		} finally {
+			enVol.remove(cle, appel);
+		}
+	}
+
+	@Override
+	public double[] calculerDistances(double latOrigine, double lonOrigine, double[] latitudes, double[] longitudes) {
+		// Les lots (candidats d'une recherche) changent à chaque appel : pas de mise en cache
+		return delegue.calculerDistances(latOrigine, lonOrigine, latitudes, longitudes);
+	}
+
+	@Override
+	public String getNom() {
+		return delegue.getNom();
+	}
+
+	public int taille() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	private Double lire(Cle cle) {
+		synchronized (cache) {
+			Entree entree = cache.get(cle);
+			if (entree == null) {
+				return null;
+			}
+			if (entree.expiration() < System.currentTimeMillis()) {
+				cache.remove(cle);
+				return null;
+			}
+			return entree.distance();
+		}
+	}
+
+	private void ecrire(Cle cle, Double distance) {
+		synchronized (cache) {
+			cache.put(cle, new Entree(distance, System.currentTimeMillis() + ttlMs));
+		}
+	}
+
+	private long arrondir(double coordonnee) {
+		return Math.round(coordonnee * facteurArrondi);
+	}
+}
@@ -0,0 +1,142 @@
+package com.lanayago.service.geo.distance;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Disjoncteur autour d'un fournisseur distant : après plusieurs échecs ou réponses lentes
+ * consécutifs, les appels basculent directement sur le fournisseur de repli pendant une durée donnée.
+ * Un essai demi-ouvert en échec rouvre aussitôt le disjoncteur. Les réponses du repli sont marquées
+ * approximatives (mesurer) pour ne pas être mises en cache comme distances routières.
+ */
+@Slf4j
+public class DisjoncteurDistanceProvider implements IDistanceProvider {
+
+	private final IDistanceProvider distant;
+	private final IDistanceProvider repli;
+	private final int seuilEchecs;
+	private final long seuilLenteurMs;
+	private final long dureeOuvertureMs;
+	private final Timer dureeAppels;
+
+	private final AtomicInteger echecsConsecutifs = new AtomicInteger();
+	private final AtomicLong ouvertJusqua = new AtomicLong();
+	private final AtomicBoolean essaiEnCours = new AtomicBoolean();
+
+	public DisjoncteurDistanceProvider(IDistanceProvider distant,
+	                                   IDistanceProvider repli,
+	                                   int seuilEchecs,
+	                                   long seuilLenteurMs,
+	                                   long dureeOuvertureMs,
+	                                   MeterRegistry meterRegistry) {
+		this.distant = distant;
+		this.repli = repli;
+		this.seuilEchecs = seuilEchecs;
+		this.seuilLenteurMs = seuilLenteurMs;
+		this.dureeOuvertureMs = dureeOuvertureMs;
+		this.dureeAppels = meterRegistry.timer("lanayago.distance.distant.duree", "fournisseur", distant.getNom());
+		Gauge.builder("lanayago.distance.disjoncteur.ouvert", this, d -> d.estOuvert() ? 1 : 0)
+				.tag("fournisseur", distant.getNom())
+				.register(meterRegistry);
+	}
+
+	private record Reponse<T>(T valeur, boolean repli) {
+	}
+
+	@Override
+	public Double calculerDistance(double lat1, double lon1, double lat2, double lon2) {
+		return mesurer(lat1, lon1, lat2, lon2).distance();
+	}
+
+	@Override
+	public Mesure mesurer(double lat1, double lon1, double lat2, double lon2) {
+		Reponse<Double> reponse = executer(
+				() -> distant.calculerDistance(lat1, lon1, lat2, lon2),
+				() -> repli.calculerDistance(lat1, lon1, lat2, lon2),
+				Objects::nonNull);
+		return new Mesure(reponse.valeur(), reponse.repli());
+	}
+
+	@Override
+	public double[] calculerDistances(double latOrigine, double lonOrigine, double[] latitudes, double[] longitudes) {
+		double[] distances = executer(
+				() -> distant.calculerDistances(latOrigine, lonOrigine, latitudes, longitudes),
+				() -> repli.calculerDistances(latOrigine, lonOrigine, latitudes, longitudes),
+				resultat -> resultat != null && Arrays.stream(resultat).noneMatch(Double::isNaN)).valeur();
+
+		// Complète individuellement les destinations que le fournisseur distant n'a pas su résoudre
+		for (int i = 0; i < distances.length; i++) {
+			if (Double.isNaN(distances[i])) {
+				distances[i] = repli.calculerDistance(latOrigine, lonOrigine, latitudes[i], longitudes[i]);
+			}
+		}
+		return distances;
+	}
+
+	@Override
+	public String getNom() {
+		return distant.getNom();
+	}
+
+	public boolean estOuvert() {
+		return System.currentTimeMillis() < ouvertJusqua.get();
+	}
+
+	private <T> Reponse<T> executer(Supplier<T> appelDistant, Supplier<T> appelRepli, Predicate<T> valide) {
+		boolean essai = false;
+		if (estOuvert()) {
+			return new Reponse<>(appelRepli.get(), true);
+		}
+		if (ouvertJusqua.get() != 0) {
+			// Demi-ouvert : un seul appel d'essai à la fois vers le fournisseur distant
+			if (!essaiEnCours.compareAndSet(false, true)) {
+				return new Reponse<>(appelRepli.get(), true);
+			}
+			essai = true;
+		}
+
+		long debut = System.nanoTime();
+		try {
+			T resultat = appelDistant.get();
+			long dureeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - debut);
+			dureeAppels.record(dureeMs, TimeUnit.MILLISECONDS);
+
+			if (!valide.test(resultat) || dureeMs > seuilLenteurMs) {
+				enregistrerEchec(essai);
+			} else {
+				echecsConsecutifs.set(0);
+				ouvertJusqua.set(0);
+			}
+			return resultat != null ? new Reponse<>(resultat, false) : new Reponse<>(appelRepli.get(), true);
+		} catch (Exception e) {
+			dureeAppels.record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+			log.warn("Échec du fournisseur de distance {}: {}", distant.getNom(), e.getMessage());
+			enregistrerEchec(essai);
+			return new Reponse<>(appelRepli.get(), true);
+		} finally {
+			if (essai) {
+				essaiEnCours.set(false);
+			}
+		}
+	}
+
+	private void enregistrerEchec(boolean essai) {
+		// Essai demi-ouvert en échec : le fournisseur n'est pas rétabli, réouverture sans recompter le seuil
+		if (essai || echecsConsecutifs.incrementAndGet() >= seuilEchecs) {
+			ouvertJusqua.set(System.currentTimeMillis() + dureeOuvertureMs);
+			echecsConsecutifs.set(0);
+			log.warn("Disjoncteur ouvert pour {} pendant {} ms", distant.getNom(), dureeOuvertureMs);
+		}
+	}
+}
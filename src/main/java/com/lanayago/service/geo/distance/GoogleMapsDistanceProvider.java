@@ -0,0 +1,122 @@
+package com.lanayago.service.geo.distance;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Distance routière via l'API Distance Matrix de Google Maps, avec délais de connexion et de lecture stricts
+ */
+@Component
+@Slf4j
+public class GoogleMapsDistanceProvider implements IDistanceProvider {
+
+	private static final int DESTINATIONS_PAR_REQUETE = 25;
+
+	private final RestTemplate restTemplate;
+	private final String baseUrl;
+	private final String apiKey;
+
+	public GoogleMapsDistanceProvider(@Value("${google.maps.distance-matrix-url:https://maps.googleapis.com/maps/api/distancematrix/json}") String baseUrl,
+	                                  @Value("${google.maps.api-key:}") String apiKey,
+	                                  @Value("${google.maps.connect-timeout-ms:500}") int connectTimeoutMs,
+	                                  @Value("${google.maps.read-timeout-ms:1500}") int readTimeoutMs) {
+		SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+		requestFactory.setConnectTimeout(connectTimeoutMs);
+		requestFactory.setReadTimeout(readTimeoutMs);
+
+		this.restTemplate = new RestTemplate(requestFactory);
+		this.baseUrl = baseUrl;
+		this.apiKey = apiKey;
+	}
+
+	@Override
+	public Double calculerDistance(double lat1, double lon1, double lat2, double lon2) {
+		double[] distances = calculerDistances(lat1, lon1, new double[]{lat2}, new double[]{lon2});
+		return distances == null || Double.isNaN(distances[0]) ? null : distances[0];
+	}
+
+	/**
+	 * Une requête Distance Matrix par tranche de 25 destinations (limite de l'API)
+	 */
+	@Override
+	public double[] calculerDistances(double latOrigine, double lonOrigine, double[] latitudes, double[] longitudes) {
+		if (apiKey == null || apiKey.isBlank()) {
+			return null;
+		}
+
+		double[] distances = new double[latitudes.length];
+		for (int debut = 0; debut < latitudes.length; debut += DESTINATIONS_PAR_REQUETE) {
+			int fin = Math.min(debut + DESTINATIONS_PAR_REQUETE, latitudes.length);
+
+			StringJoiner destinations = new StringJoiner("|");
+			for (int i = debut; i < fin; i++) {
+				destinations.add(coordonnees(latitudes[i], longitudes[i]));
+			}
+
+			double[] tranche = appeler(coordonnees(latOrigine, lonOrigine), destinations.toString(), fin - debut);
+			if (tranche == null) {
+				return null;
+			}
+			System.arraycopy(tranche, 0, distances, debut, tranche.length);
+		}
+		return distances;
+	}
+
+	@Override
+	public String getNom() {
+		return "google-maps";
+	}
+
+	@SuppressWarnings("rawtypes")
+	private double[] appeler(String origine, String destinations, int nombreDestinations) {
+		URI uri = UriComponentsBuilder.fromUriString(baseUrl)
+				.queryParam("origins", origine)
+				.queryParam("destinations", destinations)
+				.queryParam("key", apiKey)
+				.queryParam("units", "metric")
+				.build()
+				.encode()
+				.toUri();
+
+		Map response = restTemplate.getForObject(uri, Map.class);
+		if (response == null || !"OK".equals(response.get("status"))) {
+			log.warn("Réponse Google Maps invalide: {}", response != null ? response.get("status") : null);
+			return null;
+		}
+
+		List rows = (List) response.get("rows");
+		if (rows == null || rows.isEmpty()) {
+			return null;
+		}
+		List elements = (List) ((Map) rows.get(0)).get("elements");
+		if (elements == null || elements.size() != nombreDestinations) {
+			return null;
+		}
+
+		double[] distances = new double[nombreDestinations];
+		for (int i = 0; i < nombreDestinations; i++) {
+			Map element = (Map) elements.get(i);
+			if ("OK".equals(element.get("status"))) {
+				Map distance = (Map) element.get("distance");
+				distances[i] = ((Number) distance.get("value")).doubleValue() / 1000.0; // Convertir en km
+			} else {
+				distances[i] = Double.NaN;
+			}
+		}
+		return distances;
+	}
+
+	private static String coordonnees(double latitude, double longitude) {
+		return String.format(Locale.ROOT, "%.6f,%.6f", latitude, longitude);
+	}
+}
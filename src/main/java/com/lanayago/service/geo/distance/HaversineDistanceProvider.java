@@ -0,0 +1,36 @@
+package com.lanayago.service.geo.distance;
+
+import com.lanayago.service.geo.NoyauGeodesique;
+import org.springframework.stereotype.Component;
+
+/**
+ * Distance à vol d'oiseau (formule de Haversine), toujours disponible
+ */
+@Component
+public class HaversineDistanceProvider implements IDistanceProvider {
+
+	@Override
+	public Double calculerDistance(double lat1, double lon1, double lat2, double lon2) {
+		return arrondir(NoyauGeodesique.haversineKm(lat1, lon1, lat2, lon2));
+	}
+
+	@Override
+	public double[] calculerDistances(double latOrigine, double lonOrigine, double[] latitudes, double[] longitudes) {
+		// Les termes trigonométriques de l'origine sont calculés une seule fois pour tout le lot
+		double[] distances = new double[latitudes.length];
+		new NoyauGeodesique.Origine(latOrigine, lonOrigine).haversineKm(latitudes, longitudes, distances);
+		for (int i = 0; i < distances.length; i++) {
+			distances[i] = arrondir(distances[i]);
+		}
+		return distances;
+	}
+
+	@Override
+	public String getNom() {
+		return "haversine";
+	}
+
+	private static double arrondir(double distanceKm) {
+		return Math.round(distanceKm * 100.0) / 100.0;
+	}
+}
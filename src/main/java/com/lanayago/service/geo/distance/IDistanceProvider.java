@@ -0,0 +1,40 @@
+package com.lanayago.service.geo.distance;
+
+/**
+ * Fournisseur de distance routière ou géodésique entre deux points
+ */
+public interface IDistanceProvider {
+
+	/**
+	 * Distance accompagnée de son origine : approximative quand un repli a répondu à la place du fournisseur
+	 */
+	record Mesure(Double distance, boolean approximative) {
+	}
+
+	/**
+	 * Distance en kilomètres, ou null si le fournisseur n'a pas pu la déterminer
+	 */
+	Double calculerDistance(double lat1, double lon1, double lat2, double lon2);
+
+	default Mesure mesurer(double lat1, double lon1, double lat2, double lon2) {
+		return new Mesure(calculerDistance(lat1, lon1, lat2, lon2), false);
+	}
+
+	/**
+	 * Distances en kilomètres d'une origine vers N destinations, en un seul appel si le fournisseur le permet.
+	 * Une entrée vaut NaN si la distance n'a pas pu être déterminée.
+	 */
+	default double[] calculerDistances(double latOrigine, double lonOrigine, double[] latitudes, double[] longitudes) {
+		double[] distances = new double[latitudes.length];
+		for (int i = 0; i < latitudes.length; i++) {
+			Double distance = calculerDistance(latOrigine, lonOrigine, latitudes[i], longitudes[i]);
+			distances[i] = distance != null ? distance : Double.NaN;
+		}
+		return distances;
+	}
+
+	/**
+	 * Nom du fournisseur (pour les logs et métriques)
+	 */
+	String getNom();
+}
@@ -0,0 +1,293 @@
+package com.lanayago.service.groupage;
+
+import com.lanayago.dto.TourneeDTO;
+import com.lanayago.entity.ArretTournee;
+import com.lanayago.entity.Commande;
+import com.lanayago.entity.Tournee;
+import com.lanayago.enums.StatutCommande;
+import com.lanayago.enums.TypeArret;
+import com.lanayago.repository.CommandeRepository;
+import com.lanayago.repository.TourneeRepository;
+import com.lanayago.service.geo.NoyauGeodesique;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Groupage des commandes en répartition : les commandes compatibles (même couloir, fenêtres horaires
+ * conciliables, charge cumulée dans la capacité) sont proposées ensemble à un chauffeur sous forme de
+ * tournée à plusieurs arrêts. Accepter une commande d'une tournée engage le chauffeur sur toute la tournée.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GroupageCommandes {
+
+	private final TourneeRepository tourneeRepository;
+	private final CommandeRepository commandeRepository;
+	private final MeterRegistry meterRegistry;
+
+	@Value("${commande.groupage.active:false}")
+	private boolean active;
+
+	@Value("${commande.groupage.capacite-poids-tonnes:3.5}")
+	private double capacitePoidsTonnes;
+
+	@Value("${commande.groupage.capacite-volume:15}")
+	private double capaciteVolume;
+
+	@Value("${commande.groupage.duree-arret-secondes:600}")
+	private long dureeArretSecondes;
+
+	@Value("${commande.groupage.facteur-detour:1.4}")
+	private double facteurDetour;
+
+	@Value("${commande.groupage.rayon-km:3}")
+	private double rayonKm;
+
+	@Value("${commande.groupage.commandes-maximum:6}")
+	private int commandesMaximum;
+
+	@Value("${commande.groupage.budget-ms:1000}")
+	private long budgetMs;
+
+	@Value("${geolocalisation.vitesse-moyenne-kmh:40}")
+	private double vitesseMoyenneKmh;
+
+	private PlanificateurTournees.Contraintes contraintes;
+	private Counter commandesRegroupees;
+	private Timer dureePlanification;
+
+	/**
+	 * Commandes à proposer ensemble, dans l'ordre de leur ramassage ; itinéraire null pour une commande seule
+	 */
+	public record Groupe(List<Commande> commandes, PlanificateurTournees.Itineraire itineraire) {
+
+		public boolean estTournee() {
+			return commandes.size() > 1;
+		}
+	}
+
+	@PostConstruct
+	void initialiser() {
+		contraintes = new PlanificateurTournees.Contraintes(capacitePoidsTonnes, capaciteVolume, vitesseMoyenneKmh,
+				dureeArretSecondes, facteurDetour, rayonKm, commandesMaximum);
+		commandesRegroupees = meterRegistry.counter("lanayago.groupage.commandes-regroupees");
+		dureePlanification = meterRegistry.timer("lanayago.groupage.duree");
+	}
+
+	/**
+	 * Regroupe les commandes en tournées ; sans groupage actif, chaque commande forme son propre groupe
+	 */
+	public List<Groupe> grouper(List<Commande> commandes) {
+		if (!active || commandes.size() < 2) {
+			return commandes.stream().map(commande -> new Groupe(List.of(commande), null)).toList();
+		}
+
+		long debut = System.nanoTime();
+		Map<Long, Commande> parId = commandes.stream().collect(Collectors.toMap(Commande::getId, Function.identity()));
+		List<PlanificateurTournees.Itineraire> itineraires = PlanificateurTournees.planifier(
+				commandes.stream().map(GroupageCommandes::envoi).toList(), contraintes,
+				Instant.now().getEpochSecond(), budgetMs);
+		dureePlanification.record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+
+		List<Groupe> groupes = new ArrayList<>(itineraires.size());
+		for (PlanificateurTournees.Itineraire itineraire : itineraires) {
+			List<Commande> groupe = itineraire.envois().stream().map(envoi -> parId.get(envoi.commandeId())).toList();
+			groupes.add(new Groupe(groupe, groupe.size() > 1 ? itineraire : null));
+		}
+		log.debug("Groupage: {} commandes en {} groupes", commandes.size(), groupes.size());
+		return groupes;
+	}
+
+	/**
+	 * Enregistre la tournée d'un groupe dans la transaction appelante, réduite aux commandes effectivement
+	 * proposées au chauffeur (entités gérées, relues après la proposition) ; rien s'il en reste moins de deux
+	 */
+	public void enregistrer(Groupe groupe, Map<Long, Commande> proposees) {
+		List<Commande> retenues = groupe.commandes().stream()
+				.map(commande -> proposees.get(commande.getId()))
+				.filter(commande -> commande != null)
+				.toList();
+		if (retenues.size() < 2) {
+			return;
+		}
+		Map<Long, Commande> parId = retenues.stream().collect(Collectors.toMap(Commande::getId, Function.identity()));
+		PlanificateurTournees.Itineraire itineraire = groupe.itineraire().restreint(parId.keySet());
+
+		Tournee tournee = new Tournee();
+		tournee.setChauffeurId(retenues.get(0).getChauffeur().getId());
+		tournee.setVehiculeId(retenues.get(0).getVehicule().getId());
+		tournee.setDistanceKm(itineraire.distanceKm());
+		tournee.setChargeMaximalePoids(itineraire.chargeMaximalePoids());
+		int ordre = 0;
+		for (PlanificateurTournees.Arret etape : itineraire.arrets()) {
+			Commande commande = parId.get(etape.envoi().commandeId());
+			ArretTournee arret = new ArretTournee();
+			arret.setTournee(tournee);
+			arret.setOrdre(ordre++);
+			arret.setCommandeId(commande.getId());
+			arret.setType(etape.type());
+			arret.setLatitude(etape.latitude());
+			arret.setLongitude(etape.longitude());
+			arret.setAdresse(etape.type() == TypeArret.RAMASSAGE ? commande.getAdresseDepart() : commande.getAdresseArrivee());
+			arret.setHeureEstimee(LocalDateTime.ofInstant(Instant.ofEpochSecond(etape.heureEstimee()), ZoneId.systemDefault()));
+			tournee.getArrets().add(arret);
+		}
+		tourneeRepository.save(tournee);
+		retenues.forEach(commande -> commande.setTourneeId(tournee.getId()));
+		commandesRegroupees.increment(retenues.size());
+	}
+
+	/**
+	 * Le chauffeur accepte une commande de tournée : les autres commandes de la tournée qui lui sont encore
+	 * proposées passent aussi à ACCEPTEE, dans la transaction appelante. Renvoie ces autres commandes.
+	 */
+	public List<Commande> accepterTournee(Commande commande, Long chauffeurId) {
+		if (commande.getTourneeId() == null) {
+			return List.of();
+		}
+		List<Commande> acceptees = new ArrayList<>();
+		for (Commande autre : commandeRepository.findByTourneeId(commande.getTourneeId())) {
+			if (autre.getId().equals(commande.getId())) {
+				continue;
+			}
+			if (commandeRepository.changerStatutSiChauffeur(
+					autre.getId(), chauffeurId, StatutCommande.EN_ATTENTE, StatutCommande.ACCEPTEE) == 1) {
+				autre.setStatut(StatutCommande.ACCEPTEE);
+				acceptees.add(autre);
+			}
+		}
+		return acceptees;
+	}
+
+	/**
+	 * Vrai si une autre commande de la tournée de cette commande est en cours : le chauffeur et le véhicule
+	 * restent alors engagés
+	 */
+	public boolean autreCommandeActive(Commande commande) {
+		return commande.getTourneeId() != null && commandeRepository.existsByTourneeIdAndIdNotAndStatutIn(
+				commande.getTourneeId(), commande.getId(), StatutCommande.STATUTS_ACTIFS);
+	}
+
+	/**
+	 * Vrai si une autre commande de la tournée de cette commande a déjà démarré
+	 */
+	public boolean tourneeDemarree(Commande commande) {
+		return commande.getTourneeId() != null
+				&& commandeRepository.existsByTourneeIdAndIdNotAndStatutInAndDateRamassageEffectiveIsNotNull(
+				commande.getTourneeId(), commande.getId(), StatutCommande.STATUTS_ACTIFS);
+	}
+
+	/**
+	 * Sort une commande (entité gérée) de sa tournée, qui est dissoute s'il n'y reste qu'une commande
+	 */
+	public void retirer(Commande commande) {
+		Long tourneeId = commande.getTourneeId();
+		if (tourneeId == null) {
+			return;
+		}
+		commande.setTourneeId(null);
+		tourneeRepository.findById(tourneeId).ifPresent(tournee -> {
+			tournee.getArrets().removeIf(arret -> arret.getCommandeId().equals(commande.getId()));
+			if (tournee.getArrets().stream().map(ArretTournee::getCommandeId).distinct().count() < 2) {
+				commandeRepository.detacherTournee(tourneeId);
+				tourneeRepository.delete(tournee);
+				return;
+			}
+			// Heures estimées conservées : le chauffeur n'arrive pas plus tard sans ce détour
+			double distance = 0.0;
+			for (int k = 0; k < tournee.getArrets().size(); k++) {
+				ArretTournee arret = tournee.getArrets().get(k);
+				arret.setOrdre(k);
+				if (k > 0) {
+					ArretTournee precedent = tournee.getArrets().get(k - 1);
+					distance += NoyauGeodesique.haversineKm(precedent.getLatitude(), precedent.getLongitude(),
+							arret.getLatitude(), arret.getLongitude());
+				}
+			}
+			tournee.setDistanceKm(distance);
+		});
+	}
+
+	/**
+	 * Tournées en cours ou proposées au chauffeur, arrêts dans l'ordre de passage
+	 */
+	@Transactional(readOnly = true)
+	public List<TourneeDTO.Response> tourneesDuChauffeur(Long chauffeurId) {
+		List<StatutCommande> statuts = new ArrayList<>(StatutCommande.STATUTS_ACTIFS);
+		statuts.add(StatutCommande.EN_ATTENTE);
+		List<Tournee> tournees = tourneeRepository.findEnCoursByChauffeurId(chauffeurId, statuts);
+
+		Set<Long> commandeIds = tournees.stream()
+				.flatMap(tournee -> tournee.getArrets().stream())
+				.map(ArretTournee::getCommandeId)
+				.collect(Collectors.toSet());
+		Map<Long, Commande> commandes = new HashMap<>();
+		commandeRepository.findAllById(commandeIds).forEach(commande -> commandes.put(commande.getId(), commande));
+
+		return tournees.stream().map(tournee -> mapToResponse(tournee, commandes)).toList();
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	private static PlanificateurTournees.Envoi envoi(Commande commande) {
+		return new PlanificateurTournees.Envoi(
+				commande.getId(),
+				commande.getLatitudeDepart(),
+				commande.getLongitudeDepart(),
+				commande.getLatitudeArrivee(),
+				commande.getLongitudeArrivee(),
+				commande.getPoidsMarchandise().doubleValue() / 1000.0,
+				commande.getVolumeMarchandise() != null ? commande.getVolumeMarchandise().doubleValue() : Double.NaN,
+				commande.getDateRamassageSouhaitee() != null ? secondes(commande.getDateRamassageSouhaitee()) : 0L,
+				commande.getDateLivraisonSouhaitee() != null ? secondes(commande.getDateLivraisonSouhaitee()) : Long.MAX_VALUE);
+	}
+
+	private static long secondes(LocalDateTime date) {
+		return date.atZone(ZoneId.systemDefault()).toEpochSecond();
+	}
+
+	private static TourneeDTO.Response mapToResponse(Tournee tournee, Map<Long, Commande> commandes) {
+		TourneeDTO.Response response = new TourneeDTO.Response();
+		response.setId(tournee.getId());
+		response.setDistanceKm(tournee.getDistanceKm());
+		response.setChargeMaximalePoids(tournee.getChargeMaximalePoids());
+		response.setDateCreation(tournee.getDateCreation());
+		for (ArretTournee arret : tournee.getArrets()) {
+			TourneeDTO.Arret dto = new TourneeDTO.Arret();
+			dto.setOrdre(arret.getOrdre());
+			dto.setType(arret.getType());
+			dto.setCommandeId(arret.getCommandeId());
+			Commande commande = commandes.get(arret.getCommandeId());
+			if (commande != null) {
+				dto.setNumeroCommande(commande.getNumeroCommande());
+				dto.setStatutCommande(commande.getStatut());
+			}
+			dto.setLatitude(arret.getLatitude());
+			dto.setLongitude(arret.getLongitude());
+			dto.setAdresse(arret.getAdresse());
+			dto.setHeureEstimee(arret.getHeureEstimee());
+			response.getArrets().add(dto);
+		}
+		return response;
+	}
+}
@@ -0,0 +1,480 @@
+package com.lanayago.service.groupage;
+
+import com.lanayago.enums.TypeArret;
+import com.lanayago.service.geo.NoyauGeodesique;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regroupement d'envois en tournées à plusieurs arrêts (ramassage puis livraison de chaque envoi) :
+ * fusions par économies décroissantes (Clarke et Wright, les arrêts d'une tournée étant insérés au mieux
+ * dans l'autre), puis recherche locale par déplacement d'envois, le tout dans un budget de temps.
+ * Une tournée respecte la capacité du véhicule à chaque arrêt, les fenêtres horaires des envois
+ * et un détour maximal par envoi, qui limite les regroupements aux trajets de même couloir.
+ * Arrêts codés en entiers : 2i pour le ramassage de l'envoi i, 2i + 1 pour sa livraison.
+ */
+public final class PlanificateurTournees {
+
+	public static final double INFAISABLE = -1.0;
+
+	// Tolérance absolue de détour, pour les envois très courts
+	private static final double DETOUR_MINIMAL_KM = 1.0;
+	private static final double GAIN_MINIMAL_KM = 1e-6;
+	private static final int VOISINS_MAXIMUM = 12;
+	private static final int VERIFICATION_BUDGET = 64;
+	private static final double KM_PAR_DEGRE = 111.32;
+
+	/**
+	 * Limites d'une tournée ; capacité en volume NaN : non contrôlée
+	 */
+	public record Contraintes(double capacitePoidsTonnes, double capaciteVolume, double vitesseMoyenneKmh,
+	                          long dureeArretSecondes, double facteurDetour, double rayonRegroupementKm,
+	                          int envoisMaximum) {
+	}
+
+	/**
+	 * Envoi à placer ; horaires en secondes depuis l'époque (Long.MAX_VALUE : livraison sans échéance)
+	 */
+	public record Envoi(Long commandeId, double latitudeRamassage, double longitudeRamassage,
+	                    double latitudeLivraison, double longitudeLivraison, double poidsTonnes, double volume,
+	                    long ramassageAuPlusTot, long livraisonAuPlusTard) {
+	}
+
+	public record Arret(Envoi envoi, TypeArret type, long heureEstimee) {
+
+		public double latitude() {
+			return type == TypeArret.RAMASSAGE ? envoi.latitudeRamassage() : envoi.latitudeLivraison();
+		}
+
+		public double longitude() {
+			return type == TypeArret.RAMASSAGE ? envoi.longitudeRamassage() : envoi.longitudeLivraison();
+		}
+	}
+
+	public record Itineraire(List<Arret> arrets, double distanceKm, double chargeMaximalePoids, double chargeMaximaleVolume) {
+
+		/**
+		 * Envois dans l'ordre de leur ramassage
+		 */
+		public List<Envoi> envois() {
+			return arrets.stream().filter(arret -> arret.type() == TypeArret.RAMASSAGE).map(Arret::envoi).toList();
+		}
+
+		/**
+		 * Itinéraire réduit aux envois donnés, dans le même ordre ; les heures estimées restent celles du plan complet
+		 */
+		public Itineraire restreint(Collection<Long> commandeIds) {
+			List<Arret> retenus = arrets.stream().filter(arret -> commandeIds.contains(arret.envoi().commandeId())).toList();
+			if (retenus.size() == arrets.size()) {
+				return this;
+			}
+			double distance = 0.0;
+			double poids = 0.0;
+			double volume = 0.0;
+			double poidsMaximal = 0.0;
+			double volumeMaximal = 0.0;
+			for (int k = 0; k < retenus.size(); k++) {
+				Arret arret = retenus.get(k);
+				if (k > 0) {
+					Arret precedent = retenus.get(k - 1);
+					distance += NoyauGeodesique.haversineKm(
+							precedent.latitude(), precedent.longitude(), arret.latitude(), arret.longitude());
+				}
+				double signe = arret.type() == TypeArret.RAMASSAGE ? 1.0 : -1.0;
+				poids += signe * arret.envoi().poidsTonnes();
+				volume += signe * (Double.isNaN(arret.envoi().volume()) ? 0.0 : arret.envoi().volume());
+				poidsMaximal = Math.max(poidsMaximal, poids);
+				volumeMaximal = Math.max(volumeMaximal, volume);
+			}
+			return new Itineraire(retenus, distance, poidsMaximal, volumeMaximal);
+		}
+	}
+
+	private final List<Envoi> envois;
+	private final Contraintes contraintes;
+	private final long debut;
+	private final long echeanceNanos;
+
+	private final double[] latitudes;
+	private final double[] longitudes;
+	private final double[] distancesDirectes;
+	private final double secondesParKm;
+
+	// Tournée de chaque envoi, arrêts et longueur de chaque tournée (null : fusionnée dans une autre)
+	private final int[] tourneeDe;
+	private final int[][] tournees;
+	private final double[] longueurs;
+
+	private int verifications;
+	private boolean budgetEpuise;
+
+	private PlanificateurTournees(List<Envoi> envois, Contraintes contraintes, long debut, long echeanceNanos) {
+		this.envois = envois;
+		this.contraintes = contraintes;
+		this.debut = debut;
+		this.echeanceNanos = echeanceNanos;
+		this.secondesParKm = 3600.0 / contraintes.vitesseMoyenneKmh();
+
+		int n = envois.size();
+		latitudes = new double[2 * n];
+		longitudes = new double[2 * n];
+		distancesDirectes = new double[n];
+		tourneeDe = new int[n];
+		tournees = new int[n][];
+		longueurs = new double[n];
+		for (int i = 0; i < n; i++) {
+			Envoi envoi = envois.get(i);
+			latitudes[2 * i] = envoi.latitudeRamassage();
+			longitudes[2 * i] = envoi.longitudeRamassage();
+			latitudes[2 * i + 1] = envoi.latitudeLivraison();
+			longitudes[2 * i + 1] = envoi.longitudeLivraison();
+			distancesDirectes[i] = distance(2 * i, 2 * i + 1);
+
+			tourneeDe[i] = i;
+			tournees[i] = new int[]{2 * i, 2 * i + 1};
+			longueurs[i] = distancesDirectes[i];
+		}
+	}
+
+	/**
+	 * Tournées couvrant tous les envois ; un envoi qui ne se regroupe avec aucun autre forme sa propre tournée.
+	 * Le budget écoulé, la meilleure solution trouvée jusque-là est renvoyée.
+	 *
+	 * @param debut heure de départ des tournées, en secondes depuis l'époque
+	 */
+	public static List<Itineraire> planifier(List<Envoi> envois, Contraintes contraintes, long debut, long budgetMs) {
+		PlanificateurTournees planificateur = new PlanificateurTournees(
+				envois, contraintes, debut, System.nanoTime() + budgetMs * 1_000_000L);
+		int[][] voisins = planificateur.voisins();
+		planificateur.fusionnerParEconomies(voisins);
+		planificateur.deplacerEnvois(voisins);
+		return planificateur.itineraires();
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	/**
+	 * Pour chaque envoi, les envois dont le ramassage est le plus proche dans le rayon de regroupement
+	 * (grille de cellules de la taille du rayon)
+	 */
+	private int[][] voisins() {
+		double rayon = contraintes.rayonRegroupementKm();
+		double tailleLatitude = rayon / KM_PAR_DEGRE;
+		// Cellules assez larges en longitude à la latitude la plus éloignée de l'équateur
+		double latitudeMaximale = 0.0;
+		for (int i = 0; i < envois.size(); i++) {
+			latitudeMaximale = Math.max(latitudeMaximale, Math.abs(latitudes[2 * i]));
+		}
+		double tailleLongitude = tailleLatitude / Math.max(Math.cos(Math.toRadians(latitudeMaximale)), 0.01);
+
+		Map<Long, List<Integer>> cellules = new HashMap<>();
+		for (int i = 0; i < envois.size(); i++) {
+			cellules.computeIfAbsent(cellule(latitudes[2 * i], longitudes[2 * i], tailleLatitude, tailleLongitude, 0, 0),
+					c -> new ArrayList<>()).add(i);
+		}
+
+		int[][] voisins = new int[envois.size()][];
+		for (int i = 0; i < envois.size(); i++) {
+			List<double[]> proches = new ArrayList<>();
+			NoyauGeodesique.Origine origine = new NoyauGeodesique.Origine(latitudes[2 * i], longitudes[2 * i]);
+			for (int di = -1; di <= 1; di++) {
+				for (int dj = -1; dj <= 1; dj++) {
+					for (int j : cellules.getOrDefault(
+							cellule(latitudes[2 * i], longitudes[2 * i], tailleLatitude, tailleLongitude, di, dj), List.of())) {
+						if (j == i) {
+							continue;
+						}
+						double d = origine.distanceKm(latitudes[2 * j], longitudes[2 * j]);
+						if (d <= rayon) {
+							proches.add(new double[]{d, j});
+						}
+					}
+				}
+			}
+			proches.sort((a, b) -> Double.compare(a[0], b[0]));
+			voisins[i] = proches.stream().limit(VOISINS_MAXIMUM).mapToInt(p -> (int) p[1]).toArray();
+		}
+		return voisins;
+	}
+
+	private static long cellule(double latitude, double longitude, double tailleLatitude, double tailleLongitude,
+	                            int decalageLat, int decalageLon) {
+		long i = (long) Math.floor(latitude / tailleLatitude) + decalageLat;
+		long j = (long) Math.floor(longitude / tailleLongitude) + decalageLon;
+		return (i << 32) ^ (j & 0xffffffffL);
+	}
+
+	private void fusionnerParEconomies(int[][] voisins) {
+		List<double[]> economies = new ArrayList<>();
+		for (int i = 0; i < envois.size() && !budgetEpuise(); i++) {
+			for (int j : voisins[i]) {
+				if (j < i) {
+					continue;
+				}
+				int[] fusion = fusion(tournees[i], tournees[j]);
+				if (fusion != null) {
+					double economie = longueurs[i] + longueurs[j] - evaluer(fusion);
+					if (economie > GAIN_MINIMAL_KM) {
+						economies.add(new double[]{economie, i, j});
+					}
+				}
+			}
+		}
+		economies.sort((a, b) -> Double.compare(b[0], a[0]));
+
+		for (double[] economie : economies) {
+			if (budgetEpuise()) {
+				return;
+			}
+			int a = tourneeDe[(int) economie[1]];
+			int b = tourneeDe[(int) economie[2]];
+			if (a == b || (tournees[a].length + tournees[b].length) / 2 > contraintes.envoisMaximum()) {
+				continue;
+			}
+			int[] fusion = fusion(tournees[a], tournees[b]);
+			if (fusion == null) {
+				continue;
+			}
+			double longueur = evaluer(fusion);
+			if (longueurs[a] + longueurs[b] - longueur > GAIN_MINIMAL_KM) {
+				remplacer(a, fusion, longueur);
+				for (int arret : tournees[b]) {
+					tourneeDe[arret / 2] = a;
+				}
+				tournees[b] = null;
+			}
+		}
+	}
+
+	/**
+	 * Retire chaque envoi de sa tournée et le réinsère au meilleur endroit, dans sa tournée ou dans celle
+	 * d'un voisin, tant que la longueur totale diminue
+	 */
+	private void deplacerEnvois(int[][] voisins) {
+		boolean ameliore = true;
+		while (ameliore && !budgetEpuise()) {
+			ameliore = false;
+			for (int e = 0; e < envois.size() && !budgetEpuise(); e++) {
+				int origine = tourneeDe[e];
+				if (tournees[origine].length == 2 && voisins[e].length == 0) {
+					continue;
+				}
+				int[] sans = retirer(tournees[origine], e);
+				double longueurSans = sans.length == 0 ? 0.0 : evaluer(sans);
+
+				int meilleureTournee = -1;
+				int[] meilleureInsertion = null;
+				double meilleurDelta = -GAIN_MINIMAL_KM;
+				if (sans.length > 0) {
+					int[] insertion = inserer(sans, e);
+					if (insertion != null) {
+						double delta = evaluer(insertion) - longueurs[origine];
+						if (delta < meilleurDelta) {
+							meilleurDelta = delta;
+							meilleureTournee = origine;
+							meilleureInsertion = insertion;
+						}
+					}
+				}
+				for (int voisin : voisins[e]) {
+					int cible = tourneeDe[voisin];
+					if (cible == origine || tournees[cible].length / 2 >= contraintes.envoisMaximum()) {
+						continue;
+					}
+					int[] insertion = inserer(tournees[cible], e);
+					if (insertion == null) {
+						continue;
+					}
+					double delta = evaluer(insertion) - longueurs[cible] + longueurSans - longueurs[origine];
+					if (delta < meilleurDelta) {
+						meilleurDelta = delta;
+						meilleureTournee = cible;
+						meilleureInsertion = insertion;
+					}
+				}
+
+				if (meilleureInsertion == null) {
+					continue;
+				}
+				if (meilleureTournee != origine) {
+					if (sans.length == 0) {
+						tournees[origine] = null;
+					} else {
+						remplacer(origine, sans, longueurSans);
+					}
+					tourneeDe[e] = meilleureTournee;
+				}
+				remplacer(meilleureTournee, meilleureInsertion, evaluer(meilleureInsertion));
+				ameliore = true;
+			}
+		}
+	}
+
+	private void remplacer(int tournee, int[] arrets, double longueur) {
+		tournees[tournee] = arrets;
+		longueurs[tournee] = longueur;
+	}
+
+	/**
+	 * Insère les envois de la plus petite tournée dans la plus grande, chacun à sa meilleure place
+	 */
+	private int[] fusion(int[] a, int[] b) {
+		int[] cible = a.length >= b.length ? a : b;
+		int[] source = cible == a ? b : a;
+		for (int arret : source) {
+			if (arret % 2 == 0) {
+				cible = inserer(cible, arret / 2);
+				if (cible == null) {
+					return null;
+				}
+			}
+		}
+		return cible;
+	}
+
+	/**
+	 * Meilleure insertion réalisable du ramassage puis de la livraison d'un envoi ; null si aucune
+	 */
+	private int[] inserer(int[] tournee, int envoi) {
+		int longueur = tournee.length;
+		int[] meilleure = null;
+		double meilleureLongueur = Double.MAX_VALUE;
+		int[] candidate = new int[longueur + 2];
+		for (int p = 0; p <= longueur; p++) {
+			for (int l = p; l <= longueur; l++) {
+				// Ramassage avant l'arrêt p de la tournée, livraison avant son arrêt l
+				int k = 0;
+				for (int i = 0; i <= longueur; i++) {
+					if (i == p) {
+						candidate[k++] = 2 * envoi;
+					}
+					if (i == l) {
+						candidate[k++] = 2 * envoi + 1;
+					}
+					if (i < longueur) {
+						candidate[k++] = tournee[i];
+					}
+				}
+				double evaluation = evaluer(candidate);
+				if (evaluation != INFAISABLE && evaluation < meilleureLongueur) {
+					meilleureLongueur = evaluation;
+					meilleure = candidate.clone();
+				}
+			}
+		}
+		return meilleure;
+	}
+
+	private static int[] retirer(int[] tournee, int envoi) {
+		int[] reste = new int[tournee.length - 2];
+		int k = 0;
+		for (int arret : tournee) {
+			if (arret / 2 != envoi) {
+				reste[k++] = arret;
+			}
+		}
+		return reste;
+	}
+
+	/**
+	 * Longueur de la tournée en km, ou INFAISABLE si une contrainte est violée
+	 */
+	private double evaluer(int[] tournee) {
+		double longueur = 0.0;
+		double poids = 0.0;
+		double volume = 0.0;
+		double heure = debut;
+		// Longueur parcourue à chaque arrêt, pour mesurer le détour de chaque envoi
+		double[] parcourue = new double[tournee.length];
+		for (int k = 0; k < tournee.length; k++) {
+			int arret = tournee[k];
+			Envoi envoi = envois.get(arret / 2);
+			if (k > 0) {
+				double troncon = distance(tournee[k - 1], arret);
+				longueur += troncon;
+				heure += troncon * secondesParKm;
+			}
+			parcourue[k] = longueur;
+			if (arret % 2 == 0) {
+				heure = Math.max(heure, envoi.ramassageAuPlusTot());
+				poids += envoi.poidsTonnes();
+				volume += Double.isNaN(envoi.volume()) ? 0.0 : envoi.volume();
+				if (poids > contraintes.capacitePoidsTonnes()
+						|| (!Double.isNaN(contraintes.capaciteVolume()) && volume > contraintes.capaciteVolume())) {
+					return INFAISABLE;
+				}
+			} else {
+				int ramassage = k - 1;
+				while (ramassage >= 0 && tournee[ramassage] != arret - 1) {
+					ramassage--;
+				}
+				if (ramassage < 0 || heure > envoi.livraisonAuPlusTard()) {
+					return INFAISABLE;
+				}
+				double trajet = longueur - parcourue[ramassage];
+				if (trajet > contraintes.facteurDetour() * distancesDirectes[arret / 2] + DETOUR_MINIMAL_KM) {
+					return INFAISABLE;
+				}
+				poids -= envoi.poidsTonnes();
+				volume -= Double.isNaN(envoi.volume()) ? 0.0 : envoi.volume();
+			}
+			heure += contraintes.dureeArretSecondes();
+		}
+		return longueur;
+	}
+
+	private List<Itineraire> itineraires() {
+		List<Itineraire> itineraires = new ArrayList<>();
+		for (int t = 0; t < tournees.length; t++) {
+			if (tournees[t] != null) {
+				itineraires.add(itineraire(tournees[t], longueurs[t]));
+			}
+		}
+		return itineraires;
+	}
+
+	private Itineraire itineraire(int[] tournee, double longueur) {
+		List<Arret> arrets = new ArrayList<>(tournee.length);
+		double heure = debut;
+		double poids = 0.0;
+		double volume = 0.0;
+		double poidsMaximal = 0.0;
+		double volumeMaximal = 0.0;
+		for (int k = 0; k < tournee.length; k++) {
+			int arret = tournee[k];
+			Envoi envoi = envois.get(arret / 2);
+			if (k > 0) {
+				heure += distance(tournee[k - 1], arret) * secondesParKm;
+			}
+			double volumeEnvoi = Double.isNaN(envoi.volume()) ? 0.0 : envoi.volume();
+			if (arret % 2 == 0) {
+				heure = Math.max(heure, envoi.ramassageAuPlusTot());
+				poids += envoi.poidsTonnes();
+				volume += volumeEnvoi;
+				poidsMaximal = Math.max(poidsMaximal, poids);
+				volumeMaximal = Math.max(volumeMaximal, volume);
+			} else {
+				poids -= envoi.poidsTonnes();
+				volume -= volumeEnvoi;
+			}
+			arrets.add(new Arret(envoi, arret % 2 == 0 ? TypeArret.RAMASSAGE : TypeArret.LIVRAISON, (long) heure));
+			heure += contraintes.dureeArretSecondes();
+		}
+		return new Itineraire(arrets, longueur, poidsMaximal, volumeMaximal);
+	}
+
+	private double distance(int a, int b) {
+		return NoyauGeodesique.haversineKm(latitudes[a], longitudes[a], latitudes[b], longitudes[b]);
+	}
+
+	private boolean budgetEpuise() {
+		if (!budgetEpuise && ++verifications % VERIFICATION_BUDGET == 0) {
+			budgetEpuise = System.nanoTime() > echeanceNanos;
+		}
+		return budgetEpuise;
+	}
+}
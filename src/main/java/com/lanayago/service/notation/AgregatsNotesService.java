@@ -0,0 +1,289 @@
+package com.lanayago.service.notation;
+
+import com.lanayago.exception.BusinessException;
+import com.lanayago.repository.ChauffeurRepository;
+import com.lanayago.repository.ClientRepository;
+import com.lanayago.service.geo.IndexSpatialChauffeurs;
+import com.lanayago.service.tache.BailTaches;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Notes moyennes des chauffeurs et des clients tenues à jour en O(1) par évaluation,
+ * avec reconstruction parallèle depuis l'historique des commandes et vérification de cohérence.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AgregatsNotesService {
+
+	private static final String TACHE_RECONSTRUCTION = "reconstruction-notes";
+	private static final int ECARTS_MAXIMUM = 100;
+	// Écart relatif toléré sur les cumuls pondérés, calculés en flottants côté Java et côté SQL
+	private static final double TOLERANCE_PONDEREE = 1e-6;
+
+	// Origine des poids de la note récente ; seules les différences d'âge entre notes comptent
+	private static final LocalDateTime ORIGINE_DECROISSANCE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+	/**
+	 * Table des cumuls, colonne désignant la personne notée dans commandes, colonne de la note reçue
+	 * et date servant à pondérer la note (date de l'évaluation, à défaut celle de la commande pour les notes antérieures)
+	 */
+	private enum Cible {
+		CHAUFFEUR("chauffeurs", "chauffeur_id", "note_client", "date_note_client"),
+		CLIENT("clients", "client_id", "note_chauffeur", "date_note_chauffeur");
+
+		private final String table;
+		private final String colonnePersonne;
+		private final String colonneNote;
+		private final String expressionDate;
+
+		Cible(String table, String colonnePersonne, String colonneNote, String colonneDate) {
+			this.table = table;
+			this.colonnePersonne = colonnePersonne;
+			this.colonneNote = colonneNote;
+			this.expressionDate = "COALESCE(" + colonneDate + ", date_livraison_effective, date_creation)";
+		}
+	}
+
+	public record Ecart(String type, Long utilisateurId, BigDecimal sommeStockee, int nombreStocke,
+	                    BigDecimal sommeCalculee, int nombreCalcule,
+	                    double sommePondereeStockee, double poidsStocke,
+	                    double sommePondereeCalculee, double poidsCalcule) {
+	}
+
+	public record RapportCoherence(int nombreEcarts, List<Ecart> ecarts) {
+	}
+
+	public record RapportReconstruction(int chauffeurs, int clients, long dureeMs) {
+	}
+
+	private final ChauffeurRepository chauffeurRepository;
+	private final ClientRepository clientRepository;
+	private final IndexSpatialChauffeurs indexSpatialChauffeurs;
+	private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final BailTaches bailTaches;
+
+	@Value("${notation.a-priori.poids:0}")
+	private BigDecimal poidsAPriori;
+
+	@Value("${notation.a-priori.moyenne:4.0}")
+	private BigDecimal moyenneAPriori;
+
+	@Value("${notation.demi-vie-jours:180}")
+	private double demiVieJours;
+
+	@Value("${notation.reconstruction.taille-lot:500}")
+	private int tailleLot;
+
+	@Value("${notation.reconstruction.parallelisme:4}")
+	private int parallelisme;
+
+	/**
+	 * Note donnée par le client au chauffeur ; le profil du chauffeur dans l'index spatial est rafraîchi.
+	 * La date d'évaluation est celle enregistrée sur la commande, pour que la reconstruction retrouve le même poids.
+	 */
+	@Transactional
+	public void noterChauffeur(Long chauffeurId, BigDecimal note, LocalDateTime dateEvaluation) {
+		chauffeurRepository.ajouterNote(chauffeurId, note, poids(dateEvaluation),
+				poidsAPriori.multiply(moyenneAPriori), poidsAPriori);
+		chauffeurRepository.findById(chauffeurId).ifPresent(indexSpatialChauffeurs::synchroniser);
+	}
+
+	/**
+	 * Note donnée par le chauffeur au client
+	 */
+	@Transactional
+	public void noterClient(Long clientId, BigDecimal note, LocalDateTime dateEvaluation) {
+		clientRepository.ajouterNote(clientId, note, poids(dateEvaluation),
+				poidsAPriori.multiply(moyenneAPriori), poidsAPriori);
+	}
+
+	/**
+	 * Recalcule tous les cumuls depuis les commandes, par lots traités en parallèle.
+	 * Chaque lot verrouille ses lignes avant de lire l'historique : une évaluation concurrente
+	 * est soit déjà visible dans la lecture, soit appliquée après l'écriture du lot.
+	 */
+	public RapportReconstruction reconstruire() {
+		if (!bailTaches.acquerir(TACHE_RECONSTRUCTION, Duration.ofHours(1))) {
+			throw new BusinessException("Une reconstruction des notes est déjà en cours");
+		}
+
+		long debut = System.currentTimeMillis();
+		ExecutorService executeur = Executors.newFixedThreadPool(parallelisme);
+		try {
+			int chauffeurs = reconstruire(Cible.CHAUFFEUR, executeur);
+			int clients = reconstruire(Cible.CLIENT, executeur);
+			indexSpatialChauffeurs.charger();
+
+			RapportReconstruction rapport = new RapportReconstruction(chauffeurs, clients, System.currentTimeMillis() - debut);
+			log.info("Notes reconstruites: {} chauffeurs, {} clients en {} ms",
+					rapport.chauffeurs(), rapport.clients(), rapport.dureeMs());
+			return rapport;
+		} finally {
+			executeur.shutdownNow();
+			bailTaches.liberer(TACHE_RECONSTRUCTION);
+		}
+	}
+
+	/**
+	 * Compare les cumuls stockés à ceux recalculés depuis les commandes, sans rien modifier :
+	 * peut être lancée à tout moment, y compris sur un réplica en lecture seule
+	 */
+	@Transactional(readOnly = true)
+	public RapportCoherence verifierCoherence() {
+		List<Ecart> ecarts = new ArrayList<>();
+		for (Cible cible : Cible.values()) {
+			ecarts.addAll(ecarts(cible));
+		}
+		return new RapportCoherence(ecarts.size(), ecarts.stream().limit(ECARTS_MAXIMUM).toList());
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	/**
+	 * Poids croissant en 2^(âge / demi-vie) : rapporté à la somme des poids, il décroît pour les notes anciennes
+	 */
+	private double poids(LocalDateTime date) {
+		double jours = Duration.between(ORIGINE_DECROISSANCE, date).toMinutes() / (24.0 * 60);
+		return Math.pow(2, jours / demiVieJours);
+	}
+
+	private int reconstruire(Cible cible, ExecutorService executeur) {
+		List<Long> ids = namedParameterJdbcTemplate.getJdbcTemplate()
+				.queryForList("SELECT id FROM " + cible.table + " ORDER BY id", Long.class);
+
+		List<Future<?>> lots = new ArrayList<>();
+		for (int i = 0; i < ids.size(); i += tailleLot) {
+			List<Long> lot = ids.subList(i, Math.min(i + tailleLot, ids.size()));
+			lots.add(executeur.submit(() -> transactionTemplate.executeWithoutResult(status -> reconstruireLot(cible, lot))));
+		}
+		for (Future<?> lot : lots) {
+			try {
+				lot.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new BusinessException("Reconstruction des notes interrompue", e);
+			} catch (ExecutionException e) {
+				throw new BusinessException("Échec de la reconstruction des notes", e.getCause());
+			}
+		}
+		return ids.size();
+	}
+
+	private void reconstruireLot(Cible cible, List<Long> ids) {
+		MapSqlParameterSource parametres = new MapSqlParameterSource("ids", ids);
+		namedParameterJdbcTemplate.queryForList(
+				"SELECT id FROM " + cible.table + " WHERE id IN (:ids) FOR UPDATE", parametres, Long.class);
+
+		Map<Long, Cumul> cumuls = new HashMap<>();
+		namedParameterJdbcTemplate.query(
+				"SELECT " + cible.colonnePersonne + ", " + cible.colonneNote + ", " +
+						cible.expressionDate + " " +
+						"FROM commandes WHERE " + cible.colonnePersonne + " IN (:ids) AND " + cible.colonneNote + " IS NOT NULL",
+				parametres,
+				ligne -> {
+					Timestamp date = ligne.getTimestamp(3);
+					cumuls.computeIfAbsent(ligne.getLong(1), id -> new Cumul())
+							.ajouter(ligne.getBigDecimal(2), poids(date.toLocalDateTime()));
+				});
+
+		List<Object[]> lignes = new ArrayList<>(ids.size());
+		for (Long id : ids) {
+			Cumul cumul = cumuls.getOrDefault(id, new Cumul());
+			lignes.add(new Object[]{
+					cumul.noteMoyenne(), cumul.noteRecente(), cumul.somme, cumul.nombre,
+					cumul.sommePonderee, cumul.poids, id
+			});
+		}
+		namedParameterJdbcTemplate.getJdbcTemplate().batchUpdate(
+				"UPDATE " + cible.table + " SET note_moyenne = ?, note_recente = ?, somme_notes = ?, nombre_notes = ?, " +
+						"somme_notes_ponderees = ?, poids_notes = ? WHERE id = ?",
+				lignes);
+	}
+
+	/**
+	 * Le poids recalculé en SQL reprend la formule de {@link #poids} : minutes écoulées depuis l'origine, 2^(jours / demi-vie)
+	 */
+	private List<Ecart> ecarts(Cible cible) {
+		String poids = "POW(2, TIMESTAMPDIFF(MINUTE, :origine, " + cible.expressionDate + ") / (1440 * :demiVieJours))";
+		String sql = "SELECT u.id, COALESCE(u.somme_notes, 0) AS somme_stockee, COALESCE(u.nombre_notes, 0) AS nombre_stocke, " +
+				"COALESCE(u.somme_notes_ponderees, 0) AS somme_ponderee_stockee, COALESCE(u.poids_notes, 0) AS poids_stocke, " +
+				"COALESCE(h.somme, 0) AS somme_calculee, COALESCE(h.nombre, 0) AS nombre_calcule, " +
+				"COALESCE(h.somme_ponderee, 0) AS somme_ponderee_calculee, COALESCE(h.poids, 0) AS poids_calcule " +
+				"FROM " + cible.table + " u LEFT JOIN (" +
+				"SELECT " + cible.colonnePersonne + " AS personne_id, SUM(" + cible.colonneNote + ") AS somme, COUNT(*) AS nombre, " +
+				"SUM(" + cible.colonneNote + " * " + poids + ") AS somme_ponderee, SUM(" + poids + ") AS poids " +
+				"FROM commandes WHERE " + cible.colonneNote + " IS NOT NULL GROUP BY " + cible.colonnePersonne +
+				") h ON h.personne_id = u.id " +
+				"WHERE COALESCE(u.nombre_notes, 0) <> COALESCE(h.nombre, 0) OR COALESCE(u.somme_notes, 0) <> COALESCE(h.somme, 0) " +
+				"OR ABS(COALESCE(u.somme_notes_ponderees, 0) - COALESCE(h.somme_ponderee, 0)) > :tolerance * GREATEST(ABS(COALESCE(h.somme_ponderee, 0)), 1) " +
+				"OR ABS(COALESCE(u.poids_notes, 0) - COALESCE(h.poids, 0)) > :tolerance * GREATEST(ABS(COALESCE(h.poids, 0)), 1)";
+
+		MapSqlParameterSource parametres = new MapSqlParameterSource()
+				.addValue("origine", Timestamp.valueOf(ORIGINE_DECROISSANCE))
+				.addValue("demiVieJours", demiVieJours)
+				.addValue("tolerance", TOLERANCE_PONDEREE);
+		return namedParameterJdbcTemplate.query(sql, parametres, (ligne, rang) -> new Ecart(
+				cible.name(),
+				ligne.getLong("id"),
+				ligne.getBigDecimal("somme_stockee"),
+				ligne.getInt("nombre_stocke"),
+				ligne.getBigDecimal("somme_calculee"),
+				ligne.getInt("nombre_calcule"),
+				ligne.getDouble("somme_ponderee_stockee"),
+				ligne.getDouble("poids_stocke"),
+				ligne.getDouble("somme_ponderee_calculee"),
+				ligne.getDouble("poids_calcule")));
+	}
+
+	/**
+	 * Cumuls d'une personne pendant la reconstruction ; mêmes formules que ChauffeurRepository.ajouterNote
+	 */
+	private final class Cumul {
+		private BigDecimal somme = BigDecimal.ZERO;
+		private int nombre;
+		private double sommePonderee;
+		private double poids;
+
+		void ajouter(BigDecimal note, double poidsNote) {
+			somme = somme.add(note);
+			nombre++;
+			sommePonderee += note.doubleValue() * poidsNote;
+			poids += poidsNote;
+		}
+
+		BigDecimal noteMoyenne() {
+			if (nombre == 0) {
+				return BigDecimal.ZERO;
+			}
+			return poidsAPriori.multiply(moyenneAPriori).add(somme)
+					.divide(poidsAPriori.add(BigDecimal.valueOf(nombre)), 2, RoundingMode.HALF_UP);
+		}
+
+		BigDecimal noteRecente() {
+			return nombre == 0 ? null : BigDecimal.valueOf(sommePonderee / poids).setScale(2, RoundingMode.HALF_UP);
+		}
+	}
+}
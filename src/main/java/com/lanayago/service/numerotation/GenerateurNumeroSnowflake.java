@@ -0,0 +1,95 @@
+package com.lanayago.service.numerotation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Numéros de type Snowflake : 41 bits de millisecondes depuis 2024, 10 bits de nœud, 12 bits de séquence,
+ * écrits en base 36 sur 13 caractères derrière "CMD" (16 caractères, triables par date de création).
+ * Sans coordination : deux instances ne se recouvrent pas tant que leurs numéros de nœud diffèrent.
+ */
+@Component
+@Slf4j
+public class GenerateurNumeroSnowflake implements IGenerateurNumeroCommande {
+
+	public static final String PREFIXE = "CMD";
+
+	static final long ORIGINE_MS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+	static final int BITS_NOEUD = 10;
+	static final int BITS_SEQUENCE = 12;
+	static final int NOEUD_MAXIMUM = (1 << BITS_NOEUD) - 1;
+
+	private static final int LARGEUR = 13; // Long.MAX_VALUE en base 36
+	private static final String ZEROS = "0".repeat(LARGEUR);
+
+	private final int noeud;
+	private final LongSupplier horloge;
+
+	// Horodatage logique et séquence, combinés pour être avancés par un seul compareAndSet
+	private final AtomicLong etat = new AtomicLong();
+
+	public GenerateurNumeroSnowflake(@Value("${commande.numerotation.noeud:-1}") int noeud) {
+		this(noeud < 0 ? noeudParDefaut() : noeud, System::currentTimeMillis);
+	}
+
+	GenerateurNumeroSnowflake(int noeud, LongSupplier horloge) {
+		if (noeud < 0 || noeud > NOEUD_MAXIMUM) {
+			throw new IllegalArgumentException("Numéro de nœud hors de [0, " + NOEUD_MAXIMUM + "]: " + noeud);
+		}
+		this.noeud = noeud;
+		this.horloge = horloge;
+	}
+
+	@Override
+	public String prochainNumero() {
+		String base36 = Long.toString(prochainIdentifiant(), 36).toUpperCase();
+		return PREFIXE + ZEROS.substring(base36.length()) + base36;
+	}
+
+	/**
+	 * Identifiant 63 bits strictement croissant. Si l'horloge recule ou si la séquence de la milliseconde
+	 * est épuisée, l'horodatage logique avance d'un cran au lieu de bloquer : il rattrape l'horloge ensuite.
+	 */
+	public long prochainIdentifiant() {
+		long maintenant = horloge.getAsLong() - ORIGINE_MS;
+		long precedent;
+		long suivant;
+		do {
+			precedent = etat.get();
+			suivant = maintenant > (precedent >>> BITS_SEQUENCE)
+					? maintenant << BITS_SEQUENCE
+					: precedent + 1; // la retenue de la séquence incrémente l'horodatage
+		} while (!etat.compareAndSet(precedent, suivant));
+
+		long horodatage = suivant >>> BITS_SEQUENCE;
+		long sequence = suivant & ((1L << BITS_SEQUENCE) - 1);
+		return (horodatage << (BITS_NOEUD + BITS_SEQUENCE)) | ((long) noeud << BITS_SEQUENCE) | sequence;
+	}
+
+	public int getNoeud() {
+		return noeud;
+	}
+
+	/**
+	 * À défaut de configuration, nœud dérivé de l'hôte et du processus : à fixer explicitement
+	 * (COMMANDE_NOEUD) dès que plusieurs instances tournent, pour exclure toute collision
+	 */
+	private static int noeudParDefaut() {
+		String identite;
+		try {
+			identite = InetAddress.getLocalHost().getHostName() + "/" + ManagementFactory.getRuntimeMXBean().getName();
+		} catch (Exception e) {
+			identite = ManagementFactory.getRuntimeMXBean().getName();
+		}
+		int noeud = Math.floorMod(identite.hashCode(), NOEUD_MAXIMUM + 1);
+		log.warn("Numéro de nœud des commandes non configuré, {} dérivé de {}", noeud, identite);
+		return noeud;
+	}
+}
@@ -0,0 +1,12 @@
+package com.lanayago.service.numerotation;
+
+/**
+ * Attribution des numéros de commande (colonne unique de 20 caractères au plus)
+ */
+public interface IGenerateurNumeroCommande {
+
+	/**
+	 * Numéro unique, croissant sur une même instance, sans aller-retour en base
+	 */
+	String prochainNumero();
+}
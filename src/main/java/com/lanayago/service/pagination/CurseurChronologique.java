@@ -0,0 +1,46 @@
+package com.lanayago.service.pagination;
+
+import com.lanayago.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position dans une liste triée sur (dateCreation, id), transmise au client sous forme de jeton opaque.
+ * Les bornes DEBUT_DECROISSANT / DEBUT_CROISSANT servent de curseur pour la première page.
+ */
+public record CurseurChronologique(LocalDateTime dateCreation, Long id) {
+
+	public static final CurseurChronologique DEBUT_DECROISSANT =
+			new CurseurChronologique(LocalDateTime.of(9999, 12, 31, 23, 59), Long.MAX_VALUE);
+
+	public static final CurseurChronologique DEBUT_CROISSANT =
+			new CurseurChronologique(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+
+	private static final char SEPARATEUR = '|';
+
+	public String encoder() {
+		String brut = dateCreation.toString() + SEPARATEUR + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(brut.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Décode un jeton ; sans jeton, renvoie la borne de début correspondant au sens du tri
+	 */
+	public static CurseurChronologique decoder(String jeton, boolean croissant) {
+		if (jeton == null || jeton.isBlank()) {
+			return croissant ? DEBUT_CROISSANT : DEBUT_DECROISSANT;
+		}
+		try {
+			String brut = new String(Base64.getUrlDecoder().decode(jeton), StandardCharsets.UTF_8);
+			int separateur = brut.lastIndexOf(SEPARATEUR);
+			return new CurseurChronologique(
+					LocalDateTime.parse(brut.substring(0, separateur)),
+					Long.parseLong(brut.substring(separateur + 1)));
+		} catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+			throw new BusinessException("Curseur de pagination invalide");
+		}
+	}
+}
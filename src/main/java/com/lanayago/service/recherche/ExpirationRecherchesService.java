@@ -0,0 +1,159 @@
+package com.lanayago.service.recherche;
+
+import com.lanayago.repository.RechercheTransportRepository;
+import com.lanayago.service.tache.ApresTransaction;
+import com.lanayago.service.tache.BailTaches;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Expiration périodique des recherches de transport : désactivation par lots des recherches
+ * au-delà de leur durée de validité, puis archivage optionnel des plus anciennes dans
+ * recherches_transport_historique. Un bail en base évite les exécutions concurrentes entre instances.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExpirationRecherchesService {
+
+	private static final String TACHE = "expiration-recherches";
+
+	private static final String COLONNES =
+			"id, client_id, latitude_depart, longitude_depart, adresse_depart, latitude_arrivee, longitude_arrivee, " +
+					"adresse_arrivee, poids_marchandise, volume_marchandise, description_marchandise, " +
+					"type_vehicule_recommande, distance, tarif_estime, urgent, date_ramassage_souhaitee, " +
+					"date_livraison_souhaitee, date_creation, session_id";
+
+	private static final String SQL_ARCHIVER =
+			"INSERT INTO recherches_transport_historique (" + COLONNES + ", date_archivage) " +
+					"SELECT " + COLONNES + ", :dateArchivage FROM recherches_transport " +
+					"WHERE id IN (:ids) AND active = false";
+
+	private final RechercheTransportRepository rechercheTransportRepository;
+	private final SessionsRechercheEnDirect sessionsRecherche;
+	private final BailTaches bailTaches;
+	private final TransactionTemplate transactionTemplate;
+	private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+	private final MeterRegistry meterRegistry;
+
+	@Value("${recherche-transport.duree-validite-minutes:30}")
+	private long dureeValiditeMinutes;
+
+	@Value("${recherche-transport.expiration.taille-lot:500}")
+	private int tailleLot;
+
+	@Value("${recherche-transport.expiration.maximum-par-execution:20000}")
+	private int maximumParExecution;
+
+	@Value("${recherche-transport.expiration.duree-bail-minutes:10}")
+	private long dureeBailMinutes;
+
+	@Value("${recherche-transport.expiration.archivage:false}")
+	private boolean archivage;
+
+	@Value("${recherche-transport.expiration.archiver-apres-jours:7}")
+	private long archiverApresJours;
+
+	private Counter recherchesExpirees;
+	private Counter recherchesArchivees;
+	private Timer dureeExecution;
+
+	@PostConstruct
+	void initialiserMetriques() {
+		recherchesExpirees = meterRegistry.counter("lanayago.recherches.expirees");
+		recherchesArchivees = meterRegistry.counter("lanayago.recherches.archivees");
+		dureeExecution = meterRegistry.timer("lanayago.recherches.expiration.duree");
+	}
+
+	@Scheduled(fixedDelayString = "${recherche-transport.frequence-nettoyage-minutes:15}",
+			initialDelayString = "${recherche-transport.frequence-nettoyage-minutes:15}",
+			timeUnit = TimeUnit.MINUTES)
+	public void executer() {
+		if (!bailTaches.acquerir(TACHE, Duration.ofMinutes(dureeBailMinutes))) {
+			log.debug("Expiration des recherches déjà en cours sur une autre instance");
+			return;
+		}
+
+		long debut = System.nanoTime();
+		try {
+			int expirees = traiterParLots(
+					LocalDateTime.now().minusMinutes(dureeValiditeMinutes), true, this::desactiverLot);
+			int archivees = archivage
+					? traiterParLots(LocalDateTime.now().minusDays(archiverApresJours), false, this::archiverLot)
+					: 0;
+
+			if (expirees > 0 || archivees > 0) {
+				log.info("Recherches expirées: {}, archivées: {}", expirees, archivees);
+			}
+		} catch (Exception e) {
+			log.error("Erreur lors de l'expiration des recherches", e);
+		} finally {
+			dureeExecution.record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+			bailTaches.liberer(TACHE);
+		}
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	/**
+	 * Un lot par transaction, pour des verrous courts ; le total est plafonné par exécution
+	 */
+	private int traiterParLots(LocalDateTime limite, boolean actives, Function<List<Long>, Integer> traitement) {
+		int total = 0;
+		while (total < maximumParExecution) {
+			int taille = Math.min(tailleLot, maximumParExecution - total);
+			Integer traites = transactionTemplate.execute(status -> {
+				List<Long> ids = rechercheTransportRepository.findIdsCreeesAvant(actives, limite, PageRequest.of(0, taille));
+				return ids.isEmpty() ? 0 : traitement.apply(ids);
+			});
+			if (traites == null || traites == 0) {
+				break;
+			}
+			total += traites;
+			if (traites < taille) {
+				break;
+			}
+		}
+		return total;
+	}
+
+	private int desactiverLot(List<Long> ids) {
+		int desactivees = rechercheTransportRepository.desactiverParIds(ids);
+		// Les sessions en mémoire ne quittent le direct qu'une fois la désactivation validée
+		ApresTransaction.apresValidation(() -> {
+			ids.forEach(sessionsRecherche::retirer);
+			recherchesExpirees.increment(desactivees);
+		});
+		return ids.size();
+	}
+
+	private int archiverLot(List<Long> ids) {
+		MapSqlParameterSource parametres = new MapSqlParameterSource()
+				.addValue("ids", ids)
+				.addValue("dateArchivage", LocalDateTime.now());
+		int copiees = namedParameterJdbcTemplate.update(SQL_ARCHIVER, parametres);
+		int supprimees = rechercheTransportRepository.supprimerInactivesParIds(ids);
+		if (copiees != supprimees) {
+			throw new IllegalStateException("Archivage incohérent: " + copiees + " copiées, " + supprimees + " supprimées");
+		}
+		recherchesArchivees.increment(supprimees);
+		return ids.size();
+	}
+}
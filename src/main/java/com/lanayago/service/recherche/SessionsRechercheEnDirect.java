@@ -0,0 +1,351 @@
+package com.lanayago.service.recherche;
+
+import com.lanayago.service.geo.IndexSpatialChauffeurs;
+import com.lanayago.service.geo.NoyauGeodesique;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Requêtes permanentes des recherches actives. Chaque recherche enregistre une fois sa zone de ramassage ;
+ * les changements de l'index spatial ne sont confrontés qu'aux sessions couvrant la cellule du chauffeur
+ * (ou qui l'affichent déjà). Les différences sont fusionnées par chauffeur jusqu'au prochain drainage.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SessionsRechercheEnDirect implements IndexSpatialChauffeurs.ObservateurIndex {
+
+	private final IndexSpatialChauffeurs indexSpatialChauffeurs;
+
+	@Value("${recherche-transport.sessions.taille-cellule-degres:0.25}")
+	private double tailleCellule;
+
+	@Value("${recherche-transport.sessions.seuil-deplacement-metres:50}")
+	private double seuilDeplacementMetres;
+
+	private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+	private final Map<Long, Set<Long>> sessionsParCellule = new ConcurrentHashMap<>();
+	private final Map<Long, Set<Long>> sessionsParChauffeur = new ConcurrentHashMap<>();
+
+	/**
+	 * Changements accumulés pour une session depuis le dernier drainage
+	 */
+	public record DiffSession(Long rechercheId,
+	                          Long clientId,
+	                          long sequence,
+	                          List<IndexSpatialChauffeurs.ChauffeurProche> entres,
+	                          List<IndexSpatialChauffeurs.ChauffeurProche> deplaces,
+	                          List<Long> sortis) {
+	}
+
+	/**
+	 * État complet d'une session, pour la resynchronisation d'un client
+	 */
+	public record InstantaneSession(Long clientId, long sequence, List<IndexSpatialChauffeurs.ChauffeurProche> visibles) {
+	}
+
+	private enum TypeChangement {ENTRE, DEPLACE, SORTI}
+
+	private record Changement(TypeChangement type, double latitude, double longitude, double distanceKm) {
+	}
+
+	@PostConstruct
+	void abonner() {
+		indexSpatialChauffeurs.ajouterObservateur(this);
+	}
+
+	/**
+	 * Enregistre la zone de la recherche ; les chauffeurs compatibles déjà présents forment l'état initial
+	 */
+	public void enregistrer(Long rechercheId, Long clientId, double latitude, double longitude, double rayonKm,
+	                        BigDecimal poidsKg, BigDecimal volume, long expiration) {
+		Session session = new Session(rechercheId, clientId, latitude, longitude, rayonKm,
+				poidsKg.doubleValue() / 1000.0, volume != null ? volume.doubleValue() : Double.NaN, expiration);
+		if (sessions.putIfAbsent(rechercheId, session) != null) {
+			return;
+		}
+
+		// Inscription dans les cellules avant l'amorçage : aucun changement concurrent n'est perdu
+		session.cellules = cellulesCouvertes(latitude, longitude, rayonKm);
+		for (long cellule : session.cellules) {
+			sessionsParCellule.computeIfAbsent(cellule, c -> ConcurrentHashMap.newKeySet()).add(rechercheId);
+		}
+
+		List<IndexSpatialChauffeurs.ChauffeurClasse> presents = indexSpatialChauffeurs.rechercherMeilleurs(
+				latitude, longitude, Integer.MAX_VALUE, rayonKm, session, null);
+		synchronized (session) {
+			for (IndexSpatialChauffeurs.ChauffeurClasse present : presents) {
+				if (session.visibles.putIfAbsent(present.chauffeurId(), new double[]{present.latitude(), present.longitude()}) == null) {
+					sessionsParChauffeur.computeIfAbsent(present.chauffeurId(), c -> ConcurrentHashMap.newKeySet()).add(rechercheId);
+				}
+			}
+		}
+		log.debug("Session de recherche {} enregistrée avec {} chauffeurs visibles", rechercheId, presents.size());
+	}
+
+	public boolean estEnregistree(Long rechercheId) {
+		return sessions.containsKey(rechercheId);
+	}
+
+	public int nombreSessions() {
+		return sessions.size();
+	}
+
+	public void retirer(Long rechercheId) {
+		Session session = sessions.remove(rechercheId);
+		if (session == null) {
+			return;
+		}
+		for (long cellule : session.cellules) {
+			retirerDe(sessionsParCellule, cellule, rechercheId);
+		}
+		synchronized (session) {
+			for (Long chauffeurId : session.visibles.keySet()) {
+				retirerDe(sessionsParChauffeur, chauffeurId, rechercheId);
+			}
+			session.visibles.clear();
+			session.enAttente.clear();
+		}
+	}
+
+	@Override
+	public void chauffeurPositionne(Long chauffeurId, double latitude, double longitude, IndexSpatialChauffeurs.Profil profil) {
+		for (Long rechercheId : sessionsConcernees(chauffeurId, cle(indexCellule(latitude), indexCellule(longitude)))) {
+			Session session = sessions.get(rechercheId);
+			if (session == null) {
+				continue;
+			}
+			double distance = session.origine.haversineKm(latitude, longitude);
+			boolean dedans = distance <= session.rayonKm && session.accepte(profil);
+			synchronized (session) {
+				double[] affichee = session.visibles.get(chauffeurId);
+				if (dedans && affichee == null) {
+					session.visibles.put(chauffeurId, new double[]{latitude, longitude});
+					sessionsParChauffeur.computeIfAbsent(chauffeurId, c -> ConcurrentHashMap.newKeySet()).add(rechercheId);
+					session.noter(chauffeurId, new Changement(TypeChangement.ENTRE, latitude, longitude, distance));
+				} else if (dedans) {
+					// Les micro-déplacements ne sont pas diffusés
+					if (NoyauGeodesique.haversineKm(affichee[0], affichee[1], latitude, longitude) * 1000.0 >= seuilDeplacementMetres) {
+						affichee[0] = latitude;
+						affichee[1] = longitude;
+						session.noter(chauffeurId, new Changement(TypeChangement.DEPLACE, latitude, longitude, distance));
+					}
+				} else if (affichee != null) {
+					sortir(session, chauffeurId);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void chauffeurRetire(Long chauffeurId) {
+		Set<Long> affichant = sessionsParChauffeur.get(chauffeurId);
+		if (affichant == null) {
+			return;
+		}
+		for (Long rechercheId : List.copyOf(affichant)) {
+			Session session = sessions.get(rechercheId);
+			if (session == null) {
+				continue;
+			}
+			synchronized (session) {
+				if (session.visibles.containsKey(chauffeurId)) {
+					sortir(session, chauffeurId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Vide les changements en attente ; les sessions expirées sont retirées
+	 */
+	public List<DiffSession> drainer() {
+		long maintenant = System.currentTimeMillis();
+		List<DiffSession> diffs = new ArrayList<>();
+
+		for (Session session : sessions.values()) {
+			if (session.expiration < maintenant) {
+				retirer(session.rechercheId);
+				continue;
+			}
+			synchronized (session) {
+				if (session.enAttente.isEmpty()) {
+					continue;
+				}
+				List<IndexSpatialChauffeurs.ChauffeurProche> entres = new ArrayList<>();
+				List<IndexSpatialChauffeurs.ChauffeurProche> deplaces = new ArrayList<>();
+				List<Long> sortis = new ArrayList<>();
+				session.enAttente.forEach((chauffeurId, changement) -> {
+					switch (changement.type()) {
+						case ENTRE -> entres.add(proche(chauffeurId, changement));
+						case DEPLACE -> deplaces.add(proche(chauffeurId, changement));
+						case SORTI -> sortis.add(chauffeurId);
+					}
+				});
+				session.enAttente.clear();
+				diffs.add(new DiffSession(session.rechercheId, session.clientId, ++session.sequence, entres, deplaces, sortis));
+			}
+		}
+		return diffs;
+	}
+
+	/**
+	 * État courant de la session ; les changements en attente y sont déjà intégrés et sont abandonnés
+	 */
+	public InstantaneSession instantane(Long rechercheId) {
+		Session session = sessions.get(rechercheId);
+		if (session == null) {
+			return null;
+		}
+		synchronized (session) {
+			List<IndexSpatialChauffeurs.ChauffeurProche> visibles = new ArrayList<>(session.visibles.size());
+			session.visibles.forEach((chauffeurId, position) -> visibles.add(new IndexSpatialChauffeurs.ChauffeurProche(
+					chauffeurId, position[0], position[1], session.origine.haversineKm(position[0], position[1]))));
+			session.enAttente.clear();
+			return new InstantaneSession(session.clientId, ++session.sequence, visibles);
+		}
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	private void sortir(Session session, Long chauffeurId) {
+		session.visibles.remove(chauffeurId);
+		retirerDe(sessionsParChauffeur, chauffeurId, session.rechercheId);
+		session.noter(chauffeurId, new Changement(TypeChangement.SORTI, 0.0, 0.0, 0.0));
+	}
+
+	private Set<Long> sessionsConcernees(Long chauffeurId, long cellule) {
+		Set<Long> parCellule = sessionsParCellule.get(cellule);
+		Set<Long> parChauffeur = sessionsParChauffeur.get(chauffeurId);
+		if (parChauffeur == null || parChauffeur.isEmpty()) {
+			return parCellule != null ? parCellule : Set.of();
+		}
+		Set<Long> concernees = new HashSet<>(parChauffeur);
+		if (parCellule != null) {
+			concernees.addAll(parCellule);
+		}
+		return concernees;
+	}
+
+	private long[] cellulesCouvertes(double latitude, double longitude, double rayonKm) {
+		double deltaLat = rayonKm / 111.32;
+		double deltaLon = rayonKm / (111.32 * Math.max(Math.cos(Math.toRadians(latitude)), 0.01));
+		int latMin = indexCellule(latitude - deltaLat);
+		int latMax = indexCellule(latitude + deltaLat);
+		int lonMin = indexCellule(longitude - deltaLon);
+		int lonMax = indexCellule(longitude + deltaLon);
+
+		long[] couvertes = new long[(latMax - latMin + 1) * (lonMax - lonMin + 1)];
+		int n = 0;
+		for (int i = latMin; i <= latMax; i++) {
+			for (int j = lonMin; j <= lonMax; j++) {
+				couvertes[n++] = cle(i, j);
+			}
+		}
+		return couvertes;
+	}
+
+	private int indexCellule(double coordonnee) {
+		return (int) Math.floor(coordonnee / tailleCellule);
+	}
+
+	private static long cle(int indexLatitude, int indexLongitude) {
+		return ((long) indexLatitude << 32) | (indexLongitude & 0xffffffffL);
+	}
+
+	private static void retirerDe(Map<Long, Set<Long>> associations, Long cle, Long rechercheId) {
+		associations.computeIfPresent(cle, (c, ids) -> {
+			ids.remove(rechercheId);
+			return ids.isEmpty() ? null : ids;
+		});
+	}
+
+	private static IndexSpatialChauffeurs.ChauffeurProche proche(Long chauffeurId, Changement changement) {
+		return new IndexSpatialChauffeurs.ChauffeurProche(
+				chauffeurId, changement.latitude(), changement.longitude(), changement.distanceKm());
+	}
+
+	private static final class Session implements IndexSpatialChauffeurs.CritereClassement {
+
+		private final Long rechercheId;
+		private final Long clientId;
+		private final NoyauGeodesique.Origine origine;
+		private final double rayonKm;
+		private final double poidsTonnes;
+		private final double volume;
+		private final long expiration;
+		private long[] cellules = new long[0];
+
+		// Dernière position diffusée de chaque chauffeur affiché par le client
+		private final Map<Long, double[]> visibles = new HashMap<>();
+		private final Map<Long, Changement> enAttente = new LinkedHashMap<>();
+		private long sequence;
+
+		private Session(Long rechercheId, Long clientId, double latitude, double longitude, double rayonKm,
+		                double poidsTonnes, double volume, long expiration) {
+			this.rechercheId = rechercheId;
+			this.clientId = clientId;
+			this.origine = new NoyauGeodesique.Origine(latitude, longitude);
+			this.rayonKm = rayonKm;
+			this.poidsTonnes = poidsTonnes;
+			this.volume = volume;
+			this.expiration = expiration;
+		}
+
+		/**
+		 * Fusionne le changement avec celui déjà en attente pour ce chauffeur
+		 */
+		private void noter(Long chauffeurId, Changement changement) {
+			Changement precedent = enAttente.get(chauffeurId);
+			if (precedent == null) {
+				enAttente.put(chauffeurId, changement);
+				return;
+			}
+			switch (changement.type()) {
+				// Sorti puis revenu : pour le client, il s'est seulement déplacé
+				case ENTRE -> enAttente.put(chauffeurId, precedent.type() == TypeChangement.SORTI
+						? new Changement(TypeChangement.DEPLACE, changement.latitude(), changement.longitude(), changement.distanceKm())
+						: changement);
+				case DEPLACE -> enAttente.put(chauffeurId, precedent.type() == TypeChangement.ENTRE
+						? new Changement(TypeChangement.ENTRE, changement.latitude(), changement.longitude(), changement.distanceKm())
+						: changement);
+				// Entré puis sorti avant diffusion : le client n'en a jamais rien su
+				case SORTI -> {
+					if (precedent.type() == TypeChangement.ENTRE) {
+						enAttente.remove(chauffeurId);
+					} else {
+						enAttente.put(chauffeurId, changement);
+					}
+				}
+			}
+		}
+
+		@Override
+		public boolean accepte(IndexSpatialChauffeurs.Profil profil) {
+			return profil.peutTransporter(poidsTonnes, volume);
+		}
+
+		@Override
+		public double score(IndexSpatialChauffeurs.Profil profil, double distanceKm) {
+			return distanceKm;
+		}
+
+		@Override
+		public double scoreMinimal(double distanceKm) {
+			return distanceKm;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.lanayago.service.repartition;
+
+import com.lanayago.service.geo.IndexSpatialChauffeurs;
+import com.lanayago.service.geo.NoyauGeodesique;
+
+import java.util.List;
+
+/**
+ * Coût d'attribution d'un chauffeur à une commande, en points entiers : distance d'approche, délai d'arrivée
+ * (pondéré davantage pour les commandes urgentes), capacité du véhicule inutilisée et note du chauffeur.
+ * Une paire hors rayon ou hors capacité coûte autant qu'une commande laissée en attente.
+ */
+public record CoutsRepartition(double rayonKm, double vitesseMoyenneKmh, double poidsDistance, double poidsDelai,
+                               double facteurUrgence, double poidsAdequation, double poidsNote) {
+
+	private static final double POINTS_PAR_UNITE = 100.0;
+	private static final double NOTE_MAXIMALE = 5.0;
+
+	/**
+	 * Commande à placer : point de ramassage, poids en tonnes, volume en m³ ou NaN si non précisé
+	 */
+	public record Demande(double latitude, double longitude, double poidsTonnes, double volume, boolean urgente) {
+	}
+
+	/**
+	 * Supérieur au coût de toute paire admissible : une commande n'est laissée en attente que faute de chauffeur admissible
+	 * ou pour en servir une autre
+	 */
+	public int coutNonAffectation() {
+		double delaiMaximal = rayonKm / vitesseMoyenneKmh * 60.0;
+		return points(poidsDistance * rayonKm + poidsDelai * Math.max(facteurUrgence, 1.0) * delaiMaximal
+				+ poidsAdequation + poidsNote) + 1;
+	}
+
+	/**
+	 * Matrice demandes × chauffeurs rangée par ligne, prête pour SolveurEncheres
+	 */
+	public int[] matrice(List<Demande> demandes, List<IndexSpatialChauffeurs.ChauffeurIndexe> chauffeurs) {
+		int colonnes = chauffeurs.size();
+		double[] latitudes = new double[colonnes];
+		double[] longitudes = new double[colonnes];
+		IndexSpatialChauffeurs.Profil[] profils = new IndexSpatialChauffeurs.Profil[colonnes];
+		for (int j = 0; j < colonnes; j++) {
+			IndexSpatialChauffeurs.ChauffeurIndexe chauffeur = chauffeurs.get(j);
+			latitudes[j] = chauffeur.latitude();
+			longitudes[j] = chauffeur.longitude();
+			profils[j] = chauffeur.profil();
+		}
+
+		int interdit = coutNonAffectation();
+		int[] couts = new int[demandes.size() * colonnes];
+		for (int i = 0; i < demandes.size(); i++) {
+			Demande demande = demandes.get(i);
+			NoyauGeodesique.Origine origine = new NoyauGeodesique.Origine(demande.latitude(), demande.longitude());
+			double poidsDelaiDemande = demande.urgente() ? poidsDelai * facteurUrgence : poidsDelai;
+			int debut = i * colonnes;
+			for (int j = 0; j < colonnes; j++) {
+				IndexSpatialChauffeurs.Profil profil = profils[j];
+				if (!profil.peutTransporter(demande.poidsTonnes(), demande.volume())) {
+					couts[debut + j] = interdit;
+					continue;
+				}
+				double distance = origine.distanceKm(latitudes[j], longitudes[j]);
+				if (distance > rayonKm) {
+					couts[debut + j] = interdit;
+					continue;
+				}
+				double capaciteInutilisee = profil.capacitePoidsTonnes() > 0
+						? 1.0 - demande.poidsTonnes() / profil.capacitePoidsTonnes()
+						: 0.0;
+				couts[debut + j] = points(poidsDistance * distance
+						+ poidsDelaiDemande * distance / vitesseMoyenneKmh * 60.0
+						+ poidsAdequation * capaciteInutilisee
+						+ poidsNote * (1.0 - profil.noteMoyenne() / NOTE_MAXIMALE));
+			}
+		}
+		return couts;
+	}
+
+	private static int points(double cout) {
+		return (int) Math.round(cout * POINTS_PAR_UNITE);
+	}
+}
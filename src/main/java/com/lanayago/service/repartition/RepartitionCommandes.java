@@ -0,0 +1,298 @@
+package com.lanayago.service.repartition;
+
+import com.lanayago.entity.Chauffeur;
+import com.lanayago.entity.Commande;
+import com.lanayago.enums.StatutCommande;
+import com.lanayago.repository.ChauffeurRepository;
+import com.lanayago.repository.CommandeRepository;
+import com.lanayago.service.NotificationService;
+import com.lanayago.service.diffusion.ReaffectationCommandes;
+import com.lanayago.service.geo.IndexSpatialChauffeurs;
+import com.lanayago.service.groupage.GroupageCommandes;
+import com.lanayago.service.reservation.CalendrierReservations;
+import com.lanayago.service.tache.BailTaches;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Répartition groupée des commandes en attente : à intervalle régulier, toutes les commandes confiées à la
+ * répartition et tous les chauffeurs libres de l'index sont mis en regard dans une matrice de coûts, et
+ * l'affectation de coût total minimal est proposée en un seul lot. Chaque chauffeur proposé dispose ensuite
+ * du délai d'acceptation habituel, avec réaffectation en cas de refus. Avec le groupage, les lignes de la
+ * matrice sont des tournées de commandes compatibles plutôt que des commandes isolées.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RepartitionCommandes {
+
+	private static final String TACHE = "repartition-commandes";
+
+	private static final String SQL_PROPOSER =
+			"UPDATE commandes SET chauffeur_id = ?, vehicule_id = ?, date_affectation = ? " +
+					"WHERE id = ? AND statut = 'EN_ATTENTE' AND chauffeur_id IS NULL";
+
+	private final CommandeRepository commandeRepository;
+	private final ChauffeurRepository chauffeurRepository;
+	private final IndexSpatialChauffeurs indexSpatialChauffeurs;
+	private final NotificationService notificationService;
+	private final ReaffectationCommandes reaffectationCommandes;
+	private final GroupageCommandes groupageCommandes;
+	private final CalendrierReservations calendrierReservations;
+	private final BailTaches bailTaches;
+	private final TransactionTemplate transactionTemplate;
+	private final JdbcTemplate jdbcTemplate;
+	private final MeterRegistry meterRegistry;
+
+	@Value("${commande.repartition.active:false}")
+	private boolean active;
+
+	@Value("${commande.repartition.commandes-maximum:5000}")
+	private int commandesMaximum;
+
+	@Value("${commande.repartition.attente-maximum-minutes:15}")
+	private long attenteMaximumMinutes;
+
+	@Value("${commande.repartition.rayon-km:30}")
+	private double rayonKm;
+
+	@Value("${geolocalisation.vitesse-moyenne-kmh:40}")
+	private double vitesseMoyenneKmh;
+
+	@Value("${commande.repartition.poids.distance:1.0}")
+	private double poidsDistance;
+
+	@Value("${commande.repartition.poids.delai:0.5}")
+	private double poidsDelai;
+
+	@Value("${commande.repartition.poids.urgence:2.0}")
+	private double facteurUrgence;
+
+	@Value("${commande.repartition.poids.adequation:5.0}")
+	private double poidsAdequation;
+
+	@Value("${commande.repartition.poids.note:5.0}")
+	private double poidsNote;
+
+	private CoutsRepartition couts;
+	private Counter propositions;
+	private Counter expirees;
+	private Timer dureeLot;
+
+	@PostConstruct
+	void initialiser() {
+		couts = new CoutsRepartition(rayonKm, vitesseMoyenneKmh, poidsDistance, poidsDelai,
+				facteurUrgence, poidsAdequation, poidsNote);
+		propositions = meterRegistry.counter("lanayago.repartition.propositions");
+		expirees = meterRegistry.counter("lanayago.repartition.expirees");
+		dureeLot = meterRegistry.timer("lanayago.repartition.duree");
+	}
+
+	public boolean estActive() {
+		return active;
+	}
+
+	@Scheduled(fixedDelayString = "${commande.repartition.intervalle-ms:5000}",
+			initialDelayString = "${commande.repartition.intervalle-ms:5000}")
+	public void repartir() {
+		if (!active || !bailTaches.acquerir(TACHE, Duration.ofMinutes(1))) {
+			return;
+		}
+
+		long debut = System.nanoTime();
+		try {
+			List<Commande> enAttente = commandeRepository.findEnAttenteDeRepartition(Limit.of(commandesMaximum));
+			LocalDateTime limite = LocalDateTime.now().minusMinutes(attenteMaximumMinutes);
+			Map<Boolean, List<Commande>> parAnciennete = enAttente.stream()
+					.collect(Collectors.partitioningBy(commande -> commande.getDateCreation().isBefore(limite)));
+			annuler(parAnciennete.get(true));
+
+			List<Commande> commandes = parAnciennete.get(false);
+			if (!commandes.isEmpty()) {
+				proposer(commandes);
+			}
+		} catch (Exception e) {
+			log.error("Erreur lors de la répartition des commandes en attente", e);
+		} finally {
+			dureeLot.record(System.nanoTime() - debut, TimeUnit.NANOSECONDS);
+			bailTaches.liberer(TACHE);
+		}
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	private void proposer(List<Commande> commandes) {
+		Set<Long> sollicites = new HashSet<>(commandeRepository.findChauffeurIdsSollicites());
+		List<IndexSpatialChauffeurs.ChauffeurIndexe> chauffeurs = indexSpatialChauffeurs.instantane().stream()
+				.filter(chauffeur -> chauffeur.profil().capacitePoidsTonnes() >= 0 && !sollicites.contains(chauffeur.chauffeurId()))
+				.toList();
+		if (chauffeurs.isEmpty()) {
+			return;
+		}
+
+		List<GroupageCommandes.Groupe> groupes = groupageCommandes.grouper(commandes);
+		List<CoutsRepartition.Demande> demandes = groupes.stream().map(RepartitionCommandes::demande).toList();
+		int[] matrice = couts.matrice(demandes, chauffeurs);
+		exclureCreneauxOccupes(matrice, groupes, chauffeurs);
+		int[] affectations = SolveurEncheres.resoudre(
+				matrice, demandes.size(), chauffeurs.size(), couts.coutNonAffectation());
+
+		// Toutes les commandes d'un groupe vont au chauffeur affecté au groupe
+		Map<Long, Long> chauffeurParCommande = new HashMap<>();
+		Map<Long, Commande> commandesAffectees = new HashMap<>();
+		List<GroupageCommandes.Groupe> tournees = new ArrayList<>();
+		for (int i = 0; i < affectations.length; i++) {
+			if (affectations[i] == SolveurEncheres.NON_AFFECTE) {
+				continue;
+			}
+			GroupageCommandes.Groupe groupe = groupes.get(i);
+			for (Commande commande : groupe.commandes()) {
+				chauffeurParCommande.put(commande.getId(), chauffeurs.get(affectations[i]).chauffeurId());
+				commandesAffectees.put(commande.getId(), commande);
+			}
+			if (groupe.estTournee()) {
+				tournees.add(groupe);
+			}
+		}
+		if (chauffeurParCommande.isEmpty()) {
+			return;
+		}
+
+		Integer proposees = transactionTemplate.execute(status -> {
+			Map<Long, Commande> commandesProposees = appliquer(chauffeurParCommande, commandesAffectees);
+			tournees.forEach(groupe -> groupageCommandes.enregistrer(groupe, commandesProposees));
+			return commandesProposees.size();
+		});
+		log.info("Répartition: {} commandes en attente en {} groupes, {} chauffeurs libres, {} propositions",
+				commandes.size(), groupes.size(), chauffeurs.size(), proposees);
+	}
+
+	/**
+	 * Interdit les paires dont une commande chevauche une réservation du chauffeur ; le véhicule,
+	 * absent de l'index, est vérifié à l'écriture des propositions
+	 */
+	private void exclureCreneauxOccupes(int[] matrice, List<GroupageCommandes.Groupe> groupes,
+	                                    List<IndexSpatialChauffeurs.ChauffeurIndexe> chauffeurs) {
+		int interdit = couts.coutNonAffectation();
+		int colonnes = chauffeurs.size();
+		for (int i = 0; i < groupes.size(); i++) {
+			List<CalendrierReservations.Creneau> creneaux = groupes.get(i).commandes().stream().map(this::creneau).toList();
+			for (int j = 0; j < colonnes; j++) {
+				Long chauffeurId = chauffeurs.get(j).chauffeurId();
+				if (matrice[i * colonnes + j] < interdit
+						&& !creneaux.stream().allMatch(creneau -> calendrierReservations.estLibre(chauffeurId, null, creneau))) {
+					matrice[i * colonnes + j] = interdit;
+				}
+			}
+		}
+	}
+
+	private CalendrierReservations.Creneau creneau(Commande commande) {
+		return calendrierReservations.creneau(
+				commande.getDateRamassageSouhaitee(), commande.getDateLivraisonSouhaitee(), commande.getDistance());
+	}
+
+	/**
+	 * Demande d'un groupe : départ au premier ramassage, charge maximale à bord, urgente si une commande l'est
+	 */
+	private static CoutsRepartition.Demande demande(GroupageCommandes.Groupe groupe) {
+		Commande premiere = groupe.commandes().get(0);
+		boolean urgente = groupe.commandes().stream().anyMatch(commande -> Boolean.TRUE.equals(commande.getUrgent()));
+		if (!groupe.estTournee()) {
+			return new CoutsRepartition.Demande(
+					premiere.getLatitudeDepart(),
+					premiere.getLongitudeDepart(),
+					premiere.getPoidsMarchandise().doubleValue() / 1000.0,
+					premiere.getVolumeMarchandise() != null ? premiere.getVolumeMarchandise().doubleValue() : Double.NaN,
+					urgente);
+		}
+		boolean sansVolume = groupe.commandes().stream().allMatch(commande -> commande.getVolumeMarchandise() == null);
+		return new CoutsRepartition.Demande(
+				premiere.getLatitudeDepart(),
+				premiere.getLongitudeDepart(),
+				groupe.itineraire().chargeMaximalePoids(),
+				sansVolume ? Double.NaN : groupe.itineraire().chargeMaximaleVolume(),
+				urgente);
+	}
+
+	/**
+	 * Écrit les propositions en un lot JDBC ; une commande attribuée ou annulée entre-temps, ou un chauffeur
+	 * qui n'est plus libre, est simplement écarté et retentera au lot suivant. Renvoie les commandes proposées.
+	 */
+	private Map<Long, Commande> appliquer(Map<Long, Long> chauffeurParCommande, Map<Long, Commande> commandes) {
+		Map<Long, Chauffeur> chauffeurs = chauffeurRepository.findDisponiblesAvecVehiculeByIdIn(chauffeurParCommande.values())
+				.stream()
+				.filter(chauffeur -> Boolean.TRUE.equals(chauffeur.getVehiculeActuel().getDisponible()))
+				.collect(Collectors.toMap(Chauffeur::getId, Function.identity()));
+
+		Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+		List<Object[]> lignes = new ArrayList<>();
+		chauffeurParCommande.forEach((commandeId, chauffeurId) -> {
+			Chauffeur chauffeur = chauffeurs.get(chauffeurId);
+			if (chauffeur != null && calendrierReservations.estLibre(
+					chauffeurId, chauffeur.getVehiculeActuel().getId(), creneau(commandes.get(commandeId)))) {
+				lignes.add(new Object[]{chauffeurId, chauffeur.getVehiculeActuel().getId(), maintenant, commandeId});
+			}
+		});
+		jdbcTemplate.batchUpdate(SQL_PROPOSER, lignes);
+
+		// Relecture plutôt que les compteurs du lot, que certains pilotes ne renseignent pas
+		Map<Long, Commande> proposees = new HashMap<>();
+		for (Commande commande : commandeRepository.findAllById(chauffeurParCommande.keySet())) {
+			Chauffeur chauffeur = commande.getChauffeur() != null ? chauffeurs.get(commande.getChauffeur().getId()) : null;
+			if (chauffeur == null || !chauffeur.getId().equals(chauffeurParCommande.get(commande.getId()))) {
+				continue;
+			}
+			notificationService.notifierNouvelleCommande(List.of(chauffeur), commande);
+			reaffectationCommandes.suivre(commande);
+			proposees.put(commande.getId(), commande);
+		}
+		propositions.increment(proposees.size());
+		return proposees;
+	}
+
+	/**
+	 * Commandes restées sans chauffeur au-delà de l'attente maximale
+	 */
+	private void annuler(List<Commande> commandes) {
+		if (commandes.isEmpty()) {
+			return;
+		}
+		Integer annulees = transactionTemplate.execute(status -> {
+			int nombre = 0;
+			for (Commande commande : commandes) {
+				if (commandeRepository.changerStatutSi(commande.getId(), StatutCommande.EN_ATTENTE, StatutCommande.ANNULEE) == 0) {
+					continue;
+				}
+				notificationService.notifierChangementStatut(commandeRepository.findById(commande.getId()).orElseThrow());
+				nombre++;
+			}
+			return nombre;
+		});
+		expirees.increment(annulees);
+		log.info("{} commandes annulées sans chauffeur après {} minutes de répartition", annulees, attenteMaximumMinutes);
+	}
+}
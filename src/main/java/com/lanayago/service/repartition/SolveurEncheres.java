@@ -0,0 +1,128 @@
+package com.lanayago.service.repartition;
+
+import java.util.Arrays;
+
+/**
+ * Affectation de coût total minimal par enchères (Bertsekas) avec réduction progressive de ε.
+ * Les lignes (commandes) enchérissent sur les colonnes (chauffeurs) ; la matrice rectangulaire est
+ * complétée virtuellement en matrice carrée : lignes fictives de coût nul, colonnes fictives au coût
+ * de non-affectation. Avec des coûts entiers multipliés par N + 1 et un ε final de 1, l'affectation est optimale.
+ */
+public final class SolveurEncheres {
+
+	public static final int NON_AFFECTE = -1;
+
+	// Division de ε entre deux phases
+	private static final int FACTEUR_EPSILON = 8;
+
+	private SolveurEncheres() {
+	}
+
+	/**
+	 * @param couts               coûts entiers positifs, lignes × colonnes rangés par ligne
+	 * @param coutNonAffectation coût d'une ligne laissée sans colonne ; toute paire d'un coût supérieur ou égal est interdite
+	 * @return pour chaque ligne, la colonne affectée ou NON_AFFECTE
+	 */
+	public static int[] resoudre(int[] couts, int lignes, int colonnes, int coutNonAffectation) {
+		if (couts.length != lignes * colonnes) {
+			throw new IllegalArgumentException("Matrice de " + couts.length + " coûts pour " + lignes + " × " + colonnes);
+		}
+		int[] affectations = new int[lignes];
+		Arrays.fill(affectations, NON_AFFECTE);
+		if (lignes == 0 || colonnes == 0) {
+			return affectations;
+		}
+
+		int taille = Math.max(lignes, colonnes);
+		long echelle = taille + 1L;
+		// Paires interdites ramenées au coût de non-affectation : une affectation parfaite existe toujours
+		long plafond = coutNonAffectation * echelle;
+
+		long[] prix = new long[taille];
+		int[] colonneDeLigne = new int[taille];
+		int[] ligneDeColonne = new int[taille];
+		int[] enAttente = new int[taille];
+
+		long epsilon = Math.max(1, plafond / FACTEUR_EPSILON);
+		while (true) {
+			Arrays.fill(colonneDeLigne, NON_AFFECTE);
+			Arrays.fill(ligneDeColonne, NON_AFFECTE);
+			for (int i = 0; i < taille; i++) {
+				enAttente[i] = i;
+			}
+
+			// File circulaire des lignes sans colonne
+			int tete = 0;
+			int nombre = taille;
+			while (nombre > 0) {
+				int ligne = enAttente[tete];
+				tete = tete + 1 == taille ? 0 : tete + 1;
+				nombre--;
+
+				long meilleure = Long.MIN_VALUE;
+				long seconde = Long.MIN_VALUE;
+				int colonneChoisie = 0;
+				if (ligne < lignes) {
+					int debut = ligne * colonnes;
+					for (int j = 0; j < colonnes; j++) {
+						long valeur = -Math.min(couts[debut + j] * echelle, plafond) - prix[j];
+						if (valeur > meilleure) {
+							seconde = meilleure;
+							meilleure = valeur;
+							colonneChoisie = j;
+						} else if (valeur > seconde) {
+							seconde = valeur;
+						}
+					}
+					for (int j = colonnes; j < taille; j++) {
+						long valeur = -plafond - prix[j];
+						if (valeur > meilleure) {
+							seconde = meilleure;
+							meilleure = valeur;
+							colonneChoisie = j;
+						} else if (valeur > seconde) {
+							seconde = valeur;
+						}
+					}
+				} else {
+					// Ligne fictive : coût nul partout
+					for (int j = 0; j < taille; j++) {
+						long valeur = -prix[j];
+						if (valeur > meilleure) {
+							seconde = meilleure;
+							meilleure = valeur;
+							colonneChoisie = j;
+						} else if (valeur > seconde) {
+							seconde = valeur;
+						}
+					}
+				}
+
+				// Seule colonne : l'enchère minimale suffit
+				prix[colonneChoisie] += (seconde == Long.MIN_VALUE ? 0 : meilleure - seconde) + epsilon;
+
+				int evincee = ligneDeColonne[colonneChoisie];
+				ligneDeColonne[colonneChoisie] = ligne;
+				colonneDeLigne[ligne] = colonneChoisie;
+				if (evincee != NON_AFFECTE) {
+					colonneDeLigne[evincee] = NON_AFFECTE;
+					enAttente[(tete + nombre) % taille] = evincee;
+					nombre++;
+				}
+			}
+
+			if (epsilon == 1) {
+				break;
+			}
+			epsilon = Math.max(1, epsilon / FACTEUR_EPSILON);
+		}
+
+		for (int i = 0; i < lignes; i++) {
+			int colonne = colonneDeLigne[i];
+			if (colonne < colonnes && couts[i * colonnes + colonne] < coutNonAffectation) {
+				affectations[i] = colonne;
+			}
+		}
+		return affectations;
+	}
+}
@@ -0,0 +1,175 @@
+package com.lanayago.service.reservation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Arbre d'intervalles semi-ouverts [debut, fin[ identifiés par une clé : treap ordonné par début, chaque nœud
+ * portant la plus grande fin de son sous-arbre. Insertion, suppression et test de chevauchement en O(log n)
+ * en moyenne. Les intervalles peuvent se chevaucher entre eux (commandes d'une même tournée).
+ * Non synchronisé : l'appelant verrouille.
+ */
+final class ArbreIntervalles {
+
+	private static final class Noeud {
+		private final long cle;
+		private final long debut;
+		private final long fin;
+		private final int priorite;
+		private long finMaximale;
+		private Noeud gauche;
+		private Noeud droite;
+
+		private Noeud(long cle, long debut, long fin) {
+			this.cle = cle;
+			this.debut = debut;
+			this.fin = fin;
+			this.finMaximale = fin;
+			this.priorite = ThreadLocalRandom.current().nextInt();
+		}
+	}
+
+	private final Map<Long, Noeud> parCle = new HashMap<>();
+	private Noeud racine;
+
+	/**
+	 * Ajoute l'intervalle, en remplaçant celui de même clé s'il existe
+	 */
+	void inserer(long cle, long debut, long fin) {
+		supprimer(cle);
+		Noeud noeud = new Noeud(cle, debut, fin);
+		parCle.put(cle, noeud);
+		racine = ajouter(racine, noeud);
+	}
+
+	boolean supprimer(long cle) {
+		Noeud noeud = parCle.remove(cle);
+		if (noeud == null) {
+			return false;
+		}
+		racine = retirer(racine, noeud);
+		return true;
+	}
+
+	/**
+	 * Vrai si un intervalle de l'arbre chevauche [debut, fin[
+	 */
+	boolean chevauche(long debut, long fin) {
+		Noeud noeud = racine;
+		while (noeud != null && noeud.finMaximale > debut) {
+			if (noeud.debut < fin && debut < noeud.fin) {
+				return true;
+			}
+			// Si le sous-arbre gauche finit après debut sans chevaucher, tout ce qui suit commence après fin
+			noeud = noeud.gauche != null && noeud.gauche.finMaximale > debut ? noeud.gauche : noeud.droite;
+		}
+		return false;
+	}
+
+	/**
+	 * Supprime les intervalles terminés à l'instant donné
+	 */
+	int purgerAvant(long instant) {
+		List<Long> terminees = new ArrayList<>();
+		parCle.values().forEach(noeud -> {
+			if (noeud.fin <= instant) {
+				terminees.add(noeud.cle);
+			}
+		});
+		terminees.forEach(this::supprimer);
+		return terminees.size();
+	}
+
+	int taille() {
+		return parCle.size();
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	private static Noeud ajouter(Noeud arbre, Noeud noeud) {
+		if (arbre == null) {
+			return noeud;
+		}
+		if (noeud.priorite > arbre.priorite) {
+			Noeud[] parties = separer(arbre, noeud);
+			noeud.gauche = parties[0];
+			noeud.droite = parties[1];
+			return mettreAJour(noeud);
+		}
+		if (comparer(noeud, arbre) < 0) {
+			arbre.gauche = ajouter(arbre.gauche, noeud);
+		} else {
+			arbre.droite = ajouter(arbre.droite, noeud);
+		}
+		return mettreAJour(arbre);
+	}
+
+	private static Noeud retirer(Noeud arbre, Noeud noeud) {
+		if (arbre == noeud) {
+			return fusionner(arbre.gauche, arbre.droite);
+		}
+		if (comparer(noeud, arbre) < 0) {
+			arbre.gauche = retirer(arbre.gauche, noeud);
+		} else {
+			arbre.droite = retirer(arbre.droite, noeud);
+		}
+		return mettreAJour(arbre);
+	}
+
+	/**
+	 * Sépare l'arbre en nœuds avant et après le pivot, qui n'en fait pas partie
+	 */
+	private static Noeud[] separer(Noeud arbre, Noeud pivot) {
+		if (arbre == null) {
+			return new Noeud[2];
+		}
+		if (comparer(arbre, pivot) < 0) {
+			Noeud[] parties = separer(arbre.droite, pivot);
+			arbre.droite = parties[0];
+			parties[0] = mettreAJour(arbre);
+			return parties;
+		}
+		Noeud[] parties = separer(arbre.gauche, pivot);
+		arbre.gauche = parties[1];
+		parties[1] = mettreAJour(arbre);
+		return parties;
+	}
+
+	/**
+	 * Fusionne deux arbres dont tous les nœuds du premier précèdent ceux du second
+	 */
+	private static Noeud fusionner(Noeud avant, Noeud apres) {
+		if (avant == null) {
+			return apres;
+		}
+		if (apres == null) {
+			return avant;
+		}
+		if (avant.priorite > apres.priorite) {
+			avant.droite = fusionner(avant.droite, apres);
+			return mettreAJour(avant);
+		}
+		apres.gauche = fusionner(avant, apres.gauche);
+		return mettreAJour(apres);
+	}
+
+	private static Noeud mettreAJour(Noeud noeud) {
+		long finMaximale = noeud.fin;
+		if (noeud.gauche != null) {
+			finMaximale = Math.max(finMaximale, noeud.gauche.finMaximale);
+		}
+		if (noeud.droite != null) {
+			finMaximale = Math.max(finMaximale, noeud.droite.finMaximale);
+		}
+		noeud.finMaximale = finMaximale;
+		return noeud;
+	}
+
+	private static int comparer(Noeud a, Noeud b) {
+		int ordre = Long.compare(a.debut, b.debut);
+		return ordre != 0 ? ordre : Long.compare(a.cle, b.cle);
+	}
+}
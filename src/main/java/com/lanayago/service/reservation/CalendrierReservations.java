@@ -0,0 +1,263 @@
+package com.lanayago.service.reservation;
+
+import com.lanayago.entity.Commande;
+import com.lanayago.enums.StatutCommande;
+import com.lanayago.exception.BusinessException;
+import com.lanayago.repository.ChauffeurRepository;
+import com.lanayago.repository.CommandeRepository;
+import com.lanayago.repository.VehiculeRepository;
+import com.lanayago.service.tache.ApresTransaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Calendrier des créneaux réservés par chauffeur et par véhicule : un arbre d'intervalles en mémoire par
+ * ressource, reconstruit depuis la base au démarrage, répond à « libre entre T1 et T2 » en O(log n).
+ * Une commande programmée (ramassage au-delà du délai de programmation) réserve son créneau à l'acceptation
+ * sans rendre le chauffeur ni le véhicule indisponibles : ils ne sont pris qu'au démarrage de la course.
+ * L'arbre ne connaît que les réservations de cette instance : à la réservation, le chevauchement est aussi
+ * vérifié en base sous le verrou des lignes du chauffeur et du véhicule, qui fait foi entre instances.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CalendrierReservations {
+
+	private final CommandeRepository commandeRepository;
+	private final ChauffeurRepository chauffeurRepository;
+	private final VehiculeRepository vehiculeRepository;
+	private final MeterRegistry meterRegistry;
+
+	@Value("${reservation.delai-programmation-minutes:60}")
+	private long delaiProgrammationMinutes;
+
+	@Value("${reservation.marge-minutes:30}")
+	private long margeMinutes;
+
+	@Value("${geolocalisation.vitesse-moyenne-kmh:40}")
+	private double vitesseMoyenneKmh;
+
+	private final Map<Long, ArbreIntervalles> chauffeurs = new ConcurrentHashMap<>();
+	private final Map<Long, ArbreIntervalles> vehicules = new ConcurrentHashMap<>();
+
+	private Counter conflits;
+
+	/**
+	 * Intervalle réservé [debut, fin[
+	 */
+	public record Creneau(LocalDateTime debut, LocalDateTime fin) {
+	}
+
+	@PostConstruct
+	void initialiserMetriques() {
+		conflits = meterRegistry.counter("lanayago.reservations.conflits");
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void reconstruire() {
+		List<Object[]> reservations = commandeRepository.findReservationsAVenir(LocalDateTime.now(), StatutCommande.STATUTS_ACTIFS);
+		for (Object[] ligne : reservations) {
+			inscrire((Long) ligne[0], (Long) ligne[1], (Long) ligne[2],
+					new Creneau((LocalDateTime) ligne[3], (LocalDateTime) ligne[4]));
+		}
+		log.info("Calendrier des réservations reconstruit: {} créneaux", reservations.size());
+	}
+
+	/**
+	 * Créneau d'une course : du ramassage souhaité (ou de maintenant) à la livraison souhaitée,
+	 * à défaut à la durée estimée du trajet plus la marge
+	 */
+	public Creneau creneau(LocalDateTime ramassage, LocalDateTime livraison, Double distanceKm) {
+		LocalDateTime maintenant = LocalDateTime.now();
+		LocalDateTime debut = ramassage != null && ramassage.isAfter(maintenant) ? ramassage : maintenant;
+		if (livraison != null && livraison.isAfter(debut)) {
+			return new Creneau(debut, livraison);
+		}
+		long minutes = Math.round((distanceKm != null ? distanceKm : 0.0) / vitesseMoyenneKmh * 60.0) + margeMinutes;
+		return new Creneau(debut, debut.plusMinutes(minutes));
+	}
+
+	/**
+	 * Vrai si le ramassage est assez lointain pour réserver sans immobiliser le chauffeur dès maintenant
+	 */
+	public boolean estProgramme(LocalDateTime ramassage) {
+		return ramassage != null && ramassage.isAfter(LocalDateTime.now().plusMinutes(delaiProgrammationMinutes));
+	}
+
+	public boolean estLibre(Long chauffeurId, Long vehiculeId, Creneau creneau) {
+		long debut = secondes(creneau.debut());
+		long fin = secondes(creneau.fin());
+		return !chevauche(chauffeurs.get(chauffeurId), debut, fin)
+				&& (vehiculeId == null || !chevauche(vehicules.get(vehiculeId), debut, fin));
+	}
+
+	/**
+	 * Réserve le créneau de la commande pour le chauffeur et le véhicule, dans la transaction appelante
+	 * (retiré si elle est annulée), et l'enregistre sur la commande. Les lignes du chauffeur et du véhicule
+	 * restent verrouillées jusqu'à la validation, qui écrit le créneau.
+	 *
+	 * @throws BusinessException si le chauffeur ou le véhicule a déjà un créneau qui le chevauche
+	 */
+	public void reserver(Commande commande, Long chauffeurId, Long vehiculeId, boolean programmee) {
+		Creneau creneau = creneau(commande.getDateRamassageSouhaitee(), commande.getDateLivraisonSouhaitee(), commande.getDistance());
+		long debut = secondes(creneau.debut());
+		long fin = secondes(creneau.fin());
+		verifierEnBase(commande.getId(), chauffeurId, vehiculeId, creneau);
+
+		// Verrous toujours pris dans le même ordre : chauffeur puis véhicule
+		ArbreIntervalles arbreChauffeur = chauffeurs.computeIfAbsent(chauffeurId, id -> new ArbreIntervalles());
+		ArbreIntervalles arbreVehicule = vehiculeId != null ? vehicules.computeIfAbsent(vehiculeId, id -> new ArbreIntervalles()) : null;
+		synchronized (arbreChauffeur) {
+			if (arbreChauffeur.chevauche(debut, fin)) {
+				conflits.increment();
+				throw new BusinessException("Vous avez déjà une course réservée sur ce créneau");
+			}
+			if (arbreVehicule != null) {
+				synchronized (arbreVehicule) {
+					if (arbreVehicule.chevauche(debut, fin)) {
+						conflits.increment();
+						throw new BusinessException("Le véhicule est déjà réservé sur ce créneau");
+					}
+					arbreVehicule.inserer(commande.getId(), debut, fin);
+				}
+			}
+			arbreChauffeur.inserer(commande.getId(), debut, fin);
+		}
+		ApresTransaction.siAnnulation(() -> retirer(commande.getId(), chauffeurId, vehiculeId));
+
+		commande.setProgrammee(programmee);
+		commande.setDebutReservation(creneau.debut());
+		commande.setFinReservation(creneau.fin());
+	}
+
+	/**
+	 * Comme reserver, sans contrôle de chevauchement : commandes d'une tournée acceptée d'un bloc
+	 */
+	public void inscrire(Commande commande, Long chauffeurId, Long vehiculeId, boolean programmee) {
+		Creneau creneau = creneau(commande.getDateRamassageSouhaitee(), commande.getDateLivraisonSouhaitee(), commande.getDistance());
+		inscrire(commande.getId(), chauffeurId, vehiculeId, creneau);
+		ApresTransaction.siAnnulation(() -> retirer(commande.getId(), chauffeurId, vehiculeId));
+
+		commande.setProgrammee(programmee);
+		commande.setDebutReservation(creneau.debut());
+		commande.setFinReservation(creneau.fin());
+	}
+
+	/**
+	 * Libère le créneau de la commande à la validation de la transaction appelante
+	 */
+	public void liberer(Commande commande) {
+		if (commande.getFinReservation() == null || commande.getChauffeur() == null) {
+			return;
+		}
+		Long chauffeurId = commande.getChauffeur().getId();
+		Long vehiculeId = commande.getVehicule() != null ? commande.getVehicule().getId() : null;
+		ApresTransaction.apresValidation(() -> retirer(commande.getId(), chauffeurId, vehiculeId));
+	}
+
+	/**
+	 * Créneaux terminés : les courses en retard restent couvertes par l'indisponibilité du chauffeur
+	 */
+	@Scheduled(fixedDelayString = "${reservation.intervalle-purge-ms:600000}")
+	public void purger() {
+		long maintenant = secondes(LocalDateTime.now());
+		int purges = purger(chauffeurs, maintenant) + purger(vehicules, maintenant);
+		if (purges > 0) {
+			log.debug("{} créneaux terminés retirés du calendrier", purges);
+		}
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	/**
+	 * Créneaux réservés par les autres instances, ou validés depuis la reconstruction de l'arbre ;
+	 * aucun verrou en mémoire n'est tenu pendant ces requêtes
+	 */
+	private void verifierEnBase(Long commandeId, Long chauffeurId, Long vehiculeId, Creneau creneau) {
+		// Même ordre que les verrous en mémoire : chauffeur puis véhicule
+		chauffeurRepository.verrouiller(chauffeurId);
+		if (!commandeRepository.findChevauchementsChauffeur(
+				chauffeurId, commandeId, creneau.debut(), creneau.fin(), StatutCommande.STATUTS_ACTIFS).isEmpty()) {
+			conflits.increment();
+			throw new BusinessException("Vous avez déjà une course réservée sur ce créneau");
+		}
+		if (vehiculeId == null) {
+			return;
+		}
+		vehiculeRepository.verrouiller(vehiculeId);
+		if (!commandeRepository.findChevauchementsVehicule(
+				vehiculeId, commandeId, creneau.debut(), creneau.fin(), StatutCommande.STATUTS_ACTIFS).isEmpty()) {
+			conflits.increment();
+			throw new BusinessException("Le véhicule est déjà réservé sur ce créneau");
+		}
+	}
+
+	private void inscrire(Long commandeId, Long chauffeurId, Long vehiculeId, Creneau creneau) {
+		long debut = secondes(creneau.debut());
+		long fin = secondes(creneau.fin());
+		ArbreIntervalles arbreChauffeur = chauffeurs.computeIfAbsent(chauffeurId, id -> new ArbreIntervalles());
+		synchronized (arbreChauffeur) {
+			arbreChauffeur.inserer(commandeId, debut, fin);
+		}
+		if (vehiculeId != null) {
+			ArbreIntervalles arbreVehicule = vehicules.computeIfAbsent(vehiculeId, id -> new ArbreIntervalles());
+			synchronized (arbreVehicule) {
+				arbreVehicule.inserer(commandeId, debut, fin);
+			}
+		}
+	}
+
+	private void retirer(Long commandeId, Long chauffeurId, Long vehiculeId) {
+		retirer(chauffeurs, chauffeurId, commandeId);
+		if (vehiculeId != null) {
+			retirer(vehicules, vehiculeId, commandeId);
+		}
+	}
+
+	private static void retirer(Map<Long, ArbreIntervalles> arbres, Long ressourceId, Long commandeId) {
+		ArbreIntervalles arbre = arbres.get(ressourceId);
+		if (arbre != null) {
+			synchronized (arbre) {
+				arbre.supprimer(commandeId);
+			}
+		}
+	}
+
+	private static int purger(Map<Long, ArbreIntervalles> arbres, long instant) {
+		int purges = 0;
+		// Les arbres vides sont conservés : un appelant peut déjà en tenir la référence
+		for (ArbreIntervalles arbre : arbres.values()) {
+			synchronized (arbre) {
+				purges += arbre.purgerAvant(instant);
+			}
+		}
+		return purges;
+	}
+
+	private static boolean chevauche(ArbreIntervalles arbre, long debut, long fin) {
+		if (arbre == null) {
+			return false;
+		}
+		synchronized (arbre) {
+			return arbre.chevauche(debut, fin);
+		}
+	}
+
+	private static long secondes(LocalDateTime date) {
+		return date.atZone(ZoneId.systemDefault()).toEpochSecond();
+	}
+}
@@ -0,0 +1,11 @@
+package com.lanayago.service.suivi;
+
+import com.lanayago.enums.StatutCommande;
+
+import java.time.LocalDateTime;
+
+/**
+ * Commande sur laquelle un chauffeur est engagé, réduite à ce qu'exige le suivi en direct
+ */
+public record CommandeActive(Long id, Long chauffeurId, Long clientId, StatutCommande statut, LocalDateTime dateCreation) {
+}
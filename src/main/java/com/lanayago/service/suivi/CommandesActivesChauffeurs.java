@@ -0,0 +1,121 @@
+package com.lanayago.service.suivi;
+
+import com.lanayago.entity.Commande;
+import com.lanayago.enums.StatutCommande;
+import com.lanayago.repository.CommandeRepository;
+import com.lanayago.service.tache.ApresTransaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Commandes actives par chauffeur, tenues à jour par les transitions de CommandeService et relues
+ * en base (requête indexée sur chauffeur_id, statut) en cas d'absence. Le suivi en direct ne dépend
+ * plus que du nombre de commandes en cours, pas de l'historique du chauffeur.
+ */
+@Component
+@RequiredArgsConstructor
+public class CommandesActivesChauffeurs {
+
+	// Plus récente d'abord
+	private static final Comparator<CommandeActive> ORDRE = Comparator
+			.comparing(CommandeActive::dateCreation, Comparator.nullsLast(Comparator.reverseOrder()))
+			.thenComparing(CommandeActive::id, Comparator.reverseOrder());
+
+	private final CommandeRepository commandeRepository;
+
+	// Borne la durée pendant laquelle une transition faite par une autre instance peut rester invisible ici
+	@Value("${suivi.commandes-actives.duree-vie-ms:60000}")
+	private long dureeVieMs;
+
+	private final Map<Long, Entree> parChauffeur = new ConcurrentHashMap<>();
+
+	// Incrémenté à chaque transition : une lecture en base concurrente n'est alors pas mise en cache
+	private final AtomicLong generation = new AtomicLong();
+
+	private record Entree(List<CommandeActive> commandes, long chargeeA) {
+	}
+
+	/**
+	 * Commandes actives du chauffeur, la plus récente d'abord
+	 */
+	public List<CommandeActive> deChauffeur(Long chauffeurId) {
+		return deChauffeurs(List.of(chauffeurId)).getOrDefault(chauffeurId, List.of());
+	}
+
+	/**
+	 * Commandes actives de plusieurs chauffeurs ; les absents sont relus en une seule requête
+	 */
+	public Map<Long, List<CommandeActive>> deChauffeurs(Collection<Long> chauffeurIds) {
+		long maintenant = System.currentTimeMillis();
+		Map<Long, List<CommandeActive>> resultat = new HashMap<>();
+		List<Long> absents = new ArrayList<>();
+		for (Long chauffeurId : chauffeurIds) {
+			Entree entree = parChauffeur.get(chauffeurId);
+			if (entree != null && maintenant - entree.chargeeA() < dureeVieMs) {
+				resultat.put(chauffeurId, entree.commandes());
+			} else {
+				absents.add(chauffeurId);
+			}
+		}
+		if (absents.isEmpty()) {
+			return resultat;
+		}
+
+		long generationLue = generation.get();
+		Map<Long, List<CommandeActive>> charges = new HashMap<>();
+		for (CommandeActive commande : commandeRepository.findActivesByChauffeurIdIn(absents, StatutCommande.STATUTS_ACTIFS)) {
+			charges.computeIfAbsent(commande.chauffeurId(), id -> new ArrayList<>()).add(commande);
+		}
+		boolean aJour = generation.get() == generationLue;
+		for (Long chauffeurId : absents) {
+			List<CommandeActive> commandes = trier(charges.getOrDefault(chauffeurId, List.of()));
+			resultat.put(chauffeurId, commandes);
+			if (aJour) {
+				parChauffeur.put(chauffeurId, new Entree(commandes, maintenant));
+			}
+		}
+		return resultat;
+	}
+
+	/**
+	 * Reporte le nouveau statut de la commande, une fois la transaction en cours validée
+	 */
+	public void appliquer(Commande commande) {
+		if (commande.getChauffeur() == null) {
+			return;
+		}
+		CommandeActive commandeActive = new CommandeActive(commande.getId(), commande.getChauffeur().getId(),
+				commande.getClient().getId(), commande.getStatut(), commande.getDateCreation());
+
+		ApresTransaction.apresValidation(() -> appliquer(commandeActive));
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	private void appliquer(CommandeActive commande) {
+		generation.incrementAndGet();
+		// Sans entrée, la prochaine lecture en base verra déjà la transition validée
+		parChauffeur.computeIfPresent(commande.chauffeurId(), (id, entree) -> {
+			List<CommandeActive> commandes = new ArrayList<>(entree.commandes());
+			commandes.removeIf(existante -> existante.id().equals(commande.id()));
+			if (StatutCommande.STATUTS_ACTIFS.contains(commande.statut())) {
+				commandes.add(commande);
+			}
+			return new Entree(trier(commandes), entree.chargeeA());
+		});
+	}
+
+	private static List<CommandeActive> trier(List<CommandeActive> commandes) {
+		return commandes.stream().sorted(ORDRE).toList();
+	}
+}
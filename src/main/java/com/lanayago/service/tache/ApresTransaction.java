@@ -0,0 +1,47 @@
+package com.lanayago.service.tache;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Actions rattachées à l'issue de la transaction en cours : état en mémoire, échéances et signaux
+ * ne doivent refléter que ce qui a été validé en base.
+ */
+public final class ApresTransaction {
+
+	private ApresTransaction() {
+	}
+
+	/**
+	 * Exécute l'action après validation de la transaction en cours, ou tout de suite hors transaction
+	 */
+	public static void apresValidation(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
+	/**
+	 * Exécute l'action si la transaction en cours est annulée ; sans effet hors transaction
+	 */
+	public static void siAnnulation(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				if (status != STATUS_COMMITTED) {
+					action.run();
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,73 @@
+package com.lanayago.service.tache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Baux en base (table verrous_taches) garantissant qu'une tâche planifiée ne tourne
+ * que sur une instance à la fois. Un bail expiré peut être repris par n'importe quelle instance.
+ */
+@Component
+@Slf4j
+public class BailTaches {
+
+	private static final String SQL_PROLONGER =
+			"UPDATE verrous_taches SET proprietaire = ?, expiration = ? " +
+					"WHERE nom = ? AND (expiration < ? OR proprietaire = ?)";
+
+	private static final String SQL_CREER =
+			"INSERT INTO verrous_taches (nom, proprietaire, expiration) VALUES (?, ?, ?)";
+
+	private static final String SQL_LIBERER =
+			"UPDATE verrous_taches SET expiration = 0 WHERE nom = ? AND proprietaire = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final String identifiant;
+
+	public BailTaches(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.identifiant = nomHote() + "-" + UUID.randomUUID().toString().substring(0, 8);
+	}
+
+	/**
+	 * Prend (ou prolonge) le bail de la tâche ; faux si une autre instance le détient encore
+	 */
+	public boolean acquerir(String tache, Duration duree) {
+		long maintenant = System.currentTimeMillis();
+		long expiration = maintenant + duree.toMillis();
+
+		if (jdbcTemplate.update(SQL_PROLONGER, identifiant, expiration, tache, maintenant, identifiant) == 1) {
+			return true;
+		}
+		try {
+			jdbcTemplate.update(SQL_CREER, tache, identifiant, expiration);
+			return true;
+		} catch (DuplicateKeyException e) {
+			// Bail existant et encore valide pour une autre instance
+			return false;
+		}
+	}
+
+	public void liberer(String tache) {
+		jdbcTemplate.update(SQL_LIBERER, tache, identifiant);
+	}
+
+	public String getIdentifiant() {
+		return identifiant;
+	}
+
+	private static String nomHote() {
+		try {
+			String nom = InetAddress.getLocalHost().getHostName();
+			return nom.length() > 80 ? nom.substring(0, 80) : nom;
+		} catch (Exception e) {
+			return "instance";
+		}
+	}
+}
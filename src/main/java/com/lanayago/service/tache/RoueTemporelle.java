@@ -0,0 +1,254 @@
+package com.lanayago.service.tache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Roue temporelle hiérarchique : NIVEAUX roues de même taille, chaque case d'un niveau couvrant un tour
+ * complet du niveau inférieur. Une échéance lointaine attend dans un niveau grossier et redescend quand
+ * l'aiguille atteint sa case ; à chaque tick, seules les échéances dues ou qui redescendent sont touchées.
+ * Planifier et annuler coûtent O(1), quel que soit le nombre d'échéances en attente, et une roue sans
+ * échéance ne fait qu'avancer son aiguille. Le tout est parcouru par un seul thread ; les tâches échues
+ * sont confiées à l'exécuteur fourni, jamais exécutées sur le thread de la roue.
+ */
+@Slf4j
+public class RoueTemporelle implements AutoCloseable {
+
+	private static final int EN_ATTENTE = 0;
+	private static final int ANNULEE = 1;
+	private static final int ECHUE = 2;
+
+	// Avec 256 cases de 10 ms par niveau, quatre niveaux couvrent plus d'un an
+	private static final int NIVEAUX = 4;
+
+	private final long dureeTickNanos;
+	private final Case[][] niveaux;
+	private final int bits;
+	private final int masque;
+	private final Executor executeur;
+
+	private final Queue<Echeance> aPlacer = new ConcurrentLinkedQueue<>();
+	private final Queue<Echeance> aRetirer = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger enAttente = new AtomicInteger();
+	private final Thread aiguille;
+	private final long origineNanos;
+
+	private volatile boolean arretee;
+	private long tick;
+
+	/**
+	 * @param nombreCases cases par niveau, arrondi à la puissance de deux supérieure ;
+	 *                    le premier niveau couvre nombreCases × dureeTick à la précision d'un tick
+	 */
+	public RoueTemporelle(String nom, Duration dureeTick, int nombreCases, Executor executeur) {
+		this.dureeTickNanos = dureeTick.toNanos();
+		int taille = Integer.highestOneBit(Math.max(2, nombreCases - 1)) << 1;
+		this.bits = Integer.numberOfTrailingZeros(taille);
+		this.masque = taille - 1;
+		this.niveaux = new Case[NIVEAUX][taille];
+		for (Case[] niveau : niveaux) {
+			for (int i = 0; i < taille; i++) {
+				niveau[i] = new Case();
+			}
+		}
+		this.executeur = executeur;
+		this.origineNanos = System.nanoTime();
+		this.aiguille = new Thread(this::tourner, nom);
+		this.aiguille.setDaemon(true);
+		this.aiguille.start();
+	}
+
+	/**
+	 * Échéance de la tâche dans le délai donné, à un tick près
+	 */
+	public Echeance planifier(Duration delai, Runnable tache) {
+		if (arretee) {
+			throw new IllegalStateException("Roue temporelle arrêtée");
+		}
+		Echeance echeance = new Echeance(System.nanoTime() - origineNanos + Math.max(0, delai.toNanos()), tache);
+		enAttente.incrementAndGet();
+		aPlacer.add(echeance);
+		return echeance;
+	}
+
+	public int getNombreEnAttente() {
+		return enAttente.get();
+	}
+
+	@Override
+	public void close() {
+		arretee = true;
+		aiguille.interrupt();
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	private void tourner() {
+		while (!arretee) {
+			long finTick = (tick + 1) * dureeTickNanos;
+			long attente = finTick - (System.nanoTime() - origineNanos);
+			if (attente > 0) {
+				LockSupport.parkNanos(this, attente);
+				continue;
+			}
+			retirerAnnulees();
+			redescendre();
+			placer();
+			niveaux[0][(int) (tick & masque)].echoir();
+			tick++;
+		}
+	}
+
+	/**
+	 * Au début de chaque tour d'un niveau, la case atteinte dans le niveau supérieur est redistribuée
+	 */
+	private void redescendre() {
+		for (int niveau = NIVEAUX - 1; niveau > 0; niveau--) {
+			if ((tick & ((1L << (bits * niveau)) - 1)) == 0) {
+				Case aVider = niveaux[niveau][(int) ((tick >>> (bits * niveau)) & masque)];
+				Echeance echeance;
+				while ((echeance = aVider.tete) != null) {
+					aVider.retirer(echeance);
+					ranger(echeance);
+				}
+			}
+		}
+	}
+
+	private void placer() {
+		// Borné par tick pour ne pas retarder l'aiguille sous une rafale de planifications
+		for (int i = 0; i < 100_000; i++) {
+			Echeance echeance = aPlacer.poll();
+			if (echeance == null) {
+				return;
+			}
+			if (echeance.etat.get() != ANNULEE) {
+				ranger(echeance);
+			}
+		}
+	}
+
+	/**
+	 * Niveau le plus fin dont le tour en cours contient l'échéance : tous les chiffres de rang supérieur
+	 * (en base nombreCases) sont ceux de l'aiguille. Une échéance passée part dans la case courante.
+	 */
+	private void ranger(Echeance echeance) {
+		long ticks = Math.max(echeance.echeanceNanos / dureeTickNanos, tick);
+		for (int niveau = 0; niveau < NIVEAUX; niveau++) {
+			if (((ticks ^ tick) >>> (bits * (niveau + 1))) == 0) {
+				niveaux[niveau][(int) ((ticks >>> (bits * niveau)) & masque)].ajouter(echeance);
+				return;
+			}
+		}
+		// Au-delà de l'horizon : dans la dernière case du niveau supérieur, puis rangée à nouveau
+		niveaux[NIVEAUX - 1][(int) (((tick >>> (bits * (NIVEAUX - 1))) - 1) & masque)].ajouter(echeance);
+	}
+
+	private void retirerAnnulees() {
+		Echeance echeance;
+		while ((echeance = aRetirer.poll()) != null) {
+			if (echeance.caseCourante != null) {
+				echeance.caseCourante.retirer(echeance);
+			}
+		}
+	}
+
+	private void executer(Echeance echeance) {
+		try {
+			executeur.execute(echeance.tache);
+		} catch (RuntimeException e) {
+			log.error("Échéance non exécutée", e);
+		}
+	}
+
+	/**
+	 * Échéance planifiée ; annulable tant qu'elle n'est pas échue
+	 */
+	public final class Echeance {
+		private final long echeanceNanos;
+		private final Runnable tache;
+		private final AtomicInteger etat = new AtomicInteger(EN_ATTENTE);
+
+		// Accédés par le seul thread de la roue
+		private Case caseCourante;
+		private Echeance precedente;
+		private Echeance suivante;
+
+		private Echeance(long echeanceNanos, Runnable tache) {
+			this.echeanceNanos = echeanceNanos;
+			this.tache = tache;
+		}
+
+		/**
+		 * Faux si l'échéance est déjà échue ou annulée
+		 */
+		public boolean annuler() {
+			if (!etat.compareAndSet(EN_ATTENTE, ANNULEE)) {
+				return false;
+			}
+			enAttente.decrementAndGet();
+			aRetirer.add(this);
+			return true;
+		}
+
+		public long delaiRestant(TimeUnit unite) {
+			return unite.convert(echeanceNanos - (System.nanoTime() - origineNanos), TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Liste doublement chaînée des échéances d'une case, manipulée par le seul thread de la roue
+	 */
+	private final class Case {
+		private Echeance tete;
+		private Echeance queue;
+
+		void ajouter(Echeance echeance) {
+			echeance.caseCourante = this;
+			if (tete == null) {
+				tete = queue = echeance;
+			} else {
+				queue.suivante = echeance;
+				echeance.precedente = queue;
+				queue = echeance;
+			}
+		}
+
+		void echoir() {
+			Echeance echeance;
+			while ((echeance = tete) != null) {
+				retirer(echeance);
+				if (echeance.etat.compareAndSet(EN_ATTENTE, ECHUE)) {
+					enAttente.decrementAndGet();
+					executer(echeance);
+				}
+			}
+		}
+
+		void retirer(Echeance echeance) {
+			if (echeance.caseCourante != this) {
+				return;
+			}
+			if (echeance.precedente != null) {
+				echeance.precedente.suivante = echeance.suivante;
+			} else {
+				tete = echeance.suivante;
+			}
+			if (echeance.suivante != null) {
+				echeance.suivante.precedente = echeance.precedente;
+			} else {
+				queue = echeance.precedente;
+			}
+			echeance.precedente = null;
+			echeance.suivante = null;
+			echeance.caseCourante = null;
+		}
+	}
+}
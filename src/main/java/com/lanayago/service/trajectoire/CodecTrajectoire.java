@@ -0,0 +1,156 @@
+package com.lanayago.service.trajectoire;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Encodage compact des trajectoires : le premier point d'un segment est absolu,
+ * les suivants sont des deltas (temps en ms, coordonnées en micro-degrés)
+ * écrits en varint zigzag. Un point occupe en général 4 à 6 octets.
+ */
+public final class CodecTrajectoire {
+
+	public static final int TAILLE_SEGMENT = 4096;
+
+	// Pire cas : horodatage sur 10 octets + deux coordonnées sur 5 octets
+	private static final int TAILLE_MAX_POINT = 20;
+	private static final double ECHELLE = 1_000_000.0;
+
+	private CodecTrajectoire() {
+	}
+
+	/**
+	 * Segment en cours d'écriture, de taille fixe
+	 */
+	public static final class Encodeur {
+
+		private final byte[] tampon = new byte[TAILLE_SEGMENT];
+		private int taille;
+		private int nombrePoints;
+		private long dernierHorodatage;
+		// Bornes du segment : les points n'arrivent pas forcément dans l'ordre chronologique
+		private long horodatageMinimal;
+		private long horodatageMaximal;
+		private int derniereLatitude;
+		private int derniereLongitude;
+
+		/**
+		 * Ajoute un point ; retourne false si le segment est plein
+		 */
+		public boolean ajouter(long horodatage, double latitude, double longitude) {
+			if (TAILLE_SEGMENT - taille < TAILLE_MAX_POINT) {
+				return false;
+			}
+
+			int lat = (int) Math.round(latitude * ECHELLE);
+			int lon = (int) Math.round(longitude * ECHELLE);
+
+			if (nombrePoints == 0) {
+				horodatageMinimal = horodatage;
+				horodatageMaximal = horodatage;
+				ecrireVarLong(zigzag(horodatage));
+				ecrireVarLong(zigzag(lat));
+				ecrireVarLong(zigzag(lon));
+			} else {
+				ecrireVarLong(zigzag(horodatage - dernierHorodatage));
+				ecrireVarLong(zigzag(lat - derniereLatitude));
+				ecrireVarLong(zigzag(lon - derniereLongitude));
+			}
+
+			horodatageMinimal = Math.min(horodatageMinimal, horodatage);
+			horodatageMaximal = Math.max(horodatageMaximal, horodatage);
+			dernierHorodatage = horodatage;
+			derniereLatitude = lat;
+			derniereLongitude = lon;
+			nombrePoints++;
+			return true;
+		}
+
+		public byte[] octets() {
+			return Arrays.copyOf(tampon, taille);
+		}
+
+		public int getNombrePoints() {
+			return nombrePoints;
+		}
+
+		public long getHorodatageMinimal() {
+			return horodatageMinimal;
+		}
+
+		public long getHorodatageMaximal() {
+			return horodatageMaximal;
+		}
+
+		private void ecrireVarLong(long valeur) {
+			while ((valeur & ~0x7FL) != 0) {
+				tampon[taille++] = (byte) ((valeur & 0x7F) | 0x80);
+				valeur >>>= 7;
+			}
+			tampon[taille++] = (byte) valeur;
+		}
+	}
+
+	/**
+	 * Décode paresseusement les points d'un segment, dans leur ordre d'ajout
+	 */
+	public static Stream<PointTrajectoire> decoder(byte[] donnees, int nombrePoints) {
+		Iterator<PointTrajectoire> iterateur = new Iterator<>() {
+			private int position;
+			private int lus;
+			private long horodatage;
+			private int latitude;
+			private int longitude;
+
+			@Override
+			public boolean hasNext() {
+				return lus < nombrePoints;
+			}
+
+			@Override
+			public PointTrajectoire next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				long dt = dezigzag(lireVarLong());
+				int dLat = (int) dezigzag(lireVarLong());
+				int dLon = (int) dezigzag(lireVarLong());
+
+				horodatage = lus == 0 ? dt : horodatage + dt;
+				latitude = lus == 0 ? dLat : latitude + dLat;
+				longitude = lus == 0 ? dLon : longitude + dLon;
+				lus++;
+
+				return new PointTrajectoire(horodatage, latitude / ECHELLE, longitude / ECHELLE);
+			}
+
+			private long lireVarLong() {
+				long resultat = 0;
+				int decalage = 0;
+				byte octet;
+				do {
+					octet = donnees[position++];
+					resultat |= (long) (octet & 0x7F) << decalage;
+					decalage += 7;
+				} while ((octet & 0x80) != 0);
+				return resultat;
+			}
+		};
+
+		return StreamSupport.stream(
+				Spliterators.spliterator(iterateur, nombrePoints, Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	private static long zigzag(long valeur) {
+		return (valeur << 1) ^ (valeur >> 63);
+	}
+
+	private static long dezigzag(long valeur) {
+		return (valeur >>> 1) ^ -(valeur & 1);
+	}
+}
@@ -0,0 +1,7 @@
+package com.lanayago.service.trajectoire;
+
+/**
+ * Point GPS horodaté (epoch en millisecondes) d'une trajectoire de commande
+ */
+public record PointTrajectoire(long horodatage, double latitude, double longitude) {
+}
@@ -0,0 +1,252 @@
+package com.lanayago.service.trajectoire;
+
+import com.lanayago.entity.SegmentTrajectoire;
+import com.lanayago.repository.SegmentTrajectoireRepository;
+import com.lanayago.service.geo.NoyauGeodesique;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Stockage des trajectoires GPS des commandes actives.
+ * Les points sont accumulés en mémoire dans un segment binaire de taille fixe ;
+ * seuls les segments (et non les points) sont écrits en base, périodiquement.
+ * Le segment ouvert n'est réécrit qu'après assez de nouveaux points, un délai maximal ou la clôture ;
+ * les lectures complètent la base avec la mémoire. Aucun accès base n'a lieu sous le verrou de la table.
+ * À l'arrêt, tous les points encore en mémoire sont écrits.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TrajectoireService {
+
+	private final SegmentTrajectoireRepository segmentTrajectoireRepository;
+
+	@Value("${suivi.trajectoire.points-minimum-ecriture:50}")
+	private int pointsMinimumEcriture;
+
+	@Value("${suivi.trajectoire.age-maximum-ecriture-ms:60000}")
+	private long ageMaximumEcritureMs;
+
+	private final Map<Long, TrajectoireOuverte> trajectoires = new ConcurrentHashMap<>();
+	private final Queue<SegmentTrajectoire> segmentsComplets = new ConcurrentLinkedQueue<>();
+	// Un flush à la fois : deux écritures concurrentes d'un segment neuf créeraient deux lignes
+	private final ReentrantLock verrouFlush = new ReentrantLock();
+
+	private static final class TrajectoireOuverte {
+		private Long segmentId;
+		private int numeroSegment;
+		private CodecTrajectoire.Encodeur encodeur = new CodecTrajectoire.Encodeur();
+		// Points du segment ouvert déjà présents en base, et date de la dernière écriture
+		private int pointsEcrits;
+		private long derniereEcriture = System.currentTimeMillis();
+		private boolean cloturee;
+
+		private TrajectoireOuverte(int numeroSegment) {
+			this.numeroSegment = numeroSegment;
+		}
+
+		private int pointsNonEcrits() {
+			return encodeur.getNombrePoints() - pointsEcrits;
+		}
+	}
+
+	public void ajouterPoint(Long commandeId, PointTrajectoire point) {
+		boolean[] ajoute = new boolean[1];
+		while (!ajoute[0]) {
+			if (!trajectoires.containsKey(commandeId)) {
+				// Numéro lu hors du verrou : deux premiers points concurrents lisent la même valeur
+				Integer dernierNumero = segmentTrajectoireRepository.findDernierNumeroSegment(commandeId);
+				trajectoires.putIfAbsent(commandeId, new TrajectoireOuverte(dernierNumero == null ? 0 : dernierNumero + 1));
+			}
+			// Entrée retirée entre-temps par un flush : elle est recréée au tour suivant
+			trajectoires.computeIfPresent(commandeId, (id, trajectoire) -> {
+				ajouter(id, trajectoire, point);
+				ajoute[0] = true;
+				return trajectoire;
+			});
+		}
+	}
+
+	/**
+	 * Marque la trajectoire comme terminée ; elle sera écrite puis libérée au prochain flush
+	 */
+	public void cloturer(Long commandeId) {
+		trajectoires.computeIfPresent(commandeId, (id, trajectoire) -> {
+			trajectoire.cloturee = true;
+			return trajectoire;
+		});
+	}
+
+	/**
+	 * Chaque segment est écrit dans sa propre transaction, hors du verrou de la table ;
+	 * un échec laisse le segment en mémoire pour le flush suivant
+	 */
+	@Scheduled(fixedDelayString = "${suivi.trajectoire.intervalle-flush-ms:10000}")
+	public void flush() {
+		flush(false);
+	}
+
+	/**
+	 * Écrit les segments complets et tous les segments ouverts non encore écrits, quels que soient les seuils :
+	 * un redémarrage ne perd pas les derniers points et numérote le segment suivant après eux
+	 */
+	@PreDestroy
+	void arreter() {
+		flush(true);
+		if (!trajectoires.isEmpty() || !segmentsComplets.isEmpty()) {
+			log.warn("Arrêt avec {} trajectoires et {} segments non écrits", trajectoires.size(), segmentsComplets.size());
+		}
+	}
+
+	/**
+	 * Points de la commande compris entre deux instants (epoch en millisecondes), dans l'ordre chronologique ;
+	 * les points arrivés en retard sont replacés à leur horodatage
+	 */
+	@Transactional(readOnly = true)
+	public Stream<PointTrajectoire> lirePoints(Long commandeId, long debut, long fin) {
+		TreeMap<Integer, SegmentTrajectoire> segments = new TreeMap<>();
+		segmentTrajectoireRepository.findByCommandeIdEntre(commandeId, debut, fin)
+				.forEach(segment -> segments.put(segment.getNumeroSegment(), segment));
+
+		// Les segments encore en mémoire sont plus récents que leur version en base
+		segmentsComplets.stream()
+				.filter(segment -> segment.getCommandeId().equals(commandeId))
+				.forEach(segment -> segments.put(segment.getNumeroSegment(), segment));
+		trajectoires.computeIfPresent(commandeId, (id, trajectoire) -> {
+			if (trajectoire.encodeur.getNombrePoints() > 0) {
+				segments.put(trajectoire.numeroSegment, instantane(id, trajectoire, false));
+			}
+			return trajectoire;
+		});
+
+		List<SegmentTrajectoire> retenus = new ArrayList<>(segments.values());
+		return retenus.stream()
+				.filter(segment -> segment.getHorodatageFin() >= debut && segment.getHorodatageDebut() <= fin)
+				.flatMap(segment -> CodecTrajectoire.decoder(segment.getDonnees(), segment.getNombrePoints()))
+				.filter(point -> point.horodatage() >= debut && point.horodatage() <= fin)
+				.sorted(Comparator.comparingLong(PointTrajectoire::horodatage));
+	}
+
+	/**
+	 * Distance réellement parcourue (km) d'après les points enregistrés
+	 */
+	@Transactional(readOnly = true)
+	public double calculerDistanceParcourue(Long commandeId) {
+		List<PointTrajectoire> points = lirePoints(commandeId, Long.MIN_VALUE, Long.MAX_VALUE).toList();
+		double distance = 0.0;
+		for (int i = 1; i < points.size(); i++) {
+			PointTrajectoire precedent = points.get(i - 1);
+			PointTrajectoire courant = points.get(i);
+			distance += NoyauGeodesique.haversineKm(
+					precedent.latitude(), precedent.longitude(), courant.latitude(), courant.longitude());
+		}
+		return distance;
+	}
+
+	// =================== MÉTHODES PRIVÉES ===================
+
+	private void flush(boolean tout) {
+		verrouFlush.lock();
+		try {
+			ecrire(tout);
+		} finally {
+			verrouFlush.unlock();
+		}
+	}
+
+	private void ecrire(boolean tout) {
+		SegmentTrajectoire complet;
+		while ((complet = segmentsComplets.peek()) != null) {
+			try {
+				segmentTrajectoireRepository.save(complet);
+			} catch (Exception e) {
+				log.error("Échec d'écriture du segment {} de la commande {}", complet.getNumeroSegment(), complet.getCommandeId(), e);
+				break;
+			}
+			segmentsComplets.poll();
+		}
+
+		long maintenant = System.currentTimeMillis();
+		List<SegmentTrajectoire> ouverts = new ArrayList<>();
+		for (Long commandeId : trajectoires.keySet()) {
+			trajectoires.computeIfPresent(commandeId, (id, trajectoire) -> {
+				int nonEcrits = trajectoire.pointsNonEcrits();
+				if (nonEcrits == 0) {
+					return trajectoire.cloturee ? null : trajectoire;
+				}
+				if (tout || trajectoire.cloturee || nonEcrits >= pointsMinimumEcriture
+						|| maintenant - trajectoire.derniereEcriture >= ageMaximumEcritureMs) {
+					ouverts.add(instantane(id, trajectoire, trajectoire.cloturee));
+				}
+				return trajectoire;
+			});
+		}
+
+		for (SegmentTrajectoire segment : ouverts) {
+			try {
+				confirmerEcriture(segmentTrajectoireRepository.save(segment), maintenant);
+			} catch (Exception e) {
+				log.error("Échec d'écriture du segment {} de la commande {}", segment.getNumeroSegment(), segment.getCommandeId(), e);
+			}
+		}
+	}
+
+	private void ajouter(Long commandeId, TrajectoireOuverte trajectoire, PointTrajectoire point) {
+		if (!trajectoire.encodeur.ajouter(point.horodatage(), point.latitude(), point.longitude())) {
+			// Segment plein : il part en écriture et un nouveau segment est ouvert
+			segmentsComplets.add(instantane(commandeId, trajectoire, true));
+			trajectoire.segmentId = null;
+			trajectoire.numeroSegment++;
+			trajectoire.pointsEcrits = 0;
+			trajectoire.encodeur = new CodecTrajectoire.Encodeur();
+			trajectoire.encodeur.ajouter(point.horodatage(), point.latitude(), point.longitude());
+		}
+	}
+
+	private void confirmerEcriture(SegmentTrajectoire segment, long maintenant) {
+		trajectoires.computeIfPresent(segment.getCommandeId(), (id, trajectoire) -> {
+			if (trajectoire.numeroSegment != segment.getNumeroSegment()) {
+				// Segment clos pendant l'écriture : sa version complète, en attente, reprend la ligne écrite
+				segmentsComplets.stream()
+						.filter(complet -> complet.getCommandeId().equals(id)
+								&& complet.getNumeroSegment().equals(segment.getNumeroSegment())
+								&& complet.getId() == null)
+						.forEach(complet -> complet.setId(segment.getId()));
+				return trajectoire;
+			}
+			trajectoire.segmentId = segment.getId();
+			trajectoire.pointsEcrits = Math.max(trajectoire.pointsEcrits, segment.getNombrePoints());
+			trajectoire.derniereEcriture = maintenant;
+			return trajectoire.cloturee && trajectoire.pointsNonEcrits() == 0 ? null : trajectoire;
+		});
+	}
+
+	private SegmentTrajectoire instantane(Long commandeId, TrajectoireOuverte trajectoire, boolean complet) {
+		SegmentTrajectoire segment = new SegmentTrajectoire();
+		segment.setId(trajectoire.segmentId);
+		segment.setCommandeId(commandeId);
+		segment.setNumeroSegment(trajectoire.numeroSegment);
+		segment.setHorodatageDebut(trajectoire.encodeur.getHorodatageMinimal());
+		segment.setHorodatageFin(trajectoire.encodeur.getHorodatageMaximal());
+		segment.setNombrePoints(trajectoire.encodeur.getNombrePoints());
+		segment.setDonnees(trajectoire.encodeur.octets());
+		segment.setComplet(complet);
+		return segment;
+	}
+}
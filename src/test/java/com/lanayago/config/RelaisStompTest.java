@@ -0,0 +1,129 @@
+package com.lanayago.config;
+
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Deux nœuds relayés vers le même broker STOMP (Artemis embarqué, à la place du broker externe) :
+ * un message publié sur l'un atteint le client abonné sur l'autre
+ */
+class RelaisStompTest {
+
+	@TempDir
+	Path repertoire;
+
+	private EmbeddedActiveMQ broker;
+	private int port;
+	private final List<StompBrokerRelayMessageHandler> noeuds = new ArrayList<>();
+	private final List<ConnectionProvider> pools = new ArrayList<>();
+
+	@BeforeEach
+	void demarrerBroker() throws Exception {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		ConfigurationImpl configuration = new ConfigurationImpl();
+		configuration.setPersistenceEnabled(false);
+		configuration.setSecurityEnabled(false);
+		configuration.setBrokerInstance(repertoire.toFile());
+		configuration.addAcceptorConfiguration("stomp",
+				"tcp://127.0.0.1:" + port + "?protocols=STOMP;multicastPrefix=/topic/");
+		broker = new EmbeddedActiveMQ();
+		broker.setConfiguration(configuration);
+		broker.start();
+	}
+
+	@AfterEach
+	void arreter() throws Exception {
+		noeuds.forEach(StompBrokerRelayMessageHandler::stop);
+		pools.forEach(ConnectionProvider::dispose);
+		broker.stop();
+	}
+
+	@Test
+	void messagePublieSurUnNoeudRemisAuClientDUnAutre() throws Exception {
+		BlockingQueue<Message<?>> recusA = new LinkedBlockingQueue<>();
+		StompBrokerRelayMessageHandler noeudA = noeud(recusA);
+		StompBrokerRelayMessageHandler noeudB = noeud(new LinkedBlockingQueue<>());
+		attendreDisponible(noeudA);
+		attendreDisponible(noeudB);
+
+		// Client du nœud A : connexion puis abonnement, confirmé par un accusé de réception
+		StompHeaderAccessor connexion = StompHeaderAccessor.create(StompCommand.CONNECT);
+		connexion.setSessionId("client-a");
+		connexion.setAcceptVersion("1.2");
+		connexion.setHeartbeat(0, 0);
+		noeudA.handleMessage(MessageBuilder.createMessage(new byte[0], connexion.getMessageHeaders()));
+		assertThat(prochaineTrame(recusA)).isEqualTo(StompCommand.CONNECTED);
+
+		StompHeaderAccessor abonnement = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+		abonnement.setSessionId("client-a");
+		abonnement.setSubscriptionId("0");
+		abonnement.setDestination("/topic/chauffeur/42");
+		abonnement.setReceipt("abonne");
+		noeudA.handleMessage(MessageBuilder.createMessage(new byte[0], abonnement.getMessageHeaders()));
+		assertThat(prochaineTrame(recusA)).isEqualTo(StompCommand.RECEIPT);
+
+		// Publication applicative sur le nœud B, comme SimpMessagingTemplate.convertAndSend
+		SimpMessageHeaderAccessor publication = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		publication.setDestination("/topic/chauffeur/42");
+		noeudB.handleMessage(MessageBuilder.createMessage(
+				"{\"type\":\"NOUVELLE_COMMANDE\"}".getBytes(StandardCharsets.UTF_8), publication.getMessageHeaders()));
+
+		Message<?> recu = recusA.poll(10, TimeUnit.SECONDS);
+		assertThat(recu).isNotNull();
+		assertThat(StompHeaderAccessor.wrap(recu).getCommand()).isEqualTo(StompCommand.MESSAGE);
+		assertThat(new String((byte[]) recu.getPayload(), StandardCharsets.UTF_8)).isEqualTo("{\"type\":\"NOUVELLE_COMMANDE\"}");
+	}
+
+	private StompBrokerRelayMessageHandler noeud(BlockingQueue<Message<?>> recus) {
+		MessageChannel sortant = (message, timeout) -> recus.add(message);
+		StompBrokerRelayMessageHandler noeud = new StompBrokerRelayMessageHandler(
+				new ExecutorSubscribableChannel(), sortant, new ExecutorSubscribableChannel(), List.of("/topic"));
+		ConnectionProvider pool = ConnectionProvider.create("relais-test", 10);
+		noeud.setTcpClient(WebSocketConfig.clientRelais(List.of("127.0.0.1:" + port), pool));
+		noeud.start();
+		noeuds.add(noeud);
+		pools.add(pool);
+		return noeud;
+	}
+
+	private static void attendreDisponible(StompBrokerRelayMessageHandler noeud) throws InterruptedException {
+		long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!noeud.isBrokerAvailable() && System.nanoTime() < limite) {
+			Thread.sleep(50);
+		}
+		assertThat(noeud.isBrokerAvailable()).isTrue();
+	}
+
+	private static StompCommand prochaineTrame(BlockingQueue<Message<?>> recus) throws InterruptedException {
+		Message<?> message = recus.poll(10, TimeUnit.SECONDS);
+		assertThat(message).isNotNull();
+		return StompHeaderAccessor.wrap(message).getCommand();
+	}
+}
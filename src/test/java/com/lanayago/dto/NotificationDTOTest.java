@@ -0,0 +1,78 @@
+package com.lanayago.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Les champs et leur ordre sont ceux des anciens objets anonymes : les clients WebSocket n'ont rien à changer
+ */
+class NotificationDTOTest {
+
+	private static final LocalDateTime HORODATAGE = LocalDateTime.of(2025, 3, 14, 9, 26, 53);
+
+	// Même configuration que l'ObjectMapper de Spring Boot (dates ISO-8601)
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+			.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+			.build();
+
+	@Test
+	void commande() throws Exception {
+		JsonNode json = serialiser(new NotificationDTO.Commande("CHANGEMENT_STATUT", 7L, "CMD-7", "ACCEPTEE", "Statut mis à jour"));
+
+		assertThat(champs(json)).containsExactly("type", "commandeId", "numeroCommande", "statut", "message");
+		assertThat(json.get("type").asText()).isEqualTo("CHANGEMENT_STATUT");
+		assertThat(json.get("message").asText()).isEqualTo("Statut mis à jour");
+	}
+
+	@Test
+	void suiviDuTransport() throws Exception {
+		JsonNode position = serialiser(new NotificationDTO.Position(7L, 4.05, 9.7, HORODATAGE));
+		JsonNode connexion = serialiser(new NotificationDTO.Connexion(7L, true, HORODATAGE));
+		JsonNode etape = serialiser(new NotificationDTO.Etape(7L, "Ramassage effectué", 4.05, 9.7, HORODATAGE));
+
+		assertThat(champs(position)).containsExactly("type", "commandeId", "latitude", "longitude", "timestamp");
+		assertThat(champs(connexion)).containsExactly("type", "commandeId", "enLigne", "timestamp");
+		assertThat(champs(etape)).containsExactly("type", "commandeId", "description", "latitude", "longitude", "timestamp");
+		assertThat(position.get("type").asText()).isEqualTo("POSITION_UPDATE");
+		assertThat(connexion.get("type").asText()).isEqualTo("CONNEXION_UPDATE");
+		assertThat(etape.get("type").asText()).isEqualTo("ETAPE_UPDATE");
+		assertThat(position.get("timestamp").asText()).isEqualTo("2025-03-14T09:26:53");
+	}
+
+	@Test
+	void recherches() throws Exception {
+		JsonNode miseAJour = serialiser(new NotificationDTO.MiseAJourRecherche(3L, 12L, List.of()));
+		JsonNode nouvelle = serialiser(new NotificationDTO.NouvelleRecherche(3L, "Akwa", "Bonapriso", new BigDecimal("2500.00")));
+		JsonNode diff = serialiser(new NotificationDTO.DiffRecherche(3L, 13L, List.of(), List.of(), List.of(7L)));
+
+		assertThat(champs(miseAJour)).containsExactly("type", "rechercheId", "sequence", "vehiculesDisponibles", "message");
+		assertThat(champs(nouvelle)).containsExactly("type", "rechercheId", "adresseDepart", "adresseArrivee", "tarifEstime", "message");
+		assertThat(champs(diff)).containsExactly("type", "rechercheId", "sequence", "entres", "deplaces", "sortis");
+		assertThat(diff.get("type").asText()).isEqualTo("RECHERCHE_DIFF");
+		assertThat(miseAJour.get("type").asText()).isEqualTo("RECHERCHE_UPDATE");
+		assertThat(miseAJour.get("sequence").asLong()).isEqualTo(12L);
+		assertThat(miseAJour.get("message").asText()).isEqualTo("Mise à jour des véhicules disponibles");
+		assertThat(nouvelle.get("type").asText()).isEqualTo("NOUVELLE_RECHERCHE");
+		assertThat(nouvelle.get("message").asText()).isEqualTo("Nouvelle demande de transport disponible");
+	}
+
+	private JsonNode serialiser(NotificationDTO notification) throws Exception {
+		return objectMapper.readTree(objectMapper.writeValueAsBytes(notification));
+	}
+
+	private static List<String> champs(JsonNode json) {
+		List<String> champs = new ArrayList<>();
+		json.fieldNames().forEachRemaining(champs::add);
+		return champs;
+	}
+}
@@ -0,0 +1,235 @@
+package com.lanayago.repository;
+
+import com.lanayago.entity.*;
+import com.lanayago.enums.StatutCommande;
+import com.lanayago.enums.TypeUtilisateur;
+import com.lanayago.enums.TypeVehicule;
+import com.lanayago.service.pagination.CurseurChronologique;
+import com.lanayago.service.suivi.CommandeActive;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.lanayago.service.pagination.CurseurChronologique.DEBUT_CROISSANT;
+import static com.lanayago.service.pagination.CurseurChronologique.DEBUT_DECROISSANT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class CommandeRepositoryTest {
+
+	private static final int NOMBRE_COMMANDES = 12;
+
+	@Autowired
+	private CommandeRepository commandeRepository;
+
+	@Autowired
+	private ChauffeurRepository chauffeurRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Client client;
+	private Chauffeur chauffeur;
+
+	@BeforeEach
+	void preparerDonnees() {
+		ProprietaireVehicule proprietaire = utilisateur(new ProprietaireVehicule(), "proprietaire", TypeUtilisateur.PROPRIETAIRE_VEHICULE);
+		proprietaire.setNomEntreprise("Transports Wouri");
+		entityManager.persist(proprietaire);
+
+		client = utilisateur(new Client(), "client", TypeUtilisateur.CLIENT);
+		entityManager.persist(client);
+
+		LocalDateTime maintenant = LocalDateTime.now();
+
+		for (int i = 0; i < NOMBRE_COMMANDES; i++) {
+			// Un chauffeur et un véhicule distincts par commande : le pire cas pour le chargement paresseux
+			Vehicule vehicule = new Vehicule();
+			vehicule.setImmatriculation("LT-" + i);
+			vehicule.setMarque("Isuzu");
+			vehicule.setModele("NPR");
+			vehicule.setAnnee(2020);
+			vehicule.setCapacitePoids(BigDecimal.valueOf(3.5));
+			vehicule.setCapaciteVolume(BigDecimal.valueOf(15));
+			vehicule.setTypeVehicule(TypeVehicule.CAMIONNETTE);
+			vehicule.setProprietaire(proprietaire);
+			vehicule.setDateCreation(LocalDateTime.now());
+			entityManager.persist(vehicule);
+
+			chauffeur = utilisateur(new Chauffeur(), "chauffeur" + i, TypeUtilisateur.CHAUFFEUR);
+			chauffeur.setNumeroPermis("P-" + i);
+			chauffeur.setDateExpirationPermis(LocalDate.now().plusYears(2));
+			chauffeur.setProprietaire(proprietaire);
+			entityManager.persist(chauffeur);
+
+			Commande commande = new Commande();
+			commande.setNumeroCommande("CMD-TEST-" + i);
+			commande.setClient(client);
+			commande.setChauffeur(chauffeur);
+			commande.setVehicule(vehicule);
+			commande.setLatitudeDepart(4.05);
+			commande.setLongitudeDepart(9.7);
+			commande.setAdresseDepart("Akwa, Douala");
+			commande.setLatitudeArrivee(3.87);
+			commande.setLongitudeArrivee(11.52);
+			commande.setAdresseArrivee("Bastos, Yaoundé");
+			commande.setPoidsMarchandise(BigDecimal.valueOf(1200));
+			commande.setDistance(240.0);
+			commande.setTarifCalcule(BigDecimal.valueOf(150000));
+			commande.setStatut(StatutCommande.EN_ATTENTE);
+			// Deux commandes par minute : la pagination doit départager les ex æquo par id
+			commande.setDateCreation(maintenant.minusMinutes(i / 2));
+			entityManager.persist(commande);
+		}
+
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void listeDesCommandesDuClientEnUneSeuleRequete() {
+		assertThat(requetesPourParcourir(() -> commandeRepository.findPageDetailleeByClientId(
+				client.getId(), DEBUT_DECROISSANT.dateCreation(), DEBUT_DECROISSANT.id(), Limit.of(NOMBRE_COMMANDES))))
+				.isEqualTo(1);
+	}
+
+	@Test
+	void listeDesCommandesParStatutEnUneSeuleRequete() {
+		assertThat(requetesPourParcourir(() -> commandeRepository.findPageDetailleeByStatut(
+				StatutCommande.EN_ATTENTE, DEBUT_CROISSANT.dateCreation(), DEBUT_CROISSANT.id(), Limit.of(NOMBRE_COMMANDES))))
+				.isEqualTo(1);
+	}
+
+	@Test
+	void listeDesCommandesDuChauffeurEnUneSeuleRequete() {
+		assertThat(requetesPourParcourir(() -> commandeRepository.findPageDetailleeByChauffeurId(
+				chauffeur.getId(), DEBUT_DECROISSANT.dateCreation(), DEBUT_DECROISSANT.id(), Limit.of(NOMBRE_COMMANDES))))
+				.isEqualTo(1);
+	}
+
+	@Test
+	void lectureParentSansGrapheProvoqueDesRequetesParLigne() {
+		assertThat(requetesPourParcourir(() -> commandeRepository.findByClientIdOrderByDateCreationDesc(client.getId())))
+				.isGreaterThan(NOMBRE_COMMANDES);
+	}
+
+	@Test
+	void paginationParCleParcourtToutLHistoriqueSansDoublon() {
+		List<Long> attendus = commandeRepository.findByClientIdOrderByDateCreationDesc(client.getId()).stream()
+				.sorted(Comparator.comparing(Commande::getDateCreation).thenComparing(Commande::getId).reversed())
+				.map(Commande::getId)
+				.toList();
+
+		List<Long> parcourus = new ArrayList<>();
+		CurseurChronologique curseur = CurseurChronologique.decoder(null, false);
+		List<Commande> page;
+		do {
+			page = commandeRepository.findPageByClientId(client.getId(), curseur.dateCreation(), curseur.id(), Limit.of(5));
+			page.forEach(commande -> parcourus.add(commande.getId()));
+			if (!page.isEmpty()) {
+				Commande derniere = page.get(page.size() - 1);
+				curseur = CurseurChronologique.decoder(
+						new CurseurChronologique(derniere.getDateCreation(), derniere.getId()).encoder(), false);
+			}
+		} while (page.size() == 5);
+
+		assertThat(parcourus).containsExactlyElementsOf(attendus);
+	}
+
+	@Test
+	void commandesActivesProjeteesSansChargerLesEntites() {
+		List<Commande> commandes = commandeRepository.findByClientIdOrderByDateCreationDesc(client.getId());
+		commandes.get(0).setStatut(StatutCommande.EN_LIVRAISON);
+		commandes.get(1).setStatut(StatutCommande.LIVREE);
+		entityManager.flush();
+		entityManager.clear();
+
+		Statistics statistiques = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistiques.clear();
+		List<CommandeActive> actives = commandeRepository.findActivesByChauffeurIdIn(
+				List.of(commandes.get(0).getChauffeur().getId(), commandes.get(1).getChauffeur().getId()),
+				StatutCommande.STATUTS_ACTIFS);
+
+		assertThat(actives).extracting(CommandeActive::id).containsExactly(commandes.get(0).getId());
+		assertThat(actives.get(0).clientId()).isEqualTo(client.getId());
+		assertThat(statistiques.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(statistiques.getEntityLoadCount()).isZero();
+	}
+
+	@Test
+	void chevauchementsDuCreneauLusSousVerrou() {
+		List<Commande> commandes = commandeRepository.findByClientIdOrderByDateCreationDesc(client.getId());
+		Commande reservee = commandes.get(0);
+		Long chauffeurId = reservee.getChauffeur().getId();
+		Long vehiculeId = reservee.getVehicule().getId();
+		LocalDateTime debut = LocalDateTime.now().plusDays(1).withNano(0);
+		reservee.setStatut(StatutCommande.ACCEPTEE);
+		reservee.setDebutReservation(debut);
+		reservee.setFinReservation(debut.plusHours(2));
+		entityManager.flush();
+		entityManager.clear();
+
+		assertThat(chauffeurRepository.verrouiller(chauffeurId)).isEqualTo(chauffeurId);
+		assertThat(commandeRepository.findChevauchementsChauffeur(
+				chauffeurId, -1L, debut.plusHours(1), debut.plusHours(3), StatutCommande.STATUTS_ACTIFS))
+				.extracting(Commande::getId).containsExactly(reservee.getId());
+		assertThat(commandeRepository.findChevauchementsVehicule(
+				vehiculeId, -1L, debut.minusHours(1), debut.plusMinutes(1), StatutCommande.STATUTS_ACTIFS))
+				.extracting(Commande::getId).containsExactly(reservee.getId());
+		// Créneaux contigus, commande elle-même ou statut terminé : pas de conflit
+		assertThat(commandeRepository.findChevauchementsChauffeur(
+				chauffeurId, -1L, debut.plusHours(2), debut.plusHours(3), StatutCommande.STATUTS_ACTIFS)).isEmpty();
+		assertThat(commandeRepository.findChevauchementsChauffeur(
+				chauffeurId, reservee.getId(), debut, debut.plusHours(2), StatutCommande.STATUTS_ACTIFS)).isEmpty();
+		assertThat(commandeRepository.findChevauchementsChauffeur(
+				chauffeurId, -1L, debut, debut.plusHours(2), List.of(StatutCommande.LIVREE))).isEmpty();
+	}
+
+	/**
+	 * Nombre d'ordres SQL pour charger la liste et accéder aux associations lues par CommandeService.mapToResponse
+	 */
+	private long requetesPourParcourir(Supplier<List<Commande>> lecture) {
+		Statistics statistiques = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistiques.clear();
+
+		List<Commande> commandes = lecture.get();
+		assertThat(commandes).isNotEmpty();
+		for (Commande commande : commandes) {
+			commande.getClient().getNom();
+			commande.getChauffeur().getNumeroPermis();
+			commande.getVehicule().getImmatriculation();
+			commande.getVehicule().getProprietaire().getNomEntreprise();
+		}
+		return statistiques.getPrepareStatementCount();
+	}
+
+	private static <T extends User> T utilisateur(T utilisateur, String identifiant, TypeUtilisateur type) {
+		utilisateur.setNom(identifiant);
+		utilisateur.setPrenom("Test");
+		utilisateur.setEmail(identifiant + "@lanayago.test");
+		utilisateur.setTelephone("690000000");
+		utilisateur.setMotDePasse("secret");
+		utilisateur.setTypeUtilisateur(type);
+		return utilisateur;
+	}
+}
@@ -0,0 +1,293 @@
+package com.lanayago.service;
+
+import com.lanayago.entity.*;
+import com.lanayago.enums.StatutCommande;
+import com.lanayago.enums.TypeUtilisateur;
+import com.lanayago.enums.TypeVehicule;
+import com.lanayago.repository.ChauffeurRepository;
+import com.lanayago.repository.CommandeRepository;
+import com.lanayago.repository.VehiculeRepository;
+import com.lanayago.service.diffusion.DiffusionCommandes;
+import com.lanayago.service.diffusion.ReaffectationCommandes;
+import com.lanayago.service.geo.IndexSpatialChauffeurs;
+import com.lanayago.service.groupage.GroupageCommandes;
+import com.lanayago.service.notation.AgregatsNotesService;
+import com.lanayago.service.numerotation.IGenerateurNumeroCommande;
+import com.lanayago.service.recherche.SessionsRechercheEnDirect;
+import com.lanayago.service.reservation.CalendrierReservations;
+import com.lanayago.service.repartition.RepartitionCommandes;
+import com.lanayago.service.suivi.CommandesActivesChauffeurs;
+import com.lanayago.service.trajectoire.TrajectoireService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Transitions concurrentes sur une même commande ou un même chauffeur : exactement un gagnant
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import(CommandeService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CommandeServiceConcurrenceTest {
+
+	private static final int CONCURRENTS = 8;
+	private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+	@Autowired
+	private CommandeService commandeService;
+
+	@Autowired
+	private CommandeRepository commandeRepository;
+
+	@Autowired
+	private ChauffeurRepository chauffeurRepository;
+
+	@Autowired
+	private VehiculeRepository vehiculeRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@MockitoBean
+	private SessionsRechercheEnDirect sessionsRecherche;
+	@MockitoBean
+	private NotificationService notificationService;
+	@MockitoBean
+	private UserMapperService userMapperService;
+	@MockitoBean
+	private IndexSpatialChauffeurs indexSpatialChauffeurs;
+	@MockitoBean
+	private TrajectoireService trajectoireService;
+	@MockitoBean
+	private AgregatsNotesService agregatsNotesService;
+	@MockitoBean
+	private IGenerateurNumeroCommande generateurNumeroCommande;
+	@MockitoBean
+	private CommandesActivesChauffeurs commandesActivesChauffeurs;
+	@MockitoBean
+	private RechercheTransportService rechercheTransportService;
+	@MockitoBean
+	private DiffusionCommandes diffusionCommandes;
+	@MockitoBean
+	private ReaffectationCommandes reaffectationCommandes;
+	@MockitoBean
+	private RepartitionCommandes repartitionCommandes;
+	@MockitoBean
+	private GroupageCommandes groupageCommandes;
+	@MockitoBean
+	private CalendrierReservations calendrierReservations;
+
+	private final ExecutorService executeur = Executors.newFixedThreadPool(CONCURRENTS);
+
+	@AfterEach
+	void arreter() {
+		executeur.shutdownNow();
+	}
+
+	@RepeatedTest(10)
+	void acceptationsConcurrentesDUneCommande() throws Exception {
+		Commande commande = creerCommande(creerChauffeur());
+		Long chauffeurId = commande.getChauffeur().getId();
+
+		int gagnants = executerEnMemeTemps(CONCURRENTS, i -> () -> commandeService.accepterCommande(commande.getId(), chauffeurId));
+
+		assertThat(gagnants).isEqualTo(1);
+		assertThat(commandeRepository.findById(commande.getId()).orElseThrow().getStatut()).isEqualTo(StatutCommande.ACCEPTEE);
+		assertThat(chauffeurRepository.findById(chauffeurId).orElseThrow().getDisponible()).isFalse();
+		assertThat(vehiculeRepository.findById(commande.getVehicule().getId()).orElseThrow().getDisponible()).isFalse();
+	}
+
+	@RepeatedTest(10)
+	void acceptationEtRefusConcurrents() throws Exception {
+		Commande commande = creerCommande(creerChauffeur());
+		Long chauffeurId = commande.getChauffeur().getId();
+		AtomicInteger acceptations = new AtomicInteger();
+
+		int gagnants = executerEnMemeTemps(CONCURRENTS, i -> () -> {
+			if (i % 2 == 0) {
+				commandeService.accepterCommande(commande.getId(), chauffeurId);
+				acceptations.incrementAndGet();
+			} else {
+				commandeService.refuserCommande(commande.getId(), chauffeurId, "Indisponible");
+			}
+			return null;
+		});
+
+		assertThat(gagnants).isEqualTo(1);
+		assertThat(commandeRepository.findById(commande.getId()).orElseThrow().getStatut())
+				.isEqualTo(acceptations.get() == 1 ? StatutCommande.ACCEPTEE : StatutCommande.REFUSEE);
+	}
+
+	@RepeatedTest(10)
+	void unChauffeurNAccepteQuUneCommandeALaFois() throws Exception {
+		Chauffeur chauffeur = creerChauffeur();
+		List<Commande> commandes = new ArrayList<>();
+		for (int i = 0; i < CONCURRENTS; i++) {
+			commandes.add(creerCommande(chauffeur));
+		}
+
+		int gagnants = executerEnMemeTemps(CONCURRENTS,
+				i -> () -> commandeService.accepterCommande(commandes.get(i).getId(), chauffeur.getId()));
+
+		assertThat(gagnants).isEqualTo(1);
+		assertThat(commandes.stream()
+				.map(commande -> commandeRepository.findById(commande.getId()).orElseThrow().getStatut())
+				.filter(statut -> statut == StatutCommande.ACCEPTEE)
+				.count()).isEqualTo(1);
+	}
+
+	@RepeatedTest(10)
+	void premierChauffeurSollicitePrendLaCommandeDiffusee() throws Exception {
+		List<Chauffeur> chauffeurs = new ArrayList<>();
+		for (int i = 0; i < CONCURRENTS; i++) {
+			chauffeurs.add(creerChauffeur());
+		}
+		Commande commande = creerCommande(null);
+
+		int gagnants = executerEnMemeTemps(CONCURRENTS,
+				i -> () -> commandeService.accepterCommande(commande.getId(), chauffeurs.get(i).getId()));
+
+		assertThat(gagnants).isEqualTo(1);
+		Commande attribuee = commandeRepository.findById(commande.getId()).orElseThrow();
+		assertThat(attribuee.getStatut()).isEqualTo(StatutCommande.ACCEPTEE);
+		assertThat(chauffeurs.stream()
+				.filter(chauffeur -> !chauffeurRepository.findById(chauffeur.getId()).orElseThrow().getDisponible())
+				.count()).isEqualTo(1);
+	}
+
+	@RepeatedTest(10)
+	void transitionsDeStatutConcurrentes() throws Exception {
+		Commande commande = creerCommande(creerChauffeur());
+		commandeService.accepterCommande(commande.getId(), commande.getChauffeur().getId());
+
+		int gagnants = executerEnMemeTemps(CONCURRENTS, i -> () -> commandeService.changerStatut(
+				commande.getId(), i % 2 == 0 ? StatutCommande.EN_COURS : StatutCommande.ANNULEE));
+
+		// Un seul appel quitte ACCEPTEE ; une annulation lue après le passage à EN_COURS reste une transition valide
+		StatutCommande statutFinal = commandeRepository.findById(commande.getId()).orElseThrow().getStatut();
+		assertThat(gagnants).isBetween(1, 2);
+		if (gagnants == 2) {
+			assertThat(statutFinal).isEqualTo(StatutCommande.ANNULEE);
+		}
+	}
+
+	/**
+	 * Lance les tâches derrière une même barrière ; renvoie le nombre de celles qui ont abouti
+	 */
+	private int executerEnMemeTemps(int nombre, IntFunction<Callable<?>> tache) throws Exception {
+		CountDownLatch depart = new CountDownLatch(1);
+		List<Future<Boolean>> resultats = new ArrayList<>();
+		for (int i = 0; i < nombre; i++) {
+			Callable<?> appel = tache.apply(i);
+			resultats.add(executeur.submit(() -> {
+				depart.await();
+				try {
+					appel.call();
+					return true;
+				} catch (Exception e) {
+					return false;
+				}
+			}));
+		}
+		depart.countDown();
+
+		int gagnants = 0;
+		for (Future<Boolean> resultat : resultats) {
+			if (resultat.get(30, TimeUnit.SECONDS)) {
+				gagnants++;
+			}
+		}
+		return gagnants;
+	}
+
+	private Chauffeur creerChauffeur() {
+		return transactionTemplate.execute(status -> {
+			int numero = SEQUENCE.incrementAndGet();
+			ProprietaireVehicule proprietaire = utilisateur(new ProprietaireVehicule(), "proprietaire" + numero, TypeUtilisateur.PROPRIETAIRE_VEHICULE);
+			entityManager.persist(proprietaire);
+
+			Vehicule vehicule = new Vehicule();
+			vehicule.setImmatriculation("LT-" + numero);
+			vehicule.setMarque("Isuzu");
+			vehicule.setModele("NPR");
+			vehicule.setAnnee(2020);
+			vehicule.setCapacitePoids(BigDecimal.valueOf(3.5));
+			vehicule.setCapaciteVolume(BigDecimal.valueOf(15));
+			vehicule.setTypeVehicule(TypeVehicule.CAMIONNETTE);
+			vehicule.setProprietaire(proprietaire);
+			vehicule.setDateCreation(LocalDateTime.now());
+			entityManager.persist(vehicule);
+
+			Chauffeur chauffeur = utilisateur(new Chauffeur(), "chauffeur" + numero, TypeUtilisateur.CHAUFFEUR);
+			chauffeur.setNumeroPermis("P-" + numero);
+			chauffeur.setDateExpirationPermis(LocalDate.now().plusYears(2));
+			chauffeur.setProprietaire(proprietaire);
+			chauffeur.setVehiculeActuel(vehicule);
+			entityManager.persist(chauffeur);
+			return chauffeur;
+		});
+	}
+
+	private Commande creerCommande(Chauffeur chauffeur) {
+		return transactionTemplate.execute(status -> {
+			int numero = SEQUENCE.incrementAndGet();
+			Client client = utilisateur(new Client(), "client" + numero, TypeUtilisateur.CLIENT);
+			entityManager.persist(client);
+
+			Commande commande = new Commande();
+			commande.setNumeroCommande("CMD-TEST-" + numero);
+			commande.setClient(client);
+			// Sans chauffeur : commande diffusée
+			commande.setChauffeur(chauffeur);
+			commande.setVehicule(chauffeur != null ? chauffeur.getVehiculeActuel() : null);
+			commande.setLatitudeDepart(4.05);
+			commande.setLongitudeDepart(9.7);
+			commande.setAdresseDepart("Akwa, Douala");
+			commande.setLatitudeArrivee(3.87);
+			commande.setLongitudeArrivee(11.52);
+			commande.setAdresseArrivee("Bastos, Yaoundé");
+			commande.setPoidsMarchandise(BigDecimal.valueOf(1200));
+			commande.setDistance(240.0);
+			commande.setTarifCalcule(BigDecimal.valueOf(150000));
+			commande.setStatut(StatutCommande.EN_ATTENTE);
+			entityManager.persist(commande);
+			return commande;
+		});
+	}
+
+	private static <T extends User> T utilisateur(T utilisateur, String identifiant, TypeUtilisateur type) {
+		utilisateur.setNom(identifiant);
+		utilisateur.setPrenom("Test");
+		utilisateur.setEmail(identifiant + "@lanayago.test");
+		utilisateur.setTelephone("690000000");
+		utilisateur.setMotDePasse("secret");
+		utilisateur.setTypeUtilisateur(type);
+		return utilisateur;
+	}
+}
@@ -0,0 +1,149 @@
+package com.lanayago.service.envoi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lanayago.dto.NotificationDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class DiffuseurNotificationsTest {
+
+	private static final String BLOQUANTE = "/topic/bloquante";
+
+	private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final BlockingQueue<String> remis = new LinkedBlockingQueue<>();
+	private final CountDownLatch liberation = new CountDownLatch(1);
+	private DiffuseurNotifications diffuseur;
+
+	@BeforeEach
+	void preparer() throws InterruptedException {
+		// Le premier envoi occupe l'unique fil tant que le test ne le libère pas : les dépôts suivants s'accumulent
+		doAnswer(invocation -> {
+			String destination = invocation.getArgument(0);
+			if (BLOQUANTE.equals(destination)) {
+				liberation.await(10, TimeUnit.SECONDS);
+			}
+			Message<byte[]> message = invocation.getArgument(1);
+			remis.add(destination + " " + new String(message.getPayload(), StandardCharsets.UTF_8));
+			return null;
+		}).when(messagingTemplate).send(anyString(), any(Message.class));
+
+		diffuseur = new DiffuseurNotifications(messagingTemplate, new ObjectMapper(), meterRegistry);
+		ReflectionTestUtils.setField(diffuseur, "fils", 1);
+		ReflectionTestUtils.setField(diffuseur, "capaciteParDestination", 3);
+		ReflectionTestUtils.setField(diffuseur, "capaciteTotale", 1000);
+		ReflectionTestUtils.setField(diffuseur, "capaciteTotalePrioritaire", 1000);
+		ReflectionTestUtils.setField(diffuseur, "tailleLot", 32);
+		diffuseur.demarrer();
+
+		diffuseur.diffuser(BLOQUANTE, notification("BLOCAGE"), DiffuseurNotifications.Voie.NORMALE);
+		while (diffuseur.getNombreEnAttente() > 0) {
+			Thread.sleep(5);
+		}
+	}
+
+	@AfterEach
+	void arreter() {
+		liberation.countDown();
+		diffuseur.arreter();
+	}
+
+	@Test
+	void voiePrioritaireDAbordEtDernierePositionSeulement() throws InterruptedException {
+		String destination = "/topic/client/1/suivi";
+		diffuseur.remplacer(destination, "position-1", notification("POSITION_1"));
+		diffuseur.diffuser(destination, notification("NORMALE"), DiffuseurNotifications.Voie.NORMALE);
+		diffuseur.remplacer(destination, "position-1", notification("POSITION_2"));
+		diffuseur.diffuser(destination, notification("URGENTE"), DiffuseurNotifications.Voie.PRIORITAIRE);
+		assertThat(diffuseur.getNombreEnAttente()).isEqualTo(3);
+
+		liberation.countDown();
+
+		assertThat(types(4)).containsExactly("BLOCAGE", "URGENTE", "NORMALE", "POSITION_2");
+		assertThat(meterRegistry.counter("lanayago.notifications.fusionnees").count()).isEqualTo(1);
+	}
+
+	@Test
+	void fileDebordeeAbandonneLePlusAncienMessageNormal() throws InterruptedException {
+		String destination = "/topic/chauffeur/2/nouvelles-recherches";
+		for (String type : List.of("A", "B", "C", "D")) {
+			diffuseur.diffuser(List.of(destination), notification(type), DiffuseurNotifications.Voie.NORMALE);
+		}
+		diffuseur.diffuser(destination, notification("URGENTE"), DiffuseurNotifications.Voie.PRIORITAIRE);
+		assertThat(diffuseur.getNombreEnAttente()).isEqualTo(3);
+
+		liberation.countDown();
+
+		assertThat(types(4)).containsExactly("BLOCAGE", "URGENTE", "C", "D");
+		assertThat(meterRegistry.counter("lanayago.notifications.abandonnees", "voie", "normale").count()).isEqualTo(2);
+	}
+
+	@Test
+	void unMessagePrioritaireAvanceSaDestinationDejaEnAttente() throws InterruptedException {
+		diffuseur.diffuser("/topic/b", notification("B_NORMALE"), DiffuseurNotifications.Voie.NORMALE);
+		diffuseur.diffuser("/topic/a", notification("A_NORMALE"), DiffuseurNotifications.Voie.NORMALE);
+		diffuseur.diffuser("/topic/a", notification("A_URGENTE"), DiffuseurNotifications.Voie.PRIORITAIRE);
+
+		liberation.countDown();
+
+		assertThat(types(4)).containsExactly("BLOCAGE", "A_URGENTE", "A_NORMALE", "B_NORMALE");
+		// L'ancienne planification de /topic/a est ignorée : rien n'est remis deux fois
+		assertThat(remis.poll(200, TimeUnit.MILLISECONDS)).isNull();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void unMessageConstruitUneFoisEstRemisAToutesLesDestinations() throws InterruptedException {
+		List<String> destinations = List.of("/topic/chauffeur/1/nouvelles-recherches",
+				"/topic/chauffeur/2/nouvelles-recherches", "/topic/chauffeur/3/nouvelles-recherches");
+		diffuseur.diffuser(destinations, notification("NOUVELLE_RECHERCHE"), DiffuseurNotifications.Voie.NORMALE);
+
+		liberation.countDown();
+
+		assertThat(types(4)).containsExactly("BLOCAGE", "NOUVELLE_RECHERCHE", "NOUVELLE_RECHERCHE", "NOUVELLE_RECHERCHE");
+		List<Message<byte[]>> messages = new ArrayList<>();
+		for (String destination : destinations) {
+			ArgumentCaptor<Message<byte[]>> message = ArgumentCaptor.forClass(Message.class);
+			verify(messagingTemplate).send(eq(destination), message.capture());
+			messages.add(message.getValue());
+		}
+		// Même message, donc même tampon sérialisé, pour chaque destination
+		assertThat(messages).allSatisfy(message -> assertThat(message).isSameAs(messages.get(0)));
+	}
+
+	private static NotificationDTO notification(String type) {
+		return new NotificationDTO.Commande(type, 1L, "CMD-1", "EN_ATTENTE", type);
+	}
+
+	private List<String> types(int nombre) throws InterruptedException {
+		String[] types = new String[nombre];
+		for (int i = 0; i < nombre; i++) {
+			String envoi = remis.poll(10, TimeUnit.SECONDS);
+			assertThat(envoi).isNotNull();
+			types[i] = envoi.substring(envoi.indexOf("\"type\":\"") + 8, envoi.indexOf('"', envoi.indexOf("\"type\":\"") + 8));
+		}
+		return List.of(types);
+	}
+}
@@ -0,0 +1,215 @@
+package com.lanayago.service.envoi;
+
+import com.lanayago.entity.EvenementSortant;
+import com.lanayago.repository.EvenementSortantRepository;
+import com.lanayago.service.tache.BailTaches;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"evenements.publication.delai-initial-ms=0",
+		"evenements.publication.taille-lot=2"
+})
+@Import({BoiteEnvoi.class, PublicateurEvenements.class, SequencesDestinations.class, BailTaches.class, SimpleMeterRegistry.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PublicateurEvenementsTest {
+
+	@Autowired
+	private BoiteEnvoi boiteEnvoi;
+
+	@Autowired
+	private PublicateurEvenements publicateurEvenements;
+
+	@Autowired
+	private EvenementSortantRepository evenementSortantRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@MockitoBean
+	private SimpMessagingTemplate messagingTemplate;
+
+	@BeforeEach
+	void viderCompteurs() {
+		jdbcTemplate.update("DELETE FROM sequences_destinations");
+	}
+
+	@Test
+	void rienNEstPublieSiLaTransactionEstAnnulee() {
+		transactionTemplate.executeWithoutResult(status -> {
+			boiteEnvoi.enregistrer("/topic/client/1/commandes", Map.of("statut", "ACCEPTEE"));
+			status.setRollbackOnly();
+		});
+
+		publicateurEvenements.publier();
+
+		verify(messagingTemplate, never()).send(anyString(), any(Message.class));
+		assertThat(evenementSortantRepository.count()).isZero();
+	}
+
+	@Test
+	void unEchecRetienLaSuiteDeLaDestinationSansBloquerLesAutres() {
+		List<String> recus = new ArrayList<>();
+		boolean[] brokerIndisponible = {true};
+		doAnswer(appel -> {
+			String destination = appel.getArgument(0);
+			if (brokerIndisponible[0] && destination.startsWith("/topic/client/1/")) {
+				throw new MessagingException("Broker indisponible");
+			}
+			Message<?> message = appel.getArgument(1);
+			recus.add(destination + " " + new String((byte[]) message.getPayload(), StandardCharsets.UTF_8));
+			return null;
+		}).when(messagingTemplate).send(anyString(), any(Message.class));
+
+		transactionTemplate.executeWithoutResult(status -> {
+			boiteEnvoi.enregistrer("/topic/client/1/commandes", Map.of("statut", "ACCEPTEE"));
+			boiteEnvoi.enregistrer("/topic/client/2/commandes", Map.of("statut", "ACCEPTEE"));
+			boiteEnvoi.enregistrer("/topic/client/1/commandes", Map.of("statut", "EN_COURS"));
+		});
+		publicateurEvenements.publier();
+
+		assertThat(recus).containsExactly("/topic/client/2/commandes {\"statut\":\"ACCEPTEE\",\"sequence\":1}");
+		assertThat(evenementSortantRepository.count()).isEqualTo(2);
+
+		brokerIndisponible[0] = false;
+		publicateurEvenements.publier();
+
+		assertThat(recus).containsExactly(
+				"/topic/client/2/commandes {\"statut\":\"ACCEPTEE\",\"sequence\":1}",
+				"/topic/client/1/commandes {\"statut\":\"ACCEPTEE\",\"sequence\":1}",
+				"/topic/client/1/commandes {\"statut\":\"EN_COURS\",\"sequence\":2}");
+		assertThat(evenementSortantRepository.count()).isZero();
+	}
+
+	@Test
+	void uneDestinationEnAttenteSurPlusieursLotsNeRetientPasLesAutres() {
+		List<String> recus = new ArrayList<>();
+		doAnswer(appel -> {
+			recus.add(appel.getArgument(0));
+			return null;
+		}).when(messagingTemplate).send(anyString(), any(Message.class));
+
+		// Cinq messages de la destination 1, dont le premier attend un nouvel essai dans une heure : plus de deux lots
+		for (int i = 0; i < 5; i++) {
+			EvenementSortant evenement = evenement("/topic/client/1/commandes");
+			if (i == 0) {
+				evenement.setTentatives(1);
+				evenement.setProchaineTentative(System.currentTimeMillis() + 3_600_000);
+			}
+			evenementSortantRepository.save(evenement);
+		}
+		evenementSortantRepository.save(evenement("/topic/client/2/commandes"));
+		evenementSortantRepository.save(evenement("/topic/client/3/commandes"));
+		evenementSortantRepository.save(evenement("/topic/client/2/commandes"));
+
+		publicateurEvenements.publier();
+
+		assertThat(recus).containsExactly("/topic/client/2/commandes", "/topic/client/3/commandes", "/topic/client/2/commandes");
+		assertThat(evenementSortantRepository.count()).isEqualTo(5);
+
+		evenementSortantRepository.deleteAll();
+	}
+
+	@Test
+	void lesMessagesPrioritairesPassentDevantSansDoublerLeurDestination() {
+		List<String> recus = new ArrayList<>();
+		doAnswer(appel -> {
+			recus.add(appel.getArgument(0));
+			return null;
+		}).when(messagingTemplate).send(anyString(), any(Message.class));
+
+		transactionTemplate.executeWithoutResult(status -> {
+			boiteEnvoi.enregistrer("/topic/client/1/commandes", Map.of("statut", "ACCEPTEE"));
+			boiteEnvoi.enregistrer("/topic/client/2/commandes", Map.of("statut", "ACCEPTEE"));
+			boiteEnvoi.enregistrer("/topic/client/3/commandes", Map.of("statut", "ACCEPTEE"));
+			boiteEnvoi.enregistrer(List.of("/topic/chauffeur/4/commandes", "/topic/client/2/commandes"),
+					Map.of("statut", "EN_ATTENTE"), DiffuseurNotifications.Voie.PRIORITAIRE);
+		});
+		publicateurEvenements.publier();
+
+		// Le message prioritaire de la destination 2 attend celui qui le précède
+		assertThat(recus).containsExactly(
+				"/topic/chauffeur/4/commandes",
+				"/topic/client/1/commandes",
+				"/topic/client/2/commandes",
+				"/topic/client/3/commandes",
+				"/topic/client/2/commandes");
+		assertThat(evenementSortantRepository.count()).isZero();
+	}
+
+	@Test
+	void laSequenceSuitLOrdreDesValidationsEtNonCeluiDesId() throws Exception {
+		List<String> recus = Collections.synchronizedList(new ArrayList<>());
+		doAnswer(appel -> {
+			Message<?> message = appel.getArgument(1);
+			recus.add(new String((byte[]) message.getPayload(), StandardCharsets.UTF_8));
+			return null;
+		}).when(messagingTemplate).send(anyString(), any(Message.class));
+
+		CountDownLatch ecrit = new CountDownLatch(1);
+		CountDownLatch valider = new CountDownLatch(1);
+		// Première écriture (id le plus petit), validée en dernier
+		CompletableFuture<Void> lente = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+			boiteEnvoi.enregistrer("/topic/client/9/suivi", Map.of("etape", "RAMASSAGE"));
+			ecrit.countDown();
+			try {
+				valider.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		assertThat(ecrit.await(5, TimeUnit.SECONDS)).isTrue();
+		transactionTemplate.executeWithoutResult(status ->
+				boiteEnvoi.enregistrer("/topic/client/9/suivi", Map.of("etape", "LIVRAISON")));
+		valider.countDown();
+		lente.get(5, TimeUnit.SECONDS);
+
+		publicateurEvenements.publier();
+
+		assertThat(recus).containsExactlyInAnyOrder(
+				"{\"etape\":\"RAMASSAGE\",\"sequence\":2}",
+				"{\"etape\":\"LIVRAISON\",\"sequence\":1}");
+	}
+
+	private static EvenementSortant evenement(String destination) {
+		EvenementSortant evenement = new EvenementSortant();
+		evenement.setDestination(destination);
+		evenement.setCharge("{}");
+		return evenement;
+	}
+}
@@ -0,0 +1,147 @@
+package com.lanayago.service.geo;
+
+import com.lanayago.entity.Chauffeur;
+import com.lanayago.repository.ChauffeurRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class IndexSpatialChauffeursTest {
+
+	private static final double LATITUDE = 4.0511;
+	private static final double LONGITUDE = 9.7679;
+
+	private IndexSpatialChauffeurs index;
+
+	@BeforeEach
+	void preparer() {
+		index = new IndexSpatialChauffeurs(mock(ChauffeurRepository.class));
+		ReflectionTestUtils.setField(index, "tailleCellule", 0.05);
+	}
+
+	@Test
+	void lesKPlusProchesSontCeuxDuParcoursExhaustif() {
+		Random aleatoire = new Random(11);
+		List<double[]> chauffeurs = new ArrayList<>();
+		for (long id = 1; id <= 500; id++) {
+			double latitude = LATITUDE + (aleatoire.nextDouble() - 0.5) * 0.8;
+			double longitude = LONGITUDE + (aleatoire.nextDouble() - 0.5) * 0.8;
+			index.synchroniser(chauffeur(id, latitude, longitude));
+			chauffeurs.add(new double[]{id, latitude, longitude});
+		}
+
+		NoyauGeodesique.Origine origine = new NoyauGeodesique.Origine(LATITUDE, LONGITUDE);
+		List<Long> attendus = chauffeurs.stream()
+				.filter(c -> origine.distanceKm(c[1], c[2]) <= 30.0)
+				.sorted(Comparator.<double[]>comparingDouble(c -> origine.distanceKm(c[1], c[2])).thenComparingDouble(c -> c[0]))
+				.limit(10)
+				.map(c -> (long) c[0])
+				.toList();
+
+		List<IndexSpatialChauffeurs.ChauffeurProche> proches = index.rechercherPlusProches(LATITUDE, LONGITUDE, 10, 30.0);
+
+		assertThat(proches).extracting(IndexSpatialChauffeurs.ChauffeurProche::chauffeurId).containsExactlyElementsOf(attendus);
+		assertThat(proches).isSortedAccordingTo(Comparator.comparingDouble(IndexSpatialChauffeurs.ChauffeurProche::distanceKm));
+	}
+
+	@Test
+	void leParcoursEtendLesAnneauxJusquAuRayon() {
+		// Aucun chauffeur dans les premiers anneaux : le seul candidat est à une vingtaine de kilomètres
+		index.synchroniser(chauffeur(1L, LATITUDE + 0.18, LONGITUDE));
+		index.synchroniser(chauffeur(2L, LATITUDE + 0.5, LONGITUDE));
+
+		assertThat(index.rechercherPlusProches(LATITUDE, LONGITUDE, 5, 30.0))
+				.extracting(IndexSpatialChauffeurs.ChauffeurProche::chauffeurId)
+				.containsExactly(1L);
+		assertThat(index.rechercherPlusProches(LATITUDE, LONGITUDE, 5, 10.0)).isEmpty();
+	}
+
+	@Test
+	void pagesSuccessivesSansDoublon() {
+		for (long id = 1; id <= 12; id++) {
+			index.synchroniser(chauffeur(id, LATITUDE + id * 0.004, LONGITUDE));
+		}
+
+		List<IndexSpatialChauffeurs.ChauffeurClasse> premiere = index.rechercherMeilleurs(
+				LATITUDE, LONGITUDE, 5, 30.0, IndexSpatialChauffeurs.CritereClassement.DISTANCE, null);
+		List<IndexSpatialChauffeurs.ChauffeurClasse> seconde = index.rechercherMeilleurs(
+				LATITUDE, LONGITUDE, 5, 30.0, IndexSpatialChauffeurs.CritereClassement.DISTANCE, premiere.get(4));
+
+		assertThat(premiere).extracting(IndexSpatialChauffeurs.ChauffeurClasse::chauffeurId).containsExactly(1L, 2L, 3L, 4L, 5L);
+		assertThat(seconde).extracting(IndexSpatialChauffeurs.ChauffeurClasse::chauffeurId).containsExactly(6L, 7L, 8L, 9L, 10L);
+	}
+
+	@Test
+	void unChauffeurRetireOuIndisponibleQuitteLIndex() {
+		index.synchroniser(chauffeur(1L, LATITUDE, LONGITUDE));
+		index.synchroniser(chauffeur(2L, LATITUDE + 0.01, LONGITUDE));
+		Chauffeur occupe = chauffeur(2L, LATITUDE + 0.01, LONGITUDE);
+		occupe.setDisponible(false);
+
+		index.retirer(1L);
+		index.synchroniser(occupe);
+
+		assertThat(index.taille()).isZero();
+		assertThat(index.rechercherDansRayon(LATITUDE, LONGITUDE, 10.0)).isEmpty();
+		assertThat(index.rechercherPlusProches(LATITUDE, LONGITUDE, 5, 10.0)).isEmpty();
+	}
+
+	@Test
+	void unRetraitNEstAppliqueQuApresValidation() {
+		index.synchroniser(chauffeur(1L, LATITUDE, LONGITUDE));
+
+		// Transaction annulée : le chauffeur reste présent, comme en base
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			index.retirer(1L);
+			assertThat(index.taille()).isEqualTo(1);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		assertThat(index.taille()).isEqualTo(1);
+
+		// Transaction validée : le retrait est appliqué au commit
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			index.retirer(1L);
+			TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		assertThat(index.taille()).isZero();
+	}
+
+	@Test
+	void unPingNeReinserePasUnChauffeurRetire() {
+		index.synchroniser(chauffeur(1L, LATITUDE, LONGITUDE));
+
+		assertThat(index.mettreAJourSiPresent(1L, LATITUDE + 0.2, LONGITUDE)).isTrue();
+		assertThat(index.rechercherPlusProches(LATITUDE + 0.2, LONGITUDE, 1, 1.0))
+				.extracting(IndexSpatialChauffeurs.ChauffeurProche::chauffeurId)
+				.containsExactly(1L);
+
+		index.retirer(1L);
+		assertThat(index.mettreAJourSiPresent(1L, LATITUDE, LONGITUDE)).isFalse();
+		assertThat(index.taille()).isZero();
+	}
+
+	private static Chauffeur chauffeur(Long id, double latitude, double longitude) {
+		Chauffeur chauffeur = new Chauffeur();
+		chauffeur.setId(id);
+		chauffeur.setActif(true);
+		chauffeur.setDisponible(true);
+		chauffeur.setLatitudeActuelle(latitude);
+		chauffeur.setLongitudeActuelle(longitude);
+		return chauffeur;
+	}
+}
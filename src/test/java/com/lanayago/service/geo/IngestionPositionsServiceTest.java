@@ -0,0 +1,83 @@
+package com.lanayago.service.geo;
+
+import com.lanayago.exception.BusinessException;
+import com.lanayago.repository.ChauffeurRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IngestionPositionsServiceTest {
+
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final ChauffeurRepository chauffeurRepository = mock(ChauffeurRepository.class);
+	private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private IngestionPositionsService ingestion;
+
+	@BeforeEach
+	void preparer() {
+		ingestion = new IngestionPositionsService(jdbcTemplate, mock(IndexSpatialChauffeurs.class), eventPublisher,
+				meterRegistry, chauffeurRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)));
+		ReflectionTestUtils.setField(ingestion, "capaciteFile", 100);
+		ReflectionTestUtils.setField(ingestion, "tailleLot", 10);
+		ReflectionTestUtils.setField(ingestion, "validiteVerificationMs", 60_000L);
+		ingestion.initialiserMetriques();
+		when(chauffeurRepository.existsByIdAndActifTrue(anyLong())).thenReturn(true);
+	}
+
+	@Test
+	void chauffeurInconnuRefuse() {
+		when(chauffeurRepository.existsByIdAndActifTrue(99L)).thenReturn(false);
+
+		assertThatThrownBy(() -> ingestion.soumettre(99L, 4.05, 9.7)).isInstanceOf(BusinessException.class);
+		assertThat(ingestion.getProfondeurFile()).isZero();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void lotEnEchecRemisEnFileSansEcraserUnePositionPlusRecente() {
+		ingestion.soumettre(1L, 4.05, 9.70);
+		ingestion.soumettre(2L, 4.06, 9.71);
+		// Pendant l'écriture en échec, le chauffeur 2 envoie une nouvelle position
+		when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+				.thenAnswer(invocation -> {
+					ingestion.soumettre(2L, 4.10, 9.80);
+					throw new QueryTimeoutException("base indisponible");
+				});
+
+		ingestion.flush();
+
+		assertThat(ingestion.getProfondeurFile()).isEqualTo(2);
+		assertThat(meterRegistry.counter("lanayago.positions.lots.echecs").count()).isEqualTo(1);
+
+		when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+				.thenReturn(new int[0][]);
+		ingestion.flush();
+
+		assertThat(ingestion.getProfondeurFile()).isZero();
+		verify(eventPublisher).publishEvent(argThat((Object evenement) -> evenement instanceof PositionsChauffeursEnregistreesEvent e
+				&& e.positions().stream().anyMatch(p -> p.chauffeurId() == 2L && p.latitude() == 4.10)
+				&& e.positions().stream().noneMatch(p -> p.chauffeurId() == 2L && p.latitude() == 4.06)));
+	}
+}
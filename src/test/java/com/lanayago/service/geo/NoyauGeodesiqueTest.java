@@ -0,0 +1,46 @@
+package com.lanayago.service.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class NoyauGeodesiqueTest {
+
+	@Test
+	void leCheminRapideResteSousLErreurAnnonceeFaceAHaversine() {
+		Random aleatoire = new Random(7);
+		int compares = 0;
+		for (int i = 0; i < 200_000; i++) {
+			double latitude = (aleatoire.nextDouble() * 2 - 1) * 69.9;
+			double longitude = (aleatoire.nextDouble() * 2 - 1) * 180;
+			// Destinations jusqu'à une soixantaine de kilomètres, au-delà du seuil
+			double lat = latitude + (aleatoire.nextDouble() * 2 - 1) * 0.55;
+			double lon = longitude + (aleatoire.nextDouble() * 2 - 1) * 0.55 / Math.cos(Math.toRadians(latitude));
+
+			NoyauGeodesique.Origine origine = new NoyauGeodesique.Origine(latitude, longitude);
+			double reference = origine.haversineKm(lat, lon);
+			if (reference == 0.0) {
+				continue;
+			}
+			double rapide = origine.distanceKm(lat, lon);
+			assertThat(Math.abs(rapide - reference) / reference).as("de (%s, %s) à (%s, %s)", latitude, longitude, lat, lon)
+					.isLessThan(0.001);
+			if (origine.equirectangulaireKm(lat, lon) < NoyauGeodesique.SEUIL_EQUIRECTANGULAIRE_KM) {
+				compares++;
+			}
+		}
+		assertThat(compares).isGreaterThan(100_000);
+	}
+
+	@Test
+	void formuleStatiqueIdentiqueALOrigine() {
+		NoyauGeodesique.Origine douala = new NoyauGeodesique.Origine(4.0511, 9.7679);
+
+		assertThat(NoyauGeodesique.haversineKm(4.0511, 9.7679, 3.8480, 11.5021))
+				.isEqualTo(douala.haversineKm(3.8480, 11.5021))
+				.isCloseTo(193.4, within(1.0));
+	}
+}
@@ -0,0 +1,160 @@
+package com.lanayago.service.geo.distance;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DistanceProviderTest {
+
+	private static final String REPONSE_OK = """
+			{"status":"OK","rows":[{"elements":[{"status":"OK","distance":{"value":12345}}]}]}
+			""";
+
+	private HttpServer serveur;
+	private final AtomicInteger appels = new AtomicInteger();
+	private volatile long delaiMs;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final HaversineDistanceProvider haversine = new HaversineDistanceProvider();
+
+	@BeforeEach
+	void demarrerServeur() throws IOException {
+		serveur = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		serveur.setExecutor(Executors.newCachedThreadPool());
+		serveur.createContext("/distancematrix", echange -> {
+			appels.incrementAndGet();
+			try {
+				Thread.sleep(delaiMs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			byte[] corps = REPONSE_OK.getBytes(StandardCharsets.UTF_8);
+			echange.getResponseHeaders().add("Content-Type", "application/json");
+			echange.sendResponseHeaders(200, corps.length);
+			try (OutputStream out = echange.getResponseBody()) {
+				out.write(corps);
+			}
+		});
+		serveur.start();
+	}
+
+	@AfterEach
+	void arreterServeur() {
+		serveur.stop(0);
+	}
+
+	@Test
+	void lectureDeLaDistanceDepuisLeServeur() {
+		assertThat(google(1000).calculerDistance(4.05, 9.70, 3.87, 11.52)).isEqualTo(12.345);
+		assertThat(appels).hasValue(1);
+	}
+
+	@Test
+	void leCacheEviteLesAppelsRepetes() {
+		CacheDistanceProvider cache = new CacheDistanceProvider(google(1000), 100, 60_000, 3, meterRegistry);
+
+		cache.calculerDistance(4.05, 9.70, 3.87, 11.52);
+		cache.calculerDistance(4.0501, 9.7001, 3.87, 11.52); // même cellule arrondie
+
+		assertThat(appels).hasValue(1);
+		assertThat(meterRegistry.counter("lanayago.distance.cache", "resultat", "hit").count()).isEqualTo(1.0);
+	}
+
+	@Test
+	void lesRequetesIdentiquesConcurrentesNeFontQuUnAppel() throws Exception {
+		delaiMs = 300;
+		CacheDistanceProvider cache = new CacheDistanceProvider(google(2000), 100, 60_000, 3, meterRegistry);
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		CountDownLatch depart = new CountDownLatch(1);
+		List<Future<Double>> resultats = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			resultats.add(executor.submit(() -> {
+				depart.await();
+				return cache.calculerDistance(4.05, 9.70, 3.87, 11.52);
+			}));
+		}
+		depart.countDown();
+
+		for (Future<Double> resultat : resultats) {
+			assertThat(resultat.get()).isEqualTo(12.345);
+		}
+		executor.shutdown();
+		assertThat(appels).hasValue(1);
+	}
+
+	@Test
+	void leDisjoncteurBasculeSurHaversineQuandLeServeurEstLent() {
+		delaiMs = 500;
+		DisjoncteurDistanceProvider disjoncteur = new DisjoncteurDistanceProvider(
+				google(100), haversine, 2, 1000, 60_000, meterRegistry);
+
+		Double attendu = haversine.calculerDistance(4.05, 9.70, 3.87, 11.52);
+		assertThat(disjoncteur.calculerDistance(4.05, 9.70, 3.87, 11.52)).isEqualTo(attendu);
+		assertThat(disjoncteur.calculerDistance(4.05, 9.70, 3.87, 11.52)).isEqualTo(attendu);
+		assertThat(disjoncteur.estOuvert()).isTrue();
+
+		// Disjoncteur ouvert : réponse immédiate sans appel distant
+		int appelsAvant = appels.get();
+		long debut = System.nanoTime();
+		assertThat(disjoncteur.calculerDistance(4.05, 9.70, 3.87, 11.52)).isEqualTo(attendu);
+		assertThat(System.nanoTime() - debut).isLessThan(50_000_000L);
+		assertThat(appels).hasValue(appelsAvant);
+	}
+
+	@Test
+	void lesDistancesDeRepliNeSontPasMisesEnCache() {
+		delaiMs = 500;
+		DisjoncteurDistanceProvider disjoncteur = new DisjoncteurDistanceProvider(
+				google(100), haversine, 1, 1000, 60_000, meterRegistry);
+		CacheDistanceProvider cache = new CacheDistanceProvider(disjoncteur, 100, 60_000, 3, meterRegistry);
+
+		Double attendu = haversine.calculerDistance(4.05, 9.70, 3.87, 11.52);
+		assertThat(cache.calculerDistance(4.05, 9.70, 3.87, 11.52)).isEqualTo(attendu);
+		assertThat(disjoncteur.estOuvert()).isTrue();
+		assertThat(cache.calculerDistance(4.05, 9.70, 3.87, 11.52)).isEqualTo(attendu);
+
+		assertThat(cache.taille()).isZero();
+	}
+
+	@Test
+	void unEssaiDemiOuvertEnEchecRouvreAussitotLeDisjoncteur() throws InterruptedException {
+		delaiMs = 500;
+		DisjoncteurDistanceProvider disjoncteur = new DisjoncteurDistanceProvider(
+				google(100), haversine, 3, 1000, 100, meterRegistry);
+		for (int i = 0; i < 3; i++) {
+			disjoncteur.calculerDistance(4.05, 9.70, 3.87, 11.52);
+		}
+		assertThat(disjoncteur.estOuvert()).isTrue();
+
+		Thread.sleep(150);
+		assertThat(disjoncteur.estOuvert()).isFalse();
+		int appelsAvant = appels.get();
+		disjoncteur.calculerDistance(4.05, 9.70, 3.87, 11.52);
+
+		// Un seul essai, et pas trois nouveaux échecs, avant la réouverture
+		assertThat(appels).hasValue(appelsAvant + 1);
+		assertThat(disjoncteur.estOuvert()).isTrue();
+	}
+
+	private GoogleMapsDistanceProvider google(int readTimeoutMs) {
+		String url = "http://127.0.0.1:" + serveur.getAddress().getPort() + "/distancematrix";
+		return new GoogleMapsDistanceProvider(url, "cle-test", 200, readTimeoutMs);
+	}
+}
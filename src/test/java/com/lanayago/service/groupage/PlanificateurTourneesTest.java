@@ -0,0 +1,73 @@
+package com.lanayago.service.groupage;
+
+import com.lanayago.enums.TypeArret;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PlanificateurTourneesTest {
+
+	private static final long DEBUT = 1_700_000_000L;
+
+	private static final PlanificateurTournees.Contraintes CONTRAINTES =
+			new PlanificateurTournees.Contraintes(3.5, Double.NaN, 40, 600, 1.4, 3, 6);
+
+	@Test
+	void tourneesCouvrentLesEnvoisEtRespectentLesContraintes() {
+		Random aleatoire = new Random(11);
+		List<PlanificateurTournees.Envoi> envois = new ArrayList<>();
+		for (long i = 0; i < 300; i++) {
+			double lat = 4.0511 + (aleatoire.nextDouble() - 0.5) * 0.1;
+			double lon = 9.7679 + (aleatoire.nextDouble() - 0.5) * 0.1;
+			envois.add(new PlanificateurTournees.Envoi(i, lat, lon,
+					lat + 0.05 + aleatoire.nextDouble() * 0.02, lon + 0.05 + aleatoire.nextDouble() * 0.02,
+					0.2 + aleatoire.nextDouble() * 1.5, Double.NaN, DEBUT, Long.MAX_VALUE));
+		}
+
+		List<PlanificateurTournees.Itineraire> itineraires = PlanificateurTournees.planifier(envois, CONTRAINTES, DEBUT, 5_000);
+
+		Set<Long> couverts = new HashSet<>();
+		for (PlanificateurTournees.Itineraire itineraire : itineraires) {
+			assertThat(itineraire.envois().size()).isLessThanOrEqualTo(CONTRAINTES.envoisMaximum());
+			Set<Long> aBord = new HashSet<>();
+			double charge = 0.0;
+			for (PlanificateurTournees.Arret arret : itineraire.arrets()) {
+				Long id = arret.envoi().commandeId();
+				if (arret.type() == TypeArret.RAMASSAGE) {
+					assertThat(couverts.add(id)).isTrue();
+					aBord.add(id);
+					charge += arret.envoi().poidsTonnes();
+					assertThat(charge).isLessThanOrEqualTo(CONTRAINTES.capacitePoidsTonnes() + 1e-9);
+				} else {
+					// Livraison après le ramassage du même envoi
+					assertThat(aBord.remove(id)).isTrue();
+					charge -= arret.envoi().poidsTonnes();
+				}
+			}
+			assertThat(aBord).isEmpty();
+		}
+		assertThat(couverts).hasSize(envois.size());
+		assertThat(itineraires.size()).isLessThan(envois.size());
+	}
+
+	@Test
+	void seulsLesEnvoisDuMemeCouloirSontRegroupes() {
+		List<PlanificateurTournees.Envoi> envois = List.of(
+				new PlanificateurTournees.Envoi(1L, 4.0500, 9.7000, 4.1000, 9.7500, 1.0, Double.NaN, DEBUT, Long.MAX_VALUE),
+				new PlanificateurTournees.Envoi(2L, 4.0510, 9.7010, 4.1010, 9.7510, 1.0, Double.NaN, DEBUT, Long.MAX_VALUE),
+				// Départ voisin, mais en sens inverse
+				new PlanificateurTournees.Envoi(3L, 4.0505, 9.7005, 4.0000, 9.6500, 1.0, Double.NaN, DEBUT, Long.MAX_VALUE));
+
+		List<PlanificateurTournees.Itineraire> itineraires = PlanificateurTournees.planifier(envois, CONTRAINTES, DEBUT, 1_000);
+
+		assertThat(itineraires).hasSize(2);
+		assertThat(itineraires).anySatisfy(itineraire -> assertThat(itineraire.envois())
+				.extracting(PlanificateurTournees.Envoi::commandeId).containsExactlyInAnyOrder(1L, 2L));
+	}
+}
@@ -0,0 +1,79 @@
+package com.lanayago.service.numerotation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GenerateurNumeroSnowflakeTest {
+
+	private static final long MAINTENANT = GenerateurNumeroSnowflake.ORIGINE_MS + 86_400_000L * 365 * 2;
+
+	@Test
+	void aucunDoublonEntreNoeudsEtThreads() throws Exception {
+		int noeuds = 4;
+		int threadsParNoeud = 4;
+		int parThread = 250_000;
+		Set<String> numeros = ConcurrentHashMap.newKeySet();
+
+		ExecutorService executeur = Executors.newFixedThreadPool(noeuds * threadsParNoeud);
+		try {
+			List<Future<?>> taches = new ArrayList<>();
+			for (int n = 0; n < noeuds; n++) {
+				GenerateurNumeroSnowflake generateur = new GenerateurNumeroSnowflake(n, System::currentTimeMillis);
+				for (int t = 0; t < threadsParNoeud; t++) {
+					taches.add(executeur.submit(() -> {
+						for (int i = 0; i < parThread; i++) {
+							numeros.add(generateur.prochainNumero());
+						}
+					}));
+				}
+			}
+			for (Future<?> tache : taches) {
+				tache.get();
+			}
+		} finally {
+			executeur.shutdownNow();
+		}
+
+		assertThat(numeros).hasSize(noeuds * threadsParNoeud * parThread);
+	}
+
+	@Test
+	void croissantMalgreLeReculDeLHorloge() {
+		AtomicLong horloge = new AtomicLong(MAINTENANT);
+		GenerateurNumeroSnowflake generateur = new GenerateurNumeroSnowflake(7, horloge::get);
+
+		long precedent = generateur.prochainIdentifiant();
+		for (int i = 0; i < 20_000; i++) {
+			// Séquence épuisée plusieurs fois dans la même milliseconde, puis recul d'une seconde
+			if (i == 10_000) {
+				horloge.addAndGet(-1_000);
+			}
+			long suivant = generateur.prochainIdentifiant();
+			assertThat(suivant).isGreaterThan(precedent);
+			precedent = suivant;
+		}
+	}
+
+	@Test
+	void formatLisibleEtTriable() {
+		AtomicLong horloge = new AtomicLong(MAINTENANT);
+		GenerateurNumeroSnowflake generateur = new GenerateurNumeroSnowflake(GenerateurNumeroSnowflake.NOEUD_MAXIMUM, horloge::get);
+
+		String premier = generateur.prochainNumero();
+		horloge.incrementAndGet();
+		String second = generateur.prochainNumero();
+
+		assertThat(premier).matches("CMD[0-9A-Z]{13}").hasSizeLessThanOrEqualTo(20);
+		assertThat(second).isGreaterThan(premier);
+	}
+}
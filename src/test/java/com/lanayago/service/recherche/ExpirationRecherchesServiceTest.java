@@ -0,0 +1,166 @@
+package com.lanayago.service.recherche;
+
+import com.lanayago.entity.Client;
+import com.lanayago.entity.RechercheTransport;
+import com.lanayago.enums.TypeUtilisateur;
+import com.lanayago.repository.ClientRepository;
+import com.lanayago.repository.RechercheTransportRepository;
+import com.lanayago.service.tache.BailTaches;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"recherche-transport.expiration.taille-lot=2",
+		"recherche-transport.expiration.maximum-par-execution=5"
+})
+@Import({ExpirationRecherchesService.class, BailTaches.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ExpirationRecherchesServiceTest {
+
+	private static final String TACHE = "expiration-recherches";
+
+	@Autowired
+	private ExpirationRecherchesService expirationRecherchesService;
+
+	@Autowired
+	private BailTaches bailTaches;
+
+	@Autowired
+	private RechercheTransportRepository rechercheTransportRepository;
+
+	@Autowired
+	private ClientRepository clientRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@MockitoBean
+	private SessionsRechercheEnDirect sessionsRecherche;
+
+	private Client client;
+
+	@BeforeEach
+	void preparer() {
+		client = new Client();
+		client.setNom("client");
+		client.setPrenom("Test");
+		client.setEmail("client@lanayago.test");
+		client.setTelephone("690000000");
+		client.setMotDePasse("secret");
+		client.setTypeUtilisateur(TypeUtilisateur.CLIENT);
+		client = clientRepository.save(client);
+	}
+
+	@AfterEach
+	void nettoyer() {
+		rechercheTransportRepository.deleteAll();
+		clientRepository.deleteAll();
+		jdbcTemplate.update("DELETE FROM verrous_taches");
+	}
+
+	@Test
+	void unSecondProprietaireEstRefusePendantLeBail() {
+		BailTaches autreInstance = new BailTaches(jdbcTemplate);
+
+		assertThat(bailTaches.acquerir(TACHE, Duration.ofMinutes(10))).isTrue();
+		assertThat(autreInstance.acquerir(TACHE, Duration.ofMinutes(10))).isFalse();
+		// Le détenteur prolonge son propre bail
+		assertThat(bailTaches.acquerir(TACHE, Duration.ofMinutes(10))).isTrue();
+	}
+
+	@Test
+	void unBailExpireEstRepris() {
+		BailTaches autreInstance = new BailTaches(jdbcTemplate);
+		assertThat(bailTaches.acquerir(TACHE, Duration.ofMinutes(10))).isTrue();
+
+		jdbcTemplate.update("UPDATE verrous_taches SET expiration = ? WHERE nom = ?", System.currentTimeMillis() - 1, TACHE);
+
+		assertThat(autreInstance.acquerir(TACHE, Duration.ofMinutes(10))).isTrue();
+		assertThat(bailTaches.acquerir(TACHE, Duration.ofMinutes(10))).isFalse();
+	}
+
+	@Test
+	void libererNeRendQueLeBailDeLAppelant() {
+		BailTaches autreInstance = new BailTaches(jdbcTemplate);
+		assertThat(bailTaches.acquerir(TACHE, Duration.ofMinutes(10))).isTrue();
+
+		autreInstance.liberer(TACHE);
+		assertThat(autreInstance.acquerir(TACHE, Duration.ofMinutes(10))).isFalse();
+
+		bailTaches.liberer(TACHE);
+		assertThat(autreInstance.acquerir(TACHE, Duration.ofMinutes(10))).isTrue();
+	}
+
+	@Test
+	void uneExecutionParLotsRespecteLeMaximum() {
+		List<Long> perimees = new ArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			perimees.add(recherche(LocalDateTime.now().minusHours(2)).getId());
+		}
+		Long recente = recherche(LocalDateTime.now()).getId();
+
+		expirationRecherchesService.executer();
+
+		// Cinq au plus par exécution, les plus anciens id d'abord ; les sessions sont retirées après validation
+		assertThat(actives()).containsExactlyInAnyOrder(perimees.get(5), perimees.get(6), recente);
+		verify(sessionsRecherche, times(5)).retirer(any());
+		perimees.subList(0, 5).forEach(id -> verify(sessionsRecherche).retirer(id));
+
+		// Le bail est rendu : l'exécution suivante termine le travail
+		expirationRecherchesService.executer();
+		assertThat(actives()).containsExactly(recente);
+	}
+
+	@Test
+	void aucuneExpirationQuandUneAutreInstanceTientLeBail() {
+		recherche(LocalDateTime.now().minusHours(2));
+		assertThat(new BailTaches(jdbcTemplate).acquerir(TACHE, Duration.ofMinutes(10))).isTrue();
+
+		expirationRecherchesService.executer();
+
+		assertThat(actives()).hasSize(1);
+		verify(sessionsRecherche, never()).retirer(any());
+	}
+
+	private List<Long> actives() {
+		return jdbcTemplate.queryForList("SELECT id FROM recherches_transport WHERE active = TRUE", Long.class);
+	}
+
+	private RechercheTransport recherche(LocalDateTime dateCreation) {
+		RechercheTransport recherche = new RechercheTransport();
+		recherche.setClient(client);
+		recherche.setLatitudeDepart(4.05);
+		recherche.setLongitudeDepart(9.7);
+		recherche.setAdresseDepart("Akwa, Douala");
+		recherche.setLatitudeArrivee(4.06);
+		recherche.setLongitudeArrivee(9.72);
+		recherche.setAdresseArrivee("Bonapriso, Douala");
+		recherche.setPoidsMarchandise(BigDecimal.valueOf(200));
+		recherche.setDistance(3.0);
+		recherche.setTarifEstime(BigDecimal.valueOf(2500));
+		recherche.setDateCreation(dateCreation);
+		return rechercheTransportRepository.save(recherche);
+	}
+}
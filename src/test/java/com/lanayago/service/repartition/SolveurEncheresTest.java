@@ -0,0 +1,70 @@
+package com.lanayago.service.repartition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SolveurEncheresTest {
+
+	@Test
+	void affectationOptimaleSurMatricesRectangulaires() {
+		Random aleatoire = new Random(7);
+		for (int essai = 0; essai < 2_000; essai++) {
+			int lignes = 1 + aleatoire.nextInt(6);
+			int colonnes = 1 + aleatoire.nextInt(6);
+			int nonAffectation = 50 + aleatoire.nextInt(100);
+			int[] couts = new int[lignes * colonnes];
+			for (int k = 0; k < couts.length; k++) {
+				couts[k] = aleatoire.nextInt(200);
+			}
+
+			int[] affectations = SolveurEncheres.resoudre(couts, lignes, colonnes, nonAffectation);
+
+			Set<Integer> prises = new HashSet<>();
+			long total = 0;
+			for (int i = 0; i < lignes; i++) {
+				if (affectations[i] == SolveurEncheres.NON_AFFECTE) {
+					total += nonAffectation;
+					continue;
+				}
+				assertThat(prises.add(affectations[i])).isTrue();
+				assertThat(couts[i * colonnes + affectations[i]]).isLessThan(nonAffectation);
+				total += couts[i * colonnes + affectations[i]];
+			}
+			assertThat(total).isEqualTo(optimum(couts, lignes, colonnes, nonAffectation, 0, new boolean[colonnes]));
+		}
+	}
+
+	@Test
+	void pairesInterditesLaissentLaLigneSansColonne() {
+		int[] couts = {
+				10, 500,
+				500, 500,
+		};
+
+		assertThat(SolveurEncheres.resoudre(couts, 2, 2, 100)).containsExactly(0, SolveurEncheres.NON_AFFECTE);
+	}
+
+	/**
+	 * Énumération exhaustive, pour de petites matrices
+	 */
+	private static long optimum(int[] couts, int lignes, int colonnes, int nonAffectation, int ligne, boolean[] prises) {
+		if (ligne == lignes) {
+			return 0;
+		}
+		long meilleur = nonAffectation + optimum(couts, lignes, colonnes, nonAffectation, ligne + 1, prises);
+		for (int j = 0; j < colonnes; j++) {
+			int cout = couts[ligne * colonnes + j];
+			if (!prises[j] && cout < nonAffectation) {
+				prises[j] = true;
+				meilleur = Math.min(meilleur, cout + optimum(couts, lignes, colonnes, nonAffectation, ligne + 1, prises));
+				prises[j] = false;
+			}
+		}
+		return meilleur;
+	}
+}
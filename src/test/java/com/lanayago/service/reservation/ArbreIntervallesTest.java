@@ -0,0 +1,50 @@
+package com.lanayago.service.reservation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArbreIntervallesTest {
+
+	@Test
+	void chevauchementConformeAuParcoursExhaustif() {
+		Random aleatoire = new Random(3);
+		ArbreIntervalles arbre = new ArbreIntervalles();
+		Map<Long, long[]> reference = new HashMap<>();
+
+		for (int operation = 0; operation < 20_000; operation++) {
+			long cle = aleatoire.nextInt(300);
+			long debut = aleatoire.nextInt(10_000);
+			long fin = debut + 1 + aleatoire.nextInt(200);
+			switch (aleatoire.nextInt(3)) {
+				case 0 -> {
+					arbre.inserer(cle, debut, fin);
+					reference.put(cle, new long[]{debut, fin});
+				}
+				case 1 -> assertThat(arbre.supprimer(cle)).isEqualTo(reference.remove(cle) != null);
+				default -> {
+					boolean attendu = reference.values().stream().anyMatch(i -> i[0] < fin && debut < i[1]);
+					assertThat(arbre.chevauche(debut, fin)).isEqualTo(attendu);
+				}
+			}
+		}
+		assertThat(arbre.taille()).isEqualTo(reference.size());
+	}
+
+	@Test
+	void intervallesContigusNeSeChevauchentPas() {
+		ArbreIntervalles arbre = new ArbreIntervalles();
+		arbre.inserer(1, 100, 200);
+
+		assertThat(arbre.chevauche(200, 300)).isFalse();
+		assertThat(arbre.chevauche(0, 100)).isFalse();
+		assertThat(arbre.chevauche(199, 201)).isTrue();
+
+		assertThat(arbre.purgerAvant(200)).isEqualTo(1);
+		assertThat(arbre.chevauche(150, 160)).isFalse();
+	}
+}
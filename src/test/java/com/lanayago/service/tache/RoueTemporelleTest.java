@@ -0,0 +1,54 @@
+package com.lanayago.service.tache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoueTemporelleTest {
+
+	// 8 cases de 10 ms par niveau : 80 ms au premier niveau, 640 ms au deuxième
+	private final RoueTemporelle roue = new RoueTemporelle("roue-test", Duration.ofMillis(10), 8, Runnable::run);
+
+	@AfterEach
+	void arreter() {
+		roue.close();
+	}
+
+	@Test
+	void echeancesDesNiveauxSuperieursRedescendentEtEchoientDansLOrdre() throws Exception {
+		List<Integer> echues = new CopyOnWriteArrayList<>();
+		CountDownLatch fin = new CountDownLatch(4);
+		long debut = System.nanoTime();
+		for (int delai : new int[]{700, 30, 120, 250}) {
+			roue.planifier(Duration.ofMillis(delai), () -> {
+				echues.add(delai);
+				fin.countDown();
+			});
+		}
+
+		assertThat(fin.await(2, TimeUnit.SECONDS)).isTrue();
+		assertThat(echues).containsExactly(30, 120, 250, 700);
+		assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - debut)).isGreaterThanOrEqualTo(700);
+		assertThat(roue.getNombreEnAttente()).isZero();
+	}
+
+	@Test
+	void echeanceAnnuleeNEchoitPas() throws Exception {
+		List<String> echues = new CopyOnWriteArrayList<>();
+		CountDownLatch temoin = new CountDownLatch(1);
+		RoueTemporelle.Echeance annulee = roue.planifier(Duration.ofMillis(40), () -> echues.add("annulee"));
+		roue.planifier(Duration.ofMillis(100), temoin::countDown);
+
+		assertThat(annulee.annuler()).isTrue();
+		assertThat(temoin.await(2, TimeUnit.SECONDS)).isTrue();
+		assertThat(echues).isEmpty();
+		assertThat(annulee.annuler()).isFalse();
+	}
+}
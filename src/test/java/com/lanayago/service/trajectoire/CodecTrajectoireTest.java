@@ -0,0 +1,58 @@
+package com.lanayago.service.trajectoire;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class CodecTrajectoireTest {
+
+	@Test
+	void alleRetourJusquaSegmentPlein() {
+		Random aleatoire = new Random(7);
+		CodecTrajectoire.Encodeur encodeur = new CodecTrajectoire.Encodeur();
+		List<PointTrajectoire> attendus = new ArrayList<>();
+
+		long horodatage = 1_760_000_000_000L;
+		double latitude = 4.0511;
+		double longitude = -9.7679;
+		while (true) {
+			// Pings en retard, sauts de temps et hémisphères opposés
+			horodatage += aleatoire.nextInt(10) == 0 ? -aleatoire.nextInt(30_000) : aleatoire.nextInt(5_000);
+			latitude += (aleatoire.nextDouble() - 0.5) * 0.01;
+			longitude = aleatoire.nextInt(50) == 0 ? -longitude : longitude + (aleatoire.nextDouble() - 0.5) * 0.01;
+			if (!encodeur.ajouter(horodatage, latitude, longitude)) {
+				break;
+			}
+			attendus.add(new PointTrajectoire(horodatage, latitude, longitude));
+		}
+
+		List<PointTrajectoire> decodes = CodecTrajectoire.decoder(encodeur.octets(), encodeur.getNombrePoints()).toList();
+
+		assertThat(decodes).hasSize(attendus.size());
+		for (int i = 0; i < attendus.size(); i++) {
+			assertThat(decodes.get(i).horodatage()).isEqualTo(attendus.get(i).horodatage());
+			assertThat(decodes.get(i).latitude()).isCloseTo(attendus.get(i).latitude(), within(1e-6));
+			assertThat(decodes.get(i).longitude()).isCloseTo(attendus.get(i).longitude(), within(1e-6));
+		}
+		assertThat(encodeur.octets().length).isLessThanOrEqualTo(CodecTrajectoire.TAILLE_SEGMENT);
+	}
+
+	@Test
+	void bornesDuSegmentSurPointsDesordonnes() {
+		CodecTrajectoire.Encodeur encodeur = new CodecTrajectoire.Encodeur();
+		encodeur.ajouter(2_000, 4.05, 9.70);
+		encodeur.ajouter(1_000, 4.06, 9.71);
+		encodeur.ajouter(3_000, 4.07, 9.72);
+		encodeur.ajouter(2_500, 4.08, 9.73);
+
+		assertThat(encodeur.getHorodatageMinimal()).isEqualTo(1_000);
+		assertThat(encodeur.getHorodatageMaximal()).isEqualTo(3_000);
+		assertThat(CodecTrajectoire.decoder(encodeur.octets(), 4).map(PointTrajectoire::horodatage))
+				.containsExactly(2_000L, 1_000L, 3_000L, 2_500L);
+	}
+}